@@ -0,0 +1,293 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.CompiledPattern;
+import sexpression.ListExpression;
+import sexpression.StringExpression;
+import sexpression.StringWildcard;
+import sexpression.stream.ASEFrameDecoder;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This layer compresses large announcements. It sits below the integrity
+ * layer, so what is signed (and what every message pointer and the hash chain
+ * are computed over, see {@link Message#getHash()}) is always the uncompressed
+ * canonical form; compression only changes the bytes on the wire and in the
+ * log.<br>
+ * <br>
+ * Announcements at least as long as the threshold are DEFLATEd, with a preset
+ * dictionary of the strings every announcement is full of (layer keywords,
+ * event names, and the class names ASEConverter writes out), into
+ * (compressed [codec] [size] [bytes]). The codec names the algorithm and the
+ * dictionary, so a host can always tell whether it is able to read a datum.
+ * Every host reads compressed data whatever its own threshold is; messages are
+ * flooded on as they arrived, so there is nothing to agree on per link.
+ */
+public class AuditoriumCompressionLayer extends AAuditoriumLayer {
+
+    /** The codec this layer writes: DEFLATE with the first version of the dictionary */
+    public static final String CODEC = "deflate-1";
+
+    /** The pattern for compressed data, of the form (compressed [codec] [size] [bytes]) */
+    public static final ASExpression PATTERN = new ListExpression(StringExpression.makeString("compressed"),
+            StringWildcard.SINGLETON, StringWildcard.SINGLETON, StringWildcard.SINGLETON);
+
+    /** PATTERN, compiled, since every announcement received is checked against it */
+    private static final CompiledPattern MATCH = CompiledPattern.compile( PATTERN );
+
+    /**
+     * The largest datum that will be compressed or expanded, in bytes. Data
+     * are expanded before their signatures are checked, so this is kept well
+     * below the largest frame a link will take.
+     */
+    public static final int MAX_SIZE = ASEFrameDecoder.MAX_FRAME / 16;
+
+    /**
+     * The most a datum may expand, as a multiple of its compressed bytes, so a
+     * small frame can't claim (or inflate to) a large datum. Data that
+     * compress better than this are sent uncompressed.
+     */
+    public static final int MAX_RATIO = 64;
+
+    /**
+     * The preset dictionary. DEFLATE finds matches nearer the end of the
+     * dictionary more cheaply, so the most common strings go last. Changing
+     * this means changing the codec name.
+     */
+    private static final byte[] DICTIONARY = dictionary(
+            "java.lang.Integer", "java.lang.String", "java.lang.Boolean", "java.util.List", "java.util.ArrayList",
+            "java.util.HashMap", "java.math.BigInteger", "NULL", "object", "crypto.adder.AdderInteger",
+            "crypto.adder.AdderPublicKey", "crypto.adder.EEGMembershipProof", "crypto.adder.Race",
+            "crypto.EncryptedRaceSelection", "crypto.PlaintextRaceSelection", "crypto.ExponentialElGamalCiphertext",
+            "ballot-upload", "commit-ballot", "cast-ballot", "encrypted-cast-ballot",
+            "encrypted-cast-ballot-with-nizks", "authorized-to-cast", "authorized-to-cast-with-nizks",
+            "provisional-ballot", "commit-provisional-ballot", "polls-open", "polls-closed", "status", "votebox",
+            "supervisor", "tap-machine", "ballotscanner", "announcement-batch", "signature", "cert", "ca",
+            "signed-message", "ptr", "succeeds");
+
+    /** Compress data at least this long, in bytes (0 to never compress) */
+    private final int threshold;
+
+    /**
+     * Constructor.
+     *
+     * @param child         The layer below this layer.
+     * @param host          The host that is using this stack of layers.
+     * @param threshold     Compress announcements whose canonical form is at least this many bytes (0 to never
+     *                      compress; compressed announcements from other hosts are read either way).
+     */
+    public AuditoriumCompressionLayer(AAuditoriumLayer child, IAuditoriumHost host, int threshold) {
+        super( child, host );
+        this.threshold = threshold;
+    }
+
+    /**
+     * @see auditorium.IAuditoriumLayer#makeAnnouncement(sexpression.ASExpression)
+     */
+    public ASExpression makeAnnouncement(ASExpression datum) {
+        return getChild().makeAnnouncement( compress( datum ) );
+    }
+
+    /**
+     * We don't do anything to joins, so just pass it down.
+     *
+     * @see auditorium.IAuditoriumLayer#makeJoin(sexpression.ASExpression)
+     */
+    public ASExpression makeJoin(ASExpression datum) {
+        return getChild().makeJoin( datum );
+    }
+
+    /**
+     * We don't do anything to join replies, so just pass it down.
+     *
+     * @see auditorium.IAuditoriumLayer#makeJoinReply(sexpression.ASExpression)
+     */
+    public ASExpression makeJoinReply(ASExpression joinMessage) {
+        return getChild().makeJoinReply( joinMessage );
+    }
+
+    /**
+     * @see auditorium.IAuditoriumLayer#receiveAnnouncement(sexpression.ASExpression)
+     */
+    public ASExpression receiveAnnouncement(ASExpression datum) throws IncorrectFormatException {
+        return expand( getChild().receiveAnnouncement( datum ) );
+    }
+
+    /**
+     * We don't handle receiving join replies, pass it on.
+     *
+     * @see auditorium.IAuditoriumLayer#receiveJoinReply(sexpression.ASExpression)
+     */
+    public ASExpression receiveJoinReply(ASExpression datum) throws IncorrectFormatException {
+        return getChild().receiveJoinReply( datum );
+    }
+
+    /**
+     * We don't handle receiving joins, pass it on.
+     *
+     * @see auditorium.IAuditoriumLayer#receiveJoin(sexpression.ASExpression)
+     */
+    public ASExpression receiveJoin(ASExpression datum) throws IncorrectFormatException {
+        return getChild().receiveJoin( datum );
+    }
+
+    /**
+     * Compress a datum if it is long enough, and if compressing it actually
+     * makes it shorter.
+     *
+     * @param datum         The datum.
+     * @return              The compressed datum, or the datum itself.
+     */
+    public ASExpression compress(ASExpression datum) {
+        if (threshold <= 0)
+            return datum;
+
+        byte[] canonical = datum.toVerbatim();
+        if (canonical.length < threshold || canonical.length > MAX_SIZE)
+            return datum;
+
+        Deflater deflater = new Deflater( Deflater.BEST_COMPRESSION );
+        try {
+            deflater.setDictionary( DICTIONARY );
+            deflater.setInput( canonical );
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream( canonical.length / 4 );
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished())
+                out.write( chunk, 0, deflater.deflate( chunk ) );
+
+            /* The wrapper costs a few dozen bytes, so don't bother unless there's a real saving */
+            if (out.size() + 32 >= canonical.length)
+                return datum;
+
+            /* Nor send anything another host would refuse to expand */
+            if (canonical.length > (long) out.size() * MAX_RATIO)
+                return datum;
+
+            return new ListExpression( StringExpression.symbol( "compressed" ), StringExpression.makeString( CODEC ),
+                    StringExpression.makeString( Integer.toString( canonical.length ) ),
+                    StringExpression.makeString( out.toByteArray() ) );
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Get the canonical form of a datum that may have been compressed.
+     *
+     * @param datum         The datum.
+     * @return              The datum itself if it isn't compressed, or the datum it expands to.
+     *
+     * @throws IncorrectFormatException Thrown if the datum claims to be compressed, but can't be expanded.
+     */
+    public static ASExpression expand(ASExpression datum) throws IncorrectFormatException {
+        byte[] canonical = expandVerbatim( datum );
+        if (canonical == null)
+            return datum;
+
+        try {
+            return ASExpression.makeCanonical( canonical );
+        }
+        catch (InvalidVerbatimStreamException e) {
+            throw new IncorrectFormatException( datum, e );
+        }
+    }
+
+    /**
+     * Get the canonical verbatim bytes of a datum, if it is compressed. The
+     * claimed size has to be within MAX_SIZE and MAX_RATIO of the compressed
+     * bytes, and the buffer grows with what is actually inflated, so memory
+     * is only spent on output the sender really produced.
+     *
+     * @param datum         The datum.
+     * @return              The expanded bytes, or null if the datum isn't compressed.
+     *
+     * @throws IncorrectFormatException Thrown if the datum claims to be compressed, but can't be expanded.
+     */
+    public static byte[] expandVerbatim(ASExpression datum) throws IncorrectFormatException {
+        ASExpression[] fields = new ASExpression[MATCH.getSlotCount()];
+        if (!MATCH.match( datum, fields ))
+            return null;
+
+        if (!fields[0].toString().equals( CODEC ))
+            throw new IncorrectFormatException( datum, new Exception( "unknown codec " + fields[0] ) );
+
+        byte[] compressed = ((StringExpression) fields[2]).getBytes();
+        long size = SeenIndex.parseSequence( fields[1].toString() );
+        if (size < 0 || size > Math.min( MAX_SIZE, (long) compressed.length * MAX_RATIO ))
+            throw new IncorrectFormatException( datum, new Exception( "bad size " + fields[1] ) );
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput( compressed );
+
+            byte[] canonical = new byte[(int) Math.min( size, Math.max( 8192, compressed.length * 4L ) )];
+            int read = 0;
+            while (read < size) {
+                if (read == canonical.length)
+                    canonical = Arrays.copyOf( canonical, (int) Math.min( size, canonical.length * 2L ) );
+
+                int n = inflater.inflate( canonical, read, canonical.length - read );
+                if (n == 0 && inflater.needsDictionary())
+                    inflater.setDictionary( DICTIONARY );
+                else if (n == 0 && (inflater.finished() || inflater.needsInput()))
+                    break;
+                read += n;
+            }
+
+            if (read != size || !inflater.finished())
+                throw new IncorrectFormatException( datum, new Exception( "compressed data doesn't match its size" ) );
+
+            return canonical;
+        }
+        catch (DataFormatException e) {
+            throw new IncorrectFormatException( datum, e );
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Build the preset dictionary from the strings it should hold, in verbatim
+     * form, as they appear on the wire.
+     */
+    private static byte[] dictionary(String... strings) {
+        ArrayList<ASExpression> list = new ArrayList<>( strings.length );
+        for (String s : strings)
+            list.add( StringExpression.makeString( s ) );
+
+        return new ListExpression( list ).toVerbatim();
+    }
+}
@@ -28,9 +28,11 @@ import sexpression.stream.ASEInputStreamReader;
 import sexpression.stream.InvalidVerbatimStreamException;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.*;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class implements the auditorium discovery protocol. An instance of this
@@ -44,13 +46,21 @@ import java.util.LinkedList;
  * discover request (which contains a contact address and port), then it opens a
  * TCP socket to said address and port and sends a list of all connected hosts.<br>
  * <br>
+ * Replies to this host's own discover requests arrive on a second thread,
+ * which keeps the reply port open for as long as the host runs. Each reply is
+ * handed to whichever discoveries are in progress as it arrives, so a
+ * discovery can report hosts as they answer and can stop waiting once it has
+ * heard from enough of them. The hosts this machine has been connected to are
+ * also kept in a {@link PeerCache}, so that after a reboot it can rejoin them
+ * without a discovery at all.<br>
+ * <br>
  * For more information about the format of discovery messages, see the <a
  * href="https://sys.cs.rice.edu/votebox/trac/">project wiki</a>
  * 
  * @author Kyle Derr
  * 
  */
-public class AuditoriumDiscoveryHost {
+public class AuditoriumDiscoveryHost implements IDiscoveryHost {
 
     /** The AuditoriumHost to whom this discovery host belongs */
     private final IAuditoriumHost host;
@@ -64,6 +74,18 @@ public class AuditoriumDiscoveryHost {
     /** The address of the AuditoriumHost*/
     private final HostPointer hostAddress;
 
+    /** Starts the discovery thread */
+    private final HostThreads threads;
+
+    /** The hosts this machine was last connected to */
+    private final PeerCache peers;
+
+    /** The discoveries waiting on replies */
+    private final CopyOnWriteArrayList<Round> rounds = new CopyOnWriteArrayList<>();
+
+    /** The socket that discover replies are accepted on, or null if it isn't open */
+    private ServerSocket replySocket;
+
     /** Denotes if this host is running */
     private volatile boolean running;
 
@@ -78,10 +100,24 @@ public class AuditoriumDiscoveryHost {
      * @param constants         Global constants needed in discovery (timeouts, etc) are defined here.
      */
     public AuditoriumDiscoveryHost(IAuditoriumHost host, IAuditoriumParams constants) {
+        this( host, constants, HostThreads.DEFAULT );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param host              A discovery host must belong to an auditorium host (it has to know
+     *                          *what* to tell other hosts is available)
+     * @param constants         Global constants needed in discovery (timeouts, etc) are defined here.
+     * @param threads           Start the discovery thread with this.
+     */
+    public AuditoriumDiscoveryHost(IAuditoriumHost host, IAuditoriumParams constants, HostThreads threads) {
 
         /* Initialize the fields */
         this.host = host;
         this.constants = constants;
+        this.threads = threads;
+        peers = new PeerCache( constants.getPeerCache().isEmpty() ? null : new File( constants.getPeerCache() ) );
 
         /* figure out the host's address */
         hostAddress = host.getMe();
@@ -119,12 +155,20 @@ public class AuditoriumDiscoveryHost {
         }
 
         /* Start listening in a thread */
-        new Thread( new Runnable() {
+        threads.start( "auditorium-discover", new Runnable() {
 
             public void run() {
                 discoverListenerThread();
             }
-        } ).start();
+        } );
+
+        /* Open the reply port now, so the first discovery doesn't have to (it will retry if this fails) */
+        try {
+            openReplySocket();
+        }
+        catch (NetworkException e) {
+            Bugout.err( "Discovery: " + e.getMessage() );
+        }
     }
 
     /**
@@ -134,8 +178,9 @@ public class AuditoriumDiscoveryHost {
         Bugout.msg( "Discovery: STOPPING" );
         running = false;
 
-        /* Close the socket */
+        /* Close the sockets */
         discoverSocket.close();
+        closeReplySocket();
     }
 
     /**
@@ -149,90 +194,210 @@ public class AuditoriumDiscoveryHost {
      *         discovery operation.
      */
     public HostPointer[] discover() throws NetworkException {
+        return discover( constants.getDiscoverPeers(), null );
+    }
+
+    /**
+     * Broadcast a discover request, and wait for responses, as in discover(),
+     * but report each host to the given listener as soon as it answers, and
+     * stop waiting once enough hosts have answered.
+     *
+     * @param enough        Return as soon as this many hosts have answered (0 to wait out the discover timeout).
+     * @param listener      Report each host to this as it answers, or null.
+     * @return              All the hosts that answered before this returned.
+     */
+    public HostPointer[] discover(int enough, IDiscoveryListener listener) throws NetworkException {
+        openReplySocket();
 
         /* Build the socket infrastructure */
         DatagramSocket sendSocket;
-        ServerSocket listenSocket;
         try {
             /* Bind the outgoing socket */
         	sendSocket = new DatagramSocket();
-
-            /* bind the incoming socket based on the specified ports */
-        	listenSocket = new ServerSocket( constants.getDiscoverReplyPort() );
-        	listenSocket.setSoTimeout(constants.getDiscoverTimeout());
         }
         catch (IOException e) {
             throw new NetworkException( "Cannot bind sockets", e );
         }
 
-        LinkedList<HostPointer> ret = new LinkedList<>();
+        /* Be ready for replies before anyone could send one */
+        Round round = new Round( enough, listener );
+        rounds.add( round );
 
-        /* Send the discover message.*/
         try {
+            /* Send the discover message.*/
+            try {
+
+                /* Build the message */
+                Message discMsg = new Message("Discover", hostAddress, host.nextSequence(), discoverAddress.toASE());
 
-            /* Build the message */
-            Message discMsg = new Message("Discover", hostAddress, host.nextSequence(), discoverAddress.toASE());
+                /* Serialize the message */
+                byte[] discBytes = discMsg.toASE().toVerbatim();
 
-            /* Serialize the message */
-            byte[] discBytes = discMsg.toASE().toVerbatim();
+                /* Send the message in a packet */
+                sendSocket.send(new DatagramPacket(discBytes, discBytes.length, InetAddress.getByName(constants.getBroadcastAddress()), constants.getDiscoverPort()));
 
-            /* Send the message in a packet */
-            sendSocket.send(new DatagramPacket(discBytes, discBytes.length, InetAddress.getByName(constants.getBroadcastAddress()), constants.getDiscoverPort()));
+                /* Report that we're sending a message to the console */
+                Bugout.msg("Discover: sending: " + new MessagePointer(discMsg));
+            }
+            catch (UnknownHostException e) {
+                throw new FatalNetworkException("Could not establish the all-ones address.", e);
+            }
+            catch (IOException e) {
+                throw new NetworkException( "Problem sending discover packet.", e );
+            }
+            finally {
+                sendSocket.close();
+            }
 
-            /* Report that we're sending a message to the console */
-            Bugout.msg("Discover: sending: " + new MessagePointer(discMsg));
+            /* Wait for the responses (the reply thread fills them in) */
+            return round.await( constants.getDiscoverTimeout() );
         }
-        catch (UnknownHostException e) {
-            throw new FatalNetworkException("Could not establish the all-ones address.", e);
+        finally {
+            rounds.remove( round );
+        }
+    }
+
+    /**
+     * @return The hosts this machine was last connected to, most recent first.
+     */
+    public HostPointer[] getCachedPeers() {
+        return peers.get();
+    }
+
+    /**
+     * Note that this machine is connected to a host, so it can rejoin it after
+     * a reboot.
+     *
+     * @param host      This machine is connected to this host.
+     */
+    public void rememberPeer(HostPointer host) {
+        peers.remember( host );
+    }
+
+    /**
+     * Note that a host couldn't be reached, so it isn't tried after a reboot.
+     *
+     * @param host      This host couldn't be reached.
+     */
+    public void forgetPeer(HostPointer host) {
+        peers.forget( host );
+    }
+
+    /**
+     * Open the discover reply port, and start the thread that accepts replies
+     * on it, unless that's already been done.
+     *
+     * @throws NetworkException Thrown if the reply port can't be bound.
+     */
+    private synchronized void openReplySocket() throws NetworkException {
+        if (replySocket != null)
+            return;
+
+        final ServerSocket socket;
+        try {
+            socket = new ServerSocket( constants.getDiscoverReplyPort() );
         }
         catch (IOException e) {
-            throw new NetworkException( "Problem sending discover packet.", e );
+            throw new NetworkException( "Cannot bind the discover reply socket: " + e.getMessage(), e );
+        }
+
+        replySocket = socket;
+        threads.start( "auditorium-discover-reply", new Runnable() {
+
+            public void run() {
+                replyListenerThread( socket );
+            }
+        } );
+    }
+
+    /**
+     * Close the discover reply port, which stops the thread accepting on it.
+     */
+    private synchronized void closeReplySocket() {
+        if (replySocket == null)
+            return;
+
+        try {
+            replySocket.close();
         }
+        catch (IOException ignored) {}
+        replySocket = null;
+    }
 
-        /* Listen for a set of responses */
-        while (true) {
+    /**
+     * The thread that accepts replies to this host's discover requests. Each
+     * reply is read on its own thread, so that a slow replier doesn't hold up
+     * the rest.
+     *
+     * @param socket    Accept replies on this socket, until it is closed.
+     */
+    private void replyListenerThread(ServerSocket socket) {
+        Bugout.msg( "Discover: REPLY THREAD START" );
 
+        while (!socket.isClosed()) {
+            final Socket accepted;
             try {
                 /* try to bind an incoming connected socket */
                 Bugout.msg( "Discover: waiting for incoming socket connection" );
-                MessageSocket socket = new MessageSocket( listenSocket.accept() );
+                accepted = socket.accept();
+                accepted.setSoTimeout( constants.getDiscoverReplyTimeout() );
+            }
+            catch (IOException e) {
+                if (!socket.isClosed())
+                    Bugout.err( "Discover: IO Error accepting discover response: " + e.getMessage() );
+                continue;
+            }
 
-                /* Read in the message */
-                Bugout.msg( "Discover: awaiting bytes" );
-                Message response = socket.receive();
+            threads.start( "auditorium-discover-response", new Runnable() {
 
-                /* Report that we received a message */
-                Bugout.msg("Discover: received: " + new MessagePointer(response));
+                public void run() {
+                    readReply( accepted );
+                }
+            } );
+        }
 
-                /* Check that our message is the one we were looking for */
-                if (!response.getType().equals( "discover-reply" ))
-                    Bugout.err("Discover: response of incorrect type: " + response.toASE());
+        Bugout.msg( "Discover: REPLY THREAD END" );
+    }
 
-                /* Now iterate over the list of hosts that were included in the discover-reply message */
-                for (ASExpression ase : (ListExpression) response.getDatum()) {
+    /**
+     * Read a discover reply, and hand the hosts in it to every discovery in progress.
+     *
+     * @param accepted  The reply comes in on this socket.
+     */
+    private void readReply(Socket accepted) {
+        try {
+            MessageSocket socket = new MessageSocket( accepted );
 
-                    /* Build HostPointers and add them to our list of connections */
-                    HostPointer p = new HostPointer( ase );
-                    if (!ret.contains( p ))
-                        ret.add( p );
-                }
+            /* Read in the message */
+            Bugout.msg( "Discover: awaiting bytes" );
+            Message response = socket.receive();
 
-                /* close the socket */
-                socket.close();
-            }
-            catch (SocketTimeoutException e) {
-                /* If we time out, just get out of the loop */
-                break;
+            /* Report that we received a message */
+            Bugout.msg("Discover: received: " + new MessagePointer(response));
+
+            /* Check that our message is the one we were looking for */
+            if (!response.getType().equals( "discover-reply" ))
+                Bugout.err("Discover: response of incorrect type: " + response.toASE());
+
+            /* Now iterate over the list of hosts that were included in the discover-reply message */
+            for (ASExpression ase : (ListExpression) response.getDatum()) {
+                HostPointer p = new HostPointer( ase );
+                for (Round round : rounds)
+                    round.found( p );
             }
-            catch (IOException e) {
-                Bugout.err("Host: IO Error receiving discover response: " + e.getMessage());
-            } catch (IncorrectFormatException | ClassCastException e) {
-                Bugout.err("Host: Discover response was not formatted correctly: " + e.getMessage());
+        }
+        catch (NetworkException e) {
+            Bugout.err("Host: IO Error receiving discover response: " + e.getMessage());
+        }
+        catch (IncorrectFormatException | ClassCastException e) {
+            Bugout.err("Host: Discover response was not formatted correctly: " + e.getMessage());
+        }
+        finally {
+            try {
+                accepted.close();
             }
+            catch (IOException ignored) {}
         }
-
-        /* Return the received HostPointers in an array */
-        return ret.toArray(new HostPointer[ret.size()]);
     }
 
     /**
@@ -299,4 +464,66 @@ public class AuditoriumDiscoveryHost {
         /* Note the end of the thread */
         Bugout.msg( "Discover: THREAD END" );
     }
+
+    /**
+     * A discovery in progress: the hosts that have answered it so far, and
+     * when it can stop waiting.
+     */
+    private static class Round {
+
+        /** Stop waiting once this many hosts have answered, or 0 to wait out the timeout */
+        private final int enough;
+
+        /** Report each host to this as it answers, or null */
+        private final IDiscoveryListener listener;
+
+        /** The hosts that have answered, in the order they did */
+        private final LinkedHashSet<HostPointer> hosts = new LinkedHashSet<>();
+
+        /** Set once the discovery has stopped waiting, after which answers are ignored */
+        private boolean done;
+
+        private Round(int enough, IDiscoveryListener listener) {
+            this.enough = enough;
+            this.listener = listener;
+        }
+
+        /**
+         * Note that a host answered.
+         *
+         * @param host      This host answered.
+         */
+        private void found(HostPointer host) {
+            synchronized (this) {
+                if (done || !hosts.add( host ))
+                    return;
+
+                notifyAll();
+            }
+
+            if (listener != null)
+                listener.discovered( host );
+        }
+
+        /**
+         * Wait until enough hosts have answered, or the timeout passes.
+         *
+         * @param timeout   Wait at most this many milliseconds.
+         * @return          The hosts that answered.
+         */
+        private synchronized HostPointer[] await(long timeout) {
+            long deadline = System.currentTimeMillis() + timeout;
+            try {
+                long left;
+                while ((enough <= 0 || hosts.size() < enough) && (left = deadline - System.currentTimeMillis()) > 0)
+                    wait( left );
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            done = true;
+            return hosts.toArray( new HostPointer[hosts.size()] );
+        }
+    }
 }
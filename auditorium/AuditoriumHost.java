@@ -23,10 +23,15 @@
 package auditorium;
 
 import sexpression.ASExpression;
+import sexpression.CompiledPattern;
 import sexpression.ListExpression;
+import sexpression.ListWildcard;
 import sexpression.Nothing;
 import sexpression.StringExpression;
-import verifier.InvalidLogEntryException;
+import sexpression.Wildcard;
+import sexpression.stream.InvalidVerbatimStreamException;
+import verifier.BackgroundVerifier;
+import verifier.HashChainCompromisedException;
 import verifier.Verifier;
 import verifier.auditoriumverifierplugins.AuditoriumLog;
 import verifier.auditoriumverifierplugins.HashChainVerifier;
@@ -37,12 +42,21 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
-import java.net.ServerSocket;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Observer;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is the top level class that an application should interface with if it
@@ -57,9 +71,28 @@ import java.util.Observer;
  * network and puts them into the log. <br>
  * <b>Receive</b>: This thread takes messages that are heard by individual
  * links and does the appropriate thing with them (ignore or flood/tell
- * application). <b>Join</b>: This thread listens for join requests, responds
+ * application). Signatures on these messages are checked ahead of time by a
+ * pool of verifier threads, but the receive thread still logs the messages
+ * one at a time, in the order they arrived. Checking the log against the
+ * incremental rule is left to a {@link BackgroundVerifier}, so neither thread
+ * waits on it. <b>Join</b>: This thread listens for join requests, responds
  * appropriately, and sets up link structures.<br>
  * <br>
+ * The host's queue depths are kept in {@link Metrics#SINGLETON} along with
+ * each {@link Link}'s write times and drops, and the log's and RSACrypto's
+ * timings.<br>
+ * <br>
+ * Once a link is set up, each end sends the other a sync-request holding the
+ * marks of its log's {@link History}, and is answered with the messages it
+ * missed (while it was off the network, say) in sync-reply batches. These are
+ * logged and flooded like any other message heard on the link, but are not
+ * handed to the application: they happened before it was listening, and a
+ * host whose log was cut short would otherwise see the whole election again.<br>
+ * <br>
+ * A host given a {@link LoopbackNetwork} makes its connections and finds its
+ * peers on that network instead of with real sockets, so many hosts can be run
+ * in one JVM.<br>
+ * <br>
  * All thread synchronization (including the three aforementioned threads and
  * each link thread) is done in this class. This means that all other auditorium
  * classes are not thread safe. This is done to simplify matters.
@@ -130,23 +163,92 @@ public class AuditoriumHost implements IAuditoriumHost {
         }
     }
 
+    /** How long stop() waits for the host's threads to finish before interrupting them, in milliseconds */
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+
+    /** The default number of messages sent in one sync-reply */
+    public static final int DEFAULT_CATCH_UP_BATCH = 64;
+
+    /** The most messages the announce and receive threads will take off their queues per wakeup */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * Pattern for an envelope of several announcements sent as one message, of
+     * the form (announcement-batch (<announcement> ... <announcement>))
+     */
+    public static final ASExpression BATCH_PATTERN = new ListExpression(
+            StringExpression.makeString("announcement-batch"), new ListWildcard(Wildcard.SINGLETON));
+
+    /** BATCH_PATTERN, compiled, since every announcement received is checked against it */
+    private static final CompiledPattern BATCH_MATCH = CompiledPattern.compile(BATCH_PATTERN);
+
+    /**
+     * An announcement waiting to be made, and whether the log should be synced
+     * once it has been logged.
+     */
+    private static class Announcement {
+        /** The announcement itself */
+        final ASExpression datum;
+
+        /** Whether to sync the log after logging this announcement */
+        final boolean sync;
+
+        Announcement(ASExpression datum, boolean sync) {
+            this.datum = datum;
+            this.sync = sync;
+        }
+    }
+
+    /**
+     * A message heard by a link, and the signature check started for it (null
+     * if there isn't one).
+     */
+    private static class Inbound {
+        /** The message */
+        final Message message;
+
+        /** The signature check running in the verifier pool */
+        final Future<?> check;
+
+        /** True if the message came in a sync-reply, so isn't for the application */
+        final boolean caughtUp;
+
+        Inbound(Message message, Future<?> check, boolean caughtUp) {
+            this.message = message;
+            this.check = check;
+            this.caughtUp = caughtUp;
+        }
+    }
+
     /** The top layer of the network, in essence the head of a singly-linked list */
     private final IAuditoriumLayer head;
 
+    /** The layer that checks signatures, which the verifier pool uses directly */
+    private final AuditoriumIntegrityLayer integrity;
+
+    /** Threads that check signatures on incoming messages, or null if the receive thread does it */
+    private final ExecutorService verifyPool;
+
+    /** Starts every thread the host, its links and its discovery host run on */
+    private final HostThreads threads;
+
+    /** Reads and writes the sockets of every link */
+    private final ITransport transport;
+
     /** A reference to the discover host, through which connections are made */
-    private final AuditoriumDiscoveryHost discover;
+    private final IDiscoveryHost discover;
 
     /** A collection of constants, like default ports, log file paths, etc. */
     private final IAuditoriumParams constants;
 
     /** Queue for all incoming messages */
-    private final SynchronizedQueue<Pair> inQueue;
+    private final MPSCQueue<Pair> inQueue;
 
     /** Queue for all outgoing messages */
-    private final SynchronizedQueue<ASExpression> outQueue;
+    private final MPSCQueue<Announcement> outQueue;
 
-    /** Queue for all messages waiting to be processed */
-    private final SynchronizedQueue<Message> pendingQueue;
+    /** Queue for all messages waiting to be processed, in the order they arrived */
+    private final MPSCQueue<Inbound> pendingQueue;
 
     /** Pointer to this class */
     private final HostPointer me;
@@ -179,22 +281,46 @@ public class AuditoriumHost implements IAuditoriumHost {
 
     private final IncrementalAuditoriumLog incVerifierPlugin;
 
+    /** Checks the hash chain, as the log grows and (for a segmented log) across its segments once it is sealed */
+    private final HashChainVerifier hashChainVerifier;
+
+    /** True if the log is written in segments (see LogSegmenter) */
+    private final boolean segmented;
+
+    /** Checks the log against the incremental rule as it grows, on a thread of its own */
+    private final BackgroundVerifier backgroundVerifier;
+
     /** Reference to the log, where events are logged and sent out */
     private final Log log;
 
-    /** A counter to be used with the incremental log counter */
-    private long counter;
+    /** How long (in ms) to gather announcements into one envelope, 0 if each is sent on its own */
+    private final int batchWindow;
+
+    /** The most messages sent in one sync-reply, 0 if hosts don't catch each other up */
+    private final int catchUpBatch;
+
+    /** The hosts being caught up right now; each is only caught up by one thread at a time */
+    private final Set<HostPointer> catchingUp = ConcurrentHashMap.newKeySet();
 
     // Sockets
     /** The socket on which messages are received */
-    private ServerSocket listenSocket;
+    private IMessageServer listenSocket;
 
     // Thread state
     /** A flag to denote if a thread is running */
     private volatile boolean running;
 
+    /**
+     * Each launch of a host starts counting its sequence numbers from the time
+     * it was launched, in milliseconds, times this. A host that restarts then
+     * doesn't reuse the sequence numbers of its earlier launch (unless that
+     * launch sent this many messages per millisecond it ran, or the clock went
+     * back), so a message is identified by its node and sequence number.
+     */
+    public static final long SEQUENCES_PER_MS = 1000;
+
     /** A thread to denote the order that a message is sent out (essentially a monotonically increasing counter */
-    private volatile long sequence;
+    private final AtomicLong sequence;
 
     /**
      * Constructor.
@@ -203,6 +329,18 @@ public class AuditoriumHost implements IAuditoriumHost {
      * @param constants   The host will get constant information from this instance (timeouts, file locations, etc.)
      */
     public AuditoriumHost(String machineName, IAuditoriumParams constants, String launchCode) {
+        this( machineName, constants, launchCode, null );
+    }
+
+    /**
+     * Constructor for a host that may be on an in-process network, rather than a real one.
+     *
+     * @param machineName The host needs to be given an ID unique across the network. There also needs to be an entry in the key store that corresponds to this ID.
+     * @param constants   The host will get constant information from this instance (timeouts, file locations, etc.)
+     * @param network     Connect to and discover the other hosts on this network, or null to use real sockets. The
+     *                    transport setting is ignored if this is given.
+     */
+    public AuditoriumHost(String machineName, IAuditoriumParams constants, String launchCode, LoopbackNetwork network) {
         /* Initialize the info fields */
         nodeID = machineName;
         me = new HostPointer( machineName, getMyIP(), constants.getListenPort() );
@@ -210,15 +348,28 @@ public class AuditoriumHost implements IAuditoriumHost {
         
         /* Initialize the state fields */
         /* A mapping of all the layers of the network, referenced by their names */
-        AuditoriumIntegrityLayer integrity = new AuditoriumIntegrityLayer(
-                AAuditoriumLayer.BOTTOM, this, constants.getKeyStore() );
+        integrity = new AuditoriumIntegrityLayer(
+                new AuditoriumCompressionLayer( AAuditoriumLayer.BOTTOM, this, constants.getCompressionThreshold() ),
+                this, constants.getKeyStore() );
 
         head = new AuditoriumTemporalLayer(integrity, this);
-        discover = new AuditoriumDiscoveryHost( this, constants );
+        threads = new HostThreads( "virtual".equals( constants.getThreadMode() ) );
+        discover = network != null ? network.discovery( this, constants )
+                : new AuditoriumDiscoveryHost( this, constants, threads );
         this.constants = constants;
-        inQueue = new SynchronizedQueue<>();
-        outQueue = new SynchronizedQueue<>();
-        pendingQueue = new SynchronizedQueue<>();
+        batchWindow = constants.getAnnounceBatchWindow();
+        catchUpBatch = constants.getCatchUpBatch();
+        if (network != null)
+            transport = network.transport( threads );
+        else if ("nio".equals( constants.getTransport() ))
+            transport = new SelectorTransport( SelectorTransport.DEFAULT_SELECTORS, threads );
+        else
+            transport = new ThreadTransport( threads );
+        verifyPool = constants.getVerifyThreads() > 0 ? Executors.newFixedThreadPool( constants.getVerifyThreads(),
+                threads.factory( "auditorium-verify" ) ) : null;
+        inQueue = new MPSCQueue<>();
+        outQueue = new MPSCQueue<>();
+        pendingQueue = new MPSCQueue<>();
 
         /* Initialize the events */
         hostJoined = new Event<>();
@@ -236,7 +387,20 @@ public class AuditoriumHost implements IAuditoriumHost {
         		loadedRule = Verifier.readRule(constants.getRuleFile());
         	if(incrementalRuleFile != null)
                 loadedIncrementalRule = Verifier.readRule(constants.getIncrementalRuleFile());
-            log = new Log( new File( constants.getLogLocation() ), launchCode );
+            File logFile = new File( constants.getLogLocation() );
+            boolean fastChain = ChainHasher.FAST.equals( constants.getHashChainMode() );
+            segmented = constants.getLogSegmentSize() > 0 || constants.getLogSegmentInterval() > 0;
+            if (segmented)
+                log = new Log( new LogSegmenter( logFile, constants.getLogSegmentSize(), constants.getLogSegmentInterval(),
+                        constants.getLogSyncEvery(), constants.getLogSyncInterval(), constants.getLogPreallocation() ),
+                        launchCode, fastChain );
+            else
+                log = new Log( new LogSegmenter( new LogWriter( logFile, constants.getLogSyncEvery(),
+                        constants.getLogSyncInterval(), constants.getLogPreallocation() ) ), launchCode, fastChain );
+
+            /* Only a host that catches others up needs to know what it has logged */
+            if (catchUpBatch > 0)
+                log.keepHistory();
         }
         catch (FileNotFoundException e) {
             throw new FatalNetworkException( "Can't open file: "
@@ -245,7 +409,6 @@ public class AuditoriumHost implements IAuditoriumHost {
         
 
         /* Plugin to the verifier so it can ensure the integrity of logged messages */
-        HashChainVerifier hashChainVerifier;
         if (loadedRule != null) {
             incrementalRule = loadedIncrementalRule;
             rule = loadedRule;
@@ -254,13 +417,19 @@ public class AuditoriumHost implements IAuditoriumHost {
             verifierPlugin = new AuditoriumLog();
             HashMap<String, String> args = new HashMap<>();
             args.put("log", constants.getLogLocation());
+            args.put("hashchain", constants.getHashChainMode());
+            args.put("segmented", Boolean.toString( segmented ));
 
             verifier = new Verifier(args, incVerifierPlugin, verifierPlugin);
+            backgroundVerifier = new BackgroundVerifier( verifier, incVerifierPlugin, incrementalRule,
+                    constants.getIncrementalVerifyEvery(), constants.getIncrementalVerifyInterval() );
         } else {
             Bugout.err("Verifier failed to successfully load the rule");
         	rule = null;
             incrementalRule = null;
+            hashChainVerifier = null;
             incVerifierPlugin = null;
+            backgroundVerifier = null;
     		verifierPlugin = null;
 			verifier = null;
         }
@@ -268,7 +437,7 @@ public class AuditoriumHost implements IAuditoriumHost {
 	        
         /* Initialize the thread state */
         running = false;
-        sequence = 0;
+        sequence = new AtomicLong( System.currentTimeMillis() * SEQUENCES_PER_MS );
     }
 
     /**
@@ -283,28 +452,66 @@ public class AuditoriumHost implements IAuditoriumHost {
         discover.start();
         running = true;
 
+        /* Publish what's waiting on each queue */
+        Metrics metrics = Metrics.SINGLETON;
+        metrics.gauge( metricsPrefix() + "in-queue", new Metrics.Gauge() {
+
+            public long value() {
+                return inQueue.size();
+            }
+
+        } );
+        metrics.gauge( metricsPrefix() + "out-queue", new Metrics.Gauge() {
+
+            public long value() {
+                return outQueue.size();
+            }
+
+        } );
+        metrics.gauge( metricsPrefix() + "pending-queue", new Metrics.Gauge() {
+
+            public long value() {
+                return pendingQueue.size();
+            }
+
+        } );
+        if (backgroundVerifier != null) {
+            metrics.gauge( metricsPrefix() + "verify-backlog", new Metrics.Gauge() {
+
+                public long value() {
+                    return backgroundVerifier.backlog();
+                }
+
+            } );
+        }
+        metrics.register();
+        if (constants.getMetricsInterval() > 0)
+            metrics.dumpEvery( constants.getMetricsInterval() );
+
         /* Start ALL the threads! */
-        new Thread( new Runnable() {
+        threads.start( "auditorium-join", new Runnable() {
 
             public void run() {
                 joinListenerThread();
             }
 
-        } ).start();
-        new Thread( new Runnable() {
+        } );
+        threads.start( "auditorium-announce", new Runnable() {
 
             public void run() {
                 announceThread();
             }
 
-        } ).start();
-        new Thread( new Runnable() {
+        } );
+        threads.start( "auditorium-receive", new Runnable() {
 
             public void run() {
                 receiveThread();
             }
 
-        } ).start();
+        } );
+        if (backgroundVerifier != null)
+            threads.start( "auditorium-verifier", backgroundVerifier );
     }
 
     /**
@@ -319,18 +526,49 @@ public class AuditoriumHost implements IAuditoriumHost {
         running = false;
         discover.stop();
         disconnect();
+        transport.shutdown();
         inQueue.releaseThreads();
         outQueue.releaseThreads();
         pendingQueue.releaseThreads();
+        if (verifyPool != null)
+            verifyPool.shutdownNow();
+        if (backgroundVerifier != null)
+            backgroundVerifier.stop();
         try {
             listenSocket.close();
         }
         catch (IOException ignored) {}
 
+        /* Make sure the whole log is on disk before anyone reads it back (and wait out any batch in progress) */
+        synchronized (this) {
+            try {
+                log.close();
+            }
+            catch (IOException e) {
+                Bugout.err( "Host: couldn't close the log: " + e.getMessage() );
+            }
+        }
+
+        /* Everything has been told to stop, so wait for it to (outside the lock, which the links need to leave) */
+        threads.shutdown( SHUTDOWN_TIMEOUT );
+        Metrics.SINGLETON.remove( metricsPrefix() );
+        if (constants.getMetricsInterval() > 0)
+            Metrics.SINGLETON.dumpEvery( 0 );
+
         /* Note the results of the auditing */
         if (verifier != null) {
             verifierPlugin.init(verifier);
         	System.out.println( "Verification result:" + verifier.eval( rule ) );
+
+            /* The entries were chained as they were logged, but the segments' footers have yet to be checked */
+            if (segmented) {
+                try {
+                    hashChainVerifier.verify();
+                }
+                catch (HashChainCompromisedException e) {
+                    Bugout.err( "Host: the log's segments failed to verify: " + e.getMessage() );
+                }
+            }
         }
     }
 
@@ -354,6 +592,27 @@ public class AuditoriumHost implements IAuditoriumHost {
         return discover.discover();
     }
 
+    /**
+     * Discover other hosts nearby, as in discover(), but report each host as it
+     * answers, and return as soon as enough hosts have.
+     *
+     * @param enough        Return as soon as this many hosts have answered (0 to wait out the discover timeout).
+     * @param listener      Report each host to this as it answers, or null.
+     * @return              an array of pointers to the hosts that answered.
+     */
+    public HostPointer[] discover(int enough, IDiscoveryListener listener) throws NetworkException {
+        return discover.discover( enough, listener );
+    }
+
+    /**
+     * @return The hosts this machine was last connected to (possibly before a
+     *         restart), most recent first. Joining these is much quicker than
+     *         discovering them.
+     */
+    public HostPointer[] getCachedPeers() {
+        return discover.getCachedPeers();
+    }
+
     /**
      * Create a link to a specific host. The join is carried out in the calling
      * thread. Expect this call to block for a short amount of time.
@@ -373,7 +632,16 @@ public class AuditoriumHost implements IAuditoriumHost {
 
         /* Send the join */
         Message joinMsg = new Message("join", me, nextSequence(), head.makeJoin( StringExpression.EMPTY ));
-        MessageSocket socket = new MessageSocket(host, constants.getJoinTimeout());
+        IMessageSocket socket;
+        try {
+            socket = transport.connect(host, constants.getJoinTimeout());
+        }
+        catch (NetworkException e) {
+            /* Don't try this host again after a reboot */
+            discover.forgetPeer( host );
+            throw e;
+        }
+
         Bugout.msg("Host: sending join: " + new MessagePointer(joinMsg));
         socket.send(joinMsg);
 
@@ -401,11 +669,17 @@ public class AuditoriumHost implements IAuditoriumHost {
             }
 
             /* Create the link, start it, and add it */
-            Link l = new Link( this, socket, joinReply.getFrom() );
+            Link l = newLink( socket, joinReply.getFrom() );
             l.start();
             hosts.add( l );
+
+            /* Ask for whatever was missed while we were apart */
+            requestCatchUp( l );
         }
 
+        /* Remember the host for after a reboot */
+        discover.rememberPeer( joinReply.getFrom() );
+
     }
 
     /**
@@ -415,7 +689,20 @@ public class AuditoriumHost implements IAuditoriumHost {
      * @param announcement      Place this announcement on the wire.
      */
     public void announce(ASExpression announcement) {
-        outQueue.push(announcement);
+        announce(announcement, false);
+    }
+
+    /**
+     * Place an announcement on the wire and log it, optionally forcing the log
+     * to disk once it has been written. This call returns quickly and the
+     * behavior is carried out in an auditorium-managed worker thread.
+     *
+     * @param announcement      Place this announcement on the wire.
+     * @param sync              If true, the log is forced to disk after this announcement is logged. Use this for
+     *                          points that must be durable, such as the polls closing.
+     */
+    public void announce(ASExpression announcement, boolean sync) {
+        outQueue.push(new Announcement(announcement, sync));
     }
 
     /**
@@ -447,6 +734,20 @@ public class AuditoriumHost implements IAuditoriumHost {
         hostLeft.addObserver( observer );
     }
 
+    /**
+     * Register an observer to be notified when the incremental verifier finds
+     * a problem with the log. Nothing is reported if no rule file is
+     * configured.
+     * 
+     * @param observer       This observer will be notified on the verifier thread. In the update method, expect that
+     *                       the argument will be either an InvalidLogEntryException or the False value the incremental
+     *                       rule evaluated to.
+     */
+    public void registerForViolations(Observer observer) {
+        if (backgroundVerifier != null)
+            backgroundVerifier.registerForViolations( observer );
+    }
+
     /**
      * @see auditorium.IAuditoriumHost#getMe()
      */
@@ -468,12 +769,19 @@ public class AuditoriumHost implements IAuditoriumHost {
         return log;
     }
 
+    /**
+     * @return The threads the host runs on, which anything that should stop with
+     *         the host can start its own threads with.
+     */
+    public HostThreads getThreads() {
+        return threads;
+    }
+
     /**
      * @see auditorium.IAuditoriumHost#nextSequence()
      */
     public String nextSequence() {
-        sequence++;
-        return Long.toString( sequence );
+        return Long.toString( sequence.incrementAndGet() );
     }
 
     /**
@@ -491,8 +799,45 @@ public class AuditoriumHost implements IAuditoriumHost {
     /**
      * @see auditorium.IAuditoriumHost#receiveAnnouncement(auditorium.Message)
      */
-    public void receiveAnnouncement(Message message) {
-        pendingQueue.push(message);
+    public void receiveAnnouncement(final Message message) {
+        /* Catch-up traffic is between this host and one other, and isn't logged itself */
+        if (message.getType().equals( "sync-request" )) {
+            catchUp( message );
+            return;
+        }
+        if (message.getType().equals( "sync-reply" )) {
+            receiveCatchUp( message );
+            return;
+        }
+
+        receive( message, false );
+    }
+
+    /**
+     * Start checking the signature on a message heard on a link, and queue it
+     * to be logged.
+     *
+     * @param message       The message.
+     * @param caughtUp      True if the message came in a sync-reply.
+     */
+    private void receive(final Message message, boolean caughtUp) {
+        Future<?> check = null;
+
+        /* Duplicates are common (every link floods the same message), so don't bother checking those */
+        if (verifyPool != null && !log.hasSeen( message )) {
+            try {
+                check = verifyPool.submit( new Runnable() {
+
+                    public void run() {
+                        integrity.preverify( message.getDatum() );
+                    }
+
+                } );
+            }
+            catch (RejectedExecutionException ignored) {}
+        }
+
+        pendingQueue.push(new Inbound(message, check, caughtUp));
     }
 
     /**
@@ -505,6 +850,139 @@ public class AuditoriumHost implements IAuditoriumHost {
     }
 
 
+    /**
+     * @return The start of the names of this host's own metrics.
+     */
+    private String metricsPrefix() {
+        return "host." + nodeID + ".";
+    }
+
+    /**
+     * Build a link to another host, with its outbound queue configured from
+     * the constants.
+     *
+     * @param socket        The socket already established with the other host.
+     * @param address       The address of the other host.
+     * @return              The (not yet started) link.
+     */
+    private Link newLink(IMessageSocket socket, HostPointer address) {
+        return new Link( this, socket, address, constants.getLinkQueueCapacity(),
+                constants.getLinkOverflowPolicy(), constants.getLinkSendTimeout(), transport );
+    }
+
+    /**
+     * Send a host our log's marks, so it can send back the messages we don't
+     * have. Assume lock is already acquired!
+     *
+     * @param link      The link to the host.
+     */
+    private void requestCatchUp(Link link) {
+        if (catchUpBatch > 0)
+            link.send( new Message( "sync-request", me, nextSequence(), log.getHistory().marks() ) );
+    }
+
+    /**
+     * Answer a sync-request by streaming every logged message the requesting
+     * host's marks don't cover back to it, catchUpBatch messages per
+     * sync-reply. The messages are read back from the log file in its own
+     * thread, as a host that has been away for long may be missing much of the
+     * log, and are only sent as fast as the link drains. A host that asks
+     * again while it is still being caught up is ignored.
+     *
+     * @param request       The sync-request.
+     */
+    private void catchUp(final Message request) {
+        if (catchUpBatch <= 0)
+            return;
+
+        final Link link;
+        synchronized (this) {
+            link = findLink( request.getFrom() );
+        }
+        if (link == null) {
+            Bugout.err( "Host: sync-request from " + request.getFrom() + ", which isn't linked" );
+            return;
+        }
+
+        if (!catchingUp.add( link.getAddress() )) {
+            Bugout.msg( "Host: already catching up " + link.getAddress() );
+            return;
+        }
+
+        threads.start( "auditorium-catch-up", new Runnable() {
+
+            public void run() {
+                Bugout.msg( "Host: catching up " + link.getAddress() );
+                try {
+                    log.getHistory().missing( request.getDatum(), catchUpBatch, new History.Sink() {
+                        public boolean send(List<Message> batch) {
+                            if (!running || !link.running())
+                                return false;
+
+                            ArrayList<ASExpression> entries = new ArrayList<>( batch.size() );
+                            for (Message m : batch)
+                                entries.add( m.toASE() );
+
+                            /* Wait for the link to drain, rather than overflow its queue with our own replies */
+                            return link.sendPaced( new Message( "sync-reply", me, nextSequence(), new ListExpression( entries ) ) );
+                        }
+                    } );
+                }
+                catch (IncorrectFormatException e) {
+                    Bugout.err( "Host: malformed sync-request or log entry: " + e.getMessage() );
+                }
+                catch (IOException | InvalidVerbatimStreamException e) {
+                    Bugout.err( "Host: couldn't read the log to catch up " + link.getAddress() + ": " + e.getMessage() );
+                }
+                finally {
+                    catchingUp.remove( link.getAddress() );
+                }
+            }
+
+        } );
+    }
+
+    /**
+     * Unpack a sync-reply, and log and flood each message in it as if it had
+     * been heard on the link (messages already logged are dropped as usual),
+     * without handing it to the application.
+     *
+     * @param reply         The sync-reply.
+     */
+    private void receiveCatchUp(Message reply) {
+        if (!(reply.getDatum() instanceof ListExpression)) {
+            Bugout.err( "Host: malformed sync-reply from " + reply.getFrom() );
+            return;
+        }
+
+        for (ASExpression entry : (ListExpression) reply.getDatum()) {
+            try {
+                Message message = new Message( entry );
+
+                /* Only announcements are logged, so nothing else should be in a catch-up */
+                if (message.getType().equals( "announce" ))
+                    receive( message, true );
+            }
+            catch (IncorrectFormatException e) {
+                Bugout.err( "Host: malformed message in sync-reply: " + e.getMessage() );
+            }
+        }
+    }
+
+    /**
+     * Find the link to a host. Assume lock is already acquired!
+     *
+     * @param address       The host.
+     * @return              The link, or null if there isn't one.
+     */
+    private Link findLink(HostPointer address) {
+        for (Link l : hosts)
+            if (l.getAddress().equals( address ))
+                return l;
+
+        return null;
+    }
+
     /**
      * The thread for listening to Join requests
      */
@@ -513,7 +991,7 @@ public class AuditoriumHost implements IAuditoriumHost {
         Bugout.msg("Listen: THREAD START");
 
         /* Try to bind the socket */
-        try { listenSocket = new ServerSocket( constants.getListenPort() ); }
+        try { listenSocket = transport.listen( constants.getListenPort() ); }
         catch (IOException e1) {
             Bugout.err("Couldn't bind socket.");
             return;
@@ -521,10 +999,10 @@ public class AuditoriumHost implements IAuditoriumHost {
 
         while (running) {
             /* Get an incoming socket connection. */
-            MessageSocket socket;
+            IMessageSocket socket;
             try {
                 Bugout.msg( "Listen: waiting for connection on " + constants.getListenPort() );
-                socket = new MessageSocket( listenSocket.accept() );
+                socket = listenSocket.accept();
                 Bugout.msg( "Listen: connection received." );
             }
             catch (NetworkException e) {
@@ -573,14 +1051,18 @@ public class AuditoriumHost implements IAuditoriumHost {
                 }
 
                 /* Build the new link, start it, and add it */
-                Link l = new Link( this, socket, jrq.getFrom() );
+                Link l = newLink( socket, jrq.getFrom() );
                 l.start();
                 hosts.add( l );
+                requestCatchUp( l );
 
                 /* Update the observers for the new host */
                 hostJoined.notify( jrq.getFrom() );
                 Bugout.msg("Listen: Connection successful to " + l.getAddress());
             }
+
+            /* Remember the host for after a reboot (outside the lock, as this writes to disk) */
+            discover.rememberPeer( jrq.getFrom() );
         }
         Bugout.msg("Listen: THREAD END");
         stop();
@@ -588,59 +1070,118 @@ public class AuditoriumHost implements IAuditoriumHost {
 
 
     /**
-     * Thread that handles announce events
+     * Thread that handles announce events. Everything already waiting on the
+     * queue (up to BATCH_SIZE) is taken and handled under a single acquisition
+     * of the host lock.<br>
+     * <br>
+     * If batching is on, the thread waits up to batchWindow ms for more
+     * announcements, and sends everything it took as one envelope, so the
+     * whole batch costs one signature, one hash and one "succeeds" clause.
      */
     private void announceThread() {
         Bugout.msg( "Announce: THREAD START" );
+        ArrayList<Announcement> batch = new ArrayList<>( BATCH_SIZE );
         while (running) {
             try {
-                ASExpression announcement = outQueue.pop();
+                outQueue.drain( batch, BATCH_SIZE, batchWindow );
                 synchronized (this) {
-                    /* Make the announcement, sending it to the top-most network layer */
-                    Message msg = new Message( "announce", me, nextSequence(), head.makeAnnouncement(announcement));
-
-                    /* Broadcast the message by sending it to the log . */
-                    Bugout.msg("Announce: flooding "
-                            + new MessagePointer( msg ) 
-							+ " (" + (announcement instanceof ListExpression ? ((ListExpression)announcement).get(0) : "<string>")
-							+ " ...)");
-                    logMessage( msg );
+                    boolean sync = false;
+                    for (Announcement a : batch)
+                        sync |= a.sync;
+
+                    if (batchWindow > 0 && batch.size() > 1) {
+                        ArrayList<ASExpression> data = new ArrayList<>( batch.size() );
+                        for (Announcement a : batch)
+                            data.add( a.datum );
+
+                        sendAnnouncement( new ListExpression( StringExpression.symbol( "announcement-batch" ),
+                                new ListExpression( data ) ) );
+                    }
+                    else {
+                        for (Announcement a : batch)
+                            sendAnnouncement( a.datum );
+                    }
+
+                    /* Barrier announcements have to be on disk before we go on */
+                    if (sync)
+                        log.sync();
                 }
             }
             catch (ReleasedQueueException ignored) {}
             catch (IOException e) { throw new FatalNetworkException("Can't serialize to the log file", e ); }
-            Thread.yield();
+            finally { batch.clear(); }
         }
         Bugout.msg( "Announce: THREAD END" );
     }
 
 
     /**
-     * Thread for handing incoming messages
+     * Make an announcement into a message, sending it through the top-most
+     * network layer, then log and flood it.
+     * Assume lock is already acquired!
+     *
+     * @param announcement      The announcement (or envelope of announcements) to send.
+     */
+    private void sendAnnouncement(ASExpression announcement) throws IOException {
+        Message msg = new Message( "announce", me, nextSequence(), head.makeAnnouncement(announcement));
+
+        /* Broadcast the message by sending it to the log . */
+        Bugout.msg("Announce: flooding "
+                + new MessagePointer( msg )
+                + " (" + (announcement instanceof ListExpression ? ((ListExpression)announcement).get(0) : "<string>")
+                + " ...)");
+        logMessage( msg, false );
+    }
+
+    /**
+     * Thread for handing incoming messages. This is the sequencer for the
+     * verifier pool: it waits (outside the host lock) for the signature checks
+     * on a batch to finish, then logs the batch in arrival order.
      */
     private void receiveThread() {
         Bugout.msg( "Receive: THREAD START." );
+        ArrayList<Inbound> batch = new ArrayList<>( BATCH_SIZE );
         while (running) {
             try {
 
-                /* Try to pop a message of the queue */
-                Message message = pendingQueue.pop();
+                /* Take everything that is waiting on the queue (up to BATCH_SIZE) */
+                pendingQueue.drain( batch, BATCH_SIZE );
 
-                /* Try to log and send the message */
+                /* A failed or abandoned check is simply redone when the message is logged */
+                for (Inbound in : batch) {
+                    if (in.check == null)
+                        continue;
+
+                    try {
+                        in.check.get();
+                    }
+                    catch (ExecutionException | CancellationException ignored) {}
+                    catch (InterruptedException e) {
+                        throw new FatalNetworkException( "Interrupted while checking signatures", e );
+                    }
+                }
+
+                /* Try to log and send the messages */
                 synchronized (this) {
-                    Bugout.msg("Announce: flooding " + new MessagePointer(message));
-                    logMessage(message);
+                    for (Inbound in : batch) {
+                        Bugout.msg("Announce: flooding " + new MessagePointer(in.message));
+                        logMessage(in.message, in.caughtUp);
+
+                        /* If it was a duplicate, its check was never used */
+                        integrity.forget(in.message.getDatum());
+                    }
                 }
             }
             catch (ReleasedQueueException ignored) {}
             catch (IOException e) { throw new FatalNetworkException("can't serialize to log", e); }
-            Thread.yield();
+            finally { batch.clear(); }
         }
         Bugout.msg( "Receive: THREAD END" );
     }
 
     /**
-     * This broadcasts the message over the network.
+     * This broadcasts the message over the network. Each link has its own
+     * outbound queue and writer thread, so this never waits on a socket.
      * Assume lock is already acquired!
      *
      * @param message       the message to send
@@ -648,20 +1189,16 @@ public class AuditoriumHost implements IAuditoriumHost {
     private void flood(Message message) {
         ArrayList<Link> removeList = new ArrayList<>();
 
-        /* iterate over the hosts and send the message to each of them */
+        /* iterate over the hosts and queue the message for each of them; the links do the writing */
         for (Link l : hosts) {
-            try { l.getSocket().send( message ); }
-            catch (NetworkException e) {
-                /* If there is an error with this host, kick it out */
+            /* If this host can't take the message, kick it out */
+            if (!l.send( message ))
                 removeList.add(l);
-            }
         }
 
-        /* Remove the hosts who could not receive the message*/
-        for (Link l : removeList) {
-            l.stop();
-            hosts.remove( l );
-        }
+        /* Remove the hosts who could not receive the message, so they are seen to have left (and can join again) */
+        for (Link l : removeList)
+            removeLink( l );
     }
 
     /**
@@ -669,43 +1206,41 @@ public class AuditoriumHost implements IAuditoriumHost {
      * Assume lock is already acquired!
      *
      * @param message       the message to send and log
+     * @param caughtUp      true if the message came in a sync-reply, so is not handed to the application
      */
-    private void logMessage(Message message) throws IOException {
+    private void logMessage(Message message, boolean caughtUp) throws IOException {
 
-        /* copy the message so we have an unchained reference to check against the log with */
-        Message copy = new Message(message.getType(), message.getFrom(), message.getSequence(), message.getDatum());
+        /* Once we've stopped the log is closed, so anything still in flight is dropped */
+        if (!running) return;
 
         /* Log the message and ensure it hasn't already been sent */
         if (log.logAnnouncement(message)) {
 
-            /* verify that the message was logged properly*/
-            try {
-                verify( message );
-            } catch (InvalidLogEntryException e) {
-                Bugout.err(e.getMessage());
-                e.printStackTrace();
-
-            }
+            /* Hand the message to the verifier, which checks it on its own thread */
+            if (backgroundVerifier != null)
+                backgroundVerifier.add( message );
 
             /* Now send the message */
             try {
                 Bugout.msg("Host: logging and flooding: " + new MessagePointer(message));
-                flood(copy);
+                flood(message);
 
                 /*
-                 * We tell the temporal layer to received the unchained message, since that is the version of the message
-                 * that the log keeps in it's last seen list. This is unfortunate, but if we continued to look for
-                 * chained messages we'd never find the same message twice, as it would chain once more and thus
-                 * give a different hash.
+                 * Chaining the message in the log doesn't touch its wire form or its hash, so the flooded copies and
+                 * the pointer in the log's last list are the same as for the message as it was received.
                  */
-                ASExpression payload = head.receiveAnnouncement(copy.getDatum());
+                ASExpression payload = head.receiveAnnouncement(message.getDatum());
+                if (caughtUp)
+                    return;
 
-                /* Put the message on the queue so its sending can be awaited */
-                if (!inQueue.push(new Pair(message.getFrom(), payload))) {
-                    /* If there was a problem with the queue, it is fatal */
-                    Bugout.err("Receive: Application queue push fail");
-                    stop();
+                /* An envelope is unpacked so the application sees each announcement on its own */
+                ASExpression[] batch = new ASExpression[BATCH_MATCH.getSlotCount()];
+                if (BATCH_MATCH.match(payload, batch)) {
+                    for (ASExpression announcement : (ListExpression) batch[0])
+                        deliver(message.getFrom(), announcement);
                 }
+                else
+                    deliver(message.getFrom(), payload);
             } catch (IncorrectFormatException e) {
                 Bugout.err( "Receive: malformed message:" + e.getMessage() );
             }
@@ -713,29 +1248,17 @@ public class AuditoriumHost implements IAuditoriumHost {
     }
 
     /**
-     * Add a message to the verifier's log data, and if the counter is a
-     * multiple of 10, run the verifier.
-	 *
-	 * verify() is a no-op if no verifier is instantiated, which in turn
-	 * occurs if no rule file is specified; see AuditoriumHost() and
-	 * IAuditoriumParams.getRuleFile().
-	 *
-	 * TODO: 10 is totally arbitrary. This needs to be reconsidered (possibly
-	 * parameterized, or removed entirely in the face of a new iterative
-	 * verifier).  Also, some applications may want verification but not
-	 * incremental (per-message) verification.
-     * 
-     * @param message
-     *            Add this message.
+     * Put an announcement on the application's queue.
+     *
+     * @param from              The host the announcement came from.
+     * @param announcement      The announcement.
      */
-    private void verify(Message message) throws InvalidLogEntryException {
-        counter++;
-
-		if (verifier != null) {
-			incVerifierPlugin.addLogData( message );
-			if (counter % 10 == 0)
-				verifier.eval( incrementalRule );
-		}
-
+    private void deliver(HostPointer from, ASExpression announcement) {
+        /* Put the message on the queue so its sending can be awaited */
+        if (!inQueue.push(new Pair(from, announcement))) {
+            /* If there was a problem with the queue, it is fatal */
+            Bugout.err("Receive: Application queue push fail");
+            stop();
+        }
     }
 }
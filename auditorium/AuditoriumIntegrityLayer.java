@@ -24,6 +24,10 @@ package auditorium;
 
 import sexpression.*;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
 /**
  * This layer handles signatures.
  * 
@@ -35,6 +39,9 @@ public class AuditoriumIntegrityLayer extends AAuditoriumLayer {
     /** The pattern for signed messages, of the form (signed-message <certificate> <signature>) */
     public static final ASExpression PATTERN = new ListExpression(StringExpression.makeString("signed-message"), Wildcard.SINGLETON, Wildcard.SINGLETON);
 
+    /** PATTERN, compiled */
+    private static final CompiledPattern MATCH = CompiledPattern.compile(PATTERN);
+
     /** The serial number of the machine running this layer */
     private final String nodeID;
 
@@ -47,6 +54,10 @@ public class AuditoriumIntegrityLayer extends AAuditoriumLayer {
     /** All certificate authority keys are expected to be annotated thusly */
     public static final String CA_ANNOTATION = "ca";
 
+    /** Data whose signatures were checked ahead of time by preverify(), and not yet received */
+    private final Set<ASExpression> preverified = Collections.newSetFromMap(
+            Collections.synchronizedMap(new IdentityHashMap<ASExpression, Boolean>()));
+
     /**
      * Constructor.
      *
@@ -81,7 +92,7 @@ public class AuditoriumIntegrityLayer extends AAuditoriumLayer {
         /* Attempt to construct a signed message by signing the message */
         try {
 
-            newDatum = new ListExpression(StringExpression.makeString("signed-message"), myCert.toASE(), RSACrypto.SINGLETON.sign(datum, keystore.loadKey(nodeID)).toASE());
+            newDatum = new ListExpression(StringExpression.symbol("signed-message"), myCert.toASE(), RSACrypto.SINGLETON.sign(datum, keystore.loadKey(nodeID)).toASE());
 
         } catch (AuditoriumCryptoException e) {
 
@@ -115,19 +126,70 @@ public class AuditoriumIntegrityLayer extends AAuditoriumLayer {
      * @see auditorium.IAuditoriumLayer#receiveAnnouncement(sexpression.ASExpression)
      */
     public ASExpression receiveAnnouncement(ASExpression datum) throws IncorrectFormatException {
+        ASExpression below = getChild().receiveAnnouncement(datum);
+
+        /* If the signature has already been checked, just unwrap the payload */
+        if (preverified.remove(datum)) {
+            ASExpression[] matchResult = new ASExpression[MATCH.getSlotCount()];
+            MATCH.match(below, matchResult);
+            return new Signature(matchResult[1]).getPayload();
+        }
+
+        return check(below);
+    }
+
+    /**
+     * Check the signature on a datum, as it will be handed to this layer's
+     * receiveAnnouncement(), ahead of time. This doesn't touch any other state
+     * (the layers below only unwrap the datum), so any number of threads can
+     * call it at once. If the check passes, the next receiveAnnouncement() of
+     * this same datum object skips the check.
+     *
+     * @param datum         The datum to check.
+     * @return              True if the signature checked out. If it didn't, receiveAnnouncement() checks again and
+     *                      reports the problem.
+     */
+    public boolean preverify(ASExpression datum) {
+        try {
+            check(getChild().receiveAnnouncement(datum));
+            preverified.add(datum);
+            return true;
+        }
+        catch (IncorrectFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Forget that a datum was checked by preverify(). Call this for data that
+     * will never be received, e.g. duplicates.
+     *
+     * @param datum         The datum to forget.
+     */
+    public void forget(ASExpression datum) {
+        preverified.remove(datum);
+    }
+
+    /**
+     * Check that a datum is a signed message, that the signature is good, and
+     * that the signer's certificate was issued by a certificate authority.
+     *
+     * @param datum         The datum to check.
+     * @return              The signed payload.
+     *
+     * @throws IncorrectFormatException Thrown if the datum isn't a properly signed message.
+     */
+    private ASExpression check(ASExpression datum) throws IncorrectFormatException {
 
         try {
 
             /* Match the incoming message to ensure that it is signed properly */
-            ASExpression matchResult = PATTERN.match(getChild().receiveAnnouncement(datum));
-            if (matchResult == NoMatch.SINGLETON) throw new IncorrectFormatException(datum, new Exception(datum + " doesn't match the pattern:" + PATTERN));
-
-            /* Now we can impose type */
-            ListExpression matchList = (ListExpression) matchResult;
+            ASExpression[] matchResult = new ASExpression[MATCH.getSlotCount()];
+            if (!MATCH.match(datum, matchResult)) throw new IncorrectFormatException(datum, new Exception(datum + " doesn't match the pattern:" + PATTERN));
 
             /* Get out the certificate and signature */
-            Certificate cer = new Certificate(matchList.get(0));
-            Signature sig = new Signature(matchList.get(1));
+            Certificate cer = new Certificate(matchResult[0]);
+            Signature sig = new Signature(matchResult[1]);
 
             /* Verify the signature */
             RSACrypto.SINGLETON.verify(sig, cer);
@@ -138,9 +200,9 @@ public class AuditoriumIntegrityLayer extends AAuditoriumLayer {
             /* the certificate (Cert object) that signed the, er, certificate */
             Certificate signingCert = keystore.loadCert( signingKeyId );
 
-            /* verify that the signature on the certificate itself is correct */
+            /* verify that the signature on the certificate itself is correct (remembered after the first time) */
             if (signingCert.getKey().getAnnotation().equals(CA_ANNOTATION))
-                RSACrypto.SINGLETON.verify(cer.getSignature(), signingCert);
+                RSACrypto.SINGLETON.verifyCertificate(cer, signingCert);
             else
             	throw new SignerValidityException("Certificate on message signature was signed by non-authoritative key '"
                                                  + signingKeyId + "' (annotation: '"
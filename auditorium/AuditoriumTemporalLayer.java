@@ -43,6 +43,10 @@ public class AuditoriumTemporalLayer extends AAuditoriumLayer {
     /** Pattern for the message pointers contained in a join-reply, of the form (<ptr> <ptr> ... <ptr>) */
     public static final ASExpression REPLY_POINTERS_PATTERN = new ListWildcard(MessagePointer.PATTERN);
 
+    /** The patterns above, compiled */
+    private static final CompiledPattern MATCH = CompiledPattern.compile(PATTERN);
+    private static final CompiledPattern REPLY_POINTERS_MATCH = CompiledPattern.compile(REPLY_POINTERS_PATTERN);
+
     /**
      * Constructor, just relies on the super constructor.
      *
@@ -63,7 +67,7 @@ public class AuditoriumTemporalLayer extends AAuditoriumLayer {
             list.add(p.toASE());
 
         /* build the succeeds clause */
-        ASExpression newDatum = new ListExpression(StringExpression.makeString("succeeds"), new ListExpression(list), datum);
+        ASExpression newDatum = new ListExpression(StringExpression.symbol("succeeds"), new ListExpression(list), datum);
 
          /* Decorated method call to allow child layers to handle the message */
         return getChild().makeAnnouncement(newDatum);
@@ -100,15 +104,15 @@ public class AuditoriumTemporalLayer extends AAuditoriumLayer {
     public ASExpression receiveAnnouncement(ASExpression datum) throws IncorrectFormatException {
 
         /* Make sure the receive message matches the pattern */
-        ASExpression result = PATTERN.match(getChild().receiveAnnouncement(datum));
-        if (result == NoMatch.SINGLETON) throw new IncorrectFormatException(datum, new Exception(datum + " doesn't match the pattern: " + PATTERN));
+        ASExpression[] result = new ASExpression[MATCH.getSlotCount()];
+        if (!MATCH.match(getChild().receiveAnnouncement(datum), result)) throw new IncorrectFormatException(datum, new Exception(datum + " doesn't match the pattern: " + PATTERN));
 
         /* Extract message pointers that are now "seen" */
-        for (ASExpression ase : (ListExpression)((ListExpression)result).get(0))
+        for (ASExpression ase : (ListExpression)result[0])
             getHost().getLog().removeFromLast(new MessagePointer(ase));
 
         /* push the rest of the data up the stack. */
-        return ((ListExpression)result).get(1);
+        return result[1];
     }
 
     /**
@@ -117,10 +121,10 @@ public class AuditoriumTemporalLayer extends AAuditoriumLayer {
     public ASExpression receiveJoinReply(ASExpression datum) throws IncorrectFormatException {
 
         /* Ensure the list of pointers is really a list */
-        ASExpression result = REPLY_POINTERS_PATTERN.match(getChild().receiveJoinReply(datum));
-        if (result == NoMatch.SINGLETON) throw new IncorrectFormatException(datum, new Exception(datum + " didn't match the pattern " + REPLY_POINTERS_PATTERN));
+        ASExpression[] result = new ASExpression[REPLY_POINTERS_MATCH.getSlotCount()];
+        if (!REPLY_POINTERS_MATCH.match(getChild().receiveJoinReply(datum), result)) throw new IncorrectFormatException(datum, new Exception(datum + " didn't match the pattern " + REPLY_POINTERS_PATTERN));
 
-        ListExpression below = (ListExpression)((ListExpression)result).get(0);
+        ListExpression below = (ListExpression)result[0];
 
         /* Extract message pointers to be added to the last list. */
         for (ASExpression ase : below)
@@ -95,7 +95,7 @@ public class Certificate {
      * @return An S-Expression of the form (cert (signature [signer] [data] (key [id] [annotation] [mod] [exp])))
      */
     public ListExpression toASE() {
-        return new ListExpression(StringExpression.makeString("cert"), signature.toASE());
+        return new ListExpression(StringExpression.symbol("cert"), signature.toASE());
     }
 
     /**
@@ -0,0 +1,258 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+import sexpression.stream.Base64;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Computes a log's hash chain one entry at a time, feeding raw digest bytes
+ * through a single MessageDigest. Nothing is built along the way: no strings,
+ * no s-expressions and no trips through the intern table, so a whole log can
+ * be chained (or checked) in a tight loop.<br>
+ * <br>
+ * There are two ways of chaining an entry's hash h onto the chained hash p
+ * before it:<br>
+ * <b>compat</b>: SHA-1 of the verbatim form of the string h.toString() +
+ * p.toString(), where a hash that isn't all printable characters is written
+ * as its Base64 encoding in braces. This is what Message.chain() has always
+ * computed, so logs written before there was a choice verify in this mode.<br>
+ * <b>fast</b>: SHA-1 of the bytes of h followed by the bytes of p.<br>
+ * <br>
+ * Either way the chain starts from the hash of the launch code. A
+ * ChainHasher is not thread safe; use one per log, or per thread checking a
+ * log.
+ *
+ * @see auditorium.Message#chain(ChainHasher)
+ */
+public class ChainHasher {
+
+    /** The name of the mode compatible with existing logs */
+    public static final String COMPAT = "compat";
+
+    /** The name of the fast mode */
+    public static final String FAST = "fast";
+
+    /** The number of bytes in a SHA-1 digest */
+    private static final int SHA1_LENGTH = 20;
+
+    /** Base64.encodeBytes ends a line once it has encoded more than this many bytes, so longer hashes are left to it */
+    private static final int ONE_LINE = 56;
+
+    /** The Base64 alphabet, as Base64.encodeBytes uses it */
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+
+    /** True to chain in fast mode */
+    private final boolean fast;
+
+    /** The one digest every entry is fed through */
+    private final MessageDigest md;
+
+    /** The chained hash of the last entry */
+    private byte[] current;
+
+    /** Where the next chained hash is computed, so current can be compared against until it is done */
+    private byte[] next = new byte[SHA1_LENGTH];
+
+    /** Where compat mode writes out a hash */
+    private byte[] text = new byte[2 + (ONE_LINE + 2) / 3 * 4];
+
+    /**
+     * Start a chain from the hash of a launch code.
+     *
+     * @param fast          True to chain in fast mode, false to chain as Message.chain() always has.
+     * @param launchCode    The launch code the chain is seeded with.
+     */
+    public ChainHasher(boolean fast, String launchCode) {
+        this(fast, seed(launchCode));
+    }
+
+    /**
+     * Carry on a chain from a chained hash.
+     *
+     * @param fast          True to chain in fast mode, false to chain as Message.chain() always has.
+     * @param previous      The chained hash of the entry before the next one.
+     */
+    public ChainHasher(boolean fast, ASExpression previous) {
+        this(fast, ((StringExpression) previous).getBytes());
+    }
+
+    /**
+     * Carry on a chain from the bytes of a chained hash.
+     *
+     * @param fast          True to chain in fast mode, false to chain as Message.chain() always has.
+     * @param previous      The bytes of the chained hash of the entry before the next one.
+     */
+    public ChainHasher(boolean fast, byte[] previous) {
+        this.fast = fast;
+        current = previous.clone();
+
+        try {
+            md = MessageDigest.getInstance("SHA");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-1 not supported on this platform");
+        }
+    }
+
+    /**
+     * Get the chained hash a log starts from.
+     *
+     * @param launchCode    The launch code the log was started with.
+     * @return              The bytes of the starting hash.
+     */
+    public static byte[] seed(String launchCode) {
+        return StringExpression.makeString(launchCode).getSHA1();
+    }
+
+    /**
+     * @return True if this chains in fast mode.
+     */
+    public boolean isFast() {
+        return fast;
+    }
+
+    /**
+     * Chain the next entry.
+     *
+     * @param hash          The bytes of the entry's hash (see Message.getDigest()).
+     * @return              The entry's chained hash. This array is reused by the next call; copy it to keep it.
+     */
+    public byte[] append(byte[] hash) {
+        chain(hash, current, next);
+
+        byte[] t = current;
+        current = next;
+        next = t;
+        return current;
+    }
+
+    /**
+     * Chain the next entry, and check it against the chained hash it was
+     * logged with. The chain carries on from the computed hash either way.
+     *
+     * @param hash          The bytes of the entry's hash.
+     * @param logged        The chained hash the entry was logged with.
+     * @return              True if they are the same.
+     */
+    public boolean check(byte[] hash, ASExpression logged) {
+        append(hash);
+        return logged instanceof StringExpression && Arrays.equals(current, ((StringExpression) logged).getBytes());
+    }
+
+    /**
+     * @return The chained hash of the last entry, as logged.
+     */
+    public ASExpression getLast() {
+        return StringExpression.makeString(current.clone());
+    }
+
+    /**
+     * Compute a chained hash.
+     *
+     * @param hash          The bytes of an entry's hash.
+     * @param previous      The chained hash before it.
+     * @param out           Where the entry's chained hash goes.
+     */
+    private void chain(byte[] hash, byte[] previous, byte[] out) {
+        if (fast) {
+            md.update(hash);
+            md.update(previous);
+        }
+        else {
+            /* The verbatim form of one string: its length, a colon, and its bytes */
+            int length = textLength(hash) + textLength(previous);
+            for (char c : Integer.toString(length).toCharArray())
+                md.update((byte) c);
+            md.update((byte) ':');
+            updateText(hash);
+            updateText(previous);
+        }
+
+        try {
+            md.digest(out, 0, SHA1_LENGTH);
+        }
+        catch (DigestException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return The number of bytes toString() gives for a string of these bytes.
+     */
+    private static int textLength(byte[] bytes) {
+        if (printable(bytes))
+            return bytes.length;
+        if (bytes.length > ONE_LINE)
+            return Base64.encodeBytes(bytes).length() + 2;
+
+        return 2 + (bytes.length + 2) / 3 * 4;
+    }
+
+    /**
+     * Feed the digest what toString() gives for a string of these bytes.
+     */
+    private void updateText(byte[] bytes) {
+        if (printable(bytes)) {
+            md.update(bytes);
+            return;
+        }
+        if (bytes.length > ONE_LINE) {
+            md.update(("{" + Base64.encodeBytes(bytes) + "}").getBytes());
+            return;
+        }
+
+        int n = 0;
+        text[n++] = '{';
+        for (int i = 0; i < bytes.length; i += 3) {
+            int b = (bytes[i] & 0xff) << 16;
+            if (i + 1 < bytes.length) b |= (bytes[i + 1] & 0xff) << 8;
+            if (i + 2 < bytes.length) b |= bytes[i + 2] & 0xff;
+
+            text[n++] = ALPHABET[(b >>> 18) & 0x3f];
+            text[n++] = ALPHABET[(b >>> 12) & 0x3f];
+            text[n++] = i + 1 < bytes.length ? ALPHABET[(b >>> 6) & 0x3f] : (byte) '=';
+            text[n++] = i + 2 < bytes.length ? ALPHABET[b & 0x3f] : (byte) '=';
+        }
+        text[n++] = '}';
+        md.update(text, 0, n);
+    }
+
+    /**
+     * @return True if toString() gives the bytes themselves for a string of these bytes (see StringExpression).
+     */
+    private static boolean printable(byte[] bytes) {
+        for (byte b : bytes)
+            if (!((b > 32 && b < 127) || Character.isWhitespace((char) b)))
+                return false;
+
+        return true;
+    }
+}
@@ -0,0 +1,159 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * The causal frontier of a {@link Log}: the messages that have been heard but
+ * not yet referenced by any message, which the next announcement will claim
+ * to succeed.<br>
+ * <br>
+ * Every message a host sends succeeds everything that host had logged,
+ * including its own earlier messages, so a node's newest message stands for
+ * all of its older ones. The frontier therefore keeps only one head per node:
+ * the message with the highest sequence number. Adding, and removing when a
+ * message is referenced, are constant-time lookups by node ID, and the
+ * frontier never holds more pointers than there are nodes. Referencing any
+ * message from a node at or beyond the head's sequence number covers the
+ * head too.<br>
+ * <br>
+ * A sequence number more than {@link SeenIndex#DEFAULT_WINDOW} away from a
+ * node's head (either way) means the node restarted and is counting from a
+ * new starting point, so its new message replaces the head. Pointers with sequence numbers that
+ * aren't numbers can't be ordered, and are kept individually (up to
+ * {@link #MAX_UNORDERED} of them).
+ */
+public class Frontier {
+
+    /** The most pointers without numeric sequences that are kept; the oldest are dropped first */
+    public static final int MAX_UNORDERED = 1024;
+
+    /** The newest message from a node, and its sequence number */
+    private static class Head {
+        final MessagePointer pointer;
+        final long sequence;
+
+        Head(MessagePointer pointer, long sequence) {
+            this.pointer = pointer;
+            this.sequence = sequence;
+        }
+    }
+
+    /** The head of each node, in the order the nodes were first added */
+    private LinkedHashMap<String, Head> heads = new LinkedHashMap<>();
+
+    /** Pointers whose sequences aren't numbers */
+    private LinkedHashSet<MessagePointer> unordered = new LinkedHashSet<>();
+
+    /**
+     * Add a message to the frontier.
+     *
+     * @param pointer   Points to a message that has been heard.
+     */
+    public void add(MessagePointer pointer) {
+        long sequence = SeenIndex.parseSequence( pointer.getNumber() );
+        if (sequence < 0) {
+            addUnordered( pointer );
+            return;
+        }
+
+        Head head = heads.get( pointer.getNodeId() );
+        if (head == null || sequence > head.sequence || restarted( head, sequence ))
+            heads.put( pointer.getNodeId(), new Head( pointer, sequence ) );
+    }
+
+    /**
+     * Remove a message from the frontier because another message references
+     * it. This also removes the node's head if the reference covers it.
+     *
+     * @param pointer   Points to a message that has been referenced.
+     */
+    public void remove(MessagePointer pointer) {
+        long sequence = SeenIndex.parseSequence( pointer.getNumber() );
+        if (sequence < 0) {
+            unordered.remove( pointer );
+            return;
+        }
+
+        Head head = heads.get( pointer.getNodeId() );
+        if (head == null)
+            return;
+
+        if (head.pointer.equals( pointer ) || (sequence > head.sequence && !restarted( head, sequence )))
+            heads.remove( pointer.getNodeId() );
+    }
+
+    /**
+     * Get the frontier and empty it, as the next announcement will succeed
+     * all of it.
+     *
+     * @return The pointers in the frontier.
+     */
+    public MessagePointer[] take() {
+        MessagePointer[] ret = toList().toArray( new MessagePointer[size()] );
+        heads = new LinkedHashMap<>();
+        unordered = new LinkedHashSet<>();
+        return ret;
+    }
+
+    /**
+     * @return The pointers in the frontier, without emptying it.
+     */
+    public List<MessagePointer> toList() {
+        ArrayList<MessagePointer> list = new ArrayList<>( size() );
+        for (Head head : heads.values())
+            list.add( head.pointer );
+        list.addAll( unordered );
+        return list;
+    }
+
+    /**
+     * @return The number of pointers in the frontier.
+     */
+    public int size() {
+        return heads.size() + unordered.size();
+    }
+
+    /**
+     * @return True if the sequence number is far enough from the head's
+     *         (either way) that they must come from different runs of the node.
+     */
+    private static boolean restarted(Head head, long sequence) {
+        return Math.abs( head.sequence - sequence ) >= SeenIndex.DEFAULT_WINDOW;
+    }
+
+    private void addUnordered(MessagePointer pointer) {
+        unordered.add( pointer );
+        if (unordered.size() > MAX_UNORDERED) {
+            Iterator<MessagePointer> oldest = unordered.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+    }
+}
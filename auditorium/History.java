@@ -0,0 +1,224 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.StringExpression;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a {@link Log} has logged, so a host that rejoins after dropping off
+ * the network can be sent the messages it missed. Only the sequence numbers
+ * logged from each node are kept in memory, as runs; the messages themselves
+ * are read back from the log's files when another host asks for them.<br>
+ * <br>
+ * Two hosts catch up by exchanging marks: for each node, the runs of
+ * sequence numbers the host has logged. The other host answers with every
+ * message it has logged outside those runs, oldest first. Each launch of a
+ * host counts from its own starting point (see
+ * {@link AuditoriumHost#SEQUENCES_PER_MS}), so a node that restarted shows up
+ * as a new run, and its new messages are sent however far behind its old
+ * ones they are numbered. Messages whose sequence numbers aren't numbers
+ * can't be described by runs, so they are always sent (the log drops the
+ * ones already held).
+ */
+public class History {
+
+    /**
+     * Takes the messages another host is missing, a batch at a time.
+     */
+    public interface Sink {
+
+        /**
+         * @param batch     The next messages, in log order.
+         * @return          False to stop sending.
+         */
+        boolean send(List<Message> batch);
+    }
+
+    /** The log's files */
+    private final LogSegmenter files;
+
+    /** The sequence numbers logged from each node, in the order the nodes were first heard from */
+    private final LinkedHashMap<String, SequenceRuns> logged = new LinkedHashMap<>();
+
+    /**
+     * Construct the history of a log.
+     *
+     * @param files     Writes the log's files, which the messages are read back from.
+     */
+    public History(LogSegmenter files) {
+        this.files = files;
+    }
+
+    /**
+     * Remember that a message has just been logged.
+     *
+     * @param message   The message.
+     */
+    public synchronized void add(Message message) {
+        long sequence = SeenIndex.parseSequence( message.getSequence() );
+        if (sequence < 0)
+            return;
+
+        SequenceRuns runs = logged.get( message.getFrom().getNodeId() );
+        if (runs == null) {
+            runs = new SequenceRuns();
+            logged.put( message.getFrom().getNodeId(), runs );
+        }
+        runs.add( sequence );
+    }
+
+    /**
+     * Describe the messages held, for another host to compare against its own.
+     *
+     * @return The marks, of the form ((node lo hi lo hi ...) ...), where each lo
+     *         and hi bound a run of sequence numbers held from that node.
+     */
+    public synchronized ASExpression marks() {
+        ArrayList<ASExpression> marks = new ArrayList<>( logged.size() );
+        for (Map.Entry<String, SequenceRuns> e : logged.entrySet()) {
+            SequenceRuns runs = e.getValue();
+            ArrayList<ASExpression> mark = new ArrayList<>( 1 + 2 * runs.size() );
+            mark.add( StringExpression.makeString( e.getKey() ) );
+            for (int i = 0; i < runs.size(); i++) {
+                mark.add( StringExpression.makeString( Long.toString( runs.first( i ) ) ) );
+                mark.add( StringExpression.makeString( Long.toString( runs.last( i ) ) ) );
+            }
+            marks.add( new ListExpression( mark ) );
+        }
+
+        return new ListExpression( marks );
+    }
+
+    /**
+     * Read the messages another host is missing back from the log, and hand
+     * them over in batches. Entries that the marks cover are skipped without
+     * being parsed.
+     *
+     * @param marks     The other host's marks (see marks()).
+     * @param batchSize The most messages to hand over at once.
+     * @param sink      Takes each batch.
+     *
+     * @throws IncorrectFormatException Thrown if the marks, or a logged message, aren't of the right form.
+     * @throws IOException Thrown if the log can't be read.
+     * @throws InvalidVerbatimStreamException Thrown if the log is malformed.
+     */
+    public void missing(ASExpression marks, int batchSize, Sink sink)
+            throws IncorrectFormatException, IOException, InvalidVerbatimStreamException {
+        HashMap<String, long[]> ranges = parse( marks );
+
+        ArrayList<Message> batch = new ArrayList<>();
+        for (File file : files.getFiles()) {
+            LogReader reader = new LogReader( file );
+            for (int i = 0; i < reader.size(); i++) {
+                if (covered( ranges.get( reader.getNodeId( i ) ), SeenIndex.parseSequence( reader.getSequence( i ) ) ))
+                    continue;
+
+                batch.add( reader.readMessage( i ) );
+                if (batch.size() >= batchSize) {
+                    if (!sink.send( batch ))
+                        return;
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+
+        if (!batch.isEmpty())
+            sink.send( batch );
+    }
+
+    /**
+     * Read back every message another host is missing at once.
+     *
+     * @param marks     The other host's marks (see marks()).
+     * @return          Every message logged that isn't covered by the marks, in log order.
+     *
+     * @throws IncorrectFormatException Thrown if the marks, or a logged message, aren't of the right form.
+     * @throws IOException Thrown if the log can't be read.
+     * @throws InvalidVerbatimStreamException Thrown if the log is malformed.
+     */
+    public List<Message> missing(ASExpression marks)
+            throws IncorrectFormatException, IOException, InvalidVerbatimStreamException {
+        final ArrayList<Message> missing = new ArrayList<>();
+        missing( marks, Integer.MAX_VALUE, new Sink() {
+            public boolean send(List<Message> batch) {
+                missing.addAll( batch );
+                return true;
+            }
+        } );
+
+        return missing;
+    }
+
+    /**
+     * Read marks into a sorted array of run bounds for each node.
+     */
+    private static HashMap<String, long[]> parse(ASExpression marks) throws IncorrectFormatException {
+        if (!(marks instanceof ListExpression))
+            throw new IncorrectFormatException( marks, new Exception( "marks should be a list" ) );
+
+        HashMap<String, long[]> ranges = new HashMap<>();
+        for (ASExpression mark : (ListExpression) marks) {
+            if (!(mark instanceof ListExpression) || ((ListExpression) mark).size() % 2 != 1)
+                throw new IncorrectFormatException( mark, new Exception( "expected (node lo hi ...)" ) );
+
+            ListExpression lst = (ListExpression) mark;
+            long[] bounds = new long[lst.size() - 1];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = SeenIndex.parseSequence( lst.get( i + 1 ).toString() );
+                if (bounds[i] < 0 || (i > 0 && bounds[i] < bounds[i - 1]))
+                    throw new IncorrectFormatException( mark, new Exception( "runs should be ascending numbers" ) );
+            }
+            ranges.put( lst.get( 0 ).toString(), bounds );
+        }
+
+        return ranges;
+    }
+
+    /**
+     * @return True if the sequence number falls in one of the runs.
+     */
+    private static boolean covered(long[] bounds, long sequence) {
+        if (bounds == null || sequence < 0)
+            return false;
+
+        /* Find the first bound at or past the sequence; it's covered if that closes a run, or opens one at it */
+        int i = Arrays.binarySearch( bounds, sequence );
+        if (i >= 0)
+            return true;
+
+        return (-i - 1) % 2 == 1;
+    }
+}
@@ -36,6 +36,9 @@ public class HostPointer {
     /** The pattern for matching host pointers, of the form: (host [node-id] [ip] [port]) */
     public static final ASExpression PATTERN = new ListExpression(StringExpression.makeString("host"), StringWildcard.SINGLETON, StringWildcard.SINGLETON, StringWildcard.SINGLETON);
 
+    /** PATTERN, compiled */
+    private static final CompiledPattern MATCH = CompiledPattern.compile(PATTERN);
+
     /** The serial number of the machine to which this host pointer corresponds */
     private final String nodeID;
 
@@ -68,13 +71,13 @@ public class HostPointer {
     public HostPointer(ASExpression hostExp) throws IncorrectFormatException {
         try {
             /* Make sure the expression is a host pointer expression */
-            ASExpression result = PATTERN.match( hostExp );
-            if (result == NoMatch.SINGLETON) throw new IncorrectFormatException(hostExp, new Exception(hostExp + " didn't match the pattern " + PATTERN));
+            ASExpression[] result = new ASExpression[MATCH.getSlotCount()];
+            if (!MATCH.match( hostExp, result )) throw new IncorrectFormatException(hostExp, new Exception(hostExp + " didn't match the pattern " + PATTERN));
 
             /* fill in the fields from the expression */
-            nodeID = ((ListExpression)result).get(0).toString();
-            ip = ((ListExpression)result).get(1).toString();
-            port = Integer.parseInt(((ListExpression)result).get(2).toString());
+            nodeID = result[0].toString();
+            ip = result[1].toString();
+            port = Integer.parseInt(result[2].toString());
 
         } catch (NumberFormatException e) { throw new IncorrectFormatException( hostExp, e ); }
     }
@@ -112,7 +115,7 @@ public class HostPointer {
      * @return      (host nodeID ip port)
      */
     public ListExpression toASE() {
-       return new ListExpression(StringExpression.makeString("host"), StringExpression.makeString(nodeID),
+       return new ListExpression(StringExpression.symbol("host"), StringExpression.makeString(nodeID),
                                  StringExpression.makeString(ip), StringExpression.makeString(Integer.toString(port)));
     }
 
@@ -129,6 +132,14 @@ public class HostPointer {
                 && port == hpo.port;
     }
 
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return (nodeID.hashCode() * 31 + ip.hashCode()) * 31 + port;
+    }
+
     /**
      * @see java.lang.Object#toString()
      */
@@ -0,0 +1,240 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Starts the threads that an auditorium host (and its links, discovery host
+ * and event dispatcher) run on, and keeps track of them so that stopping the
+ * host can wait for all of them to finish.<br>
+ * <br>
+ * Threads are either ordinary platform threads, or virtual threads. Virtual
+ * threads are cheap enough that thousands of simulated booths can run in one
+ * JVM, each with a thread per link. They need Java 21; on an older runtime a
+ * request for virtual threads falls back to platform threads (with a warning).
+ */
+public class HostThreads {
+
+    /** Platform threads, for anything not started by a particular host */
+    public static final HostThreads DEFAULT = new HostThreads(false);
+
+    /** Thread.ofVirtual(), if this runtime has it */
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+
+    /** Thread.Builder.name(String), if this runtime has it */
+    private static final Method BUILDER_NAME = method(builderClass(), "name", String.class);
+
+    /** Thread.Builder.unstarted(Runnable), if this runtime has it */
+    private static final Method BUILDER_UNSTARTED = method(builderClass(), "unstarted", Runnable.class);
+
+    /** Whether this starts virtual threads */
+    private final boolean virtual;
+
+    /** The threads that have been started and haven't finished */
+    private final Set<Thread> live = Collections.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<Thread, Boolean>()));
+
+    /**
+     * Constructor.
+     *
+     * @param virtual       True to start virtual threads, if the runtime supports them.
+     */
+    public HostThreads(boolean virtual) {
+        boolean supported = virtual && OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_UNSTARTED != null;
+        if (virtual && !supported)
+            Bugout.err("Virtual threads aren't available in this runtime, using platform threads");
+
+        this.virtual = supported;
+    }
+
+    /**
+     * @return True if this starts virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Start a thread, and keep track of it until it finishes.
+     *
+     * @param name      Name the thread this.
+     * @param task      The thread runs this.
+     * @return          The started thread.
+     */
+    public Thread start(String name, Runnable task) {
+        return start(name, Thread.currentThread().getPriority(), task);
+    }
+
+    /**
+     * Start a thread at the given priority, and keep track of it until it
+     * finishes. Virtual threads ignore the priority.
+     *
+     * @param name      Name the thread this.
+     * @param priority  Run the thread at this priority.
+     * @param task      The thread runs this.
+     * @return          The started thread.
+     */
+    public Thread start(String name, int priority, Runnable task) {
+        Thread t = newThread(name, priority, task);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Make a factory for an executor's threads, which are kept track of like
+     * any other started here.
+     *
+     * @param name      Name each thread this.
+     * @return          The factory.
+     */
+    public ThreadFactory factory(final String name) {
+        return new ThreadFactory() {
+
+            public Thread newThread(Runnable task) {
+                return HostThreads.this.newThread(name, Thread.NORM_PRIORITY, task);
+            }
+        };
+    }
+
+    /**
+     * Make a thread, and keep track of it from now until it finishes. The
+     * caller must start it.
+     */
+    private Thread newThread(String name, int priority, final Runnable task) {
+        Runnable tracked = new Runnable() {
+
+            public void run() {
+                try {
+                    task.run();
+                }
+                finally {
+                    live.remove(Thread.currentThread());
+                }
+            }
+        };
+
+        Thread t = virtual ? newVirtual(name, tracked) : null;
+        if (t == null) {
+            t = new Thread(tracked, name);
+            t.setPriority(Math.min(priority, Thread.MAX_PRIORITY));
+        }
+
+        live.add(t);
+        return t;
+    }
+
+    /**
+     * Wait for every thread started here to finish. Threads that are still
+     * running after the timeout are interrupted and given a moment more. The
+     * calling thread is never waited for, so this can be called from a thread
+     * that was started here.
+     *
+     * @param timeout   Wait at most this many milliseconds before interrupting.
+     */
+    public void shutdown(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        for (Thread t : snapshot()) {
+            long left = deadline - System.currentTimeMillis();
+            if (left > 0)
+                join(t, left);
+        }
+
+        for (Thread t : snapshot()) {
+            Bugout.err("Thread " + t.getName() + " didn't stop in time, interrupting it");
+            t.interrupt();
+            join(t, 100);
+        }
+    }
+
+    /**
+     * @return The number of threads started here that haven't finished.
+     */
+    public int size() {
+        return live.size();
+    }
+
+    /**
+     * @return The live threads, other than the calling thread.
+     */
+    private ArrayList<Thread> snapshot() {
+        ArrayList<Thread> threads;
+        synchronized (live) {
+            threads = new ArrayList<>(live);
+        }
+
+        threads.remove(Thread.currentThread());
+        return threads;
+    }
+
+    private static void join(Thread t, long millis) {
+        try {
+            t.join(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Make an unstarted virtual thread, through reflection so that this still
+     * builds and runs on runtimes without them.
+     *
+     * @return The thread, or null if it couldn't be made.
+     */
+    private static Thread newVirtual(String name, Runnable task) {
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+            return (Thread) BUILDER_UNSTARTED.invoke(builder, task);
+        }
+        catch (Exception e) {
+            /* e.g. a runtime where virtual threads are still a preview feature */
+            return null;
+        }
+    }
+
+    private static Class<?> builderClass() {
+        try {
+            return Class.forName("java.lang.Thread$Builder");
+        }
+        catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method method(Class<?> c, String name, Class<?>... parameters) {
+        if (c == null)
+            return null;
+
+        try {
+            return c.getMethod(name, parameters);
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -189,4 +189,117 @@ public interface IAuditoriumParams {
      * @return the rule file for incremental verification
      */
     public String getIncrementalRuleFile();
+
+    /**
+     * @return The number of messages that can wait in each link's outbound queue.
+     */
+    public int getLinkQueueCapacity();
+
+    /**
+     * @return What a link should do when a message is sent to it while its outbound queue is full.
+     */
+    public Link.OverflowPolicy getLinkOverflowPolicy();
+
+    /**
+     * @return Under the BLOCK policy, give up on a link after waiting this many milliseconds for room in its queue.
+     */
+    public int getLinkSendTimeout();
+
+    /**
+     * @return Force the log to disk after this many entries have been written (0 to disable).
+     */
+    public int getLogSyncEvery();
+
+    /**
+     * @return Force the log to disk this many milliseconds after an entry has been written (0 to disable).
+     */
+    public int getLogSyncInterval();
+
+    /**
+     * @return Grow the log file this many bytes at a time (0 to disable pre-allocation).
+     */
+    public long getLogPreallocation();
+
+    /**
+     * @return Start a new log segment once the current one has this many bytes (0 for no size limit). The log is
+     *         only split into segments if this or the segment interval is set.
+     */
+    public long getLogSegmentSize();
+
+    /**
+     * @return Start a new log segment once the current one has been open this many milliseconds (0 for no time
+     *         limit).
+     */
+    public int getLogSegmentInterval();
+
+    /**
+     * @return Gather announcements for up to this many milliseconds and send them as one signed envelope (0 to
+     *         send each announcement on its own).
+     */
+    public int getAnnounceBatchWindow();
+
+    /**
+     * @return The number of threads that check signatures on incoming messages before they are logged (0 to check
+     *         them one at a time as they are logged).
+     */
+    public int getVerifyThreads();
+
+    /**
+     * @return How links read and write their sockets: "threads" for a pair of threads per link, or "nio" for a
+     *         shared selector thread.
+     */
+    public String getTransport();
+
+    /**
+     * @return What the host's threads run on: "platform" for ordinary threads, or "virtual" for virtual threads
+     *         (where the runtime has them).
+     */
+    public String getThreadMode();
+
+    /**
+     * @return The number of hosts after which a discovery stops waiting for more to answer (0 to always wait out the
+     *         discover timeout).
+     */
+    public int getDiscoverPeers();
+
+    /**
+     * @return The file in which the hosts this machine was last connected to are kept, so it can rejoin them after a
+     *         reboot ("" to not keep them).
+     */
+    public String getPeerCache();
+
+    /**
+     * @return The most messages sent in one batch when catching up a host that has just joined (0 to not catch
+     *         hosts up).
+     */
+    public int getCatchUpBatch();
+
+    /**
+     * @return Compress announcements at least this many bytes long before they are signed and flooded (0 to never
+     *         compress; compressed announcements from other hosts are read either way).
+     */
+    public int getCompressionThreshold();
+
+    /**
+     * @return Print a snapshot of the auditorium metrics every this many milliseconds (0 to not print them; they can
+     *         still be read over JMX).
+     */
+    public int getMetricsInterval();
+
+    /**
+     * @return Evaluate the incremental rule once this many messages have been logged since the last evaluation (0 for
+     *         no limit).
+     */
+    public int getIncrementalVerifyEvery();
+
+    /**
+     * @return Evaluate the incremental rule once this many milliseconds have passed since the last evaluation, if
+     *         anything has been logged (0 for no limit).
+     */
+    public int getIncrementalVerifyInterval();
+
+    /**
+     * @return How the log is hash chained: "compat" to chain it as older logs were, or "fast" (see ChainHasher).
+     */
+    public String getHashChainMode();
 }
@@ -0,0 +1,86 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+/**
+ * Finds the other hosts on the network, and keeps track of the ones this host
+ * has been connected to. {@link AuditoriumDiscoveryHost} does this with UDP
+ * broadcasts; a {@link LoopbackNetwork} does it for hosts in the same JVM.
+ */
+public interface IDiscoveryHost {
+
+    /**
+     * Start answering other hosts' discover requests.
+     *
+     * @throws NetworkException Thrown if discovery can't be started.
+     */
+    public void start() throws NetworkException;
+
+    /**
+     * Stop answering discover requests.
+     */
+    public void stop();
+
+    /**
+     * Find the other hosts on the network, waiting as long as the
+     * configuration says.
+     *
+     * @return The hosts that were found.
+     *
+     * @throws NetworkException Thrown if the discover request can't be sent.
+     */
+    public HostPointer[] discover() throws NetworkException;
+
+    /**
+     * Find the other hosts on the network, as in discover(), but report each
+     * host to the given listener as soon as it answers, and stop waiting once
+     * enough hosts have answered.
+     *
+     * @param enough        Return as soon as this many hosts have answered (0 to wait out the discover timeout).
+     * @param listener      Report each host to this as it answers, or null.
+     * @return              All the hosts that answered before this returned.
+     *
+     * @throws NetworkException Thrown if the discover request can't be sent.
+     */
+    public HostPointer[] discover(int enough, IDiscoveryListener listener) throws NetworkException;
+
+    /**
+     * @return The hosts this machine was last connected to, most recent first.
+     */
+    public HostPointer[] getCachedPeers();
+
+    /**
+     * Note that this machine is connected to a host, so it can rejoin it after
+     * a reboot.
+     *
+     * @param host      This machine is connected to this host.
+     */
+    public void rememberPeer(HostPointer host);
+
+    /**
+     * Note that a host couldn't be reached, so it isn't tried after a reboot.
+     *
+     * @param host      This host couldn't be reached.
+     */
+    public void forgetPeer(HostPointer host);
+}
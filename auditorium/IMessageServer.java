@@ -0,0 +1,51 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.io.IOException;
+
+/**
+ * Accepts connections from other hosts, as {@link IMessageSocket}s.
+ *
+ * @see ITransport#listen(int)
+ */
+public interface IMessageServer {
+
+    /**
+     * Wait for another host to connect.
+     *
+     * @return      The connected socket.
+     *
+     * @throws NetworkException Thrown if the connection can't be set up, in which case the server can still be used.
+     * @throws IOException Thrown if the server can no longer accept connections (e.g. it has been closed).
+     */
+    public IMessageSocket accept() throws NetworkException, IOException;
+
+    /**
+     * Stop accepting connections. A thread waiting in accept() is woken with
+     * an IOException.
+     *
+     * @throws IOException Thrown if the server can't be closed.
+     */
+    public void close() throws IOException;
+}
@@ -0,0 +1,83 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.stream.ASEFrameDecoder;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+
+/**
+ * A connection to another host that sends and receives whole auditorium
+ * messages. {@link MessageSocket} is one over a TCP socket; a
+ * {@link LoopbackNetwork} makes ones that stay inside the JVM.
+ *
+ * @see ITransport
+ */
+public interface IMessageSocket {
+
+    /**
+     * Send a message.
+     *
+     * @param msg       Send this message.
+     *
+     * @throws NetworkException Thrown if the message can't be sent.
+     */
+    public void send(Message msg) throws NetworkException;
+
+    /**
+     * Receive a message, waiting until one arrives.
+     *
+     * @return      The message that is received, or null if the other end closed the connection.
+     *
+     * @throws NetworkException Thrown if the message can't be received.
+     * @throws IncorrectFormatException Thrown if the incoming s-expression isn't formatted as a message.
+     */
+    public Message receive() throws NetworkException, IncorrectFormatException;
+
+    /**
+     * Get the channel behind this socket, if it has one.
+     *
+     * @return The socket's channel, or null.
+     */
+    public SocketChannel getChannel();
+
+    /**
+     * Hand over whatever has been read off the socket but not yet received,
+     * so a transport that reads the channel itself can carry on where
+     * receive() left off. The socket must not be received from afterwards.
+     *
+     * @param received      Whole messages already read are added to this, in order.
+     * @return              The decoder holding any message that has only partly arrived.
+     */
+    public ASEFrameDecoder handOff(Collection<ASExpression> received);
+
+    /**
+     * Close the socket.
+     *
+     * @throws IOException Thrown if the socket can't be closed.
+     */
+    public void close() throws IOException;
+}
@@ -0,0 +1,91 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.io.IOException;
+
+/**
+ * A transport moves messages between {@link Link}s and their sockets. The host
+ * and the links decide what is sent and what to do with what is received; the
+ * transport only decides which threads do the reading and writing.<br>
+ * <br>
+ * Sockets are made through the transport as well, since a transport may need
+ * a particular kind of socket (e.g. one backed by a channel). The join
+ * handshake is always done with blocking calls on the MessageSocket, before
+ * the link is registered.
+ *
+ * @see ThreadTransport
+ * @see SelectorTransport
+ * @see LoopbackTransport
+ */
+public interface ITransport {
+
+    /**
+     * Connect to another host.
+     *
+     * @param host          Connect to this host.
+     * @param timeout       Only wait this long (in ms) for the connection to succeed.
+     * @return              The connected socket, in blocking mode.
+     *
+     * @throws NetworkException Thrown if there is a problem connecting.
+     */
+    public IMessageSocket connect(HostPointer host, int timeout) throws NetworkException;
+
+    /**
+     * Open a socket to accept connections from other hosts.
+     *
+     * @param port          Listen on this port.
+     * @return              The server that accepts connections on the port.
+     *
+     * @throws IOException Thrown if the port can't be bound.
+     */
+    public IMessageServer listen(int port) throws IOException;
+
+    /**
+     * Start moving messages for a link. From here on, messages heard on the
+     * link's socket are handed to the link, and messages queued on the link are
+     * written to its socket. If the socket fails, the transport tells the link.
+     *
+     * @param link          The link, whose socket has finished the join handshake.
+     */
+    public void register(Link link);
+
+    /**
+     * Let the transport know a link has new messages queued to be written.
+     *
+     * @param link          The link.
+     */
+    public void wakeup(Link link);
+
+    /**
+     * Stop moving messages for a link. The link closes its own socket.
+     *
+     * @param link          The link.
+     */
+    public void unregister(Link link);
+
+    /**
+     * Stop the transport and any threads it owns.
+     */
+    public void shutdown();
+}
@@ -109,7 +109,7 @@ public class Key {
      * @return This method returns (key [id] [annotation] [mod] [exp]).
      */
     public ASExpression toASE() {
-        return new ListExpression( StringExpression.makeString( "key" ),
+        return new ListExpression( StringExpression.symbol( "key" ),
                 StringExpression.makeString(id), StringExpression
                         .makeString(annotation), StringExpression
                         .makeString( mod.toByteArray() ), StringExpression
@@ -23,28 +23,80 @@
 package auditorium;
 
 import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class represents a single link in the group of outgoing links from a
- * given host. Each link has a listen thread associated with it. It's job is to
- * simply listen for incoming traffic on said link, and relay said traffic to
- * the host. The host will then, of course, decide what to do with it. Because
- * each link is a keeper of this listening thread, you must call start() and
- * stop() on it before it will behave in the expected way. The link's thread
- * will operateIndependent at a priority one less than the calling thread. This is to aid
- * auditorium in being able to keep up with many links flooding messages onto
- * its queues.
+ * given host. Its job is to simply listen for incoming traffic on said link,
+ * and relay said traffic to the host. The host will then, of course, decide
+ * what to do with it. The actual reading and writing is done by the link's
+ * {@link ITransport}: by default a {@link ThreadTransport}, which gives each
+ * link its own listen and writer threads. You must call start() and stop() on
+ * a link before it will behave in the expected way.<br>
+ * <br>
+ * Each link also keeps a bounded outbound queue, which the transport drains
+ * onto the socket. Calls to send() only enqueue, so a slow or half-dead peer
+ * can never stall the host that is flooding to it. What happens when the queue
+ * fills up is decided by the link's {@link OverflowPolicy}.<br>
+ * <br>
+ * How long the transport takes to write each message, and how many messages
+ * the link drops or gives up on, are kept in {@link Metrics#SINGLETON} as
+ * "link.&lt;node&gt;.send", "link.&lt;node&gt;.dropped" and
+ * "link.&lt;node&gt;.send-failures".
  * 
  * @author Kyle Derr
  * 
  */
 public class Link {
 
+    /**
+     * What a link should do when a message is sent to it while its outbound
+     * queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait up to the send timeout for room in the queue, then give up on
+         * the link. The host floods while holding its lock, so one full link
+         * holds up every other link (and the log) for as long as it waits.
+         */
+        BLOCK,
+
+        /**
+         * Evict the oldest queued message to make room for the new one. The
+         * link stays up, so the peer never asks to catch up on what it lost.
+         */
+        DROP_OLDEST,
+
+        /** Drop the new message and leave the queue as it is (which, as with DROP_OLDEST, is never repaired) */
+        DROP_NEWEST,
+
+        /** Give up on the link immediately */
+        DISCONNECT
+    }
+
+    /** Default number of messages that can wait in a link's outbound queue */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Default policy for a full outbound queue. Giving up on the link never
+     * waits on the peer and never loses a message quietly: the peer sees the
+     * link close, and when it joins again it catches up on what it missed.
+     */
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DISCONNECT;
+
+    /** Default number of milliseconds a BLOCK link will wait for room in its queue */
+    public static final int DEFAULT_SEND_TIMEOUT = 2000;
+
+    /** How often (in milliseconds) sendPaced() looks for room in the queue */
+    private static final int PACE_INTERVAL = 5;
+
     /** A reference to the host that holds this link */
     private final IAuditoriumHost host;
 
     /** The socket over which this link communicates */
-    private final MessageSocket socket;
+    private final IMessageSocket socket;
 
     /** The address of the host to which this link corresponds */
     private final HostPointer address;
@@ -52,54 +104,114 @@ public class Link {
     /** Denotes whether start() has been called on the link and its thread is running*/
     private volatile boolean running;
 
+    /** Messages waiting to be written to the socket by the writer thread */
+    private final BlockingQueue<Message> outQueue;
+
+    /** What to do when outQueue is full */
+    private final OverflowPolicy policy;
+
+    /** How long (in milliseconds) a BLOCK link waits for room in outQueue */
+    private final int sendTimeout;
+
+    /** The most messages outQueue holds */
+    private final int capacity;
+
+    /** The transport that reads and writes the socket */
+    private final ITransport transport;
+
+    /** How long the transport takes to write each message */
+    private final Metrics.Timer sendTime;
+
+    /** Messages dropped under DROP_OLDEST or DROP_NEWEST */
+    private final Metrics.Counter dropped;
+
+    /** Messages that made the host give up on the link */
+    private final Metrics.Counter failures;
+
     /**
      * Construct a new auditorium link structure to wrap a socket that has
-     * already been established with another auditorium host.
+     * already been established with another auditorium host. The outbound
+     * queue gets the default capacity and policy.
      * 
      * @param host          The AuditoriumHost that is using this link.
      * @param socket        The socket to the other auditorium host.
      * @param address       The address that the socket is connected to.
      */
-    public Link(IAuditoriumHost host, MessageSocket socket, HostPointer address) {
+    public Link(IAuditoriumHost host, IMessageSocket socket, HostPointer address) {
+        this(host, socket, address, DEFAULT_QUEUE_CAPACITY, DEFAULT_OVERFLOW_POLICY, DEFAULT_SEND_TIMEOUT);
+    }
+
+    /**
+     * Construct a new auditorium link structure to wrap a socket that has
+     * already been established with another auditorium host.
+     *
+     * @param host          The AuditoriumHost that is using this link.
+     * @param socket        The socket to the other auditorium host.
+     * @param address       The address that the socket is connected to.
+     * @param capacity      The number of messages that can wait to be written to the socket.
+     * @param policy        What to do when a message is sent while the queue is full.
+     * @param sendTimeout   How long (in milliseconds) to wait for room in the queue under the BLOCK policy.
+     */
+    public Link(IAuditoriumHost host, IMessageSocket socket, HostPointer address,
+                int capacity, OverflowPolicy policy, int sendTimeout) {
+        this(host, socket, address, capacity, policy, sendTimeout, ThreadTransport.SINGLETON);
+    }
+
+    /**
+     * Construct a new auditorium link structure to wrap a socket that has
+     * already been established with another auditorium host.
+     *
+     * @param host          The AuditoriumHost that is using this link.
+     * @param socket        The socket to the other auditorium host (made by the transport).
+     * @param address       The address that the socket is connected to.
+     * @param capacity      The number of messages that can wait to be written to the socket.
+     * @param policy        What to do when a message is sent while the queue is full.
+     * @param sendTimeout   How long (in milliseconds) to wait for room in the queue under the BLOCK policy.
+     * @param transport     The transport that will read and write the socket.
+     */
+    public Link(IAuditoriumHost host, IMessageSocket socket, HostPointer address,
+                int capacity, OverflowPolicy policy, int sendTimeout, ITransport transport) {
         this.host = host;
+        this.transport = transport;
         this.socket = socket;
         this.address = address;
+        this.policy = policy;
+        this.sendTimeout = sendTimeout;
+        this.capacity = capacity;
+        outQueue = new ArrayBlockingQueue<>(capacity);
         running = false;
+
+        String prefix = "link." + address.getNodeId() + ".";
+        sendTime = Metrics.SINGLETON.timer(prefix + "send");
+        dropped = Metrics.SINGLETON.counter(prefix + "dropped");
+        failures = Metrics.SINGLETON.counter(prefix + "send-failures");
     }
 
     /**
-     * Start the thread.
+     * Start reading and writing the socket.
      */
     public void start() {
         /* Note that we're starting on the console */
         Bugout.msg("Link " + address + ": STARTING");
 
-        /* listenThread will stop immediately if not set here */
+        /* The transport will stop immediately if not set here */
         running = true;
-
-        /* Start the listening thread */
-        Thread t = new Thread(new Runnable() {
-
-            public void run() {
-                listenThread();
-            }
-        });
-
-        /* Establish the priority of this thread as one less than the host thread */
-        t.setPriority(Thread.currentThread().getPriority() + 1);
-        t.start();
-
+        transport.register(this);
     }
 
     /**
-     * Stop the thread.
+     * Stop reading and writing the socket. Any messages still waiting in the
+     * outbound queue are discarded.
      */
     public void stop() {
         /* Note that we're stopping on the console */
         Bugout.err("Link " + address + ": STOPPING");
 
-        /* Close the socket */
+        /* Close the socket, and stop the transport (and wake anyone waiting on it) */
         running = false;
+        outQueue.clear();
+        transport.unregister(this);
+
         try {
             socket.close();
         }
@@ -108,6 +220,95 @@ public class Link {
         }
     }
 
+    /**
+     * Queue a message to be written to the other end of this link. This call
+     * never waits on the socket; only under the BLOCK policy may it wait (at
+     * most the send timeout) for room in the outbound queue.
+     *
+     * @param message       Send this message.
+     * @return              False if the link is stopped, or its policy says it should be given up on. True otherwise, even if the message was dropped.
+     */
+    public boolean send(Message message) {
+        if (!running)
+            return false;
+
+        if (outQueue.offer(message)) {
+            transport.wakeup(this);
+            return true;
+        }
+
+        /* The queue is full, so see what the policy says to do */
+        switch (policy) {
+            case BLOCK:
+                try {
+                    if (outQueue.offer(message, sendTimeout, TimeUnit.MILLISECONDS)) {
+                        transport.wakeup(this);
+                        return true;
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                Bugout.err("Link " + address + ": timed out waiting for room in the send queue");
+                failures.inc();
+                return false;
+
+            case DROP_OLDEST:
+                /* Keep evicting until there is room; the writer may be racing us for the head */
+                while (!outQueue.offer(message)) {
+                    Message evicted = outQueue.poll();
+                    if (evicted != null) {
+                        Bugout.err("Link " + address + ": send queue full, dropped " + new MessagePointer(evicted));
+                        dropped.inc();
+                    }
+                }
+                transport.wakeup(this);
+                return true;
+
+            case DROP_NEWEST:
+                Bugout.err("Link " + address + ": send queue full, dropped " + new MessagePointer(message));
+                dropped.inc();
+                return true;
+
+            default:
+                Bugout.err("Link " + address + ": send queue full, disconnecting");
+                failures.inc();
+                return false;
+        }
+    }
+
+    /**
+     * Queue a message that can wait on the peer, such as a sync-reply, once no
+     * more than half of the outbound queue is in use. The rest is left for the
+     * messages being flooded, so a long catch-up can neither overflow the queue
+     * nor crowd out live traffic. Never call this holding the host's lock.
+     *
+     * @param message       Send this message.
+     * @return              False if the link stopped (or this thread was interrupted) while waiting, or the link was given up on.
+     */
+    boolean sendPaced(Message message) {
+        try {
+            while (running && outQueue.size() > capacity / 2)
+                Thread.sleep(PACE_INTERVAL);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return send(message);
+    }
+
+    /**
+     * Get the number of messages waiting to be written to the socket.
+     *
+     * @return The number of messages in the outbound queue.
+     */
+    public int pending() {
+        return outQueue.size();
+    }
+
     /**
      * Get the address of the other end of this link.
      * 
@@ -122,7 +323,7 @@ public class Link {
      * 
      * @return The message socket that is established for this link.
      */
-    public MessageSocket getSocket() {
+    public IMessageSocket getSocket() {
         return socket;
     }
 
@@ -145,29 +346,53 @@ public class Link {
 
 
     /**
-     * Thread that will handle messages coming across the socket
+     * Take the next message to be written, if there is one. Only the
+     * transport calls this.
+     *
+     * @return The next queued message, or null if the queue is empty.
      */
-    private void listenThread() {
+    Message poll() {
+        return outQueue.poll();
+    }
 
-        /* Note that the thread is starting */
-        Bugout.msg( "Link " + address + ": THREAD START" );
+    /**
+     * Wait for the next message to be written. Only the transport calls this.
+     *
+     * @return The next queued message.
+     *
+     * @throws InterruptedException Thrown if the link is stopped while waiting.
+     */
+    Message take() throws InterruptedException {
+        return outQueue.take();
+    }
 
-        /* Now read in data from the socket and pass it to the host */
-        try {
-            Message message;
-            while (running && (message  = socket.receive()) != null) {
-                Bugout.msg("Link " + address + ": received: " + new MessagePointer(message));
-                host.receiveAnnouncement(message);
-            }
-        } catch (NetworkException e) {
-            Bugout.err("Link " + address + ": " + e.getMessage());
-        } catch (IncorrectFormatException e) {
-            Bugout.err("Link " + address + ": received a message that is incorrectly formatted:" + e.getMessage());
-        }
+    /**
+     * Note that a message has been written to the socket. Only the transport
+     * calls this.
+     *
+     * @param start         When (in System.nanoTime()) the transport took the message off the queue.
+     */
+    void written(long start) {
+        sendTime.since(start);
+    }
+
+    /**
+     * Hand a message heard on the socket to the host. Only the transport
+     * calls this.
+     *
+     * @param message       The message.
+     */
+    void received(Message message) {
+        Bugout.msg("Link " + address + ": received: " + new MessagePointer(message));
+        host.receiveAnnouncement(message);
+    }
 
-        /* If we exit the while loop, remove and close this link */
+    /**
+     * Give up on this link because its socket has failed or been closed by the
+     * other end. Only the transport calls this.
+     */
+    void closed() {
         host.removeLink(this);
-        Bugout.msg("Link " + address + ": THREAD END");
         stop();
     }
 }
@@ -23,14 +23,10 @@
 package auditorium;
 
 import sexpression.ASExpression;
-import sexpression.StringExpression;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -39,20 +35,43 @@ import java.util.List;
  * compute whether or not a given s-expression has been heard before, as well as
  * keep track of what the most recently heard but not pointed to messages are.
  * (This is useful for helping the temporal layer decide what messages should be
- * pointed to when said messages are being constructed.)
+ * pointed to when said messages are being constructed.)<br>
+ * <br>
+ * Entries are handed to a {@link LogWriter}, which writes each one to the file
+ * as it is logged and forces the file to disk according to its durability
+ * policy. Call sync() at
+ * points that must be durable, and close() when the log is finished.<br>
+ * <br>
+ * If asked to, the log also keeps a {@link History} of what it has logged,
+ * from which hosts that rejoin are sent what they missed.
  * 
  * @author Kyle Derr
  */
 public class Log {
 
-    /** The file to which the log will be written */
-    private final FileOutputStream location;
+    /** Writes the log entries out to the file (or to segment files) */
+    private final LogSegmenter location;
 
-    /** A set of message pointers that have already been seen, so we don't have to handle them */
-    private final HashSet<MessagePointer> haveSeen;
+    /** A compact index of the messages that have already been seen, so we don't have to handle them */
+    private final SeenIndex haveSeen;
 
-    /** A list of message pointers that have been heard by the log but not referenced by an actual message  */
-    private final LinkedList<MessagePointer> last;
+    /** The message pointers that have been heard by the log but not referenced by an actual message */
+    private final Frontier last;
+
+    /** What has been logged so far, for catching up hosts that missed some, or null if that isn't kept */
+    private History history;
+
+    /** How long writing an entry takes, including any sync the durability policy forces */
+    private final Metrics.Timer writeTime = Metrics.SINGLETON.timer("log.write");
+
+    /** How long an explicit sync takes */
+    private final Metrics.Timer syncTime = Metrics.SINGLETON.timer("log.sync");
+
+    /** Messages dropped because they had already been logged */
+    private final Metrics.Counter duplicates = Metrics.SINGLETON.counter("log.duplicates");
+
+    /** Computes the hash chain as messages are logged */
+    private final ChainHasher chain;
 
     /** A reference to that last hash value so we can chain the messages in the log */
     private ASExpression lastChainedHash;
@@ -65,12 +84,47 @@ public class Log {
      * @throws FileNotFoundException Thrown if the given location cannot be found.
      */
     public Log(File location, String launchCode) throws FileNotFoundException {
-        this.location = new FileOutputStream( location );
-        haveSeen = new HashSet<>();
-        last = new LinkedList<>();
+        this( new LogWriter( location ), launchCode );
+    }
+
+    /**
+     * Construct a Log instance that serializes log data through the given
+     * writer.
+     *
+     * @param location      The writer that log entries should be written to.
+     * @param launchCode    The launch code that seeds the hash chain.
+     */
+    public Log(LogWriter location, String launchCode) {
+        this( new LogSegmenter( location ), launchCode );
+    }
 
-        /* Initialize that hash chain with string 0000000000 */
-        lastChainedHash = StringExpression.makeString(StringExpression.makeString(launchCode).getSHA1());
+    /**
+     * Construct a Log instance that serializes log data through the given
+     * segmenter, which may split the log into segments.
+     *
+     * @param location      The segmenter that log entries should be written to.
+     * @param launchCode    The launch code that seeds the hash chain.
+     */
+    public Log(LogSegmenter location, String launchCode) {
+        this( location, launchCode, false );
+    }
+
+    /**
+     * Construct a Log instance that serializes log data through the given
+     * segmenter, chaining it in the given mode.
+     *
+     * @param location      The segmenter that log entries should be written to.
+     * @param launchCode    The launch code that seeds the hash chain.
+     * @param fastChain     True to chain the log in ChainHasher's fast mode, false to chain it as older logs were.
+     */
+    public Log(LogSegmenter location, String launchCode, boolean fastChain) {
+        this.location = location;
+        haveSeen = new SeenIndex();
+        last = new Frontier();
+
+        /* Initialize that hash chain with the launch code */
+        chain = new ChainHasher( fastChain, launchCode );
+        lastChainedHash = chain.getLast();
     }
 
     /**
@@ -83,26 +137,26 @@ public class Log {
      * @throws IOException This method throws if there is an IO error when trying to add the message to the log file on disk.
      */
     public boolean logAnnouncement(Message message) throws IOException {
-        /* Copy this message without a a reference to the hash chain for reference outside of the log  */
-        Message copy = new Message(message.getType(), message.getFrom(), message.getSequence(), message.getDatum());
-
-        /* Chain the hash values */
-        message.chain(lastChainedHash);
+        MessagePointer toMessage = new MessagePointer( message );
+        if (haveSeen.add(toMessage)) {
 
-        /* Update our reference to the chain */
-        lastChainedHash = message.getChainedHash();
+            /* Chain the hash values (this doesn't change the message's own hash, so its pointer is the same either way) */
+            ASExpression previous = lastChainedHash;
+            message.chain(chain);
 
-        MessagePointer toMessage = new MessagePointer( message );
-        if (!haveSeen.contains(new MessagePointer(copy))) {
+            /* Update our reference to the chain */
+            lastChainedHash = message.getChainedHash();
 
             /* Since the chained value is only used here, we update our lists with the unchained version */
-            haveSeen.add(toMessage);
             last.add(toMessage);
 
             /* Write the chained value to the log */
-            write(message);
+            write(message, previous);
+            if (history != null)
+                history.add(message);
             return true;
         }
+        duplicates.inc();
         return false;
     }
 
@@ -114,22 +168,36 @@ public class Log {
     public boolean logAnnouncementNoChain(Message message) throws IOException {
 
         MessagePointer toMessage = new MessagePointer( message );
-        if (!haveSeen.contains(toMessage)) {
+        if (haveSeen.add(toMessage)) {
 
             /* Since the chained value is only used here, we update our lists with the unchained version */
-            haveSeen.add(toMessage);
             last.add(toMessage);
 
             /* Write the chained value to the log */
-            write(message);
+            write(message, lastChainedHash);
+            if (history != null)
+                history.add(message);
             return true;
         }
         return false;
     }
 
     /**
-     * Add a message to the "last" list. This message will be included in the
-     * pointer set for the next message sent out.
+     * Check whether a message has already been logged, without logging it.
+     * This is only a hint when called outside the host lock: the answer can
+     * be out of date by the time it is used.
+     *
+     * @param message       The message in question.
+     * @return              True if the message has been seen before.
+     */
+    public boolean hasSeen(Message message) {
+        return haveSeen.contains(new MessagePointer(message));
+    }
+
+    /**
+     * Add a message to the "last" list. This message (or a later one from the
+     * same node) will be included in the pointer set for the next message
+     * sent out.
      * 
      * @param message       Add this message.
      */
@@ -138,7 +206,8 @@ public class Log {
     }
 
     /**
-     * Remove a pointer from the last list, if it exists in the list.
+     * Remove a pointer from the last list, if it exists in the list (or the
+     * list holds an earlier message from the same node).
      * 
      * @param message       Remove this message from the last list.
      */
@@ -154,21 +223,69 @@ public class Log {
      * @return This method returns the last list.
      */
     public MessagePointer[] getLast() {
-        MessagePointer[] ret = last.toArray(new MessagePointer[last.size()]);
-        last.clear();
-        return ret;
+        return last.take();
+    }
+
+    /**
+     * Start keeping a history of what is logged, so that hosts that missed
+     * some of it can be caught up. Only what is logged after this is called
+     * is recorded, so call it before logging anything.
+     */
+    public void keepHistory() {
+        if (history == null)
+            history = new History(location);
+    }
+
+    /**
+     * @return What has been logged so far, which a host that missed some can
+     *         be caught up from, or null if keepHistory() wasn't called.
+     */
+    public History getHistory() {
+        return history;
+    }
+
+    /**
+     * @return The approximate heap used to remember which messages have been
+     *         seen, in bytes.
+     */
+    public long getSeenFootprint() {
+        return haveSeen.footprint();
+    }
+
+    /**
+     * Force everything logged so far to disk. Use this as a barrier at points
+     * where the log must be durable, e.g. when the polls close.
+     *
+     * @throws IOException If the log can't be written or forced to disk.
+     */
+    public void sync() throws IOException {
+        long start = System.nanoTime();
+        location.sync();
+        syncTime.since(start);
+    }
+
+    /**
+     * Force everything logged so far to disk and release the log file. Nothing
+     * can be logged after this.
+     *
+     * @throws IOException If the log can't be written, forced or closed.
+     */
+    public void close() throws IOException {
+        location.close();
     }
 
     /**
      * Write messages to the log
      *
      * @param message       The message to write
+     * @param previous      The chained hash before this message
      *
      * @throws IOException If something goes wrong in trying to write the message to the log, report it
      */
-    private void write(Message message) throws IOException {
-        location.write(message.toASEWithHash().toVerbatim());
-        location.flush();
+    private void write(Message message, ASExpression previous) throws IOException {
+        long start = System.nanoTime();
+        location.append(message.toVerbatimWithHash(), previous, message.getChainedHash());
+        writeTime.since(start);
     }
 
     // ** Testing Methods ***
@@ -177,8 +294,16 @@ public class Log {
      * logAnnouncement to know whether or not you've seen a message (because the
      * lookup is done atomically with the store!)
      */
-    public synchronized HashSet<MessagePointer> getSetCopyTest() {
-        return new HashSet<>(haveSeen);
+    public synchronized boolean haveSeenTest(MessagePointer pointer) {
+        return haveSeen.contains(pointer);
+    }
+
+    /**
+     * THIS METHOD IS ONLY USED FOR TESTING. Gets the number of messages
+     * currently remembered as seen.
+     */
+    public synchronized int seenCountTest() {
+        return haveSeen.size();
     }
 
     /**
@@ -187,6 +312,6 @@ public class Log {
      * operation.
      */
     public synchronized List<MessagePointer> getLastTest() {
-        return new LinkedList<>(last);
+        return last.toList();
     }
 }
@@ -0,0 +1,748 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.stream.ASEBufferReader;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * LogReader gives random access to the entries of an auditorium log file
+ * without re-reading it from the start. The file is memory mapped, and the
+ * byte offset of every entry is kept in an index, along with the node ID and
+ * sequence number of the message it holds. Finding entry boundaries doesn't
+ * require parsing the entries; only entries that are asked for get parsed.<br>
+ * <br>
+ * By default the index is only kept in memory. A reader can instead be asked
+ * to save it next to the log in a sidecar file (the log's name with ".idx"
+ * appended) so that the next such reader of the same log doesn't have to scan
+ * it again; don't ask for this on read-only or archived copies of a log. The
+ * sidecar records a checksum of the last entry it covers. It is only an
+ * accelerator: if it is missing or unreadable, or its last entry doesn't
+ * match the log, the log is simply scanned again. Every other entry it lists
+ * is checked against the log the first time it is read, and entries are
+ * always parsed from the log itself. A log that is still being written can be
+ * followed with refresh(), which picks up whatever complete entries have been
+ * added since.<br>
+ * <br>
+ * A segment of a segmented log (see {@link LogSegmenter}) can be read like
+ * any other log. Its footer isn't counted as an entry; use getFooter() to get
+ * it.<br>
+ * <br>
+ * Reading entries is thread safe, so a log can be parsed by several threads
+ * at once (see readAll(int)). refresh() must not run concurrently with reads.
+ * Logs are mapped in one piece, so they must be smaller than 2GB.
+ *
+ * @see auditorium.Log
+ */
+public class LogReader {
+
+    /** Marks the start of a sidecar index file ("AIDX") */
+    private static final int INDEX_MAGIC = 0x41494458;
+
+    /** Version of the sidecar index format */
+    private static final int INDEX_VERSION = 1;
+
+    /** The log file */
+    private final File location;
+
+    /** The sidecar index file, or null if the index is only kept in memory */
+    private final File indexLocation;
+
+    /** The mapped log file */
+    private MappedByteBuffer buffer;
+
+    /** The byte offset of each indexed entry; entry i ends where entry i + 1 (or the indexed region) begins */
+    private long[] offsets;
+
+    /** The node ID of the message in each indexed entry */
+    private String[] nodeIds;
+
+    /** The sequence number of the message in each indexed entry */
+    private String[] sequences;
+
+    /** Which entries were loaded from the sidecar and haven't been checked against the log yet (null if none were) */
+    private boolean[] unchecked;
+
+    /** Maps "nodeID sequence" to the index of the entry that holds that message, or null until find() is first called */
+    private HashMap<String, Integer> byPointer;
+
+    /** One copy of each node ID, which every entry from that node shares */
+    private final HashMap<String, String> nodeIdCopies = new HashMap<>();
+
+    /** The number of indexed entries */
+    private int count;
+
+    /** The number of bytes of the log that have been indexed */
+    private long indexedLength;
+
+    /** The offset of the segment footer that ends the log, or -1 if it hasn't got one (yet) */
+    private long footerOffset = -1;
+
+    /**
+     * Open a log file for reading, and index it in memory. Nothing is written
+     * next to the log.
+     *
+     * @param location      The log file.
+     *
+     * @throws IOException Thrown if the log can't be mapped.
+     * @throws InvalidVerbatimStreamException Thrown if the log isn't a sequence of verbatim s-expressions.
+     */
+    public LogReader(File location) throws IOException, InvalidVerbatimStreamException {
+        this(location, false);
+    }
+
+    /**
+     * Open a log file for reading. If asked to, load its sidecar index if
+     * there is a usable one, index whatever part of the log it doesn't cover,
+     * and save the index back to the sidecar.
+     *
+     * @param location      The log file.
+     * @param sidecar       Whether to load and save the index in a sidecar file next to the log.
+     *
+     * @throws IOException Thrown if the log can't be mapped.
+     * @throws InvalidVerbatimStreamException Thrown if the log isn't a sequence of verbatim s-expressions.
+     */
+    public LogReader(File location, boolean sidecar) throws IOException, InvalidVerbatimStreamException {
+        this.location = location;
+        indexLocation = sidecar ? new File(location.getPath() + ".idx") : null;
+        offsets = new long[1024];
+        nodeIds = new String[1024];
+        sequences = new String[1024];
+
+        map();
+        loadIndex();
+        if (index())
+            saveIndex();
+    }
+
+    /**
+     * @return The number of complete entries in the log (as of the last refresh).
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the byte offset of an entry in the log file.
+     *
+     * @param i     The index of the entry (0 is the first entry in the log).
+     * @return      The offset of the first byte of the entry.
+     */
+    public long offset(int i) {
+        checkIndex(i);
+        return offsets[i];
+    }
+
+    /**
+     * Get the node ID of the message in an entry, without parsing the entry.
+     *
+     * @param i     The index of the entry (0 is the first entry in the log).
+     * @return      The node ID of the message's sender, or "" if the entry isn't a message.
+     */
+    public String getNodeId(int i) {
+        checkIndex(i);
+        return nodeIds[i];
+    }
+
+    /**
+     * Get the sequence number of the message in an entry, without parsing the
+     * entry.
+     *
+     * @param i     The index of the entry (0 is the first entry in the log).
+     * @return      The message's sequence number, or "" if the entry isn't a message.
+     */
+    public String getSequence(int i) {
+        checkIndex(i);
+        return sequences[i];
+    }
+
+    /**
+     * Find the entry that holds a given message. If the entry was listed by a
+     * sidecar, this is only checked against the log when the entry is read.
+     * The lookup table is built the first time this is called.
+     *
+     * @param nodeId        The node ID of the message's sender.
+     * @param sequence      The message's sequence number.
+     * @return              The index of the entry, or -1 if there isn't one.
+     */
+    public synchronized int find(String nodeId, String sequence) {
+        if (byPointer == null) {
+            byPointer = new HashMap<>();
+            for (int i = 0; i < count; i++)
+                byPointer.put(nodeIds[i] + " " + sequences[i], i);
+        }
+
+        Integer i = byPointer.get(nodeId + " " + sequence);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Find the entry that holds the message a pointer points to. The entry
+     * only counts if its message hashes to the pointer's hash.
+     *
+     * @param pointer       Find the message this points to.
+     * @return              The index of the entry, or -1 if there isn't one.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if the entry can't be parsed.
+     * @throws IncorrectFormatException Thrown if the entry isn't a message.
+     */
+    public int find(MessagePointer pointer) throws InvalidVerbatimStreamException, IncorrectFormatException {
+        int i = find(pointer.getNodeId(), pointer.getNumber());
+        if (i < 0)
+            return -1;
+
+        Message m = readMessage(i);
+        Message unchained = new Message(m.getType(), m.getFrom(), m.getSequence(), m.getDatum());
+        return pointer.equals(new MessagePointer(unchained)) ? i : -1;
+    }
+
+    /**
+     * Parse one entry of the log.
+     *
+     * @param i     The index of the entry (0 is the first entry in the log).
+     * @return      The entry, as an s-expression.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if the entry can't be parsed, or doesn't match the sidecar.
+     */
+    public ASExpression read(int i) throws InvalidVerbatimStreamException {
+        checkIndex(i);
+        checkEntry(i);
+
+        /* Each read gets its own view of the mapping, so reads can happen in parallel */
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit((int) end(i));
+        slice.position((int) offsets[i]);
+
+        try {
+            return new ASEBufferReader(slice).read();
+        }
+        catch (InvalidVerbatimStreamException e) {
+            throw new InvalidVerbatimStreamException("Entry " + i + " of " + location + " is invalid: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse one entry of the log as a message (which keeps its chained hash).
+     *
+     * @param i     The index of the entry (0 is the first entry in the log).
+     * @return      The message in the entry.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if the entry can't be parsed.
+     * @throws IncorrectFormatException Thrown if the entry isn't a message.
+     */
+    public Message readMessage(int i) throws InvalidVerbatimStreamException, IncorrectFormatException {
+        return new Message(read(i));
+    }
+
+    /**
+     * Get the footer of a log segment. The footer is the last expression in a
+     * finished segment; a whole log, or the segment still being written,
+     * hasn't got one.
+     *
+     * @return      The footer, or null if the log doesn't end in one.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if the footer can't be parsed.
+     * @throws IncorrectFormatException Thrown if the footer is malformed.
+     */
+    public SegmentFooter getFooter() throws InvalidVerbatimStreamException, IncorrectFormatException {
+        if (footerOffset < 0)
+            return null;
+
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) footerOffset);
+
+        try {
+            return new SegmentFooter(new ASEBufferReader(slice).read());
+        }
+        catch (InvalidVerbatimStreamException e) {
+            throw new InvalidVerbatimStreamException("The footer of " + location + " is invalid: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The SHA-1 digest of the bytes of every indexed entry, which for a
+     *         finished segment should match the digest in its footer.
+     */
+    public byte[] digest() {
+        ByteBuffer entries = buffer.duplicate();
+        entries.limit((int) indexedLength);
+        entries.position(0);
+
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA");
+            sha.update(entries);
+            return sha.digest();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-1 not supported on this platform");
+        }
+    }
+
+    /**
+     * Parse every entry of the log, splitting the work between several
+     * threads. The entries are returned in log order.
+     *
+     * @param threads       The number of threads to parse with.
+     * @return              Every entry in the log, in order.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if any entry can't be parsed.
+     */
+    public ASExpression[] readAll(int threads) throws InvalidVerbatimStreamException {
+        final ASExpression[] entries = new ASExpression[count];
+        final InvalidVerbatimStreamException[] failure = new InvalidVerbatimStreamException[1];
+
+        threads = Math.max(1, Math.min(threads, count));
+        Thread[] workers = new Thread[threads];
+        int chunk = (count + threads - 1) / Math.max(threads, 1);
+
+        for (int t = 0; t < threads; t++) {
+            final int from = t * chunk;
+            final int to = Math.min(count, from + chunk);
+
+            workers[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = from; i < to; i++)
+                            entries[i] = read(i);
+                    }
+                    catch (InvalidVerbatimStreamException e) {
+                        synchronized (failure) { failure[0] = e; }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        for (Thread worker : workers) {
+            try { worker.join(); }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InvalidVerbatimStreamException("Interrupted while reading " + location);
+            }
+        }
+
+        if (failure[0] != null)
+            throw failure[0];
+
+        return entries;
+    }
+
+    /**
+     * Pick up any complete entries that have been added to the log since it
+     * was opened or last refreshed, and save the grown index.
+     *
+     * @return The number of entries that were added.
+     *
+     * @throws IOException Thrown if the log can't be re-mapped.
+     * @throws InvalidVerbatimStreamException Thrown if the new part of the log is malformed.
+     */
+    public int refresh() throws IOException, InvalidVerbatimStreamException {
+        int before = count;
+
+        map();
+        if (index())
+            saveIndex();
+
+        return count - before;
+    }
+
+    /**
+     * Map the whole log file.
+     *
+     * @throws IOException Thrown if the log can't be opened or is too big.
+     */
+    private void map() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(location, "r")) {
+            long length = file.length();
+            if (length > Integer.MAX_VALUE)
+                throw new IOException(location + " is too large to map (" + length + " bytes)");
+
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+    }
+
+    /**
+     * Index every complete entry between the end of the indexed region and the
+     * end of the mapping. A zero byte where an entry should start means the
+     * rest of the file is unused pre-allocated space, and a segment footer
+     * ends the log.
+     *
+     * @return True if any entries were added.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if the log is malformed.
+     */
+    private boolean index() throws InvalidVerbatimStreamException {
+        int pos = (int) indexedLength;
+        int limit = buffer.limit();
+        int before = count;
+
+        while (pos < limit && buffer.get(pos) != 0) {
+            int end = skip(pos, limit);
+
+            /* The last entry is still being written */
+            if (end < 0)
+                break;
+
+            if (isFooter(pos)) {
+                footerOffset = pos;
+                break;
+            }
+
+            add(pos);
+            pos = end;
+        }
+
+        indexedLength = pos;
+        return count > before;
+    }
+
+    /**
+     * @param pos       The offset of an expression.
+     * @return          True if the expression is a segment footer.
+     */
+    private boolean isFooter(int pos) {
+        byte[] prefix = SegmentFooter.PREFIX;
+        if (pos + prefix.length > buffer.limit())
+            return false;
+
+        for (int i = 0; i < prefix.length; i++)
+            if (buffer.get(pos + i) != prefix[i])
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Add the entry starting at the given offset to the index.
+     *
+     * @param offset        The offset of the entry.
+     */
+    private void add(long offset) {
+        String[] pointer = pointer((int) offset);
+        add(offset, pointer[0], pointer[1]);
+    }
+
+    /**
+     * Pick out the node ID and sequence number of the message in an entry,
+     * without parsing the entry.
+     *
+     * @param p     The offset of the entry.
+     * @return      The node ID and sequence number, either of which is "" if the entry isn't a message.
+     */
+    private String[] pointer(int p) {
+        String nodeId = "";
+        String sequence = "";
+
+        /* Messages look like (type (host nodeID ip port) sequence datum hash); pick out the pointer fields */
+        if (buffer.get(p) == '(') {
+            p = stringEnd(p + 1);
+            if (p > 0 && buffer.get(p) == '(') {
+                p = stringEnd(p + 1);
+                if (p > 0) {
+                    nodeId = string(p);
+                    p = stringEnd(stringEnd(stringEnd(p)));
+                    if (p > 0 && buffer.get(p) == ')')
+                        sequence = string(p + 1);
+                }
+            }
+        }
+
+        return new String[] { nodeId, sequence };
+    }
+
+    /**
+     * Make sure an entry that was listed by the sidecar really is one whole
+     * expression in the log, holding the message the sidecar says it does.
+     * Each entry is only checked once.
+     *
+     * @param i     An entry index.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if the entry doesn't match the sidecar.
+     */
+    private void checkEntry(int i) throws InvalidVerbatimStreamException {
+        if (unchecked == null || !unchecked[i])
+            return;
+
+        int start = (int) offsets[i];
+        int end = (int) end(i);
+        String[] pointer = pointer(start);
+
+        if (buffer.get(start) != '(' || skip(start, end) != end
+                || !pointer[0].equals(nodeIds[i]) || !pointer[1].equals(sequences[i]))
+            throw new InvalidVerbatimStreamException("Entry " + i + " of " + location + " doesn't match "
+                    + indexLocation + "; delete it to have the log indexed again");
+
+        unchecked[i] = false;
+    }
+
+    /**
+     * Add an entry to the index.
+     *
+     * @param offset        The offset of the entry.
+     * @param nodeId        The node ID of the entry's message.
+     * @param sequence      The sequence number of the entry's message.
+     */
+    private void add(long offset, String nodeId, String sequence) {
+        String copy = nodeIdCopies.get(nodeId);
+        if (copy == null)
+            nodeIdCopies.put(nodeId, copy = nodeId);
+
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            nodeIds = Arrays.copyOf(nodeIds, count * 2);
+            sequences = Arrays.copyOf(sequences, count * 2);
+            if (unchecked != null)
+                unchecked = Arrays.copyOf(unchecked, count * 2);
+        }
+
+        offsets[count] = offset;
+        nodeIds[count] = copy;
+        sequences[count] = sequence;
+        if (byPointer != null)
+            byPointer.put(copy + " " + sequence, count);
+        count++;
+    }
+
+    /**
+     * Find the end of the verbatim s-expression starting at the given offset,
+     * without parsing it.
+     *
+     * @param pos       The offset of the expression.
+     * @param limit     Don't look at or past this offset.
+     * @return          The offset just past the expression, or -1 if it runs past the limit.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if the bytes aren't a verbatim s-expression.
+     */
+    private int skip(int pos, int limit) throws InvalidVerbatimStreamException {
+        int depth = 0;
+
+        do {
+            if (pos >= limit)
+                return -1;
+
+            byte b = buffer.get(pos);
+            if (b == '(') {
+                depth++;
+                pos++;
+            }
+            else if (b == ')') {
+                if (--depth < 0)
+                    throw new InvalidVerbatimStreamException("Unbalanced ')' at offset " + pos + " of " + location);
+                pos++;
+            }
+            else if (b >= '0' && b <= '9') {
+                long len = 0;
+                while (pos < limit && (b = buffer.get(pos)) != ':') {
+                    if (b < '0' || b > '9')
+                        throw new InvalidVerbatimStreamException("Bad string length at offset " + pos + " of " + location);
+                    len = len * 10 + (b - '0');
+                    pos++;
+                }
+
+                long next = pos + 1L + len;
+                if (next > limit)
+                    return -1;
+                pos = (int) next;
+            }
+            else
+                throw new InvalidVerbatimStreamException("read: '" + (char) b + "' at offset " + pos + " of " + location
+                        + ": expected to be a number, '(' or ')'.");
+        } while (depth > 0);
+
+        return pos;
+    }
+
+    /**
+     * Find the end of the verbatim string starting at the given offset.
+     *
+     * @param p     The offset of the string's length prefix.
+     * @return      The offset just past the string, or -1 if there isn't a string there.
+     */
+    private int stringEnd(int p) {
+        if (p < 0 || p >= buffer.limit())
+            return -1;
+
+        int len = 0;
+        byte b;
+        while (p < buffer.limit() && (b = buffer.get(p)) != ':') {
+            if (b < '0' || b > '9')
+                return -1;
+            len = len * 10 + (b - '0');
+            p++;
+        }
+
+        p += 1 + len;
+        return p <= buffer.limit() ? p : -1;
+    }
+
+    /**
+     * Decode the verbatim string starting at the given offset.
+     *
+     * @param p     The offset of the string's length prefix.
+     * @return      The string, or "" if there isn't a string there.
+     */
+    private String string(int p) {
+        int end = stringEnd(p);
+        if (end < 0)
+            return "";
+
+        while (buffer.get(p) != ':')
+            p++;
+
+        byte[] bytes = new byte[end - p - 1];
+        ByteBuffer view = buffer.duplicate();
+        view.position(p + 1);
+        view.get(bytes);
+        return new String(bytes);
+    }
+
+    /**
+     * @param i     An entry index.
+     * @return      The offset just past the end of the entry.
+     */
+    private long end(int i) {
+        return i + 1 < count ? offsets[i + 1] : indexedLength;
+    }
+
+    /**
+     * Make sure an entry index refers to an indexed entry.
+     *
+     * @param i     An entry index.
+     */
+    private void checkIndex(int i) {
+        if (i < 0 || i >= count)
+            throw new IndexOutOfBoundsException("Entry " + i + " of " + count);
+    }
+
+    /**
+     * Load the sidecar index, if there is one that agrees with the log.
+     * Otherwise the index is left empty, to be rebuilt from scratch.
+     */
+    private void loadIndex() {
+        if (indexLocation == null || !indexLocation.exists())
+            return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexLocation)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+                return;
+
+            long length = in.readLong();
+            int entries = in.readInt();
+            long checksum = in.readLong();
+
+            /* The log must still contain everything the index covers, ending with a complete entry */
+            if (length > buffer.limit() || entries < 0 || (entries > 0) != (length > 0)
+                    || (length > 0 && buffer.get((int) length - 1) != ')'))
+                return;
+
+            for (int i = 0; i < entries; i++) {
+                long offset = in.readLong();
+                if (offset >= length || (count > 0 && offset <= offsets[count - 1]) || buffer.get((int) offset) != '(') {
+                    clearIndex();
+                    return;
+                }
+
+                add(offset, in.readUTF(), in.readUTF());
+            }
+
+            indexedLength = length;
+
+            /* Make sure this is really the same log, and not an old one that happened to line up */
+            if (checksum != tailChecksum()) {
+                clearIndex();
+                return;
+            }
+
+            /* The entries it lists are checked against the log as they are read */
+            unchecked = new boolean[offsets.length];
+            Arrays.fill(unchecked, 0, count, true);
+        }
+        catch (IOException e) {
+            /* A damaged sidecar is just rebuilt */
+            clearIndex();
+        }
+    }
+
+    /**
+     * Save the index to the sidecar file, if there is one. Failing to save it
+     * (e.g. because the log is on read-only media) isn't an error; the log
+     * will just be scanned again next time.
+     */
+    private void saveIndex() {
+        if (indexLocation == null)
+            return;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexLocation)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(indexedLength);
+            out.writeInt(count);
+            out.writeLong(tailChecksum());
+
+            for (int i = 0; i < count; i++) {
+                out.writeLong(offsets[i]);
+                out.writeUTF(nodeIds[i]);
+                out.writeUTF(sequences[i]);
+            }
+        }
+        catch (IOException ignored) {}
+    }
+
+    /**
+     * @return A CRC-32 of the bytes of the last indexed entry, or 0 if there are no entries.
+     */
+    private long tailChecksum() {
+        if (count == 0)
+            return 0;
+
+        ByteBuffer tail = buffer.duplicate();
+        tail.limit((int) indexedLength);
+        tail.position((int) offsets[count - 1]);
+
+        CRC32 crc = new CRC32();
+        crc.update(tail);
+        return crc.getValue();
+    }
+
+    /**
+     * Forget everything in the index.
+     */
+    private void clearIndex() {
+        unchecked = null;
+        count = 0;
+        indexedLength = 0;
+        byPointer = null;
+    }
+}
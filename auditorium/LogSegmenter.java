@@ -0,0 +1,317 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * LogSegmenter sits between a {@link Log} and its {@link LogWriter}s, and
+ * optionally splits the log into segments. Segment i of a log at "log.out" is
+ * the file "log.out.00000i". A new segment is started once the current one
+ * reaches a size, or once it has been open for some time, whichever comes
+ * first. The time limit is kept by a timer thread, so a quiet log is still
+ * rotated on time; a segment that is still empty when its time is up isn't
+ * finished, but starts its time over. When a segment is finished a {@link SegmentFooter} is written at its
+ * end, and after that the file is never touched again, so it can be verified,
+ * compressed or archived while the log carries on.<br>
+ * <br>
+ * With no size or time limit, the log is written to a single file with no
+ * footer, exactly as a LogWriter alone would write it.
+ *
+ * @see auditorium.SegmentFooter
+ */
+public class LogSegmenter {
+
+    /** The number of digits in a segment file's suffix */
+    private static final int SUFFIX_DIGITS = 6;
+
+    /** The log, whose name the segments are named after, or null if there is just one writer */
+    private final File base;
+
+    /** Start a new segment once the current one has this many bytes (0 for no limit) */
+    private final long segmentSize;
+
+    /** Start a new segment once the current one has been open this many milliseconds (0 for no limit) */
+    private final long segmentInterval;
+
+    /** The durability policy of each segment's writer */
+    private final int syncEvery, syncInterval;
+
+    /** Pre-allocation for each segment's writer */
+    private final long preallocate;
+
+    /** Writes the current segment */
+    private LogWriter writer;
+
+    /** The position of the current segment */
+    private int index;
+
+    /** When the current segment was started */
+    private long opened;
+
+    /** The chained hash before the current segment's first entry, or null if it has no entries yet */
+    private ASExpression previous;
+
+    /** The chained hash of the current segment's last entry */
+    private ASExpression last;
+
+    /** The number of entries in the current segment */
+    private int count;
+
+    /** Digest of the current segment's entry bytes */
+    private final MessageDigest digest;
+
+    /** Fires the time based rotations, or null if there is no time limit */
+    private final Timer timer;
+
+    /** Whether close() has been called */
+    private boolean closed;
+
+    /**
+     * Write a log to a single writer, with no segments.
+     *
+     * @param writer        Write every entry to this.
+     */
+    public LogSegmenter(LogWriter writer) {
+        base = null;
+        segmentSize = 0;
+        segmentInterval = 0;
+        syncEvery = 0;
+        syncInterval = 0;
+        preallocate = 0;
+        digest = null;
+        timer = null;
+        this.writer = writer;
+    }
+
+    /**
+     * Write a log in segments. Any segments left over from an earlier log at
+     * the same location are deleted, as LogWriter truncates an existing log.
+     *
+     * @param base              Name the segments after this file.
+     * @param segmentSize       Start a new segment once the current one has this many bytes (0 for no limit).
+     * @param segmentInterval   Start a new segment once the current one has been open this many milliseconds (0 for no limit).
+     * @param syncEvery         Force each segment to disk after this many entries (0 to disable).
+     * @param syncInterval      Force each segment to disk after this many milliseconds (0 to disable).
+     * @param preallocate       Grow each segment this many bytes at a time (0 to disable).
+     *
+     * @throws FileNotFoundException Thrown if the first segment can't be opened for writing.
+     */
+    public LogSegmenter(File base, long segmentSize, long segmentInterval, int syncEvery, int syncInterval,
+                        long preallocate) throws FileNotFoundException {
+        this.base = base;
+        this.segmentSize = segmentSize;
+        this.segmentInterval = segmentInterval;
+        this.syncEvery = syncEvery;
+        this.syncInterval = syncInterval;
+        this.preallocate = preallocate;
+
+        try { digest = MessageDigest.getInstance("SHA"); }
+        catch (NoSuchAlgorithmException e) { throw new RuntimeException("SHA-1 not supported on this platform"); }
+
+        for (File stale : segments(base))
+            if (!stale.delete())
+                throw new FileNotFoundException("Couldn't delete the old segment " + stale);
+
+        open(0);
+
+        if (segmentInterval > 0) {
+            timer = new Timer("LogSegmenter rotate", true);
+            timer.schedule(new TimerTask() {
+                public void run() {
+                    try { rotateIfDue(); }
+                    catch (IOException e) { Bugout.err("LogSegmenter: timed rotation failed: " + e.getMessage()); }
+                }
+            }, Math.max(1, segmentInterval / 4), Math.max(1, segmentInterval / 4));
+        }
+        else timer = null;
+    }
+
+    /**
+     * Get the file that holds a segment of a log.
+     *
+     * @param base      The log.
+     * @param index     The position of the segment.
+     * @return          The segment's file (which may not exist).
+     */
+    public static File segment(File base, int index) {
+        String suffix = Integer.toString(index);
+        while (suffix.length() < SUFFIX_DIGITS)
+            suffix = "0" + suffix;
+
+        return new File(base.getPath() + "." + suffix);
+    }
+
+    /**
+     * Find the segments of a log.
+     *
+     * @param base      The log.
+     * @return          The segment files, in order, up to the first one that is missing.
+     */
+    public static File[] segments(File base) {
+        ArrayList<File> files = new ArrayList<>();
+        for (File f = segment(base, 0); f.exists(); f = segment(base, files.size()))
+            files.add(f);
+
+        return files.toArray(new File[files.size()]);
+    }
+
+    /**
+     * Append one serialized entry to the log, starting a new segment after it
+     * if the current one is full.
+     *
+     * @param entry         The bytes of the entry.
+     * @param previous      The chained hash before this entry.
+     * @param chained       The entry's chained hash.
+     *
+     * @throws IOException Thrown if the entry can't be written, or the segment can't be finished.
+     */
+    public synchronized void append(byte[] entry, ASExpression previous, ASExpression chained) throws IOException {
+        writer.append(entry);
+        if (base == null)
+            return;
+
+        if (count == 0)
+            this.previous = previous;
+        last = chained;
+        count++;
+        digest.update(entry);
+
+        if ((segmentSize > 0 && writer.size() >= segmentSize)
+                || (segmentInterval > 0 && System.currentTimeMillis() - opened >= segmentInterval)) {
+            finish();
+            open(index + 1);
+        }
+    }
+
+    /**
+     * Force everything appended so far to disk.
+     *
+     * @throws IOException Thrown if the current segment can't be synced.
+     */
+    public synchronized void sync() throws IOException {
+        writer.sync();
+    }
+
+    /**
+     * Finish the current segment (writing its footer, if it has any entries)
+     * and release it.
+     *
+     * @throws IOException Thrown if the segment can't be finished.
+     */
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (timer != null)
+            timer.cancel();
+
+        if (base == null) {
+            writer.close();
+            return;
+        }
+
+        if (count > 0) {
+            finish();
+            return;
+        }
+
+        /* Don't leave an empty segment behind the last full one */
+        writer.close();
+        if (index > 0 && !segment(base, index).delete())
+            Bugout.err("LogSegmenter: couldn't delete the empty segment " + segment(base, index));
+    }
+
+    /**
+     * @return The position of the segment being written (always 0 without segments).
+     */
+    public synchronized int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The files written so far, in order, ending with the one being
+     *         written.
+     */
+    public synchronized File[] getFiles() {
+        if (base == null)
+            return new File[] { writer.getLocation() };
+
+        File[] files = new File[index + 1];
+        for (int i = 0; i <= index; i++)
+            files[i] = segment(base, i);
+
+        return files;
+    }
+
+    /**
+     * Start a new segment if the current one has been open for the time limit.
+     * An empty segment isn't finished, as it would have no footer; its time
+     * starts over instead.
+     *
+     * @throws IOException Thrown if the segment can't be finished.
+     */
+    private synchronized void rotateIfDue() throws IOException {
+        if (closed || System.currentTimeMillis() - opened < segmentInterval)
+            return;
+
+        if (count == 0) {
+            opened = System.currentTimeMillis();
+            return;
+        }
+
+        finish();
+        open(index + 1);
+    }
+
+    /**
+     * Write the current segment's footer, and close it.
+     */
+    private void finish() throws IOException {
+        SegmentFooter footer = new SegmentFooter(index, previous, count, last, StringExpression.makeString(digest.digest()));
+        writer.append(footer.toASE().toVerbatim());
+        writer.close();
+    }
+
+    /**
+     * Start writing a new segment.
+     */
+    private void open(int index) throws FileNotFoundException {
+        writer = new LogWriter(segment(base, index), syncEvery, syncInterval, preallocate);
+        this.index = index;
+        opened = System.currentTimeMillis();
+        count = 0;
+        previous = null;
+        last = null;
+        digest.reset();
+    }
+}
@@ -0,0 +1,267 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * LogWriter appends serialized log entries to a file through a FileChannel.
+ * Each entry is handed to the operating system as soon as it is appended, so
+ * a crash of the JVM loses nothing. What is configurable is how often the file
+ * is forced to disk (which is what protects against losing power): every so
+ * many entries, every so many milliseconds, or whenever sync() is called
+ * explicitly (e.g. after polls close). Entries always reach the file in the
+ * order they were appended, so the hash chain on disk is never reordered.<br>
+ * <br>
+ * Optionally, the file can be pre-allocated in fixed size chunks so that
+ * appends don't have to grow the file (and update its metadata) each time.
+ * The unused tail of the last chunk is truncated away by close(). A log that
+ * was never closed (e.g. after a crash) will end in zero bytes.<br>
+ * <br>
+ * All methods are synchronized, since the time based policy syncs from a
+ * timer thread.
+ *
+ * @see auditorium.Log
+ */
+public class LogWriter {
+
+    /** Default number of entries between forced syncs */
+    public static final int DEFAULT_SYNC_EVERY = 64;
+
+    /** Default number of milliseconds between forced syncs */
+    public static final int DEFAULT_SYNC_INTERVAL = 1000;
+
+    /** Size of the zero filled buffer used to pre-allocate the file */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The log file */
+    private final File location;
+
+    /** The channel to the log file */
+    private final FileChannel channel;
+
+    /** Sync after this many entries have been appended since the last sync (0 to disable) */
+    private final int syncEvery;
+
+    /** Grow the file this many bytes at a time (0 to disable pre-allocation) */
+    private final long preallocate;
+
+    /** Fires the time based syncs, or null if there is no time based policy */
+    private final Timer timer;
+
+    /** The logical end of the log, which is where the next write goes */
+    private long position;
+
+    /** The number of bytes of the file that have been allocated */
+    private long allocated;
+
+    /** The number of entries appended since the last sync */
+    private int unsynced;
+
+    /** Whether close() has been called */
+    private boolean closed;
+
+    /**
+     * Construct a log writer with the default durability policy and no
+     * pre-allocation. Any existing file at the location is truncated.
+     *
+     * @param location      The file to write to.
+     *
+     * @throws FileNotFoundException Thrown if the file cannot be opened for writing.
+     */
+    public LogWriter(File location) throws FileNotFoundException {
+        this(location, DEFAULT_SYNC_EVERY, DEFAULT_SYNC_INTERVAL, 0);
+    }
+
+    /**
+     * Construct a log writer. Any existing file at the location is truncated.
+     *
+     * @param location      The file to write to.
+     * @param syncEvery     Force the file to disk after this many entries (0 to disable).
+     * @param syncInterval  Force the file to disk after this many milliseconds, if anything was appended (0 to disable).
+     * @param preallocate   Grow the file this many bytes at a time (0 to disable).
+     *
+     * @throws FileNotFoundException Thrown if the file cannot be opened for writing.
+     */
+    public LogWriter(File location, int syncEvery, int syncInterval, long preallocate) throws FileNotFoundException {
+        this.location = location;
+        RandomAccessFile file = new RandomAccessFile(location, "rw");
+        channel = file.getChannel();
+
+        try { channel.truncate(0); }
+        catch (IOException e) {
+            try { channel.close(); }
+            catch (IOException ignored) {}
+            throw new FileNotFoundException("Couldn't truncate " + location + ": " + e.getMessage());
+        }
+
+        this.syncEvery = syncEvery;
+        this.preallocate = preallocate;
+
+        if (syncInterval > 0) {
+            timer = new Timer("LogWriter sync", true);
+            timer.schedule(new TimerTask() {
+                public void run() {
+                    try { syncIfDirty(); }
+                    catch (IOException e) { Bugout.err("LogWriter: timed sync failed: " + e.getMessage()); }
+                }
+            }, syncInterval, syncInterval);
+        }
+        else timer = null;
+    }
+
+    /**
+     * Append one serialized entry to the log. The entry is written to the file
+     * before this returns, but is only forced to disk by the sync policy.
+     *
+     * @param entry     The bytes of the entry.
+     *
+     * @throws IOException Thrown if the entry can't be written.
+     */
+    public synchronized void append(byte[] entry) throws IOException {
+        if (closed)
+            throw new IOException("The log has been closed");
+
+        write(ByteBuffer.wrap(entry));
+
+        unsynced++;
+        if (syncEvery > 0 && unsynced >= syncEvery)
+            sync();
+    }
+
+    /**
+     * Force the file to disk. When this returns, every entry appended so far
+     * is durable.
+     *
+     * @throws IOException Thrown if the file can't be forced.
+     */
+    public synchronized void sync() throws IOException {
+        if (closed)
+            return;
+
+        channel.force(false);
+        unsynced = 0;
+    }
+
+    /**
+     * Sync, then release the file. Any pre-allocated space past the last
+     * entry is truncated away. Appending after this throws.
+     *
+     * @throws IOException Thrown if the final sync or the truncate fails.
+     */
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+
+        if (timer != null)
+            timer.cancel();
+
+        try {
+            sync();
+            if (allocated > position)
+                channel.truncate(position);
+        }
+        finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * @return The number of bytes of entries that have been appended.
+     */
+    public synchronized long size() {
+        return position;
+    }
+
+    /**
+     * @return The file being written.
+     */
+    public File getLocation() {
+        return location;
+    }
+
+    /**
+     * @return The number of entries appended since the file was last forced to disk.
+     */
+    public synchronized int unsynced() {
+        return unsynced;
+    }
+
+    /**
+     * Sync only if something has been appended since the last sync.
+     *
+     * @throws IOException Thrown if the sync fails.
+     */
+    private synchronized void syncIfDirty() throws IOException {
+        if (unsynced > 0)
+            sync();
+    }
+
+    /**
+     * Write the given bytes at the end of the log, growing the pre-allocated
+     * region first if needed.
+     *
+     * @param src       The bytes to write.
+     *
+     * @throws IOException Thrown if the write fails.
+     */
+    private void write(ByteBuffer src) throws IOException {
+        int len = src.remaining();
+
+        if (preallocate > 0 && position + len > allocated)
+            grow(position + len);
+
+        while (src.hasRemaining())
+            position += channel.write(src, position);
+    }
+
+    /**
+     * Extend the file with zeros, in whole chunks, until at least the given
+     * number of bytes are allocated.
+     *
+     * @param needed        The number of bytes that must be allocated.
+     *
+     * @throws IOException Thrown if the file can't be extended.
+     */
+    private void grow(long needed) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate((int) Math.min(preallocate, BUFFER_SIZE));
+
+        while (allocated < needed) {
+            long end = allocated + preallocate;
+            while (allocated < end) {
+                zeros.clear();
+                zeros.limit((int) Math.min(zeros.capacity(), end - allocated));
+                allocated += channel.write(zeros, allocated);
+            }
+        }
+    }
+}
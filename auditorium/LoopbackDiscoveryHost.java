@@ -0,0 +1,124 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Discovery for hosts on a {@link LoopbackNetwork}. A started host can be
+ * discovered by every other host on the network, and a discovery finds them
+ * at once, with no broadcast and no waiting for replies. The peer cache works
+ * just as it does for an {@link AuditoriumDiscoveryHost}.
+ */
+public class LoopbackDiscoveryHost implements IDiscoveryHost {
+
+    /** The network the hosts are on */
+    private final LoopbackNetwork network;
+
+    /** The address of the AuditoriumHost */
+    private final HostPointer hostAddress;
+
+    /** Parameters specifying the number of peers to wait for, etc. */
+    private final IAuditoriumParams constants;
+
+    /** The hosts this machine was last connected to */
+    private final PeerCache peers;
+
+    /**
+     * Constructor.
+     *
+     * @param network           The network the hosts are on.
+     * @param host              The host doing the discovering.
+     * @param constants         Global constants needed in discovery (the peer cache, etc).
+     */
+    public LoopbackDiscoveryHost(LoopbackNetwork network, IAuditoriumHost host, IAuditoriumParams constants) {
+        this.network = network;
+        this.constants = constants;
+        hostAddress = host.getMe();
+        peers = new PeerCache( constants.getPeerCache().isEmpty() ? null : new File( constants.getPeerCache() ) );
+    }
+
+    /**
+     * @see auditorium.IDiscoveryHost#start()
+     */
+    public void start() {
+        Bugout.msg( "Discovery: STARTING" );
+        network.add( hostAddress );
+    }
+
+    /**
+     * @see auditorium.IDiscoveryHost#stop()
+     */
+    public void stop() {
+        Bugout.msg( "Discovery: STOPPING" );
+        network.remove( hostAddress );
+    }
+
+    /**
+     * @see auditorium.IDiscoveryHost#discover()
+     */
+    public HostPointer[] discover() {
+        return discover( constants.getDiscoverPeers(), null );
+    }
+
+    /**
+     * @see auditorium.IDiscoveryHost#discover(int, IDiscoveryListener)
+     */
+    public HostPointer[] discover(int enough, IDiscoveryListener listener) {
+        ArrayList<HostPointer> found = new ArrayList<>();
+        for (HostPointer p : network.getHosts()) {
+            if (p.equals( hostAddress ))
+                continue;
+            if (enough > 0 && found.size() >= enough)
+                break;
+
+            found.add( p );
+            if (listener != null)
+                listener.discovered( p );
+        }
+
+        return found.toArray( new HostPointer[found.size()] );
+    }
+
+    /**
+     * @see auditorium.IDiscoveryHost#getCachedPeers()
+     */
+    public HostPointer[] getCachedPeers() {
+        return peers.get();
+    }
+
+    /**
+     * @see auditorium.IDiscoveryHost#rememberPeer(HostPointer)
+     */
+    public void rememberPeer(HostPointer host) {
+        peers.remember( host );
+    }
+
+    /**
+     * @see auditorium.IDiscoveryHost#forgetPeer(HostPointer)
+     */
+    public void forgetPeer(HostPointer host) {
+        peers.forget( host );
+    }
+}
@@ -0,0 +1,272 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A network that only exists inside the JVM, so that many auditorium hosts
+ * can be run side by side (for load tests, simulations and benchmarks)
+ * without real sockets, UDP broadcasts or free ports. A host is put on the
+ * network by passing it to the AuditoriumHost constructor, which then makes
+ * its connections through a {@link LoopbackTransport} and finds the other
+ * hosts through a {@link LoopbackDiscoveryHost}.<br>
+ * <br>
+ * Hosts are told apart by their listen ports alone, so every host on the
+ * network needs its own. Messages are sent between hosts in their verbatim
+ * form, and the network can be made to behave like a real one:<br>
+ * <b>Latency</b>: every message arrives this many milliseconds after it has
+ * been sent.<br>
+ * <b>Bandwidth</b>: each direction of each connection carries at most this
+ * many bytes a second, and messages queue up behind one another to be sent.<br>
+ * <b>Loss</b>: each announcement is dropped with this probability. Only
+ * announcements are dropped (which the hosts can recover from by catching up),
+ * since a lost join or sync message would just leave a host waiting.
+ */
+public class LoopbackNetwork {
+
+    /** How long (in ms) every message takes to arrive */
+    private final int latency;
+
+    /** The bytes a second each direction of a connection carries, 0 for no limit */
+    private final long bandwidth;
+
+    /** The probability each announcement is dropped */
+    private final double loss;
+
+    /** Decides which announcements are dropped */
+    private final Random random;
+
+    /** Announcements dropped so far */
+    private final Metrics.Counter dropped = Metrics.SINGLETON.counter("loopback.dropped");
+
+    /** The servers accepting connections, by port */
+    private final HashMap<Integer, Server> servers = new HashMap<>();
+
+    /** The hosts that can be discovered */
+    private final ArrayList<HostPointer> hosts = new ArrayList<>();
+
+    /**
+     * Construct a network that delivers every message at once.
+     */
+    public LoopbackNetwork() {
+        this(0, 0, 0, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param latency       How long (in ms) every message takes to arrive.
+     * @param bandwidth     The bytes a second each direction of a connection carries, 0 for no limit.
+     * @param loss          The probability each announcement is dropped.
+     * @param seed          Seeds the choice of which announcements are dropped, so a run can be repeated.
+     */
+    public LoopbackNetwork(int latency, long bandwidth, double loss, long seed) {
+        this.latency = latency;
+        this.bandwidth = bandwidth;
+        this.loss = loss;
+        random = new Random(seed);
+    }
+
+    /**
+     * Make a transport whose connections are made on this network.
+     *
+     * @param threads       Start the link threads with this.
+     * @return              The transport.
+     */
+    public ITransport transport(HostThreads threads) {
+        return new LoopbackTransport(this, threads);
+    }
+
+    /**
+     * Make a discovery host that finds the other hosts on this network.
+     *
+     * @param host          The host doing the discovering.
+     * @param constants     Global constants needed in discovery (the peer cache, etc).
+     * @return              The discovery host.
+     */
+    public IDiscoveryHost discovery(IAuditoriumHost host, IAuditoriumParams constants) {
+        return new LoopbackDiscoveryHost(this, host, constants);
+    }
+
+    /**
+     * Start accepting connections on a port.
+     *
+     * @param port          The port.
+     * @return              The server that accepts connections on the port.
+     *
+     * @throws BindException Thrown if something is already listening on the port.
+     */
+    public synchronized IMessageServer listen(int port) throws BindException {
+        if (servers.containsKey(port))
+            throw new BindException("Port " + port + " is already in use");
+
+        Server server = new Server(port);
+        servers.put(port, server);
+        return server;
+    }
+
+    /**
+     * Connect to a host listening on this network.
+     *
+     * @param host          Connect to the host listening on this host's port.
+     * @return              This end of the connection.
+     *
+     * @throws NetworkException Thrown if nothing is listening on the port.
+     */
+    public IMessageSocket connect(HostPointer host) throws NetworkException {
+        LoopbackSocket mine = new LoopbackSocket(this);
+        LoopbackSocket theirs = new LoopbackSocket(this);
+        mine.connect(theirs);
+
+        synchronized (this) {
+            Server server = servers.get(host.getPort());
+            if (server == null)
+                throw new NetworkException("couldn't create socket", new IOException("Connection refused: " + host));
+
+            server.pending.add(theirs);
+        }
+        return mine;
+    }
+
+    /**
+     * Make a host discoverable.
+     *
+     * @param host          The host.
+     */
+    synchronized void add(HostPointer host) {
+        if (!hosts.contains(host))
+            hosts.add(host);
+    }
+
+    /**
+     * Stop a host being discoverable.
+     *
+     * @param host          The host.
+     */
+    synchronized void remove(HostPointer host) {
+        hosts.remove(host);
+    }
+
+    /**
+     * @return The hosts that can be discovered, in the order they were added.
+     */
+    synchronized HostPointer[] getHosts() {
+        return hosts.toArray(new HostPointer[hosts.size()]);
+    }
+
+    /**
+     * Decide whether a message is lost.
+     *
+     * @param message       The message being sent.
+     * @return              True if it should be dropped.
+     */
+    boolean drop(Message message) {
+        if (loss <= 0 || !"announce".equals(message.getType()))
+            return false;
+
+        synchronized (random) {
+            if (random.nextDouble() >= loss)
+                return false;
+        }
+
+        dropped.inc();
+        return true;
+    }
+
+    /**
+     * @return How long (in ns) every message takes to arrive.
+     */
+    long latency() {
+        return latency * 1000000L;
+    }
+
+    /**
+     * @param bytes         The size of a message.
+     * @return              How long (in ns) the message takes to send, once the ones before it have been.
+     */
+    long sendTime(int bytes) {
+        return bandwidth <= 0 ? 0 : bytes * 1000000000L / bandwidth;
+    }
+
+    /**
+     * Accepts connections to one port. Closing it frees the port.
+     */
+    private class Server implements IMessageServer {
+
+        /** The port */
+        private final int port;
+
+        /** Connections not yet accepted, with this server itself marking that it has been closed */
+        private final LinkedBlockingQueue<Object> pending = new LinkedBlockingQueue<>();
+
+        private Server(int port) {
+            this.port = port;
+        }
+
+        /**
+         * @see auditorium.IMessageServer#accept()
+         */
+        public IMessageSocket accept() throws IOException {
+            Object next;
+            try {
+                next = pending.take();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while accepting", e);
+            }
+
+            if (next == this) {
+                pending.add(this);
+                throw new IOException("Socket closed");
+            }
+
+            return (IMessageSocket) next;
+        }
+
+        /**
+         * Connections that haven't been accepted yet are closed, as they would be by a real server socket.
+         *
+         * @see auditorium.IMessageServer#close()
+         */
+        public void close() {
+            synchronized (LoopbackNetwork.this) {
+                if (servers.get(port) == this)
+                    servers.remove(port);
+
+                Object next;
+                while ((next = pending.poll()) != null)
+                    if (next != this)
+                        ((LoopbackSocket) next).close();
+
+                pending.add(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.stream.ASEFrameDecoder;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One end of a connection on a {@link LoopbackNetwork}. Each message is sent
+ * as its verbatim bytes and framed again by the other end, just as it would be
+ * over a {@link MessageSocket}, after the delay the network's latency and
+ * bandwidth call for.
+ */
+class LoopbackSocket implements IMessageSocket {
+
+    /** Marks the end of the stream */
+    private static final Frame EOF = new Frame(null, 0);
+
+    /** The network the connection is on */
+    private final LoopbackNetwork network;
+
+    /** Messages sent to this end, in the order they were sent */
+    private final LinkedBlockingQueue<Frame> inbox = new LinkedBlockingQueue<>();
+
+    /** Finds the messages in the bytes that arrive */
+    private final ASEFrameDecoder decoder = new ASEFrameDecoder();
+
+    /** Messages that have been decoded but not yet received */
+    private final ArrayDeque<ASExpression> ready = new ArrayDeque<>();
+
+    /** The other end */
+    private LoopbackSocket peer;
+
+    /** When (in ns) the last message sent from this end will have been sent, for the bandwidth limit */
+    private long sent;
+
+    /** Set once either end has closed the connection */
+    private volatile boolean closed;
+
+    /** Set once the end of the stream has been received */
+    private boolean ended;
+
+    /**
+     * Constructor. The socket isn't usable until it is connected.
+     *
+     * @param network       The network the connection is on.
+     */
+    LoopbackSocket(LoopbackNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * Connect this end to the other.
+     *
+     * @param other         The other end.
+     */
+    void connect(LoopbackSocket other) {
+        peer = other;
+        other.peer = this;
+    }
+
+    /**
+     * @see auditorium.IMessageSocket#send(Message)
+     */
+    public void send(Message msg) throws NetworkException {
+        if (closed)
+            throw new NetworkException("Couldn't send " + msg, new IOException("Socket closed"));
+        if (network.drop(msg))
+            return;
+
+        byte[] bytes = msg.toASE().toVerbatim();
+        synchronized (this) {
+            sent = Math.max(sent, System.nanoTime()) + network.sendTime(bytes.length);
+            peer.inbox.add(new Frame(bytes, sent + network.latency()));
+        }
+    }
+
+    /**
+     * @see auditorium.IMessageSocket#receive()
+     */
+    public Message receive() throws NetworkException, IncorrectFormatException {
+        try {
+            while (ready.isEmpty()) {
+                if (ended)
+                    return null;
+
+                Frame frame = inbox.take();
+                if (frame == EOF) {
+                    ended = true;
+                    continue;
+                }
+
+                /* Wait until the message would have arrived */
+                long wait = frame.due - System.nanoTime();
+                if (wait > 0)
+                    TimeUnit.NANOSECONDS.sleep(wait);
+
+                decoder.feed(ByteBuffer.wrap(frame.bytes), ready);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NetworkException("while receiving: interrupted", e);
+        }
+        catch (InvalidVerbatimStreamException e) {
+            throw new NetworkException("while receiving:" + e.getMessage(), e);
+        }
+
+        return new Message(ready.poll());
+    }
+
+    /**
+     * A loopback socket has no channel.
+     *
+     * @see auditorium.IMessageSocket#getChannel()
+     */
+    public SocketChannel getChannel() {
+        return null;
+    }
+
+    /**
+     * A loopback socket is never handed to a transport that reads its channel,
+     * so there is nothing to hand over.
+     *
+     * @see auditorium.IMessageSocket#handOff(Collection)
+     */
+    public ASEFrameDecoder handOff(Collection<ASExpression> received) {
+        return new ASEFrameDecoder();
+    }
+
+    /**
+     * Close both ends. This end stops receiving at once; the other end
+     * receives whatever was already sent to it first.
+     *
+     * @see auditorium.IMessageSocket#close()
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            peer.closed = true;
+
+            peer.inbox.add(EOF);
+        }
+
+        inbox.clear();
+        inbox.add(EOF);
+    }
+
+    /**
+     * The bytes of a message, and when they arrive.
+     */
+    private static class Frame {
+
+        /** The verbatim bytes of the message */
+        private final byte[] bytes;
+
+        /** When (in ns) the message arrives */
+        private final long due;
+
+        private Frame(byte[] bytes, long due) {
+            this.bytes = bytes;
+            this.due = due;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.io.IOException;
+
+/**
+ * A transport for hosts on a {@link LoopbackNetwork}. Links are read and
+ * written by threads, as by a {@link ThreadTransport}, but connections are
+ * made on the network rather than with real sockets.
+ */
+public class LoopbackTransport extends ThreadTransport {
+
+    /** The network connections are made on */
+    private final LoopbackNetwork network;
+
+    /**
+     * Constructor.
+     *
+     * @param network   Make connections on this network.
+     * @param threads   Start the link threads with this.
+     */
+    public LoopbackTransport(LoopbackNetwork network, HostThreads threads) {
+        super(threads);
+        this.network = network;
+    }
+
+    /**
+     * The timeout is ignored, since a connection is made at once or not at all.
+     *
+     * @see auditorium.ITransport#connect(HostPointer, int)
+     */
+    @Override
+    public IMessageSocket connect(HostPointer host, int timeout) throws NetworkException {
+        return network.connect(host);
+    }
+
+    /**
+     * @see auditorium.ITransport#listen(int)
+     */
+    @Override
+    public IMessageServer listen(int port) throws IOException {
+        return network.listen(port);
+    }
+}
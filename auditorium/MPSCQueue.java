@@ -0,0 +1,260 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This is a lock-free FIFO queue for many producing threads and a single
+ * consuming thread. It has the same push/pop/releaseThreads contract as
+ * {@link SynchronizedQueue}, but a push never takes a lock and only wakes the
+ * consumer if the consumer is actually parked waiting for input.<br>
+ * <br>
+ * Producers link new nodes onto the tail with a single atomic swap. The
+ * consumer owns the head, so only one thread may call pop() or drain() at a
+ * time. Every queue in AuditoriumHost has exactly one consuming thread.<br>
+ * <br>
+ * A call to pop() or drain(), when the queue is empty, will block until
+ * something gets placed in the queue.
+ *
+ * @param <T> The type of element held in the queue.
+ */
+public class MPSCQueue<T> {
+
+    /**
+     * A link in the queue. The head node is always a sentinel whose item has
+     * already been taken.
+     */
+    private static class Node<T> {
+        /** The element, or null once it has been taken */
+        T item;
+
+        /** The next node, written once by the producer that appends it */
+        volatile Node<T> next;
+
+        Node(T item) {
+            this.item = item;
+        }
+    }
+
+    /** The consumer's end of the queue; only the consumer touches this */
+    private Node<T> head;
+
+    /** The producers' end of the queue */
+    private final AtomicReference<Node<T>> tail;
+
+    /** The number of elements in the queue */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** The consumer thread, if it is parked waiting for input */
+    private volatile Thread waiter;
+
+    /** A boolean denoting if the queue has become released and can no longer receive data */
+    private volatile boolean release = false;
+
+    /**
+     * Construct an empty queue.
+     */
+    public MPSCQueue() {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Call this method to add a new element to the queue. This can be called
+     * from any number of threads at once.
+     *
+     * @param item      The element that wants to be added to the queue.
+     * @return          True if the add was a success, or false otherwise.
+     */
+    public boolean push(T item) {
+        if (item == null)
+            return false;
+
+        Node<T> node = new Node<>(item);
+
+        /* Swing the tail to the new node, then link the old tail to it */
+        Node<T> prev = tail.getAndSet(node);
+        size.incrementAndGet();
+        prev.next = node;
+
+        /* Only the consumer can be waiting, and only wake it if it is */
+        Thread t = waiter;
+        if (t != null)
+            LockSupport.unpark(t);
+
+        return true;
+    }
+
+    /**
+     * Call this method to remove the least recently added element from the
+     * queue. Only the consuming thread may call this.
+     *
+     * @return The least recently added element.
+     *
+     * @throws ReleasedQueueException Thrown if it deems it cannot ever get any input. This determination is made if another thread calls releaseThreads().
+     */
+    public T pop() throws ReleasedQueueException {
+        await();
+        return take();
+    }
+
+    /**
+     * Remove up to max elements from the queue, in order, and add them to the
+     * given collection. This blocks until at least one element is available,
+     * and then takes whatever else is already queued without waiting again.
+     * Only the consuming thread may call this.
+     *
+     * @param into      Add the removed elements to this collection.
+     * @param max       Remove at most this many elements.
+     * @return          The number of elements removed (always at least one).
+     *
+     * @throws ReleasedQueueException Thrown if it deems it cannot ever get any input. This determination is made if another thread calls releaseThreads().
+     */
+    public int drain(Collection<? super T> into, int max) throws ReleasedQueueException {
+        await();
+
+        int count = 0;
+        T item;
+        while (count < max && (item = take()) != null) {
+            into.add(item);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Remove up to max elements from the queue, in order, and add them to the
+     * given collection. This blocks until at least one element is available,
+     * and then keeps taking elements as they arrive until max have been taken
+     * or window milliseconds have passed. Only the consuming thread may call
+     * this.
+     *
+     * @param into      Add the removed elements to this collection.
+     * @param max       Remove at most this many elements.
+     * @param window    Wait at most this many milliseconds for more elements after the first (0 not to wait).
+     * @return          The number of elements removed (always at least one).
+     *
+     * @throws ReleasedQueueException Thrown if it deems it cannot ever get any input. This determination is made if another thread calls releaseThreads().
+     */
+    public int drain(Collection<? super T> into, int max, long window) throws ReleasedQueueException {
+        int count = drain(into, max);
+        long deadline = System.nanoTime() + window * 1000000L;
+
+        while (count < max) {
+            T item = take();
+            if (item != null) {
+                into.add(item);
+                count++;
+                continue;
+            }
+
+            long left = deadline - System.nanoTime();
+            if (left <= 0 || release)
+                break;
+
+            waiter = Thread.currentThread();
+
+            /* Re-check after publishing ourselves, as in await() */
+            if (head.next == null && !release)
+                LockSupport.parkNanos(this, left);
+
+            waiter = null;
+            if (Thread.interrupted())
+                throw new FatalNetworkException("Couldn't wait on the queue.", new InterruptedException());
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the number of elements that are in the queue.
+     *
+     * @return This method returns the number of elements that are in the queue.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * If the consumer is waiting on a pop operation, release it. This
+     * operation is not recoverable (subsequent pop operations will not block).
+     */
+    public void releaseThreads() {
+        release = true;
+
+        Thread t = waiter;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    /**
+     * Park the consumer until there is something to take, or the queue is
+     * released.
+     *
+     * @throws ReleasedQueueException Thrown if the queue has been released.
+     */
+    private void await() throws ReleasedQueueException {
+        if (head.next == null && !release) {
+            waiter = Thread.currentThread();
+
+            /* Re-check after publishing ourselves, so a concurrent push can't be missed */
+            while (head.next == null && !release) {
+                LockSupport.park(this);
+
+                if (Thread.interrupted()) {
+                    waiter = null;
+                    throw new FatalNetworkException("Couldn't wait on the queue.", new InterruptedException());
+                }
+            }
+
+            waiter = null;
+        }
+
+        if (release)
+            throw ReleasedQueueException.SINGLETON;
+    }
+
+    /**
+     * Take the element after the head, if there is one, without waiting.
+     *
+     * @return The least recently added element, or null if the queue is empty.
+     */
+    private T take() {
+        Node<T> next = head.next;
+        if (next == null)
+            return null;
+
+        /* The next node becomes the new sentinel */
+        T item = next.item;
+        next.item = null;
+        head = next;
+        size.decrementAndGet();
+
+        return item;
+    }
+}
@@ -24,9 +24,20 @@ package auditorium;
 
 import sexpression.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * An instance of this class represents an auditorium wire message. Messages on
- * the wire are of the form ([name] [host] [sequence] [datum]).
+ * the wire are of the form ([name] [host] [sequence] [datum]).<br>
+ * <br>
+ * The wire form is built (or, for a received message, kept as it arrived)
+ * once. The log entry and every copy sent to another host reuse it, and so
+ * does the hash, unless the datum was compressed (see
+ * {@link AuditoriumCompressionLayer}): the hash is always of the canonical,
+ * uncompressed form, so a message is the same message whether or not it was
+ * compressed.
  * 
  * @author Kyle Derr
  * 
@@ -43,6 +54,23 @@ public class Message {
             StringWildcard.SINGLETON, HostPointer.PATTERN,
             StringWildcard.SINGLETON, Wildcard.SINGLETON, Wildcard.SINGLETON);
 
+    /** The patterns above, compiled, since every message received is checked against them */
+    private static final CompiledPattern MATCH = CompiledPattern.compile(PATTERN);
+    private static final CompiledPattern LOG_MATCH = CompiledPattern.compile(LOG_PATTERN);
+
+    /**
+     * Pattern for a signed, ordered datum, as the integrity and temporal layers
+     * make it, capturing [0] cert [1] signer [2] sigdata [3] predecessors [4] payload
+     */
+    private static final CompiledPattern SIGNED_MATCH = CompiledPattern.compile(new ListExpression(
+            StringExpression.makeString("signed-message"), Wildcard.SINGLETON,
+            new ListExpression(StringExpression.makeString("signature"), StringWildcard.SINGLETON,
+                    StringWildcard.SINGLETON, new ListExpression(StringExpression.makeString("succeeds"),
+                            new ListWildcard(MessagePointer.PATTERN), Wildcard.SINGLETON))));
+
+    /** AuditoriumHost.BATCH_PATTERN, compiled */
+    private static final CompiledPattern BATCH_MATCH = CompiledPattern.compile(AuditoriumHost.BATCH_PATTERN);
+
 
 
     /** Denotes the type of the message (e.g. "join", "join-reply", "discover", "discover-reply", or "announce")*/
@@ -57,11 +85,17 @@ public class Message {
     /** The contents of the message */
     private final ASExpression datum;
 
+    /** The wire form of the message, for lazy evaluation */
+    private ASExpression ase;
+
+    /** The bytes of the hash of the message object */
+    private byte[] digest;
+
     /** A hash of the message object */
     private ASExpression hash;
 
     /** A chained hash of the message object*/
-    private ASExpression chainedHash = StringExpression.make("null");
+    private ASExpression chainedHash = StringExpression.symbol("null");
 
     /**
      * Constructor
@@ -88,7 +122,7 @@ public class Message {
     public Message(ASExpression message) throws IncorrectFormatException {
 
         /* Attempt to match the pattern */
-        if (PATTERN.match(message) != NoMatch.SINGLETON) {
+        if (MATCH.matches(message)) {
 
             /* Extract data from the now-matched expression */
             ListExpression lst = (ListExpression) message;
@@ -96,7 +130,10 @@ public class Message {
             from = new HostPointer(lst.get(1));
             sequence = lst.get(2).toString();
             datum = lst.get(3);
-        } else if (LOG_PATTERN.match(message) != NoMatch.SINGLETON) {
+
+            /* This is the wire form, and may still hold the bytes it arrived as */
+            ase = lst;
+        } else if (LOG_MATCH.matches(message)) {
             ListExpression lst = (ListExpression) message;
             type = lst.get(0).toString();
             from = new HostPointer(lst.get(1));
@@ -116,7 +153,10 @@ public class Message {
      * @return This method returns ([name] [host] [datum]).
      */
     public ASExpression toASE() {
-        return new ListExpression(StringExpression.makeString(type), from.toASE(), StringExpression.makeString(sequence), datum);
+        if (ase == null)
+            ase = new ListExpression(StringExpression.makeString(type), from.toASE(), StringExpression.makeString(sequence), datum);
+
+        return ase;
     }
 
     /**
@@ -130,17 +170,111 @@ public class Message {
     }
 
     /**
-     * Get the hash of this message.
+     * Get the verbatim form of toASEWithHash(). This is built from the verbatim
+     * wire form (the same list, one element shorter) rather than by
+     * serializing the message again.
+     *
+     * @return The verbatim bytes of ([name] [host] [sequence] [datum] [chained hash value])
+     */
+    public byte[] toVerbatimWithHash() {
+        byte[] wire = toASE().toVerbatim();
+        byte[] chain = chainedHash.toVerbatim();
+
+        /* Drop the wire form's closing paren, and close the list after the chained hash instead */
+        byte[] entry = new byte[wire.length + chain.length];
+        System.arraycopy(wire, 0, entry, 0, wire.length - 1);
+        System.arraycopy(chain, 0, entry, wire.length - 1, chain.length);
+        entry[entry.length - 1] = ')';
+        return entry;
+    }
+
+    /**
+     * Get the hash of this message, which is the hash of its canonical form.
      * 
      * @return The hash of this message.
      */
     public ASExpression getHash() {
         if (hash == null)
-            hash = StringExpression.makeString(toASE().getSHA1());
+            hash = StringExpression.makeString(getDigest());
 
         return hash;
     }
 
+    /**
+     * Get the bytes of the hash of this message, without interning them as a
+     * string.
+     *
+     * @return The bytes of getHash(). Do not mutate them.
+     */
+    public byte[] getDigest() {
+        if (digest == null) {
+            ASExpression canonical = toASE();
+            try {
+                canonical = expanded().toASE();
+            }
+            catch (IncorrectFormatException e) {
+                /* The integrity layer will reject it; until then, it is just the bytes it arrived as */
+            }
+            digest = canonical.getSHA1();
+        }
+
+        return digest;
+    }
+
+    /**
+     * Get the canonical form of this message, with its datum expanded if it
+     * was compressed.
+     *
+     * @return This message, if its datum isn't compressed, or a copy with the expanded datum.
+     *
+     * @throws IncorrectFormatException Thrown if the datum claims to be compressed, but can't be expanded.
+     */
+    public Message expanded() throws IncorrectFormatException {
+        ASExpression canonical = AuditoriumCompressionLayer.expand(datum);
+        if (canonical == datum)
+            return this;
+
+        Message expanded = new Message(type, from, sequence, canonical);
+        expanded.chainedHash = chainedHash;
+        return expanded;
+    }
+
+    /**
+     * Get the announcements this message carries, in the canonical form, for
+     * a verifier whose rules expect one announcement to a message. A message
+     * whose payload is a batch (see {@link AuditoriumHost#BATCH_PATTERN}) is
+     * split into one copy per announcement. Each copy keeps the batch's
+     * sender, sequence number, signature and predecessors, with one of its
+     * announcements as the payload, so the copies' signatures don't cover
+     * their payloads: check signatures, hashes and pointers on the message
+     * itself.
+     *
+     * @return This message, expanded, or its copies if it is a batch.
+     *
+     * @throws IncorrectFormatException Thrown if the datum claims to be compressed, but can't be expanded.
+     */
+    public List<Message> unbatched() throws IncorrectFormatException {
+        Message expanded = expanded();
+
+        ASExpression[] signed = new ASExpression[SIGNED_MATCH.getSlotCount()];
+        ASExpression[] batch = new ASExpression[BATCH_MATCH.getSlotCount()];
+        if (!SIGNED_MATCH.match(expanded.datum, signed) || !BATCH_MATCH.match(signed[4], batch))
+            return Collections.singletonList(expanded);
+
+        ArrayList<Message> announcements = new ArrayList<>(batch[0].size());
+        for (ASExpression announcement : (ListExpression) batch[0]) {
+            ASExpression datum = new ListExpression(StringExpression.makeString("signed-message"), signed[0],
+                    new ListExpression(StringExpression.makeString("signature"), signed[1], signed[2],
+                            new ListExpression(StringExpression.makeString("succeeds"), signed[3], announcement)));
+
+            Message copy = new Message(type, from, sequence, datum);
+            copy.chainedHash = chainedHash;
+            announcements.add(copy);
+        }
+
+        return announcements;
+    }
+
     public ASExpression getChainedHash() {
         return chainedHash;
     }
@@ -210,9 +344,15 @@ public class Message {
      * @param lastChainedHash the past hash that will be hashed along with this to form the hash chain
      */
     public void chain(ASExpression lastChainedHash) {
-        String newData = getHash().toString() + lastChainedHash.toString();
-
-        chainedHash = StringExpression.makeString(StringExpression.makeString(newData).getSHA1());
+        chain(new ChainHasher(false, lastChainedHash));
+    }
 
+    /**
+     * Chain this message onto a log's hash chain.
+     *
+     * @param chain the log's hash chain, which this message is appended to
+     */
+    public void chain(ChainHasher chain) {
+        chainedHash = StringExpression.makeString(chain.append(getDigest()).clone());
     }
 }
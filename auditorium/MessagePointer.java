@@ -37,6 +37,9 @@ public class MessagePointer {
             StringExpression.makeString( "ptr" ), StringWildcard.SINGLETON,
             StringWildcard.SINGLETON, StringWildcard.SINGLETON );
 
+    /** PATTERN, compiled */
+    private static final CompiledPattern MATCH = CompiledPattern.compile( PATTERN );
+
     /** A null reference for this object */
     public static final MessagePointer NULL = new MessagePointer( "", "",
             StringExpression.EMPTY );
@@ -76,14 +79,14 @@ public class MessagePointer {
     public MessagePointer(ASExpression exp) throws IncorrectFormatException {
 
         /* Try to match the ASE */
-        ASExpression result = PATTERN.match(exp);
-        if (result == NoMatch.SINGLETON)
+        ASExpression[] result = new ASExpression[MATCH.getSlotCount()];
+        if (!MATCH.match(exp, result))
             throw new IncorrectFormatException(exp, new Exception(exp + " doesn't match the pattern: " + PATTERN));
 
         /* Extract the information from the ASE */
-        nodeID = ((ListExpression)result).get(0).toString();
-        number = ((ListExpression)result).get(1).toString();
-        hash = ((ListExpression)result).get(2);
+        nodeID = result[0].toString();
+        number = result[1].toString();
+        hash = result[2];
     }
 
     /**
@@ -132,7 +135,7 @@ public class MessagePointer {
     public ASExpression toASE() {
         if (aseForm == null)
             aseForm = new ListExpression(
-                    StringExpression.makeString( "ptr" ), StringExpression
+                    StringExpression.symbol( "ptr" ), StringExpression
                             .makeString(nodeID), StringExpression
                             .makeString(number), hash);
 
@@ -0,0 +1,59 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * This class wraps a server socket, and hands out each connection it accepts
+ * as a {@link MessageSocket}.
+ */
+public class MessageServerSocket implements IMessageServer {
+
+    /** The Java socket connections are accepted on */
+    private final ServerSocket socket;
+
+    /**
+     * Constructor.
+     *
+     * @param socket    Accept connections on this bound socket.
+     */
+    public MessageServerSocket(ServerSocket socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * @see auditorium.IMessageServer#accept()
+     */
+    public IMessageSocket accept() throws NetworkException, IOException {
+        return new MessageSocket(socket.accept());
+    }
+
+    /**
+     * @see auditorium.IMessageServer#close()
+     */
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -23,28 +23,47 @@
 package auditorium;
 
 import sexpression.ASExpression;
-import sexpression.stream.ASEInputStreamReader;
+import sexpression.stream.ASEFrameDecoder;
 import sexpression.stream.ASEWriter;
 import sexpression.stream.InvalidVerbatimStreamException;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collection;
 
 /**
  * This class wraps a socket that interfaces with the outside world in the form
  * of Message instances. This type of socket can only send and receive entire
- * auditorium messages.
+ * auditorium messages.<br>
+ * <br>
+ * Incoming messages are framed with an {@link ASEFrameDecoder}, so each one
+ * keeps the exact bytes it arrived as. Its hash, its log entry, and any copies
+ * flooded to other hosts are all made from those bytes.
  * 
  * @author Kyle Derr
  */
-public class MessageSocket {
+public class MessageSocket implements IMessageSocket {
 
     /** Writer for outgoing messages on the socket */
     private final ASEWriter out;
 
-    /** Reader for incoming messages on the socket */
-    private final ASEInputStreamReader in;
+    /** The stream incoming messages are read from */
+    private final InputStream in;
+
+    /** Finds the messages in the bytes read off the socket */
+    private final ASEFrameDecoder decoder = new ASEFrameDecoder();
+
+    /** Messages that have been decoded but not yet received */
+    private final ArrayDeque<ASExpression> ready = new ArrayDeque<>();
+
+    /** Holds the bytes of each read off the socket */
+    private final byte[] buffer = new byte[8192];
 
     /** The Java socket that we use to relay messages */
     private final Socket socket;
@@ -68,7 +87,7 @@ public class MessageSocket {
 
             System.out.println("Connected!");
             out = new ASEWriter(socket.getOutputStream());
-            in = new ASEInputStreamReader(socket.getInputStream());
+            in = socket.getInputStream();
         }
         catch (IOException e) {
             e.printStackTrace();
@@ -87,7 +106,7 @@ public class MessageSocket {
         this.socket = socket;
         try {
             out = new ASEWriter( socket.getOutputStream() );
-            in = new ASEInputStreamReader( socket.getInputStream() );
+            in = socket.getInputStream();
         }
         catch (IOException e) {
             throw new NetworkException( "couldn't create socket", e );
@@ -120,7 +139,7 @@ public class MessageSocket {
     public Message receive() throws NetworkException, IncorrectFormatException {
 
         try {
-            ASExpression data = in.read();
+            ASExpression data = read();
 
             if(data != null)
                 return new Message(data);
@@ -132,6 +151,49 @@ public class MessageSocket {
         }
     }
 
+    /**
+     * Read off the socket until a whole expression has arrived.
+     *
+     * @return The next expression, or null if the socket closed between expressions.
+     */
+    private ASExpression read() throws IOException, InvalidVerbatimStreamException {
+        while (ready.isEmpty()) {
+            int n = in.read( buffer );
+            if (n < 0) {
+                if (decoder.partial())
+                    throw new EOFException( "End of stream" );
+                return null;
+            }
+
+            decoder.feed( ByteBuffer.wrap( buffer, 0, n ), ready );
+        }
+
+        return ready.poll();
+    }
+
+    /**
+     * Get the channel behind this socket, if it has one. Sockets made by a
+     * {@link SelectorTransport} do; others don't.
+     *
+     * @return The socket's channel, or null.
+     */
+    public SocketChannel getChannel() {
+        return socket.getChannel();
+    }
+
+    /**
+     * Reads are made a buffer at a time, so messages sent right behind the
+     * one last received (a sync-request following a join-reply, say) may
+     * already be here, whole or in part.
+     *
+     * @see auditorium.IMessageSocket#handOff(Collection)
+     */
+    public ASEFrameDecoder handOff(Collection<ASExpression> received) {
+        received.addAll( ready );
+        ready.clear();
+        return decoder;
+    }
+
     /**
      * Close the socket.
      * 
@@ -0,0 +1,382 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, gauges and latency timers for the auditorium stack, so it can be
+ * seen which host, or which stage of a host, is slowing the network down.<br>
+ * <br>
+ * There is one registry per process ({@link #SINGLETON}), shared by every
+ * host in it, as RSACrypto is. Metrics are created the first time they are
+ * asked for by name, and are cheap enough to update on every message. The
+ * registry can be read as a snapshot (see snapshot()), dumped periodically
+ * (see dumpEvery()), or browsed over JMX as the auditorium:type=Metrics bean,
+ * whose attributes are the snapshot's entries.<br>
+ * <br>
+ * Names are dotted, most general part first, e.g. "link.booth-3.send" or
+ * "rsa.verify". Times are in nanoseconds.
+ */
+public class Metrics implements DynamicMBean {
+
+    /** The registry for this process */
+    public static final Metrics SINGLETON = new Metrics();
+
+    /** The name the registry is published under over JMX */
+    public static final String OBJECT_NAME = "auditorium:type=Metrics";
+
+    /**
+     * Something to be read at the time of a snapshot, such as the depth of a
+     * queue.
+     */
+    public interface Gauge {
+        /**
+         * @return The current value.
+         */
+        long value();
+    }
+
+    /**
+     * A count of events.
+     */
+    public static class Counter {
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * Count one event.
+         */
+        public void inc() {
+            count.increment();
+        }
+
+        /**
+         * @return The number of events counted.
+         */
+        public long get() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * A histogram of how long something takes. Times are gathered into
+     * power-of-two buckets, so percentiles are accurate to within a factor of
+     * two, and recording one never locks or allocates.
+     */
+    public static class Timer {
+        /** Bucket i counts times in [2^i, 2^(i + 1)) ns */
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder total = new LongAdder();
+
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Record a time.
+         *
+         * @param nanos     How long it took, in nanoseconds.
+         */
+        public void record(long nanos) {
+            if (nanos < 0)
+                nanos = 0;
+
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos | 1));
+            count.increment();
+            total.add(nanos);
+
+            long seen;
+            while (nanos > (seen = max.get()) && !max.compareAndSet(seen, nanos));
+        }
+
+        /**
+         * Record the time since a start time.
+         *
+         * @param start     The start time, from System.nanoTime().
+         */
+        public void since(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        /**
+         * @return The number of times recorded.
+         */
+        public long count() {
+            return count.sum();
+        }
+
+        /**
+         * @return The mean time, in nanoseconds (0 if none have been recorded).
+         */
+        public long mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : total.sum() / n;
+        }
+
+        /**
+         * @return The longest time recorded, in nanoseconds.
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * @param fraction  The fraction of times, e.g. 0.99.
+         * @return          A time (the top of its bucket) that at least this fraction of the times recorded were
+         *                  under, in nanoseconds.
+         */
+        public long percentile(double fraction) {
+            long n = count.sum();
+            if (n == 0)
+                return 0;
+
+            long wanted = (long) Math.ceil(n * fraction), seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= wanted)
+                    return Math.min(i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1, max());
+            }
+
+            return max();
+        }
+    }
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    /** Fires the periodic dumps, or null if there aren't any */
+    private java.util.Timer dumper;
+
+    /**
+     * Get a counter, creating it if need be.
+     *
+     * @param name      The counter's name.
+     * @return          The counter.
+     */
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new Counter());
+            counter = counters.get(name);
+        }
+
+        return counter;
+    }
+
+    /**
+     * Get a timer, creating it if need be.
+     *
+     * @param name      The timer's name.
+     * @return          The timer.
+     */
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            timers.putIfAbsent(name, new Timer());
+            timer = timers.get(name);
+        }
+
+        return timer;
+    }
+
+    /**
+     * Add a gauge, replacing any gauge of the same name.
+     *
+     * @param name      The gauge's name.
+     * @param gauge     The gauge.
+     */
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Remove every metric whose name starts with a prefix, e.g. those of a
+     * host that has stopped.
+     *
+     * @param prefix    The prefix.
+     */
+    public void remove(String prefix) {
+        remove(counters, prefix);
+        remove(timers, prefix);
+        remove(gauges, prefix);
+    }
+
+    /**
+     * Read every metric. A counter or gauge is one entry under its own name; a
+     * timer is five, its name followed by .count, .mean, .p50, .p99 and .max.
+     *
+     * @return The metrics, sorted by name.
+     */
+    public Map<String, Long> snapshot() {
+        TreeMap<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Counter> e : counters.entrySet())
+            snapshot.put(e.getKey(), e.getValue().get());
+
+        for (Map.Entry<String, Gauge> e : gauges.entrySet())
+            snapshot.put(e.getKey(), e.getValue().value());
+
+        for (Map.Entry<String, Timer> e : timers.entrySet()) {
+            Timer timer = e.getValue();
+            snapshot.put(e.getKey() + ".count", timer.count());
+            snapshot.put(e.getKey() + ".mean", timer.mean());
+            snapshot.put(e.getKey() + ".p50", timer.percentile(0.5));
+            snapshot.put(e.getKey() + ".p99", timer.percentile(0.99));
+            snapshot.put(e.getKey() + ".max", timer.max());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Print a snapshot through Bugout every so often, or stop doing so.
+     *
+     * @param interval  Print a snapshot every this many milliseconds (0 to stop).
+     */
+    public synchronized void dumpEvery(long interval) {
+        if (dumper != null) {
+            dumper.cancel();
+            dumper = null;
+        }
+
+        if (interval <= 0)
+            return;
+
+        dumper = new java.util.Timer("auditorium-metrics", true);
+        dumper.schedule(new java.util.TimerTask() {
+            public void run() {
+                Bugout.msg("Metrics: " + snapshot());
+            }
+        }, interval, interval);
+    }
+
+    /**
+     * Publish the registry over JMX, if it hasn't been already.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            synchronized (this) {
+                if (!server.isRegistered(name))
+                    server.registerMBean(this, name);
+            }
+        }
+        catch (JMException | SecurityException e) {
+            Bugout.err("Metrics: couldn't register with JMX: " + e.getMessage());
+        }
+    }
+
+    private static void remove(Map<String, ?> metrics, String prefix) {
+        for (String name : metrics.keySet())
+            if (name.startsWith(prefix))
+                metrics.remove(name);
+    }
+
+    /**
+     * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+     */
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long value = snapshot().get(attribute);
+        if (value == null)
+            throw new AttributeNotFoundException(attribute);
+
+        return value;
+    }
+
+    /**
+     * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
+     */
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Long> snapshot = snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes)
+            if (snapshot.containsKey(attribute))
+                list.add(new Attribute(attribute, snapshot.get(attribute)));
+
+        return list;
+    }
+
+    /**
+     * Metrics are read-only.
+     *
+     * @see javax.management.DynamicMBean#setAttribute(javax.management.Attribute)
+     */
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    /**
+     * Metrics are read-only.
+     *
+     * @see javax.management.DynamicMBean#setAttributes(javax.management.AttributeList)
+     */
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    /**
+     * There are no operations.
+     *
+     * @see javax.management.DynamicMBean#invoke(java.lang.String, java.lang.Object[], java.lang.String[])
+     */
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    /**
+     * The attributes are whatever metrics exist at the time.
+     *
+     * @see javax.management.DynamicMBean#getMBeanInfo()
+     */
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Long> snapshot = snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (String name : snapshot.keySet())
+            attributes[i++] = new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false);
+
+        return new MBeanInfo(getClass().getName(), "Auditorium metrics", attributes, null,
+                new MBeanOperationInfo[0], new MBeanNotificationInfo[0]);
+    }
+}
@@ -0,0 +1,160 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.stream.ASEInputStreamReader;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * The hosts this machine was last connected to, kept on disk so that a machine
+ * that reboots can rejoin them straight away instead of waiting out a
+ * broadcast discovery. The file holds a single s-expression,
+ * ((host [id] [ip] [port]) ...), most recently seen host last. It is replaced
+ * whole on each change (by writing a new file and renaming it over the old), so
+ * a crash leaves either the old list or the new one.
+ */
+public class PeerCache {
+
+    /** The most hosts the cache remembers; the least recently seen are dropped first */
+    public static final int MAX_PEERS = 64;
+
+    /** The file the cache lives in, or null to keep it in memory only */
+    private final File file;
+
+    /** The hosts, least recently seen first */
+    private final LinkedHashSet<HostPointer> peers = new LinkedHashSet<>();
+
+    /**
+     * Constructor. Loads the cache from the given file, if it exists. A
+     * missing or unreadable file just means an empty cache.
+     *
+     * @param file      Keep the cache in this file, or null to keep it in memory only.
+     */
+    public PeerCache(File file) {
+        this.file = file;
+
+        if (file == null || !file.exists())
+            return;
+
+        try (FileInputStream in = new FileInputStream( file )) {
+            for (ASExpression ase : (ListExpression) new ASEInputStreamReader( in ).read())
+                peers.add( new HostPointer( ase ) );
+        }
+        catch (IOException | InvalidVerbatimStreamException | IncorrectFormatException | ClassCastException e) {
+            Bugout.err( "PeerCache: ignoring unreadable cache " + file + ": " + e.getMessage() );
+            peers.clear();
+        }
+    }
+
+    /**
+     * Note that a host was reachable.
+     *
+     * @param host      This host was reachable.
+     */
+    public synchronized void remember(HostPointer host) {
+        /* Nothing changes if it's already the most recent, which is the common case */
+        HostPointer last = null;
+        for (HostPointer p : peers)
+            last = p;
+        if (host.equals( last ))
+            return;
+
+        /* Move it to the most recent end */
+        peers.remove( host );
+        peers.add( host );
+
+        if (peers.size() > MAX_PEERS) {
+            Iterator<HostPointer> oldest = peers.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+
+        save();
+    }
+
+    /**
+     * Note that a host couldn't be reached, so it isn't tried again next time.
+     *
+     * @param host      This host couldn't be reached.
+     */
+    public synchronized void forget(HostPointer host) {
+        if (peers.remove( host ))
+            save();
+    }
+
+    /**
+     * @return The cached hosts, most recently seen first.
+     */
+    public synchronized HostPointer[] get() {
+        ArrayList<HostPointer> list = new ArrayList<>( peers );
+        HostPointer[] ret = new HostPointer[list.size()];
+        for (int i = 0; i < ret.length; i++)
+            ret[i] = list.get( list.size() - 1 - i );
+
+        return ret;
+    }
+
+    /**
+     * Write the cache out, replacing the old file. Failure is only logged: the
+     * cache is an optimization, and the network works without it.
+     */
+    private void save() {
+        if (file == null)
+            return;
+
+        ArrayList<ASExpression> list = new ArrayList<>();
+        for (HostPointer host : peers)
+            list.add( host.toASE() );
+
+        File temp = new File( file.getPath() + ".tmp" );
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null)
+                dir.mkdirs();
+
+            try (FileOutputStream out = new FileOutputStream( temp )) {
+                out.write( new ListExpression( list ).toVerbatim() );
+                out.getFD().sync();
+            }
+
+            Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch (IOException e) {
+            Bugout.err( "PeerCache: couldn't save " + file + ": " + e.getMessage() );
+        }
+    }
+}
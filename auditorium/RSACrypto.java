@@ -25,14 +25,29 @@ package auditorium;
 import sexpression.ASExpression;
 import sexpression.StringExpression;
 
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.spec.RSAPrivateKeySpec;
 import java.security.spec.RSAPublicKeySpec;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Crypto primitives used in auditorium are wrapped here.
+ * Crypto primitives used in auditorium are wrapped here.<br>
+ * <br>
+ * Decoding an RSA key and setting up a signature engine cost about as much
+ * as the signature itself, so the decoded JCA keys are cached by their
+ * modulus and exponent, and each thread keeps one signature engine. Since
+ * every auditorium message carries its sender's certificate, certificates
+ * that have already been checked against their signer are remembered by
+ * digest as well; after the first message from a host, each message costs a
+ * single signature check.<br>
+ * <br>
+ * All of this is safe to use from several threads at once.
  * 
  * @author Kyle Derr
  */
@@ -41,6 +56,90 @@ public class RSACrypto {
     /** Since we'll only really need one of these, we use the singleton pattern */
     public static final RSACrypto SINGLETON = new RSACrypto();
 
+    /** The most entries kept in each cache; past this the cache is simply emptied */
+    private static final int MAX_CACHED = 1024;
+
+    /**
+     * The numbers that make up an RSA key, used to look up its decoded form.
+     */
+    private static class KeyValue {
+        final BigInteger mod;
+        final BigInteger exponent;
+
+        KeyValue(Key key) {
+            mod = key.getMod();
+            exponent = key.getKey();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof KeyValue))
+                return false;
+
+            KeyValue other = (KeyValue) o;
+            return mod.equals(other.mod) && exponent.equals(other.exponent);
+        }
+
+        @Override
+        public int hashCode() {
+            return mod.hashCode() * 31 + exponent.hashCode();
+        }
+    }
+
+    /**
+     * The digests of a certificate and of the certificate that signed it.
+     */
+    private static class CertificatePair {
+        final byte[] digests;
+        final int hash;
+
+        CertificatePair(Certificate cert, Certificate signer) {
+            byte[] certDigest = cert.toASE().getSHA1();
+            byte[] signerDigest = signer.toASE().getSHA1();
+            digests = Arrays.copyOf(certDigest, certDigest.length + signerDigest.length);
+            System.arraycopy(signerDigest, 0, digests, certDigest.length, signerDigest.length);
+            hash = Arrays.hashCode(digests);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CertificatePair && Arrays.equals(digests, ((CertificatePair) o).digests);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** Decoded private keys */
+    private final Map<KeyValue, PrivateKey> privateKeys = new ConcurrentHashMap<>();
+
+    /** Decoded public keys */
+    private final Map<KeyValue, PublicKey> publicKeys = new ConcurrentHashMap<>();
+
+    /** Certificates whose signatures have already been verified */
+    private final Map<CertificatePair, Boolean> verifiedCertificates = new ConcurrentHashMap<>();
+
+    /** Each thread's signature engine */
+    private final ThreadLocal<java.security.Signature> engines = new ThreadLocal<java.security.Signature>() {
+        @Override
+        protected java.security.Signature initialValue() {
+            try {
+                return java.security.Signature.getInstance("SHA1withRSA");
+            }
+            catch (GeneralSecurityException e) {
+                throw new FatalNetworkException("SHA1withRSA is not available", e);
+            }
+        }
+    };
+
+    /** How long signing takes */
+    private final Metrics.Timer signTime = Metrics.SINGLETON.timer("rsa.sign");
+
+    /** How long checking a signature takes */
+    private final Metrics.Timer verifyTime = Metrics.SINGLETON.timer("rsa.verify");
+
     /** Private constructor for singleton */
     private RSACrypto() {}
 
@@ -54,14 +153,12 @@ public class RSACrypto {
      * @throws AuditoriumCryptoException Thrown if there is a problem with signing the data
      */
     public Signature sign(ASExpression data, Key key) throws AuditoriumCryptoException {
+        long start = System.nanoTime();
         try {
-            /* Build a key using RSA */
-            KeyFactory factory = KeyFactory.getInstance("RSA");
-            java.security.Signature sig = java.security.Signature.getInstance("SHA1withRSA");
-            PrivateKey privatekey = factory.generatePrivate(new RSAPrivateKeySpec(key.getMod(), key.getKey()));
+            java.security.Signature sig = engines.get();
 
             /* Initialize the signer */
-            sig.initSign(privatekey);
+            sig.initSign(privateKey(key));
             sig.update(data.toVerbatim());
 
             /* Return a new Signature object with the signed data and signature from the key*/
@@ -70,6 +167,9 @@ public class RSACrypto {
         catch (Exception e) {
             throw new AuditoriumCryptoException("sign", e);
         }
+        finally {
+            signTime.since(start);
+        }
     }
 
     /**
@@ -82,22 +182,83 @@ public class RSACrypto {
      * @throws AuditoriumCryptoException Thrown if there is a problem with the verification process
      */
     public void verify(Signature signature, Certificate host) throws AuditoriumCryptoException {
+        boolean verified;
+        long start = System.nanoTime();
         try {
-            /* Get an RSA key */
-            KeyFactory factory = KeyFactory.getInstance("RSA");
-            java.security.Signature sig = java.security.Signature.getInstance("SHA1withRSA");
-            PublicKey publickey = factory.generatePublic(new RSAPublicKeySpec(host.getKey().getMod(), host.getKey().getKey()));
+            java.security.Signature sig = engines.get();
 
             /* Initialize the key */
-            sig.initVerify(publickey);
+            sig.initVerify(publicKey(host.getKey()));
             sig.update(signature.getPayload().toVerbatim());
 
             /* Verify the provided signature */
-            if (!sig.verify(signature.getSigData().getBytesCopy()))
-                throw new AuditoriumCryptoException("verify signature", new Exception("Verification failure: " + signature + " not signed by " + host));
+            verified = sig.verify(signature.getSigData().getBytesCopy());
         }
         catch (Exception e) {
             throw new AuditoriumCryptoException("verify signature", e);
         }
+        finally {
+            verifyTime.since(start);
+        }
+
+        if (!verified)
+            throw new AuditoriumCryptoException("verify signature", new Exception("Verification failure: " + signature + " not signed by " + host));
+    }
+
+    /**
+     * Verify that a certificate was signed by another (e.g. a certificate
+     * authority's). A successful check is remembered, so checking the same
+     * certificate against the same signer again costs a couple of digests.
+     *
+     * @param cert          The certificate to check.
+     * @param signer        The certificate of the key that supposedly signed cert.
+     *
+     * @throws AuditoriumCryptoException Thrown if there is a problem with the verification process
+     */
+    public void verifyCertificate(Certificate cert, Certificate signer) throws AuditoriumCryptoException {
+        CertificatePair pair = new CertificatePair(cert, signer);
+        if (verifiedCertificates.containsKey(pair))
+            return;
+
+        verify(cert.getSignature(), signer);
+        remember(verifiedCertificates, pair, Boolean.TRUE);
+    }
+
+    /**
+     * @return The decoded form of an RSA private key.
+     */
+    private PrivateKey privateKey(Key key) throws GeneralSecurityException {
+        KeyValue value = new KeyValue(key);
+        PrivateKey decoded = privateKeys.get(value);
+        if (decoded == null) {
+            decoded = KeyFactory.getInstance("RSA").generatePrivate(new RSAPrivateKeySpec(key.getMod(), key.getKey()));
+            remember(privateKeys, value, decoded);
+        }
+
+        return decoded;
+    }
+
+    /**
+     * @return The decoded form of an RSA public key.
+     */
+    private PublicKey publicKey(Key key) throws GeneralSecurityException {
+        KeyValue value = new KeyValue(key);
+        PublicKey decoded = publicKeys.get(value);
+        if (decoded == null) {
+            decoded = KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(key.getMod(), key.getKey()));
+            remember(publicKeys, value, decoded);
+        }
+
+        return decoded;
+    }
+
+    /**
+     * Add an entry to one of the caches, emptying it first if it is full.
+     */
+    private static <K, V> void remember(Map<K, V> cache, K key, V value) {
+        if (cache.size() >= MAX_CACHED)
+            cache.clear();
+
+        cache.put(key, value);
     }
 }
@@ -0,0 +1,312 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A compact record of which messages a {@link Log} has already seen. This
+ * replaces a HashSet of MessagePointers, which holds on to every pointer (and
+ * every hash expression) for the whole life of the log.<br>
+ * <br>
+ * Messages whose sequence numbers are numeric (every message an
+ * AuditoriumHost sends) are recorded exactly, per node, as runs of
+ * consecutive sequence numbers. Flooding and catch-up deliver a node's
+ * messages with few gaps, so its sequences collapse into one run per launch
+ * of the node (see {@link AuditoriumHost#SEQUENCES_PER_MS}), and the memory used
+ * per node doesn't grow with the number of messages it sends. A sequence
+ * number inside a run has been seen, however long ago that was; an old
+ * sequence is never taken to be new.<br>
+ * <br>
+ * The 160-bit SHA-1 digests of each node's most recent messages are kept in a
+ * fixed-size window, in primitive arrays: the slot for sequence s is s mod the
+ * window size. A message whose sequence has been seen, but whose digest
+ * differs from the one in the window, is a different message that reused the
+ * sequence number. Those, and messages with sequence numbers that are not
+ * numbers, go into an exact open-addressing set of digests, which does grow
+ * with the number of such messages.
+ */
+public class SeenIndex {
+
+    /** The number of digests remembered per node by default */
+    public static final int DEFAULT_WINDOW = 4096;
+
+    /** The number of longs used to store one digest */
+    private static final int STRIDE = 3;
+
+    /** The size of a digest, in bytes */
+    private static final int DIGEST_LENGTH = 20;
+
+    /**
+     * The sequences seen from one node. Window slot i holds the sequence
+     * number stored there (or -1) and its digest at [i * STRIDE, i * STRIDE + 3).
+     */
+    private static class Node {
+        /** Every sequence number seen from this node */
+        final SequenceRuns runs = new SequenceRuns();
+
+        /** The sequence number held in each window slot, -1 if the slot is empty */
+        final long[] sequences;
+
+        /** The digest held in each window slot */
+        final long[] digests;
+
+        Node(int window) {
+            sequences = new long[window];
+            digests = new long[window * STRIDE];
+            Arrays.fill(sequences, -1);
+        }
+    }
+
+    /** The number of digests remembered per node */
+    private final int window;
+
+    /** The sequences seen from each node, by node ID */
+    private final HashMap<String, Node> nodes = new HashMap<>();
+
+    /**
+     * The open-addressing table for messages without numeric sequences, and
+     * messages that reused a sequence number; a slot is empty if its third
+     * long is 0
+     */
+    private long[] table = new long[16 * STRIDE];
+
+    /** The number of digests in the table */
+    private int tableCount = 0;
+
+    /** The number of messages recorded */
+    private int count = 0;
+
+    /**
+     * Construct an index that remembers the digests of
+     * {@link #DEFAULT_WINDOW} messages per node.
+     */
+    public SeenIndex() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * Construct an index.
+     *
+     * @param window    The number of digests to remember per node. A sequence
+     *                  number reused further than this behind the node's
+     *                  newest messages can't be told apart from a duplicate,
+     *                  and is taken to be one.
+     */
+    public SeenIndex(int window) {
+        if (window < 1)
+            throw new IllegalArgumentException("window must be positive: " + window);
+
+        this.window = window;
+    }
+
+    /**
+     * Record that a message has been seen.
+     *
+     * @param pointer   A pointer to the message.
+     * @return          True if the message had not been seen before, false if it is a duplicate.
+     */
+    public synchronized boolean add(MessagePointer pointer) {
+        long[] digest = digest(pointer.getHash());
+        long sequence = parseSequence(pointer.getNumber());
+
+        if (sequence < 0)
+            return record(tableAdd(digest));
+
+        Node n = nodes.get(pointer.getNodeId());
+        if (n == null) {
+            n = new Node(window);
+            nodes.put(pointer.getNodeId(), n);
+        }
+
+        int slot = (int) (sequence % window);
+        if (!n.runs.add(sequence)) {
+            /* A different message under a sequence we still have the digest for */
+            if (n.sequences[slot] == sequence && !matches(n.digests, slot, digest))
+                return record(tableAdd(digest));
+
+            return false;
+        }
+
+        n.sequences[slot] = sequence;
+        System.arraycopy(digest, 0, n.digests, slot * STRIDE, STRIDE);
+        return record(true);
+    }
+
+    /**
+     * Check whether a message has been seen, without recording it.
+     *
+     * @param pointer   A pointer to the message.
+     * @return          True if add() would call the message a duplicate.
+     */
+    public synchronized boolean contains(MessagePointer pointer) {
+        long[] digest = digest(pointer.getHash());
+        long sequence = parseSequence(pointer.getNumber());
+
+        if (sequence < 0)
+            return tableFind(table, digest) >= 0;
+
+        Node n = nodes.get(pointer.getNodeId());
+        if (n == null || !n.runs.contains(sequence))
+            return false;
+
+        int slot = (int) (sequence % window);
+        return n.sequences[slot] != sequence || matches(n.digests, slot, digest) || tableFind(table, digest) >= 0;
+    }
+
+    /**
+     * @return The number of messages recorded.
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Estimate the heap used by this index. This counts the primitive arrays
+     * and the per-node bookkeeping, which is where all of the memory goes.
+     *
+     * @return The approximate size of this index, in bytes.
+     */
+    public synchronized long footprint() {
+        /* Array headers are 16 bytes; a node and its map entry are around 100 more */
+        long bytes = 16 + table.length * 8L;
+        for (HashMap.Entry<String, Node> e : nodes.entrySet())
+            bytes += 100 + 2 * e.getKey().length() + 2 * 16 + e.getValue().runs.footprint()
+                    + (window + window * STRIDE) * 8L;
+
+        return bytes;
+    }
+
+    /**
+     * Count a message if it was new.
+     *
+     * @param added     Whether the message was new.
+     * @return          The same.
+     */
+    private boolean record(boolean added) {
+        if (added)
+            count++;
+
+        return added;
+    }
+
+    /**
+     * Reduce a message hash to a 160-bit digest. Message hashes are already
+     * SHA-1 digests, so normally this just packs their bytes into longs.
+     */
+    private static long[] digest(ASExpression hash) {
+        byte[] bytes;
+        if (hash instanceof StringExpression && hash.size() == DIGEST_LENGTH)
+            bytes = ((StringExpression) hash).getBytesCopy();
+        else
+            bytes = hash.getSHA1();
+
+        long[] digest = new long[STRIDE];
+        for (int i = 0; i < DIGEST_LENGTH; i++)
+            digest[i / 8] |= (bytes[i] & 0xFFL) << (8 * (i % 8));
+
+        /* Mark the last word so that no stored digest is all zeroes */
+        digest[2] |= 1L << 32;
+        return digest;
+    }
+
+    /**
+     * @return The sequence number as a non-negative long, or -1 if it isn't one.
+     */
+    public static long parseSequence(String sequence) {
+        int length = sequence.length();
+        if (length == 0 || length > 18)
+            return -1;
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = sequence.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    /**
+     * @return True if the digest stored at slot in the given array is equal to digest.
+     */
+    private static boolean matches(long[] digests, int slot, long[] digest) {
+        int base = slot * STRIDE;
+        return digests[base] == digest[0] && digests[base + 1] == digest[1] && digests[base + 2] == digest[2];
+    }
+
+    /**
+     * Find a digest in an open-addressing table.
+     *
+     * @return The slot holding the digest if it is present, otherwise -(empty slot) - 1.
+     */
+    private static int tableFind(long[] table, long[] digest) {
+        int slots = table.length / STRIDE;
+        int slot = (int) (digest[0] & (slots - 1));
+
+        while (table[slot * STRIDE + 2] != 0) {
+            if (matches(table, slot, digest))
+                return slot;
+
+            slot = (slot + 1) & (slots - 1);
+        }
+
+        return -slot - 1;
+    }
+
+    /**
+     * Add a digest to the open-addressing table, growing it to keep the load
+     * factor under a half.
+     *
+     * @return True if the digest was added, false if it was already present.
+     */
+    private boolean tableAdd(long[] digest) {
+        int slot = tableFind(table, digest);
+        if (slot >= 0)
+            return false;
+
+        if ((tableCount + 1) * 2 > table.length / STRIDE) {
+            long[] old = table;
+            table = new long[old.length * 2];
+            for (int i = 0; i < old.length / STRIDE; i++)
+                if (old[i * STRIDE + 2] != 0) {
+                    long[] entry = Arrays.copyOfRange(old, i * STRIDE, i * STRIDE + STRIDE);
+                    int to = -tableFind(table, entry) - 1;
+                    System.arraycopy(entry, 0, table, to * STRIDE, STRIDE);
+                }
+
+            slot = tableFind(table, digest);
+        }
+
+        System.arraycopy(digest, 0, table, (-slot - 1) * STRIDE, STRIDE);
+        tableCount++;
+        return true;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.NoMatch;
+import sexpression.StringExpression;
+import sexpression.StringWildcard;
+
+/**
+ * The checkpoint at the end of a closed log segment. It records where the
+ * hash chain stood before the segment's first entry and after its last one,
+ * the number of entries, and a SHA-1 digest of all the entry bytes. With it a
+ * segment can be checked on its own (in parallel with the others), and a
+ * verifier that has checked the segments up to some point can carry on from
+ * the last footer it trusts instead of from the launch code.<br>
+ * <br>
+ * A footer is written as the last expression in its segment file, of the
+ * form (segment-footer [index] [previous hash] [count] [last hash] [digest]).
+ *
+ * @see auditorium.LogSegmenter
+ */
+public class SegmentFooter {
+
+    /** The name at the head of a footer */
+    public static final String NAME = "segment-footer";
+
+    /** Pattern for footers, of the form (segment-footer [index] [previous hash] [count] [last hash] [digest]) */
+    public static final ASExpression PATTERN = new ListExpression(StringExpression.makeString(NAME),
+            StringWildcard.SINGLETON, StringWildcard.SINGLETON, StringWildcard.SINGLETON, StringWildcard.SINGLETON,
+            StringWildcard.SINGLETON);
+
+    /** The verbatim bytes every footer starts with, so footers can be told from entries without parsing */
+    static final byte[] PREFIX = ("(" + NAME.length() + ":" + NAME).getBytes();
+
+    /** The position of the segment in the log, starting from 0 */
+    private final int index;
+
+    /** The chained hash before the segment's first entry */
+    private final ASExpression previous;
+
+    /** The number of entries in the segment */
+    private final int count;
+
+    /** The chained hash of the segment's last entry */
+    private final ASExpression last;
+
+    /** SHA-1 of the segment's entry bytes (everything before the footer) */
+    private final ASExpression digest;
+
+    /**
+     * Constructor.
+     *
+     * @param index         The position of the segment in the log.
+     * @param previous      The chained hash before the segment's first entry.
+     * @param count         The number of entries in the segment.
+     * @param last          The chained hash of the segment's last entry.
+     * @param digest        SHA-1 of the segment's entry bytes.
+     */
+    public SegmentFooter(int index, ASExpression previous, int count, ASExpression last, ASExpression digest) {
+        this.index = index;
+        this.previous = previous;
+        this.count = count;
+        this.last = last;
+        this.digest = digest;
+    }
+
+    /**
+     * Construct a footer from its s-expression form.
+     *
+     * @param footer        (segment-footer [index] [previous hash] [count] [last hash] [digest])
+     *
+     * @throws IncorrectFormatException Thrown if the expression isn't a footer.
+     */
+    public SegmentFooter(ASExpression footer) throws IncorrectFormatException {
+        ASExpression result = PATTERN.match(footer);
+        if (result == NoMatch.SINGLETON)
+            throw new IncorrectFormatException(footer, new Exception(footer + " doesn't match the pattern: " + PATTERN));
+
+        ListExpression fields = (ListExpression) result;
+        try {
+            index = Integer.parseInt(fields.get(0).toString());
+            count = Integer.parseInt(fields.get(2).toString());
+        }
+        catch (NumberFormatException e) { throw new IncorrectFormatException(footer, e); }
+
+        previous = fields.get(1);
+        last = fields.get(3);
+        digest = fields.get(4);
+    }
+
+    /**
+     * @return (segment-footer [index] [previous hash] [count] [last hash] [digest])
+     */
+    public ASExpression toASE() {
+        return new ListExpression(StringExpression.makeString(NAME), StringExpression.makeString(Integer.toString(index)),
+                previous, StringExpression.makeString(Integer.toString(count)), last, digest);
+    }
+
+    /**
+     * @return The position of the segment in the log, starting from 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The chained hash before the segment's first entry.
+     */
+    public ASExpression getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return The number of entries in the segment.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The chained hash of the segment's last entry.
+     */
+    public ASExpression getLast() {
+        return last;
+    }
+
+    /**
+     * @return SHA-1 of the segment's entry bytes.
+     */
+    public ASExpression getDigest() {
+        return digest;
+    }
+}
@@ -0,0 +1,480 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import sexpression.ASExpression;
+import sexpression.stream.ASEFrameDecoder;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A transport that serves every link from a small, fixed number of threads,
+ * each running a {@link Selector} over non-blocking socket channels. Incoming
+ * bytes are cut into messages by an {@link ASEFrameDecoder} as they arrive,
+ * and outgoing messages are copied into a direct buffer per link and written
+ * as far as the socket will take them. Use this when a host has too many
+ * links for a pair of threads each, e.g. a large polling place or a simulator
+ * with hundreds of booths.<br>
+ * <br>
+ * Links are spread over the selector threads round-robin. A link whose socket
+ * has no channel (one that wasn't made by this transport) is handed to a
+ * {@link ThreadTransport} instead. Every thread, including the selector
+ * threads, is started through a {@link HostThreads}.
+ */
+public class SelectorTransport implements ITransport {
+
+    /** Default number of selector threads */
+    public static final int DEFAULT_SELECTORS = 1;
+
+    /** Size of the read buffer for each selector and the write buffer for each link */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The state kept for a link that this transport is serving.
+     */
+    private static class Connection {
+        /** The link */
+        final Link link;
+
+        /** The link's socket channel */
+        final SocketChannel channel;
+
+        /** The selector thread serving this connection */
+        final Loop loop;
+
+        /** Cuts incoming bytes into messages, carrying on from the link's socket */
+        final ASEFrameDecoder decoder;
+
+        /** Messages the link's socket read before it was handed over, to be received once it is registered */
+        final ArrayList<ASExpression> early = new ArrayList<>();
+
+        /** Bytes waiting to be written to the channel, in read mode */
+        final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        /** The message currently being copied into out, or null */
+        byte[] pending;
+
+        /** How much of pending has been copied into out */
+        int pendingOffset;
+
+        /** When pending was taken off the link's queue */
+        long pendingStart;
+
+        /** When each message that ends in out was taken off the link's queue */
+        long[] starts = new long[16];
+
+        /** The number of entries in starts */
+        int finished;
+
+        /** Set while this connection is waiting for its loop to write it */
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /** The key for the channel, once it is registered */
+        SelectionKey key;
+
+        Connection(Link link, SocketChannel channel, Loop loop) {
+            this.link = link;
+            this.channel = channel;
+            this.loop = loop;
+            decoder = link.getSocket().handOff(early);
+            out.flip();
+        }
+    }
+
+    /**
+     * One selector thread and the connections it serves.
+     */
+    private class Loop implements Runnable {
+        /** The selector */
+        final Selector selector;
+
+        /** Connections waiting to be registered with the selector */
+        final ConcurrentLinkedQueue<Connection> registrations = new ConcurrentLinkedQueue<>();
+
+        /** Connections with new messages to write */
+        final ConcurrentLinkedQueue<Connection> writes = new ConcurrentLinkedQueue<>();
+
+        /** Shared by every connection for reads, since reads are handled one at a time */
+        final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        /** Messages decoded from the current read */
+        final ArrayList<ASExpression> frames = new ArrayList<>();
+
+        Loop() throws IOException {
+            selector = Selector.open();
+        }
+
+        public void run() {
+            Bugout.msg("Selector: THREAD START");
+
+            while (running) {
+                try {
+                    selector.select();
+                }
+                catch (IOException e) {
+                    Bugout.err("Selector: " + e.getMessage());
+                    break;
+                }
+
+                /* Pick up new links */
+                Connection c;
+                while ((c = registrations.poll()) != null)
+                    open(c);
+
+                /* Write out anything newly queued */
+                while ((c = writes.poll()) != null) {
+                    c.scheduled.set(false);
+                    if (c.key != null && c.key.isValid())
+                        write(c);
+                }
+
+                /* Handle the sockets that are ready */
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    c = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable())
+                            read(c);
+                        if (key.isValid() && key.isWritable())
+                            write(c);
+                    }
+                    catch (CancelledKeyException ignored) {}
+                }
+            }
+
+            try {
+                selector.close();
+            }
+            catch (IOException ignored) {}
+
+            Bugout.msg("Selector: THREAD END");
+        }
+
+        /**
+         * Register a new connection's channel with the selector.
+         */
+        private void open(Connection c) {
+            /* It may have been stopped before we got to it */
+            if (connections.get(c.link) != c)
+                return;
+
+            try {
+                c.channel.configureBlocking(false);
+                c.key = c.channel.register(selector, SelectionKey.OP_READ, c);
+            }
+            catch (IOException e) {
+                fail(c, e.getMessage());
+                return;
+            }
+
+            /* Whatever the socket read ahead during the handshake comes before anything read from here on */
+            try {
+                for (ASExpression frame : c.early)
+                    c.link.received(new Message(frame));
+                c.early.clear();
+            }
+            catch (IncorrectFormatException e) {
+                fail(c, "received a message that is incorrectly formatted:" + e.getMessage());
+                return;
+            }
+
+            /* Anything queued before the registration can go out now */
+            write(c);
+        }
+
+        /**
+         * Read whatever is available and hand any complete messages to the link.
+         */
+        private void read(Connection c) {
+            in.clear();
+            try {
+                if (c.channel.read(in) < 0) {
+                    fail(c, "closed by the other end");
+                    return;
+                }
+
+                in.flip();
+                frames.clear();
+                c.decoder.feed(in, frames);
+
+                for (ASExpression frame : frames)
+                    c.link.received(new Message(frame));
+            }
+            catch (IOException | InvalidVerbatimStreamException e) {
+                fail(c, e.getMessage());
+            }
+            catch (IncorrectFormatException e) {
+                fail(c, "received a message that is incorrectly formatted:" + e.getMessage());
+            }
+        }
+
+        /**
+         * Write as much of the link's queue as the socket will take. If the
+         * socket fills up, wait for it to become writable again.
+         */
+        private void write(Connection c) {
+            try {
+                while (true) {
+                    if (!c.out.hasRemaining()) {
+                        fill(c);
+                        if (!c.out.hasRemaining()) {
+                            c.key.interestOps(SelectionKey.OP_READ);
+                            return;
+                        }
+                    }
+
+                    c.channel.write(c.out);
+                    if (c.out.hasRemaining()) {
+                        c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+
+                    /* Every message that ended in the buffer is now on the wire */
+                    for (int i = 0; i < c.finished; i++)
+                        c.link.written(c.starts[i]);
+                    c.finished = 0;
+                }
+            }
+            catch (IOException e) {
+                fail(c, e.getMessage());
+            }
+            catch (CancelledKeyException ignored) {}
+        }
+
+        /**
+         * Refill a connection's empty write buffer from its queue.
+         */
+        private void fill(Connection c) {
+            c.out.clear();
+            while (c.out.hasRemaining()) {
+                if (c.pending == null) {
+                    Message message = c.link.poll();
+                    if (message == null)
+                        break;
+
+                    c.pending = message.toASE().toVerbatim();
+                    c.pendingOffset = 0;
+                    c.pendingStart = System.nanoTime();
+                }
+
+                int n = Math.min(c.out.remaining(), c.pending.length - c.pendingOffset);
+                c.out.put(c.pending, c.pendingOffset, n);
+                c.pendingOffset += n;
+                if (c.pendingOffset == c.pending.length) {
+                    if (c.finished == c.starts.length)
+                        c.starts = Arrays.copyOf(c.starts, c.finished * 2);
+                    c.starts[c.finished++] = c.pendingStart;
+                    c.pending = null;
+                }
+            }
+            c.out.flip();
+        }
+    }
+
+    /** The selector threads */
+    private final Loop[] loops;
+
+    /** Starts the selector threads, and the fallback's link threads */
+    private final HostThreads threads;
+
+    /** Serves the links without channels */
+    private final ThreadTransport fallbackTransport;
+
+    /** The loop the next link will be given to */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** The connections being served, by link */
+    private final Map<Link, Connection> connections = Collections.synchronizedMap(new IdentityHashMap<Link, Connection>());
+
+    /** Links without channels, which were handed to the ThreadTransport */
+    private final Map<Link, Boolean> fallback = Collections.synchronizedMap(new IdentityHashMap<Link, Boolean>());
+
+    /** Cleared by shutdown() */
+    private volatile boolean running = true;
+
+    /**
+     * Construct a transport and start its selector threads, on untracked
+     * platform threads, for links made outside of a host.
+     *
+     * @param selectors     The number of selector threads.
+     *
+     * @throws FatalNetworkException Thrown if a selector can't be opened.
+     */
+    public SelectorTransport(int selectors) {
+        this(selectors, HostThreads.DEFAULT);
+    }
+
+    /**
+     * Construct a transport and start its selector threads.
+     *
+     * @param selectors     The number of selector threads.
+     * @param threads       Start the selector threads (and any link threads) with this.
+     *
+     * @throws FatalNetworkException Thrown if a selector can't be opened.
+     */
+    public SelectorTransport(int selectors, HostThreads threads) {
+        this.threads = threads;
+        fallbackTransport = new ThreadTransport(threads);
+        loops = new Loop[Math.max(1, selectors)];
+        for (int i = 0; i < loops.length; i++) {
+            try {
+                loops[i] = new Loop();
+            }
+            catch (IOException e) {
+                throw new FatalNetworkException("Couldn't open a selector", e);
+            }
+
+            threads.start("auditorium-selector-" + i, loops[i]);
+        }
+    }
+
+    /**
+     * @see auditorium.ITransport#connect(HostPointer, int)
+     */
+    public IMessageSocket connect(HostPointer host, int timeout) throws NetworkException {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.socket().connect(new InetSocketAddress(host.getIP(), host.getPort()), timeout);
+            return new MessageSocket(channel.socket());
+        }
+        catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                }
+                catch (IOException ignored) {}
+            }
+            throw new NetworkException("couldn't create socket", e);
+        }
+    }
+
+    /**
+     * @see auditorium.ITransport#listen(int)
+     */
+    public IMessageServer listen(int port) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.socket().bind(new InetSocketAddress(port));
+        return new MessageServerSocket(channel.socket());
+    }
+
+    /**
+     * @see auditorium.ITransport#register(Link)
+     */
+    public void register(Link link) {
+        SocketChannel channel = link.getSocket().getChannel();
+        if (channel == null) {
+            fallback.put(link, Boolean.TRUE);
+            fallbackTransport.register(link);
+            return;
+        }
+
+        Loop loop = loops[Math.abs(next.getAndIncrement() % loops.length)];
+        Connection c = new Connection(link, channel, loop);
+        connections.put(link, c);
+        loop.registrations.add(c);
+        loop.selector.wakeup();
+    }
+
+    /**
+     * @see auditorium.ITransport#wakeup(Link)
+     */
+    public void wakeup(Link link) {
+        Connection c = connections.get(link);
+        if (c == null) {
+            if (fallback.containsKey(link))
+                fallbackTransport.wakeup(link);
+            return;
+        }
+
+        /* Only wake the selector once per batch of sends */
+        if (c.scheduled.compareAndSet(false, true)) {
+            c.loop.writes.add(c);
+            c.loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * @see auditorium.ITransport#unregister(Link)
+     */
+    public void unregister(Link link) {
+        if (fallback.remove(link) != null) {
+            fallbackTransport.unregister(link);
+            return;
+        }
+
+        Connection c = connections.remove(link);
+        if (c != null && c.key != null)
+            c.key.cancel();
+    }
+
+    /**
+     * @see auditorium.ITransport#shutdown()
+     */
+    public void shutdown() {
+        running = false;
+        for (Loop loop : loops)
+            loop.selector.wakeup();
+    }
+
+    /**
+     * Give up on a connection. The link is told from another thread, since
+     * removing it from the host needs the host lock, and the host may be
+     * waiting on this selector thread to drain the link's queue.
+     */
+    private void fail(final Connection c, String reason) {
+        if (connections.remove(c.link) != c)
+            return;
+
+        if (c.key != null)
+            c.key.cancel();
+
+        Bugout.err("Link " + c.link.getAddress() + ": " + reason);
+        threads.start("link-closed " + c.link.getAddress(), new Runnable() {
+
+            public void run() {
+                c.link.closed();
+            }
+        });
+    }
+}
@@ -0,0 +1,137 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.util.Arrays;
+
+/**
+ * A set of sequence numbers, kept as sorted runs of consecutive numbers. The
+ * sequences heard from a node arrive with few gaps, so they collapse into
+ * one run per launch of the node however many messages it sends.
+ *
+ * @see SeenIndex
+ * @see History
+ */
+class SequenceRuns {
+
+    /** The runs, sorted: run i is [runs[2i], runs[2i + 1]] */
+    private long[] runs = new long[4];
+
+    /** The number of runs */
+    private int count = 0;
+
+    /**
+     * @param sequence  A sequence number.
+     * @return          True if the sequence is in one of the runs.
+     */
+    boolean contains(long sequence) {
+        int i = runBefore(sequence);
+        return i >= 0 && sequence <= runs[2 * i + 1];
+    }
+
+    /**
+     * Add a sequence, extending or joining the runs next to it if it is
+     * adjacent to them.
+     *
+     * @param sequence  A sequence number.
+     * @return          True if the sequence wasn't already in a run.
+     */
+    boolean add(long sequence) {
+        int before = runBefore(sequence);
+        if (before >= 0 && sequence <= runs[2 * before + 1])
+            return false;
+
+        int after = before + 1;
+        boolean joinsBefore = before >= 0 && runs[2 * before + 1] == sequence - 1;
+        boolean joinsAfter = after < count && runs[2 * after] == sequence + 1;
+
+        if (joinsBefore && joinsAfter) {
+            runs[2 * before + 1] = runs[2 * after + 1];
+            System.arraycopy(runs, 2 * after + 2, runs, 2 * after, 2 * (count - after - 1));
+            count--;
+        }
+        else if (joinsBefore)
+            runs[2 * before + 1] = sequence;
+        else if (joinsAfter)
+            runs[2 * after] = sequence;
+        else {
+            if (2 * count == runs.length)
+                runs = Arrays.copyOf(runs, runs.length * 2);
+
+            System.arraycopy(runs, 2 * after, runs, 2 * after + 2, 2 * (count - after));
+            runs[2 * after] = sequence;
+            runs[2 * after + 1] = sequence;
+            count++;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The number of runs.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @param i     The index of a run.
+     * @return      The first sequence in the run.
+     */
+    long first(int i) {
+        return runs[2 * i];
+    }
+
+    /**
+     * @param i     The index of a run.
+     * @return      The last sequence in the run.
+     */
+    long last(int i) {
+        return runs[2 * i + 1];
+    }
+
+    /**
+     * @return The approximate heap used by the runs, in bytes.
+     */
+    long footprint() {
+        return 2 * 16 + runs.length * 8L;
+    }
+
+    /**
+     * @return The index of the last run starting at or before the sequence,
+     *         or -1 if there isn't one.
+     */
+    private int runBefore(long sequence) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runs[2 * mid] <= sequence)
+                lo = mid + 1;
+            else
+                hi = mid - 1;
+        }
+
+        return hi;
+    }
+}
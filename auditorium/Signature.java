@@ -39,6 +39,9 @@ public class Signature {
             StringWildcard.SINGLETON, StringWildcard.SINGLETON,
             Wildcard.SINGLETON );
 
+    /** PATTERN, compiled */
+    private static final CompiledPattern MATCH = CompiledPattern.compile( PATTERN );
+
     /** The serial of the signing machine
      * */
     private final String id;
@@ -69,23 +72,21 @@ public class Signature {
     public Signature(ASExpression expression) throws IncorrectFormatException {
 
         /* Attempt to match the aSE */
-        ASExpression matchResult = PATTERN.match(expression);
-        if (matchResult == NoMatch.SINGLETON)
+        ASExpression[] matchResult = new ASExpression[MATCH.getSlotCount()];
+        if (!MATCH.match(expression, matchResult))
             throw new IncorrectFormatException(expression, new Exception("did not match the pattern for key"));
 
         /* Now extract the data from the ASE*/
-        ListExpression matchList = (ListExpression) matchResult;
-
-        id = matchList.get(0).toString();
-        sigdata = (StringExpression) matchList.get(1);
-        payload = matchList.get(2);
+        id = matchResult[0].toString();
+        sigdata = (StringExpression) matchResult[1];
+        payload = matchResult[2];
     }
 
     /**
      * @return This method returns this signature in its s-expression form.
      */
     public ASExpression toASE() {
-        return new ListExpression(StringExpression.makeString("signature"), StringExpression.makeString(id), sigdata, payload);
+        return new ListExpression(StringExpression.symbol("signature"), StringExpression.makeString(id), sigdata, payload);
     }
 
     /**
@@ -116,7 +116,7 @@ public class SimpleKeyStore implements IKeyStore {
 	 * 
 	 * @see auditorium.IKeyStore#loadKey(java.lang.String)
 	 */
-	public Key loadKey(String nodeID) throws AuditoriumCryptoException {
+	public synchronized Key loadKey(String nodeID) throws AuditoriumCryptoException {
 		if (!keyCache.containsKey(nodeID)) {
 			try {
 				keyCache.put(nodeID, new Key(load(nodeID + ".key")));
@@ -134,7 +134,7 @@ public class SimpleKeyStore implements IKeyStore {
 	 * 
 	 * @see auditorium.IKeyStore#loadCert(java.lang.String)
 	 */
-	public Certificate loadCert(String nodeID) throws AuditoriumCryptoException {
+	public synchronized Certificate loadCert(String nodeID) throws AuditoriumCryptoException {
 		if (!certCache.containsKey(nodeID)) {
 			try {
 				certCache.put(nodeID, new Certificate(load(nodeID + ".cert")));
@@ -0,0 +1,177 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.IdentityHashMap;
+
+/**
+ * The original auditorium transport: each link gets a listen thread, which
+ * blocks reading its socket, and a writer thread, which blocks on its
+ * outbound queue. This is simple and fine for a handful of links, but costs
+ * two threads per link. The listen thread runs at a priority one more than
+ * the thread that started the link, to help auditorium keep up with many links
+ * flooding messages onto its queues. Threads are started through a
+ * {@link HostThreads}, so they can be virtual threads.
+ */
+public class ThreadTransport implements ITransport {
+
+    /** A transport on untracked platform threads, for links made outside of a host */
+    public static final ThreadTransport SINGLETON = new ThreadTransport(HostThreads.DEFAULT);
+
+    /** Start the link threads with this */
+    private final HostThreads threads;
+
+    /** The writer thread for each link, so it can be woken when the link stops */
+    private final IdentityHashMap<Link, Thread> writers = new IdentityHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param threads   Start the link threads with this.
+     */
+    public ThreadTransport(HostThreads threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @see auditorium.ITransport#connect(HostPointer, int)
+     */
+    public IMessageSocket connect(HostPointer host, int timeout) throws NetworkException {
+        return new MessageSocket(host, timeout);
+    }
+
+    /**
+     * @see auditorium.ITransport#listen(int)
+     */
+    public IMessageServer listen(int port) throws IOException {
+        return new MessageServerSocket(new ServerSocket(port));
+    }
+
+    /**
+     * @see auditorium.ITransport#register(Link)
+     */
+    public void register(final Link link) {
+        /* The writer has to be known before either thread can stop the link */
+        synchronized (writers) {
+            Thread writer = threads.start("link-writer " + link.getAddress(), new Runnable() {
+
+                public void run() {
+                    writeThread(link);
+                }
+            });
+
+            writers.put(link, writer);
+        }
+
+        /* Establish the priority of the listener as one more than the host thread */
+        threads.start("link-listener " + link.getAddress(), Thread.currentThread().getPriority() + 1, new Runnable() {
+
+            public void run() {
+                listenThread(link);
+            }
+        });
+    }
+
+    /**
+     * The writer thread blocks on the link's queue, so there is nothing to do.
+     *
+     * @see auditorium.ITransport#wakeup(Link)
+     */
+    public void wakeup(Link link) {}
+
+    /**
+     * @see auditorium.ITransport#unregister(Link)
+     */
+    public void unregister(Link link) {
+        Thread writer;
+        synchronized (writers) {
+            writer = writers.remove(link);
+        }
+
+        /* Wake the writer (the listen thread wakes when the link closes its socket) */
+        if (writer != null && writer != Thread.currentThread())
+            writer.interrupt();
+    }
+
+    /**
+     * Threads are stopped link by link, so there is nothing to do.
+     *
+     * @see auditorium.ITransport#shutdown()
+     */
+    public void shutdown() {}
+
+    /**
+     * Thread that will handle messages coming across the socket
+     */
+    private void listenThread(Link link) {
+
+        /* Note that the thread is starting */
+        Bugout.msg( "Link " + link.getAddress() + ": THREAD START" );
+
+        /* Now read in data from the socket and pass it to the host */
+        try {
+            Message message;
+            while (link.running() && (message = link.getSocket().receive()) != null)
+                link.received(message);
+        } catch (NetworkException e) {
+            Bugout.err("Link " + link.getAddress() + ": " + e.getMessage());
+        } catch (IncorrectFormatException e) {
+            Bugout.err("Link " + link.getAddress() + ": received a message that is incorrectly formatted:" + e.getMessage());
+        }
+
+        /* If we exit the while loop, remove and close this link */
+        link.closed();
+        Bugout.msg("Link " + link.getAddress() + ": THREAD END");
+    }
+
+    /**
+     * Thread that will write queued messages out to the socket
+     */
+    private void writeThread(Link link) {
+
+        /* Note that the thread is starting */
+        Bugout.msg("Link " + link.getAddress() + ": WRITER START");
+
+        try {
+            while (link.running()) {
+                Message message = link.take();
+                long start = System.nanoTime();
+                link.getSocket().send(message);
+                link.written(start);
+            }
+        }
+        catch (InterruptedException ignored) {}
+        catch (NetworkException e) {
+            /*
+             * Closing the socket makes the listen thread fall out of its loop,
+             * and it will take care of removing this link from the host.
+             */
+            Bugout.err("Link " + link.getAddress() + ": " + e.getMessage());
+            link.stop();
+        }
+
+        Bugout.msg("Link " + link.getAddress() + ": WRITER END");
+    }
+}
@@ -23,18 +23,17 @@
 package auditorium.loganalysis;
 
 import auditorium.IncorrectFormatException;
+import auditorium.LogReader;
 import auditorium.Message;
 import auditorium.MessagePointer;
 import sexpression.ASExpression;
 import sexpression.ListExpression;
 import sexpression.lexer.Lexer;
 import sexpression.parser.Parser;
-import sexpression.stream.ASEInputStreamReader;
 import sexpression.stream.InvalidVerbatimStreamException;
 
 import java.io.CharArrayReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -84,12 +83,11 @@ public class Dag {
      */
     public void build() throws IOException, InvalidVerbatimStreamException, IncorrectFormatException {
 
-        /* Read the file in as an ASE */
-        ASEInputStreamReader reader = new ASEInputStreamReader(new FileInputStream(new File(filename)));
+        /* Open the log through its index */
+        LogReader reader = new LogReader(new File(filename));
 
-        /* Read in the ASEs contained in the file, one by one */
-        ASExpression message;
-        while ((message = reader.read()) != null) {
+        /* Read in the ASEs contained in the file, parsing them in parallel */
+        for (ASExpression message : reader.readAll(Runtime.getRuntime().availableProcessors())) {
 
             /* build a message pointer based on the read-in message */
             MessagePointer ptr = new MessagePointer(new Message(message));
@@ -22,15 +22,15 @@
 
 package auditorium.loganalysis;
 
+import auditorium.LogReader;
 import auditorium.Message;
 import sexpression.ASExpression;
 import sexpression.ListExpression;
 import sexpression.lexer.Lexer;
 import sexpression.parser.Parser;
-import sexpression.stream.ASEInputStreamReader;
 
 import java.io.CharArrayReader;
-import java.io.FileInputStream;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -59,34 +59,33 @@ public class LogCounter {
 
     public static void main(String[] args) throws Exception {
         long count = 0;
-        ASEInputStreamReader rd = new ASEInputStreamReader(
-                new FileInputStream( args[0] ) );
-        HashMap<String, ArrayList<Integer>> map = new HashMap<>();
+        LogReader rd = new LogReader( new File( args[0] ) );
+        HashMap<String, ArrayList<Long>> map = new HashMap<>();
         int[] branches = new int[1000];
 
-        ASExpression read;
-
-        while ((read = rd.read()) != null) {
-            Message m = new Message(read);
-            ArrayList<Integer> message;
+        for (ASExpression read : rd.readAll( Runtime.getRuntime().availableProcessors() )) {
+            Message m = new Message(read).expanded();
+            ArrayList<Long> message;
             if (map.containsKey( m.getFrom().getNodeId() ))
                 message = map.get( m.getFrom().getNodeId() );
             else {
                 message = new ArrayList<>();
                 map.put( m.getFrom().getNodeId(), message );
             }
-            message.add( Integer.parseInt( m.getSequence() ) );
+            message.add( Long.parseLong( m.getSequence() ) );
             ListExpression list = (ListExpression) PATTERN
                     .match( m.toASE() );
             branches[list.get( 12 ).size()]++;
-            count++;
+
+            /* A batch is counted as each of the announcements it carries */
+            count += m.unbatched().size();
         }
 
         for (String key : map.keySet()) {
             System.err.println( key );
-            ArrayList<Integer> lst = map.get( key );
-            int tmp = lst.get( 0 );
-            for (Integer i : map.get( key )) {
+            ArrayList<Long> lst = map.get( key );
+            long tmp = lst.get( 0 );
+            for (Long i : map.get( key )) {
                 System.err.print( i );
                 if (i != tmp + 1)
                     System.err.print( "**" );
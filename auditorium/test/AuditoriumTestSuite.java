@@ -28,15 +28,29 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
   CertificateTest.class,
+  ChainHasherTest.class,
+  CompressionLayerTest.class,
   CryptoTest.class,
+  FrontierTest.class,
+  HistoryTest.class,
   HostPointerTest.class,
+  HostThreadsTest.class,
   IntegrityLayerTest.class,
   KeyStoreTest.class,
   KeyTest.class,
   LinkTest.class,
+  LogReaderTest.class,
+  LogSegmenterTest.class,
   LogTest.class,
+  LogWriterTest.class,
+  LoopbackNetworkTest.class,
+  MPSCQueueTest.class,
   MessagePointerTest.class,
   MessageTest.class,
+  MetricsTest.class,
+  PeerCacheTest.class,
+  SeenIndexTest.class,
+  SelectorTransportTest.class,
   SignatureTest.class,
   TemporalLayerTest.class
 })
@@ -0,0 +1,131 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium.test;
+
+import auditorium.ChainHasher;
+import auditorium.HostPointer;
+import auditorium.Message;
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the ChainHasher class.
+ */
+public class ChainHasherTest {
+
+    /**
+     * The chained hash as Message.chain() used to compute it, through
+     * strings and interned expressions.
+     */
+    private static ASExpression legacy(ASExpression hash, ASExpression previous) {
+        String newData = hash.toString() + previous.toString();
+        return StringExpression.makeString( StringExpression.makeString( newData ).getSHA1() );
+    }
+
+    private static Message message(int i) {
+        return new Message( "announce", new HostPointer( "0", "127.0.0.1", 9000 ), Integer.toString( i ),
+                StringExpression.makeString( "datum " + i ) );
+    }
+
+    @Test
+    public void compat() {
+        ChainHasher chain = new ChainHasher( false, "0000000000" );
+        ASExpression previous = StringExpression.makeString( StringExpression.makeString( "0000000000" ).getSHA1() );
+        assertEquals( previous, chain.getLast() );
+
+        for (int i = 0; i < 100; i++) {
+            Message m = message( i );
+            ASExpression expected = legacy( m.getHash(), previous );
+
+            assertTrue( chain.check( m.getDigest(), expected ) );
+            previous = expected;
+        }
+        assertEquals( previous, chain.getLast() );
+    }
+
+    @Test
+    public void compatOddHashes() {
+        Random rand = new Random( 0 );
+        byte[][] hashes = { new byte[0], "null".getBytes(), "all printable\tand spaced".getBytes(), new byte[56],
+                new byte[57], new byte[200] };
+        for (byte[] hash : hashes)
+            if (hash.length > 40)
+                rand.nextBytes( hash );
+
+        for (byte[] hash : hashes) {
+            for (byte[] previous : hashes) {
+                ChainHasher chain = new ChainHasher( false, previous );
+                ASExpression expected = legacy( StringExpression.makeString( hash ),
+                        StringExpression.makeString( previous ) );
+
+                assertTrue( chain.check( hash, expected ) );
+            }
+        }
+    }
+
+    @Test
+    public void messageChain() {
+        Message m = message( 0 );
+        ASExpression previous = StringExpression.makeString( "previous" );
+        m.chain( previous );
+
+        assertEquals( legacy( m.getHash(), previous ), m.getChainedHash() );
+    }
+
+    @Test
+    public void fast() {
+        ChainHasher compat = new ChainHasher( false, "code" );
+        ChainHasher fast = new ChainHasher( true, "code" );
+        assertEquals( compat.getLast(), fast.getLast() );
+
+        Message m = message( 0 );
+        byte[] expected = ASExpression.computeSHA1( concat( m.getDigest(), ChainHasher.seed( "code" ) ) );
+        assertArrayEquals( expected, fast.append( m.getDigest() ) );
+        assertFalse( compat.check( m.getDigest(), fast.getLast() ) );
+    }
+
+    @Test
+    public void mismatch() {
+        ChainHasher chain = new ChainHasher( true, "code" );
+        Message m = message( 0 );
+
+        assertFalse( chain.check( m.getDigest(), StringExpression.makeString( "wrong" ) ) );
+
+        /* The chain carries on from what was computed, not from what was logged */
+        ChainHasher other = new ChainHasher( true, "code" );
+        other.append( m.getDigest() );
+        assertEquals( other.getLast(), chain.getLast() );
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] c = new byte[a.length + b.length];
+        System.arraycopy( a, 0, c, 0, a.length );
+        System.arraycopy( b, 0, c, a.length, b.length );
+        return c;
+    }
+}
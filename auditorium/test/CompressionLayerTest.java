@@ -0,0 +1,150 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium.test;
+
+import auditorium.AAuditoriumLayer;
+import auditorium.AuditoriumCompressionLayer;
+import auditorium.HostPointer;
+import auditorium.IncorrectFormatException;
+import auditorium.Message;
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.StringExpression;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the AuditoriumCompressionLayer class.
+ */
+public class CompressionLayerTest {
+
+    /** Something the size and shape of an encrypted ballot */
+    private static ASExpression ballot() {
+        ArrayList<ASExpression> races = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            races.add( new ListExpression( StringExpression.makeString( "object" ),
+                    StringExpression.makeString( "crypto.ExponentialElGamalCiphertext" ),
+                    StringExpression.makeString( "java.math.BigInteger" ),
+                    StringExpression.makeString( Long.toString( 1234567890123L * i ) ) ) );
+
+        return new ListExpression( StringExpression.makeString( "signed-message" ), new ListExpression( races ) );
+    }
+
+    private static AuditoriumCompressionLayer layer(int threshold) {
+        return new AuditoriumCompressionLayer( AAuditoriumLayer.BOTTOM, null, threshold );
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        ASExpression ballot = ballot();
+        ASExpression compressed = layer( 256 ).makeAnnouncement( ballot );
+
+        assertNotSame( ballot, compressed );
+        assertTrue( compressed.toVerbatim().length < ballot.toVerbatim().length / 2 );
+        assertTrue( Arrays.equals( ballot.toVerbatim(), layer( 0 ).receiveAnnouncement( compressed ).toVerbatim() ) );
+    }
+
+    @Test
+    public void threshold() throws Exception {
+        ASExpression small = new ListExpression( StringExpression.makeString( "signed-message" ),
+                StringExpression.makeString( "short" ) );
+
+        /* Too short to be worth it, or compression turned off */
+        assertSame( small, layer( 256 ).makeAnnouncement( small ) );
+        ASExpression ballot = ballot();
+        assertSame( ballot, layer( 0 ).makeAnnouncement( ballot ) );
+
+        /* Uncompressed data is passed straight up */
+        assertSame( small, layer( 256 ).receiveAnnouncement( small ) );
+    }
+
+    @Test
+    public void canonicalHash() throws Exception {
+        HostPointer from = new HostPointer( "0", "127.0.0.1", 9700 );
+        Message plain = new Message( "announce", from, "1", ballot() );
+        Message compressed = new Message( "announce", from, "1", layer( 256 ).makeAnnouncement( ballot() ) );
+
+        assertFalse( Arrays.equals( plain.toASE().toVerbatim(), compressed.toASE().toVerbatim() ) );
+        assertEquals( plain.getHash(), compressed.getHash() );
+        assertEquals( plain.toASE(), compressed.expanded().toASE() );
+    }
+
+    @Test(expected = IncorrectFormatException.class)
+    public void unknownCodec() throws Exception {
+        ListExpression compressed = (ListExpression) layer( 256 ).makeAnnouncement( ballot() );
+        layer( 0 ).receiveAnnouncement( new ListExpression( compressed.get( 0 ), StringExpression.makeString( "lzma" ),
+                compressed.get( 2 ), compressed.get( 3 ) ) );
+    }
+
+    @Test(expected = IncorrectFormatException.class)
+    public void wrongSize() throws Exception {
+        ListExpression compressed = (ListExpression) layer( 256 ).makeAnnouncement( ballot() );
+        layer( 0 ).receiveAnnouncement( new ListExpression( compressed.get( 0 ), compressed.get( 1 ),
+                StringExpression.makeString( "12" ), compressed.get( 3 ) ) );
+    }
+
+    // Data that would expand past MAX_RATIO aren't compressed, so every host can expand what is sent
+    @Test
+    public void tooCompressible() throws Exception {
+        byte[] zeros = new byte[1024 * 1024];
+        ASExpression repetitive = new ListExpression( StringExpression.makeString( "signed-message" ),
+                StringExpression.makeString( zeros ) );
+
+        assertSame( repetitive, layer( 256 ).makeAnnouncement( repetitive ) );
+    }
+
+    // A small frame claiming (and inflating to) a large datum is refused before anything is allocated for it
+    @Test(expected = IncorrectFormatException.class)
+    public void bomb() throws Exception {
+        byte[] canonical = StringExpression.makeString( new byte[AuditoriumCompressionLayer.MAX_SIZE / 2] ).toVerbatim();
+
+        Deflater deflater = new Deflater( Deflater.BEST_COMPRESSION );
+        deflater.setInput( canonical );
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished())
+            out.write( chunk, 0, deflater.deflate( chunk ) );
+        deflater.end();
+
+        layer( 0 ).receiveAnnouncement( new ListExpression( StringExpression.makeString( "compressed" ),
+                StringExpression.makeString( AuditoriumCompressionLayer.CODEC ),
+                StringExpression.makeString( Integer.toString( canonical.length ) ),
+                StringExpression.makeString( out.toByteArray() ) ) );
+    }
+
+    @Test(expected = IncorrectFormatException.class)
+    public void corrupt() throws Exception {
+        ListExpression compressed = (ListExpression) layer( 256 ).makeAnnouncement( ballot() );
+        byte[] bytes = ((StringExpression) compressed.get( 3 )).getBytesCopy();
+        bytes[bytes.length / 2] ^= 0x55;
+        layer( 0 ).receiveAnnouncement( new ListExpression( compressed.get( 0 ), compressed.get( 1 ),
+                compressed.get( 2 ), StringExpression.makeString( bytes ) ) );
+    }
+}
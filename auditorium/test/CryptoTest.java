@@ -29,6 +29,8 @@ import sexpression.ASExpression;
 import sexpression.ListExpression;
 import sexpression.StringExpression;
 
+import static org.junit.Assert.*;
+
 /**
  * Unit test the primitives provided in the Crypto class. These test the output
  * of the generation scripts in /keys/. Make sure you have run them and
@@ -67,4 +69,65 @@ public class CryptoTest {
             RSACrypto.SINGLETON.verify( notSig, cert );
         }
     }
+
+    @Test
+    public void testVerifyCertificate() throws Exception {
+        Keys ca = gen.generateKey( "CA", "ca" );
+        Keys node = gen.generateKey( "TEST", "TEST" );
+        Certificate caCert = gen.createCert( ca.getPrivate(), ca.getPublic() );
+        Certificate cert = gen.createCert( ca.getPrivate(), node.getPublic() );
+
+        /* The second check is answered from memory, and must agree */
+        RSACrypto.SINGLETON.verifyCertificate( cert, caCert );
+        RSACrypto.SINGLETON.verifyCertificate( cert, caCert );
+    }
+
+    @Test
+    public void testVerifyCertificateFail() throws Exception {
+        Keys ca = gen.generateKey( "CA", "ca" );
+        Keys other = gen.generateKey( "OTHER", "ca" );
+        Keys node = gen.generateKey( "TEST", "TEST" );
+        Certificate otherCert = gen.createCert( other.getPrivate(), other.getPublic() );
+        Certificate cert = gen.createCert( ca.getPrivate(), node.getPublic() );
+
+        /* A failed check is never remembered as a success */
+        for (int lcv = 0; lcv < 2; lcv++) {
+            try {
+                RSACrypto.SINGLETON.verifyCertificate( cert, otherCert );
+                fail( "certificate wasn't signed by " + otherCert );
+            }
+            catch (AuditoriumCryptoException expected) {}
+        }
+    }
+
+    @Test
+    public void testSignVerifyThreads() throws Exception {
+        final Keys keys = gen.generateKey( "TEST", "TEST" );
+        final Certificate cert = gen.createCert( keys.getPrivate(), keys.getPublic() );
+        final Exception[] failure = new Exception[1];
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread( new Runnable() {
+
+                public void run() {
+                    try {
+                        for (int lcv = 0; lcv < 20; lcv++) {
+                            Signature sig = RSACrypto.SINGLETON.sign( message, keys.getPrivate() );
+                            RSACrypto.SINGLETON.verify( sig, cert );
+                        }
+                    }
+                    catch (Exception e) {
+                        failure[0] = e;
+                    }
+                }
+            } );
+            threads[t].start();
+        }
+
+        for (Thread t : threads)
+            t.join();
+
+        assertNull( failure[0] );
+    }
 }
@@ -0,0 +1,108 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium.test;
+
+import auditorium.Frontier;
+import auditorium.MessagePointer;
+import auditorium.SeenIndex;
+import org.junit.Test;
+import sexpression.StringExpression;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Frontier class.
+ */
+public class FrontierTest {
+
+    private static MessagePointer ptr(String node, long sequence) {
+        return new MessagePointer( node, Long.toString( sequence ),
+                StringExpression.makeString( node + "/" + sequence ) );
+    }
+
+    @Test
+    public void headPerNode() {
+        Frontier frontier = new Frontier();
+        frontier.add( ptr( "a", 1 ) );
+        frontier.add( ptr( "b", 1 ) );
+        frontier.add( ptr( "a", 3 ) );
+
+        /* An older message arriving late doesn't displace the head */
+        frontier.add( ptr( "a", 2 ) );
+
+        assertEquals( 2, frontier.size() );
+        assertEquals( ptr( "a", 3 ), frontier.toList().get( 0 ) );
+        assertEquals( ptr( "b", 1 ), frontier.toList().get( 1 ) );
+    }
+
+    @Test
+    public void remove() {
+        Frontier frontier = new Frontier();
+        frontier.add( ptr( "a", 3 ) );
+        frontier.add( ptr( "b", 3 ) );
+
+        /* Older references don't cover the head, exact and newer ones do */
+        frontier.remove( ptr( "a", 2 ) );
+        assertEquals( 2, frontier.size() );
+
+        frontier.remove( ptr( "a", 3 ) );
+        frontier.remove( ptr( "b", 4 ) );
+        assertEquals( 0, frontier.size() );
+    }
+
+    @Test
+    public void restart() {
+        Frontier frontier = new Frontier();
+        frontier.add( ptr( "a", SeenIndex.DEFAULT_WINDOW + 10 ) );
+
+        /* Far behind the head: the node started counting again */
+        frontier.add( ptr( "a", 1 ) );
+        assertEquals( ptr( "a", 1 ), frontier.toList().get( 0 ) );
+
+        /* A reference from the old run doesn't cover the new head */
+        frontier.remove( ptr( "a", SeenIndex.DEFAULT_WINDOW + 20 ) );
+        assertEquals( 1, frontier.size() );
+    }
+
+    @Test
+    public void take() {
+        Frontier frontier = new Frontier();
+        frontier.add( ptr( "a", 1 ) );
+        frontier.add( new MessagePointer( "b", "x", StringExpression.makeString( "unordered" ) ) );
+
+        MessagePointer[] taken = frontier.take();
+        assertEquals( 2, taken.length );
+        assertEquals( 0, frontier.size() );
+        assertEquals( 0, frontier.take().length );
+    }
+
+    @Test
+    public void unorderedBounded() {
+        Frontier frontier = new Frontier();
+        for (int i = 0; i < Frontier.MAX_UNORDERED + 5; i++)
+            frontier.add( new MessagePointer( "a", "x" + i, StringExpression.makeString( "h" + i ) ) );
+
+        assertEquals( Frontier.MAX_UNORDERED, frontier.size() );
+    }
+}
@@ -0,0 +1,182 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium.test;
+
+import auditorium.*;
+import org.junit.After;
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.StringExpression;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the History class.
+ */
+public class HistoryTest {
+
+    private final ArrayList<Log> logs = new ArrayList<>();
+    private final ArrayList<File> files = new ArrayList<>();
+
+    @After
+    public void tear() throws Exception {
+        for (Log log : logs)
+            log.close();
+        for (File file : files) {
+            for (File segment : LogSegmenter.segments( file ))
+                segment.delete();
+            file.delete();
+        }
+    }
+
+    private static Message msg(String node, String sequence) {
+        return new Message( "announce", new HostPointer( node, "127.0.0.1", 9700 ), sequence,
+                StringExpression.makeString( node + "/" + sequence ) );
+    }
+
+    private Log log(LogSegmenter segmenter) {
+        Log log = new Log( segmenter, "0000000000" );
+        log.keepHistory();
+        logs.add( log );
+        return log;
+    }
+
+    private Log log(String node, long... sequences) throws Exception {
+        File file = File.createTempFile( "history", ".out" );
+        files.add( file );
+
+        Log log = log( new LogSegmenter( new LogWriter( file ) ) );
+        for (long s : sequences)
+            log.logAnnouncement( msg( node, Long.toString( s ) ) );
+        return log;
+    }
+
+    @Test
+    public void marks() throws Exception {
+        Log log = log( "a", 3, 1, 2, 7, 5 );
+        log.logAnnouncement( msg( "b", "1" ) );
+        log.logAnnouncement( msg( "b", "x" ) );
+
+        assertEquals( "((a 1 3 5 5 7 7) (b 1 1))", log.getHistory().marks().toString() );
+    }
+
+    @Test
+    public void missing() throws Exception {
+        Log mine = log( "a", 1, 2, 3, 4, 5, 6 );
+        mine.logAnnouncement( msg( "b", "1" ) );
+        mine.logAnnouncement( msg( "c", "x" ) );
+
+        /* The other host has a's 1-2 and 5 */
+        List<Message> missing = mine.getHistory().missing( log( "a", 1, 2, 5 ).getHistory().marks() );
+
+        assertEquals( 5, missing.size() );
+        assertEquals( "3", missing.get( 0 ).getSequence() );
+        assertEquals( "4", missing.get( 1 ).getSequence() );
+        assertEquals( "6", missing.get( 2 ).getSequence() );
+        assertEquals( "b", missing.get( 3 ).getFrom().getNodeId() );
+        assertEquals( "x", missing.get( 4 ).getSequence() );
+        assertEquals( msg( "a", "3" ).getDatum(), missing.get( 0 ).getDatum() );
+    }
+
+    @Test
+    public void caughtUp() throws Exception {
+        History mine = log( "a", 1, 2, 3 ).getHistory();
+        History theirs = log( "a", 3, 2, 1, 4 ).getHistory();
+
+        assertTrue( mine.missing( theirs.marks() ).isEmpty() );
+        assertEquals( 1, theirs.missing( mine.marks() ).size() );
+    }
+
+    // A node that restarted starts a new run, whose messages are sent even to a host that saw more of the old run
+    @Test
+    public void restarted() throws Exception {
+        Log mine = log( "a", 1, 2, 3 );
+        mine.logAnnouncement( msg( "a", "2000001" ) );
+        mine.logAnnouncement( msg( "a", "2000002" ) );
+
+        List<Message> missing = mine.getHistory().missing( log( "a", 1, 2, 3, 4, 5, 6 ).getHistory().marks() );
+        assertEquals( 2, missing.size() );
+        assertEquals( "2000001", missing.get( 0 ).getSequence() );
+    }
+
+    // Messages are read back in batches, from every segment of the log, until the sink says to stop
+    @Test
+    public void batches() throws Exception {
+        File file = File.createTempFile( "history", ".out" );
+        files.add( file );
+
+        Log mine = log( new LogSegmenter( file, 300, 0, 0, 0, 0 ) );
+        for (int i = 1; i <= 10; i++)
+            mine.logAnnouncement( msg( "a", Integer.toString( i ) ) );
+        assertTrue( LogSegmenter.segments( file ).length > 1 );
+
+        final ArrayList<Integer> sizes = new ArrayList<>();
+        mine.getHistory().missing( ListExpression.EMPTY, 4, new History.Sink() {
+            public boolean send(List<Message> batch) {
+                sizes.add( batch.size() );
+                return true;
+            }
+        } );
+        assertEquals( "[4, 4, 2]", sizes.toString() );
+
+        sizes.clear();
+        mine.getHistory().missing( ListExpression.EMPTY, 4, new History.Sink() {
+            public boolean send(List<Message> batch) {
+                sizes.add( batch.size() );
+                return false;
+            }
+        } );
+        assertEquals( "[4]", sizes.toString() );
+    }
+
+    // Nothing is remembered unless the log is asked to keep a history
+    @Test
+    public void notKept() throws Exception {
+        File file = File.createTempFile( "history", ".out" );
+        files.add( file );
+
+        Log log = new Log( file, "0000000000" );
+        logs.add( log );
+        assertNull( log.getHistory() );
+    }
+
+    @Test(expected = IncorrectFormatException.class)
+    public void malformed() throws Exception {
+        ASExpression marks = new ListExpression( new ListExpression( StringExpression.makeString( "a" ),
+                StringExpression.makeString( "5" ) ) );
+        log( "a", 1 ).getHistory().missing( marks );
+    }
+
+    @Test(expected = IncorrectFormatException.class)
+    public void descending() throws Exception {
+        ASExpression marks = new ListExpression( new ListExpression( StringExpression.makeString( "a" ),
+                StringExpression.makeString( "5" ), StringExpression.makeString( "2" ) ) );
+        log( "a", 1 ).getHistory().missing( marks );
+    }
+}
@@ -0,0 +1,139 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium.test;
+
+import auditorium.HostThreads;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the HostThreads class.
+ */
+public class HostThreadsTest {
+
+    @Test
+    public void shutdownWaits() throws Exception {
+        HostThreads threads = new HostThreads( false );
+        final CountDownLatch done = new CountDownLatch( 3 );
+
+        for (int i = 0; i < 3; i++)
+            threads.start( "worker " + i, new Runnable() {
+
+                public void run() {
+                    try {
+                        Thread.sleep( 100 );
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    done.countDown();
+                }
+            } );
+
+        threads.shutdown( 5000 );
+        assertEquals( 0, done.getCount() );
+        assertEquals( 0, threads.size() );
+    }
+
+    @Test
+    public void shutdownInterrupts() throws Exception {
+        HostThreads threads = new HostThreads( false );
+        final CountDownLatch interrupted = new CountDownLatch( 1 );
+
+        threads.start( "straggler", new Runnable() {
+
+            public void run() {
+                try {
+                    Thread.sleep( 60000 );
+                }
+                catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        } );
+
+        threads.shutdown( 100 );
+        assertTrue( interrupted.await( 1, TimeUnit.SECONDS ) );
+        assertEquals( 0, threads.size() );
+    }
+
+    @Test
+    public void shutdownFromOwnThread() throws Exception {
+        final HostThreads threads = new HostThreads( false );
+        final CountDownLatch done = new CountDownLatch( 1 );
+
+        threads.start( "self", new Runnable() {
+
+            public void run() {
+                threads.shutdown( 5000 );
+                done.countDown();
+            }
+        } );
+
+        assertTrue( done.await( 1, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void virtual() throws Exception {
+        HostThreads threads = new HostThreads( true );
+        final Thread[] ran = new Thread[1];
+
+        threads.start( "virtual", new Runnable() {
+
+            public void run() {
+                ran[0] = Thread.currentThread();
+            }
+        } ).join();
+
+        /* Whether or not the runtime has virtual threads, the task runs on the named thread */
+        assertNotNull( ran[0] );
+        assertEquals( "virtual", ran[0].getName() );
+    }
+
+    // An executor's threads are named and kept track of like any other, until the executor is shut down
+    @Test
+    public void factory() throws Exception {
+        HostThreads threads = new HostThreads( false );
+        ExecutorService pool = Executors.newFixedThreadPool( 2, threads.factory( "pooled" ) );
+
+        assertEquals( "pooled", pool.submit( new Callable<String>() {
+
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        } ).get() );
+        assertEquals( 1, threads.size() );
+
+        pool.shutdown();
+        threads.shutdown( 5000 );
+        assertEquals( 0, threads.size() );
+    }
+}
@@ -31,7 +31,7 @@ import org.junit.Before;
 import org.junit.Test;
 import sexpression.*;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * Tests the Auditorium integrity layer
@@ -301,4 +301,36 @@ public class IntegrityLayerTest {
     public void doNothing5() throws Exception {
         doNothingTest(StringExpression.makeString("TEST"));
     }
+
+    // ** preverify(ASExpression) tests **
+    @Test
+    public void preverify1() throws Exception {
+        ASExpression datum = StringExpression.makeString( "TEST" );
+        ASExpression wrapped = layer.makeAnnouncement( datum );
+
+        assertTrue( layer.preverify( wrapped ) );
+        assertEquals( datum, layer.receiveAnnouncement( wrapped ) );
+
+        /* Only the first receive skips the check; the next one still works */
+        assertEquals( datum, layer.receiveAnnouncement( wrapped ) );
+    }
+
+    @Test
+    public void preverify2() throws Exception {
+        ASExpression datum = StringExpression.makeString( "TEST" );
+        ASExpression wrapped = layer.makeAnnouncement( datum );
+
+        assertTrue( layer.preverify( wrapped ) );
+        layer.forget( wrapped );
+        assertEquals( datum, layer.receiveAnnouncement( wrapped ) );
+    }
+
+    @Test(expected = IncorrectFormatException.class)
+    public void preverify3() throws Exception {
+        ASExpression bad = new ListExpression( StringExpression.makeString( "signed-message" ), myCert.toASE(),
+                new Signature( "me", StringExpression.makeString( "not a signature" ), StringExpression.makeString( "TEST" ) ).toASE() );
+
+        assertFalse( layer.preverify( bad ) );
+        layer.receiveAnnouncement( bad );
+    }
 }
@@ -29,10 +29,16 @@ import org.junit.Test;
 import sexpression.ASExpression;
 import sexpression.ListExpression;
 import sexpression.StringExpression;
+import sexpression.stream.ASEFrameDecoder;
+import sexpression.stream.ASEInputStreamReader;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
 
 import static org.junit.Assert.*;
 
@@ -49,6 +55,8 @@ public class LinkTest {
 
     // Use this stream to send shit to the Link.
     private volatile OutputStream stream;
+    // Use this stream to read what the Link sends.
+    private volatile InputStream input;
     // This is the thing we're testing.
     private Link link;
 
@@ -97,6 +105,7 @@ public class LinkTest {
                     ServerSocket serversocket = new ServerSocket( 9000 );
                     Socket toLink = serversocket.accept();
                     stream = toLink.getOutputStream();
+                    input = toLink.getInputStream();
                     serversocket.close();
                 }
                 catch (Exception e) {
@@ -207,4 +216,110 @@ public class LinkTest {
 
         assertSame( link, links.pop() );
     }
+
+    // Check that queued messages get written out by the writer thread, in order
+    @Test
+    public void send1() throws Exception {
+        Message m1 = new Message( "announcement", new HostPointer( "id", "ip",
+                9000 ), "1", ListExpression.EMPTY );
+        Message m2 = new Message( "announcement", new HostPointer( "id", "ip",
+                9000 ), "2", ListExpression.EMPTY );
+
+        assertTrue( link.send( m1 ) );
+        assertTrue( link.send( m2 ) );
+
+        ASEInputStreamReader reader = new ASEInputStreamReader( input );
+        assertEquals( m1.toASE(), reader.read() );
+        assertEquals( m2.toASE(), reader.read() );
+        assertEquals( 0, link.pending() );
+    }
+
+    // Check that a stopped link refuses to queue anything
+    @Test
+    public void sendStopped() throws Exception {
+        link.stop();
+        assertFalse( link.send( new Message( "announcement", new HostPointer(
+                "id", "ip", 9000 ), "1", ListExpression.EMPTY ) ) );
+    }
+
+    /** A transport that never writes anything, so a link's queue only fills up */
+    private static final ITransport STALLED = new ITransport() {
+
+        public IMessageSocket connect(HostPointer host, int timeout) {
+            throw new RuntimeException( "unused" );
+        }
+
+        public IMessageServer listen(int port) {
+            throw new RuntimeException( "unused" );
+        }
+
+        public void register(Link link) {}
+
+        public void wakeup(Link link) {}
+
+        public void unregister(Link link) {}
+
+        public void shutdown() {}
+    };
+
+    /** A socket for a link whose transport never touches it */
+    private static final IMessageSocket IDLE = new IMessageSocket() {
+
+        public void send(Message msg) {
+            throw new RuntimeException( "unused" );
+        }
+
+        public Message receive() {
+            throw new RuntimeException( "unused" );
+        }
+
+        public SocketChannel getChannel() {
+            return null;
+        }
+
+        public ASEFrameDecoder handOff(Collection<ASExpression> received) {
+            throw new RuntimeException( "unused" );
+        }
+
+        public void close() throws IOException {}
+    };
+
+    // By default a full queue gives up on the link, rather than quietly losing a message the peer won't ask for again
+    @Test
+    public void overflow() throws Exception {
+        HostPointer hp = new HostPointer( "overflow", "127.0.0.1", 9000 );
+        Metrics.Counter failures = Metrics.SINGLETON.counter( "link.overflow.send-failures" );
+        long before = failures.get();
+        Link full = new Link( host, IDLE, hp, 2, Link.DEFAULT_OVERFLOW_POLICY, Link.DEFAULT_SEND_TIMEOUT, STALLED );
+        full.start();
+
+        for (int i = 0; i < 2; i++)
+            assertTrue( full.send( new Message( "announcement", hp, Integer.toString( i ), ListExpression.EMPTY ) ) );
+        assertFalse( full.send( new Message( "announcement", hp, "2", ListExpression.EMPTY ) ) );
+        assertEquals( 2, full.pending() );
+        assertEquals( before + 1, failures.get() );
+
+        full.stop();
+    }
+
+    // Each message a dropping policy loses is counted against the link
+    @Test
+    public void dropped() throws Exception {
+        Metrics.Counter dropped = Metrics.SINGLETON.counter( "link.dropped.dropped" );
+        long before = dropped.get();
+        HostPointer hp = new HostPointer( "dropped", "127.0.0.1", 9000 );
+
+        for (Link.OverflowPolicy policy : new Link.OverflowPolicy[] { Link.OverflowPolicy.DROP_OLDEST, Link.OverflowPolicy.DROP_NEWEST }) {
+            Link full = new Link( host, IDLE, hp, 2, policy, Link.DEFAULT_SEND_TIMEOUT, STALLED );
+            full.start();
+
+            for (int i = 0; i < 5; i++)
+                assertTrue( full.send( new Message( "announcement", hp, Integer.toString( i ), ListExpression.EMPTY ) ) );
+            assertEquals( 2, full.pending() );
+
+            full.stop();
+        }
+
+        assertEquals( before + 6, dropped.get() );
+    }
 }
@@ -0,0 +1,188 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium.test;
+
+import auditorium.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.io.*;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the LogReader class.
+ */
+public class LogReaderTest {
+
+    private static final HostPointer HOST = new HostPointer( "test-node", "192.168.1.100", 9000 );
+
+    private File file;
+    private File index;
+
+    @Before
+    public void setup() throws Exception {
+        file = File.createTempFile( "logreader", ".out" );
+        index = new File( file.getPath() + ".idx" );
+    }
+
+    @After
+    public void tear() {
+        assertTrue( file.delete() );
+        index.delete();
+    }
+
+    private Message message(int sequence) {
+        return new Message( "announce", HOST, Integer.toString( sequence ),
+                StringExpression.makeString( "datum" + sequence ) );
+    }
+
+    // Every entry can be read back, in order, by index
+    @Test
+    public void read() throws Exception {
+        Log log = new Log( new LogWriter( file, 0, 0, 4096 ), "0000000000" );
+        for (int i = 0; i < 10; i++)
+            log.logAnnouncement( message( i ) );
+        log.close();
+
+        LogReader reader = new LogReader( file );
+        assertEquals( 10, reader.size() );
+        assertEquals( 0, reader.offset( 0 ) );
+
+        for (int i = 0; i < 10; i++) {
+            Message m = reader.readMessage( i );
+            assertEquals( Integer.toString( i ), m.getSequence() );
+            assertEquals( StringExpression.makeString( "datum" + i ), m.getDatum() );
+        }
+
+        ASExpression[] all = reader.readAll( 3 );
+        assertEquals( 10, all.length );
+        assertEquals( reader.read( 7 ), all[7] );
+    }
+
+    // Entries can be found by the pointers to their messages
+    @Test
+    public void find() throws Exception {
+        Log log = new Log( file, "0000000000" );
+        for (int i = 0; i < 5; i++)
+            log.logAnnouncement( message( i ) );
+        log.close();
+
+        LogReader reader = new LogReader( file );
+        assertEquals( 3, reader.find( "test-node", "3" ) );
+        assertEquals( -1, reader.find( "other-node", "3" ) );
+        assertEquals( 2, reader.find( new MessagePointer( message( 2 ) ) ) );
+        assertEquals( -1, reader.find( new MessagePointer( "test-node", "2", StringExpression.makeString( "bogus" ) ) ) );
+    }
+
+    // The sidecar index is only written when asked for, and is then reused
+    @Test
+    public void sidecar() throws Exception {
+        Log log = new Log( file, "0000000000" );
+        for (int i = 0; i < 5; i++)
+            log.logAnnouncement( message( i ) );
+        log.close();
+
+        new LogReader( file );
+        assertFalse( index.exists() );
+
+        LogReader first = new LogReader( file, true );
+        assertTrue( index.exists() );
+
+        LogReader second = new LogReader( file, true );
+        assertEquals( first.size(), second.size() );
+        for (int i = 0; i < first.size(); i++)
+            assertEquals( first.offset( i ), second.offset( i ) );
+        assertEquals( 4, second.find( "test-node", "4" ) );
+        assertEquals( "4", second.readMessage( 4 ).getSequence() );
+    }
+
+    // An entry boundary in the sidecar that doesn't match the log is caught before the entry is used
+    @Test
+    public void staleSidecar() throws Exception {
+        Log log = new Log( file, "0000000000" );
+        for (int i = 0; i < 5; i++)
+            log.logAnnouncement( message( i ) );
+        log.close();
+
+        LogReader first = new LogReader( file, true );
+
+        /* Point entry 2 at the host list nested inside it, which is a '(' that isn't an entry */
+        byte[] bytes = Files.readAllBytes( file.toPath() );
+        long nested = first.offset( 2 ) + 1;
+        while (bytes[(int) nested] != '(')
+            nested++;
+
+        DataInputStream in = new DataInputStream( new FileInputStream( index ) );
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( rewritten );
+        out.writeInt( in.readInt() );
+        out.writeInt( in.readInt() );
+        out.writeLong( in.readLong() );
+        int entries = in.readInt();
+        out.writeInt( entries );
+        out.writeLong( in.readLong() );
+        for (int i = 0; i < entries; i++) {
+            long offset = in.readLong();
+            out.writeLong( i == 2 ? nested : offset );
+            out.writeUTF( in.readUTF() );
+            out.writeUTF( in.readUTF() );
+        }
+        in.close();
+        Files.write( index.toPath(), rewritten.toByteArray() );
+
+        LogReader second = new LogReader( file, true );
+        assertEquals( "0", second.readMessage( 0 ).getSequence() );
+        try {
+            second.read( 2 );
+            fail( "Expected the stale entry to be caught" );
+        }
+        catch (InvalidVerbatimStreamException e) {}
+    }
+
+    // A log that is still being written can be followed
+    @Test
+    public void refresh() throws Exception {
+        Log log = new Log( file, "0000000000" );
+        log.logAnnouncement( message( 0 ) );
+        log.sync();
+
+        LogReader reader = new LogReader( file );
+        assertEquals( 1, reader.size() );
+
+        log.logAnnouncement( message( 1 ) );
+        log.logAnnouncement( message( 2 ) );
+        log.sync();
+
+        assertEquals( 2, reader.refresh() );
+        assertEquals( 3, reader.size() );
+        assertEquals( "2", reader.readMessage( 2 ).getSequence() );
+        log.close();
+    }
+}
@@ -0,0 +1,151 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium.test;
+
+import auditorium.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the LogSegmenter class, and reading its segments back.
+ */
+public class LogSegmenterTest {
+
+    private File base;
+
+    @Before
+    public void setup() throws Exception {
+        base = File.createTempFile( "segments", ".out" );
+        assertTrue( base.delete() );
+    }
+
+    @After
+    public void tear() {
+        for (File f : LogSegmenter.segments( base )) {
+            new File( f.getPath() + ".idx" ).delete();
+            assertTrue( f.delete() );
+        }
+    }
+
+    private static Message message(int i) {
+        return new Message( "announcement", new HostPointer( "node", "ip", 9000 ), Integer.toString( i ),
+                StringExpression.makeString( "datum " + i ) );
+    }
+
+    // Entries are split into segments, each ending in a footer that links to the one before
+    @Test
+    public void rotate() throws Exception {
+        Log log = new Log( new LogSegmenter( base, 300, 0, 0, 0, 0 ), "code" );
+        Message[] messages = new Message[20];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = message( i );
+            assertTrue( log.logAnnouncement( messages[i] ) );
+        }
+        log.close();
+
+        File[] segments = LogSegmenter.segments( base );
+        assertTrue( segments.length > 1 );
+
+        ASExpression previous = StringExpression.makeString( StringExpression.makeString( "code" ).getSHA1() );
+        int entries = 0;
+        for (int i = 0; i < segments.length; i++) {
+            LogReader reader = new LogReader( segments[i] );
+            SegmentFooter footer = reader.getFooter();
+
+            assertNotNull( footer );
+            assertEquals( i, footer.getIndex() );
+            assertEquals( previous, footer.getPrevious() );
+            assertEquals( reader.size(), footer.getCount() );
+            assertEquals( StringExpression.makeString( reader.digest() ), footer.getDigest() );
+
+            /* The footer isn't an entry, and the entries pick up where the last segment left off */
+            for (int j = 0; j < reader.size(); j++)
+                assertEquals( messages[entries + j].getHash(), new MessagePointer( reader.readMessage( j ) ).getHash() );
+
+            entries += reader.size();
+            previous = footer.getLast();
+        }
+
+        assertEquals( messages.length, entries );
+        assertEquals( messages[messages.length - 1].getChainedHash(), previous );
+    }
+
+    // Reopening the log clears out segments from the last run
+    @Test
+    public void stale() throws Exception {
+        Log log = new Log( new LogSegmenter( base, 100, 0, 0, 0, 0 ), "code" );
+        for (int i = 0; i < 10; i++)
+            log.logAnnouncement( message( i ) );
+        log.close();
+        assertTrue( LogSegmenter.segments( base ).length > 2 );
+
+        log = new Log( new LogSegmenter( base, 0, 0, 0, 0, 0 ), "code" );
+        log.logAnnouncement( message( 0 ) );
+        log.close();
+        assertEquals( 1, LogSegmenter.segments( base ).length );
+    }
+
+    // A quiet log is still rotated once its time is up, but an empty segment isn't
+    @Test
+    public void timed() throws Exception {
+        Log log = new Log( new LogSegmenter( base, 0, 50, 0, 0, 0 ), "code" );
+        log.logAnnouncement( message( 0 ) );
+        Thread.sleep( 300 );
+
+        File[] segments = LogSegmenter.segments( base );
+        assertEquals( 2, segments.length );
+        assertNotNull( new LogReader( segments[0] ).getFooter() );
+
+        log.logAnnouncement( message( 1 ) );
+        log.close();
+
+        segments = LogSegmenter.segments( base );
+        assertEquals( 2, segments.length );
+        assertEquals( 1, new LogReader( segments[1] ).size() );
+        assertNotNull( new LogReader( segments[1] ).getFooter() );
+    }
+
+    // Without limits, the log is one file with no footer
+    @Test
+    public void unsegmented() throws Exception {
+        File file = File.createTempFile( "unsegmented", ".out" );
+        Log log = new Log( new LogSegmenter( new LogWriter( file ) ), "code" );
+        log.logAnnouncement( message( 0 ) );
+        log.close();
+
+        LogReader reader = new LogReader( file );
+        assertEquals( 1, reader.size() );
+        assertNull( reader.getFooter() );
+
+        new File( file.getPath() + ".idx" ).delete();
+        assertTrue( file.delete() );
+    }
+}
@@ -68,8 +68,8 @@ public class LogTest {
                 StringExpression.makeString( "test2" ) );
         MessagePointer pointer2 = new MessagePointer( msg2 );
 
-        assertFalse( log.getSetCopyTest().contains( pointer1 ) );
-        assertFalse( log.getSetCopyTest().contains( pointer2 ) );
+        assertFalse( log.haveSeenTest( pointer1 ) );
+        assertFalse( log.haveSeenTest( pointer2 ) );
         assertEquals( 0, log.getLast().length );
 
         log.logAnnouncement( msg1 );
@@ -77,12 +77,12 @@ public class LogTest {
         ArrayList<MessagePointer> last = new ArrayList<>();
         for (MessagePointer p : log.getLastTest())
             last.add( p );
-        assertEquals( 1, log.getSetCopyTest().size() );
+        assertEquals( 1, log.seenCountTest() );
 
         pointer1 = new MessagePointer(msg1);
 
-        assertTrue( log.getSetCopyTest().contains( pointer1 ) );
-        assertFalse( log.getSetCopyTest().contains( pointer2 ) );
+        assertTrue( log.haveSeenTest( pointer1 ) );
+        assertFalse( log.haveSeenTest( pointer2 ) );
         assertEquals( 1, last.size() );
         assertTrue( last.contains( pointer1 ) );
         assertFalse( last.contains( pointer2 ) );
@@ -95,11 +95,13 @@ public class LogTest {
         last = new ArrayList<>();
         for (MessagePointer p : log.getLastTest())
             last.add( p );
-        assertEquals( 2, log.getSetCopyTest().size() );
-        assertTrue( log.getSetCopyTest().contains( pointer1 ) );
-        assertTrue( log.getSetCopyTest().contains( pointer2 ) );
-        assertEquals( 2, last.size() );
-        assertTrue( last.contains( pointer1 ) );
+        assertEquals( 2, log.seenCountTest() );
+        assertTrue( log.haveSeenTest( pointer1 ) );
+        assertTrue( log.haveSeenTest( pointer2 ) );
+
+        /* msg2 is the node's head now, and stands for msg1 */
+        assertEquals( 1, last.size() );
+        assertFalse( last.contains( pointer1 ) );
         assertTrue( last.contains( pointer2 ) );
         assertFalse( log.logAnnouncement( msg1 ) );
         assertFalse( log.logAnnouncement( msg2 ) );
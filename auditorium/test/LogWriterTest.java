@@ -0,0 +1,119 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium.test;
+
+import auditorium.LogWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the LogWriter class.
+ */
+public class LogWriterTest {
+
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = File.createTempFile( "logwriter", ".out" );
+    }
+
+    @After
+    public void tear() {
+        assertTrue( file.delete() );
+    }
+
+    // Entries reach the file as soon as they are appended, in order, whether or not they've been synced
+    @Test
+    public void writeThrough() throws Exception {
+        LogWriter writer = new LogWriter( file, 0, 0, 0 );
+        writer.append( "(3:one)".getBytes() );
+        writer.append( "(3:two)".getBytes() );
+
+        assertEquals( "(3:one)(3:two)", new String( Files.readAllBytes( file.toPath() ) ) );
+        assertEquals( 14, writer.size() );
+        assertEquals( 2, writer.unsynced() );
+
+        writer.sync();
+        assertEquals( 0, writer.unsynced() );
+        writer.close();
+    }
+
+    // The count policy syncs by itself
+    @Test
+    public void syncEvery() throws Exception {
+        LogWriter writer = new LogWriter( file, 2, 0, 0 );
+        writer.append( "a".getBytes() );
+        assertEquals( "a", new String( Files.readAllBytes( file.toPath() ) ) );
+        assertEquals( 1, writer.unsynced() );
+
+        writer.append( "b".getBytes() );
+        assertEquals( "ab", new String( Files.readAllBytes( file.toPath() ) ) );
+        assertEquals( 0, writer.unsynced() );
+        writer.close();
+    }
+
+    // Large entries land in order with the small ones around them
+    @Test
+    public void largeEntry() throws Exception {
+        byte[] big = new byte[200 * 1024];
+        java.util.Arrays.fill( big, (byte) 'x' );
+
+        LogWriter writer = new LogWriter( file, 0, 0, 0 );
+        writer.append( "a".getBytes() );
+        writer.append( big );
+        writer.append( "b".getBytes() );
+        writer.close();
+
+        byte[] read = Files.readAllBytes( file.toPath() );
+        assertEquals( big.length + 2, read.length );
+        assertEquals( (byte) 'a', read[0] );
+        assertEquals( (byte) 'x', read[1] );
+        assertEquals( (byte) 'b', read[read.length - 1] );
+    }
+
+    // Pre-allocated space is there while the log is open, and gone after close
+    @Test
+    public void preallocate() throws Exception {
+        LogWriter writer = new LogWriter( file, 1, 0, 4096 );
+        writer.append( "(3:one)".getBytes() );
+        assertEquals( 4096, file.length() );
+
+        writer.close();
+        assertEquals( "(3:one)", new String( Files.readAllBytes( file.toPath() ) ) );
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void appendAfterClose() throws Exception {
+        LogWriter writer = new LogWriter( file );
+        writer.close();
+        writer.append( "a".getBytes() );
+    }
+}
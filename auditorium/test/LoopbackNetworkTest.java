@@ -0,0 +1,336 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium.test;
+
+import auditorium.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.BindException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the LoopbackNetwork, both on its own and with auditorium hosts
+ * running on it.
+ */
+public class LoopbackNetworkTest {
+
+    private final ArrayList<AuditoriumHost> hosts = new ArrayList<>();
+
+    /** The hosts' logs, and anything written alongside them */
+    private File logs;
+
+    @Before
+    public void setUp() throws Exception {
+        logs = Files.createTempDirectory( "loopback" ).toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (AuditoriumHost host : hosts)
+            host.stop();
+
+        File[] files = logs.listFiles();
+        if (files != null)
+            for (File f : files)
+                assertTrue( f.delete() );
+        assertTrue( logs.delete() );
+    }
+
+    private static Message message(String type, int i) {
+        return new Message( type, new HostPointer( "0", "127.0.0.1", 9700 ), Integer.toString( i ),
+                StringExpression.makeString( "message " + i ) );
+    }
+
+    private String logFor(String id) {
+        return new File( logs, "loopback-" + id + ".out" ).getPath();
+    }
+
+    /**
+     * Connect to a port on the network, and accept the connection.
+     *
+     * @return Both ends of the connection, the connecting end first.
+     */
+    private static IMessageSocket[] connect(LoopbackNetwork network, int port) throws Exception {
+        IMessageServer server = network.listen( port );
+        IMessageSocket mine = network.connect( new HostPointer( "1", "127.0.0.1", port ) );
+        return new IMessageSocket[] { mine, server.accept() };
+    }
+
+    // Messages go both ways, in order, and arrive as they were sent
+    @Test
+    public void deliver() throws Exception {
+        IMessageSocket[] ends = connect( new LoopbackNetwork(), 9700 );
+
+        for (int i = 0; i < 10; i++)
+            ends[0].send( message( "announce", i ) );
+        ends[1].send( message( "join", 10 ) );
+
+        for (int i = 0; i < 10; i++)
+            assertEquals( message( "announce", i ).toASE(), ends[1].receive().toASE() );
+        assertEquals( message( "join", 10 ).toASE(), ends[0].receive().toASE() );
+    }
+
+    @Test
+    public void latency() throws Exception {
+        IMessageSocket[] ends = connect( new LoopbackNetwork( 100, 0, 0, 0 ), 9700 );
+
+        long start = System.currentTimeMillis();
+        ends[0].send( message( "announce", 0 ) );
+        ends[0].send( message( "announce", 1 ) );
+        ends[1].receive();
+        ends[1].receive();
+
+        /* Both were in flight at once */
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue( elapsed >= 100 );
+        assertTrue( elapsed < 190 );
+    }
+
+    @Test
+    public void bandwidth() throws Exception {
+        IMessageSocket[] ends = connect( new LoopbackNetwork( 0, 10000, 0, 0 ), 9700 );
+        Message m = message( "announce", 0 );
+        int bytes = m.toASE().toVerbatim().length;
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++)
+            ends[0].send( m );
+        for (int i = 0; i < 10; i++)
+            ends[1].receive();
+
+        /* The messages queue up behind one another */
+        assertTrue( System.currentTimeMillis() - start >= 10 * bytes * 1000 / 10000 - 10 );
+    }
+
+    // Only announcements are lost
+    @Test
+    public void loss() throws Exception {
+        IMessageSocket[] ends = connect( new LoopbackNetwork( 0, 0, 1, 0 ), 9700 );
+
+        for (int i = 0; i < 10; i++)
+            ends[0].send( message( "announce", i ) );
+        ends[0].send( message( "join", 10 ) );
+
+        assertEquals( message( "join", 10 ).toASE(), ends[1].receive().toASE() );
+    }
+
+    @Test
+    public void partialLoss() throws Exception {
+        IMessageSocket[] ends = connect( new LoopbackNetwork( 0, 0, 0.5, 0 ), 9700 );
+
+        for (int i = 0; i < 100; i++)
+            ends[0].send( message( "announce", i ) );
+        ends[0].close();
+
+        int received = 0;
+        while (ends[1].receive() != null)
+            received++;
+        assertTrue( received > 20 );
+        assertTrue( received < 80 );
+    }
+
+    // What was sent before the other end closed still arrives, and then the stream ends
+    @Test
+    public void close() throws Exception {
+        IMessageSocket[] ends = connect( new LoopbackNetwork(), 9700 );
+
+        ends[0].send( message( "announce", 0 ) );
+        ends[0].close();
+
+        assertNotNull( ends[1].receive() );
+        assertNull( ends[1].receive() );
+        assertNull( ends[0].receive() );
+
+        try {
+            ends[1].send( message( "announce", 1 ) );
+            fail( "Sent on a closed connection" );
+        }
+        catch (NetworkException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void ports() throws Exception {
+        LoopbackNetwork network = new LoopbackNetwork();
+        HostPointer address = new HostPointer( "1", "127.0.0.1", 9700 );
+
+        try {
+            network.connect( address );
+            fail( "Connected to a port nothing was listening on" );
+        }
+        catch (NetworkException e) {
+            /* expected */
+        }
+
+        IMessageServer server = network.listen( 9700 );
+        try {
+            network.listen( 9700 );
+            fail( "Listened on a port twice" );
+        }
+        catch (BindException e) {
+            /* expected */
+        }
+
+        /* A connection that was never accepted is closed along with the server */
+        IMessageSocket pending = network.connect( address );
+        server.close();
+        assertNull( pending.receive() );
+        try {
+            server.accept();
+            fail( "Accepted on a closed server" );
+        }
+        catch (IOException e) {
+            /* expected */
+        }
+
+        /* And the port is free again */
+        network.listen( 9700 ).close();
+    }
+
+    /**
+     * Start a host on the network, listening on 9700 plus its number.
+     */
+    private AuditoriumHost startHost(LoopbackNetwork network, int i) throws Exception {
+        return startHost( network, i, Link.DEFAULT_QUEUE_CAPACITY, AuditoriumHost.DEFAULT_CATCH_UP_BATCH );
+    }
+
+    /**
+     * Start a host on the network, listening on 9700 plus its number, with
+     * the given link queue capacity and catch-up batch size.
+     */
+    private AuditoriumHost startHost(LoopbackNetwork network, int i, final int capacity, final int batch) throws Exception {
+        final int port = 9700 + i;
+        final String log = logFor( Integer.toString( i ) );
+        AuditoriumHost host = new AuditoriumHost( Integer.toString( i ), new TestParams() {
+
+            @Override
+            public int getListenPort() {
+                return port;
+            }
+
+            @Override
+            public String getLogLocation() {
+                return log;
+            }
+
+            @Override
+            public int getLinkQueueCapacity() {
+                return capacity;
+            }
+
+            @Override
+            public int getCatchUpBatch() {
+                return batch;
+            }
+
+        }, "0000000000", network );
+        host.start();
+        hosts.add( host );
+        return host;
+    }
+
+    // Hosts on the network find and join one another, and announcements reach every host
+    @Test(timeout = 30000)
+    public void hosts() throws Exception {
+        LoopbackNetwork network = new LoopbackNetwork( 5, 0, 0, 0 );
+        for (int i = 0; i < 3; i++)
+            startHost( network, i );
+
+        /* Each host joins the ones started before it */
+        for (AuditoriumHost host : hosts) {
+            HostPointer[] found = host.discover();
+            assertEquals( 2, found.length );
+
+            for (HostPointer p : found)
+                if (p.getPort() < host.getMe().getPort())
+                    host.join( p );
+        }
+
+        ASExpression announcement = StringExpression.makeString( "hello" );
+        hosts.get( 0 ).announce( announcement );
+
+        for (AuditoriumHost host : hosts) {
+            AuditoriumHost.Pair received = host.listen();
+            assertEquals( announcement, received.message );
+            assertEquals( hosts.get( 0 ).getMe(), received.from );
+        }
+    }
+
+    // A host that joins late is sent what was announced before it joined, read back from the other's log, and logs
+    // it without handing it to its application
+    @Test(timeout = 30000)
+    public void catchUp() throws Exception {
+        LoopbackNetwork network = new LoopbackNetwork();
+        AuditoriumHost first = startHost( network, 0 );
+
+        ASExpression before = StringExpression.makeString( "before" );
+        first.announce( before );
+        assertEquals( before, first.listen().message );
+
+        AuditoriumHost late = startHost( network, 1 );
+        late.join( first.getMe() );
+
+        while (late.getLog().seenCountTest() < first.getLog().seenCountTest())
+            Thread.sleep( 10 );
+
+        ASExpression after = StringExpression.makeString( "after" );
+        first.announce( after );
+
+        AuditoriumHost.Pair received = late.listen();
+        assertEquals( after, received.message );
+        assertEquals( first.getMe(), received.from );
+    }
+
+    // A catch-up that takes many more sync-replies than the sender's link queue holds still arrives whole, and leaves
+    // room for what is announced meanwhile
+    @Test(timeout = 30000)
+    public void catchUpLargerThanQueue() throws Exception {
+        LoopbackNetwork network = new LoopbackNetwork();
+        AuditoriumHost first = startHost( network, 0, 4, 1 );
+
+        for (int i = 0; i < 100; i++) {
+            first.announce( StringExpression.makeString( "before " + i ) );
+            first.listen();
+        }
+
+        AuditoriumHost late = startHost( network, 1 );
+        late.join( first.getMe() );
+
+        ASExpression after = StringExpression.makeString( "after" );
+        first.announce( after );
+        assertEquals( after, late.listen().message );
+
+        while (late.getLog().seenCountTest() < first.getLog().seenCountTest())
+            Thread.sleep( 10 );
+    }
+}
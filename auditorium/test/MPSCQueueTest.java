@@ -0,0 +1,177 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium.test;
+
+import auditorium.MPSCQueue;
+import auditorium.ReleasedQueueException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the MPSCQueue class.
+ */
+public class MPSCQueueTest {
+
+    // ** push/pop tests **
+    @Test
+    public void fifo() throws Exception {
+        MPSCQueue<Integer> queue = new MPSCQueue<>();
+        for (int i = 0; i < 10; i++)
+            assertTrue( queue.push( i ) );
+
+        assertEquals( 10, queue.size() );
+        for (int i = 0; i < 10; i++)
+            assertEquals( Integer.valueOf( i ), queue.pop() );
+        assertEquals( 0, queue.size() );
+    }
+
+    @Test
+    public void popBlocks() throws Exception {
+        final MPSCQueue<String> queue = new MPSCQueue<>();
+
+        new Thread( new Runnable() {
+
+            public void run() {
+                try {
+                    Thread.sleep( 100 );
+                }
+                catch (InterruptedException ignored) {}
+                queue.push( "late" );
+            }
+        } ).start();
+
+        assertEquals( "late", queue.pop() );
+    }
+
+    // ** drain tests **
+    @Test
+    public void drain() throws Exception {
+        MPSCQueue<Integer> queue = new MPSCQueue<>();
+        for (int i = 0; i < 5; i++)
+            queue.push( i );
+
+        ArrayList<Integer> batch = new ArrayList<>();
+        assertEquals( 3, queue.drain( batch, 3 ) );
+        assertEquals( 3, batch.size() );
+        assertEquals( Integer.valueOf( 0 ), batch.get( 0 ) );
+        assertEquals( Integer.valueOf( 2 ), batch.get( 2 ) );
+
+        batch.clear();
+        assertEquals( 2, queue.drain( batch, 100 ) );
+        assertEquals( Integer.valueOf( 4 ), batch.get( 1 ) );
+        assertEquals( 0, queue.size() );
+    }
+
+    // A window keeps taking elements that arrive late, and stops once it has passed
+    @Test
+    public void drainWindow() throws Exception {
+        final MPSCQueue<Integer> queue = new MPSCQueue<>();
+        queue.push( 0 );
+
+        new Thread( new Runnable() {
+
+            public void run() {
+                try {
+                    Thread.sleep( 50 );
+                }
+                catch (InterruptedException ignored) {}
+                queue.push( 1 );
+            }
+        } ).start();
+
+        ArrayList<Integer> batch = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        assertEquals( 2, queue.drain( batch, 10, 500 ) );
+        assertTrue( System.currentTimeMillis() - start >= 500 );
+        assertEquals( Integer.valueOf( 1 ), batch.get( 1 ) );
+
+        /* A full batch doesn't wait out the window */
+        batch.clear();
+        for (int i = 0; i < 3; i++)
+            queue.push( i );
+        start = System.currentTimeMillis();
+        assertEquals( 3, queue.drain( batch, 3, 5000 ) );
+        assertTrue( System.currentTimeMillis() - start < 5000 );
+    }
+
+    @Test
+    public void manyProducers() throws Exception {
+        final MPSCQueue<Integer> queue = new MPSCQueue<>();
+        final int producers = 8;
+        final int each = 1000;
+
+        for (int p = 0; p < producers; p++) {
+            final int base = p * each;
+            new Thread( new Runnable() {
+
+                public void run() {
+                    for (int i = 0; i < each; i++)
+                        queue.push( base + i );
+                }
+            } ).start();
+        }
+
+        HashSet<Integer> seen = new HashSet<>();
+        ArrayList<Integer> batch = new ArrayList<>();
+        while (seen.size() < producers * each) {
+            queue.drain( batch, 64 );
+            seen.addAll( batch );
+            batch.clear();
+        }
+
+        assertEquals( producers * each, seen.size() );
+        assertEquals( 0, queue.size() );
+    }
+
+    // ** releaseThreads tests **
+    @Test(expected = ReleasedQueueException.class)
+    public void releaseEmpty() throws Exception {
+        final MPSCQueue<String> queue = new MPSCQueue<>();
+
+        new Thread( new Runnable() {
+
+            public void run() {
+                try {
+                    Thread.sleep( 100 );
+                }
+                catch (InterruptedException ignored) {}
+                queue.releaseThreads();
+            }
+        } ).start();
+
+        queue.pop();
+    }
+
+    @Test(expected = ReleasedQueueException.class)
+    public void releaseNonEmpty() throws Exception {
+        MPSCQueue<String> queue = new MPSCQueue<>();
+        queue.push( "never seen" );
+        queue.releaseThreads();
+        queue.drain( new ArrayList<String>(), 10 );
+    }
+}
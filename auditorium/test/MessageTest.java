@@ -26,12 +26,17 @@ import auditorium.HostPointer;
 import auditorium.IncorrectFormatException;
 import auditorium.Message;
 import org.junit.Test;
+import sexpression.ASExpression;
 import sexpression.ListExpression;
 import sexpression.NoMatch;
 import sexpression.Nothing;
 import sexpression.StringExpression;
 
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * JUnit test of the auditorium.Message class.
@@ -199,4 +204,59 @@ public class MessageTest {
         assertEquals( StringExpression.makeString( message.toASE().getSHA1() ),
             message.getHash() );
     }
+
+    @Test
+    public void testVerbatimWithHash() throws Exception {
+        Message message = new Message( "type",
+                new HostPointer( "id", "ip", 1 ), "TEST", new ListExpression( "a", "b" ) );
+        message.chain( StringExpression.makeString( "previous" ) );
+
+        assertArrayEquals( message.toASEWithHash().toVerbatim(), message.toVerbatimWithHash() );
+    }
+
+    @Test
+    public void testReceivedBytesKept() throws Exception {
+        Message sent = new Message( "type",
+                new HostPointer( "id", "ip", 1 ), "TEST", new ListExpression( "a", "b" ) );
+        byte[] wire = sent.toASE().toVerbatim();
+
+        /* A message decoded from canonical bytes is written and hashed from those same bytes */
+        Message received = new Message( ASExpression.makeCanonical( wire ) );
+        assertSame( wire, received.toASE().toVerbatim() );
+        assertEquals( sent.getHash(), received.getHash() );
+    }
+
+    // ** unbatched() **
+    @Test
+    public void testUnbatched() throws Exception {
+        ASExpression preds = new ListExpression( new ListExpression( "ptr", "id", "1", "hash" ) );
+        Message batch = new Message( "announce", new HostPointer( "id", "ip", 1 ), "2",
+                new ListExpression( StringExpression.makeString( "signed-message" ), StringExpression.makeString( "cert" ),
+                        new ListExpression( StringExpression.makeString( "signature" ), StringExpression.makeString( "id" ),
+                                StringExpression.makeString( "sig" ),
+                                new ListExpression( StringExpression.makeString( "succeeds" ), preds,
+                                        new ListExpression( StringExpression.makeString( "announcement-batch" ),
+                                                new ListExpression( new ListExpression( "a" ), new ListExpression( "b" ) ) ) ) ) ) );
+
+        List<Message> announcements = batch.unbatched();
+        assertEquals( 2, announcements.size() );
+        assertEquals( "(signed-message cert (signature id sig (succeeds ((ptr id 1 hash)) (a))))",
+                announcements.get( 0 ).getDatum().toString() );
+        assertEquals( "(signed-message cert (signature id sig (succeeds ((ptr id 1 hash)) (b))))",
+                announcements.get( 1 ).getDatum().toString() );
+        for (Message announcement : announcements) {
+            assertEquals( batch.getFrom(), announcement.getFrom() );
+            assertEquals( batch.getSequence(), announcement.getSequence() );
+        }
+    }
+
+    @Test
+    public void testUnbatchedSingle() throws Exception {
+        Message message = new Message( "type",
+                new HostPointer( "id", "ip", 1 ), "TEST", new ListExpression( "a", "b" ) );
+
+        List<Message> announcements = message.unbatched();
+        assertEquals( 1, announcements.size() );
+        assertSame( message, announcements.get( 0 ) );
+    }
 }
@@ -0,0 +1,104 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium.test;
+
+import auditorium.Metrics;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Metrics class.
+ */
+public class MetricsTest {
+
+    @Test
+    public void counter() {
+        Metrics metrics = new Metrics();
+        metrics.counter( "a" ).inc();
+        metrics.counter( "a" ).inc();
+
+        assertEquals( 2, metrics.counter( "a" ).get() );
+        assertEquals( Long.valueOf( 2 ), metrics.snapshot().get( "a" ) );
+    }
+
+    @Test
+    public void timer() {
+        Metrics.Timer timer = new Metrics().timer( "t" );
+        for (int i = 0; i < 99; i++)
+            timer.record( 1000 );
+        timer.record( 1000000 );
+
+        assertEquals( 100, timer.count() );
+        assertEquals( 1000000, timer.max() );
+        assertEquals( (99 * 1000 + 1000000) / 100, timer.mean() );
+
+        /* Within a factor of two */
+        assertTrue( timer.percentile( 0.5 ) >= 1000 && timer.percentile( 0.5 ) < 2048 );
+        assertTrue( timer.percentile( 0.99 ) < 2048 );
+        assertEquals( 1000000, timer.percentile( 1 ) );
+    }
+
+    @Test
+    public void snapshot() {
+        Metrics metrics = new Metrics();
+        metrics.timer( "host.a.t" ).record( 10 );
+        metrics.gauge( "host.a.g", new Metrics.Gauge() {
+
+            public long value() {
+                return 7;
+            }
+
+        } );
+        metrics.counter( "host.b.c" ).inc();
+
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertEquals( Long.valueOf( 7 ), snapshot.get( "host.a.g" ) );
+        assertEquals( Long.valueOf( 1 ), snapshot.get( "host.a.t.count" ) );
+        assertEquals( Long.valueOf( 10 ), snapshot.get( "host.a.t.max" ) );
+
+        /* Removing a host's metrics leaves the others */
+        metrics.remove( "host.a." );
+        assertEquals( 1, metrics.snapshot().size() );
+        assertTrue( metrics.snapshot().containsKey( "host.b.c" ) );
+    }
+
+    @Test
+    public void jmx() throws Exception {
+        Metrics.SINGLETON.counter( "test.jmx" ).inc();
+        Metrics.SINGLETON.register();
+        Metrics.SINGLETON.register();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName( Metrics.OBJECT_NAME );
+        assertTrue( server.isRegistered( name ) );
+        assertEquals( Metrics.SINGLETON.counter( "test.jmx" ).get(), server.getAttribute( name, "test.jmx" ) );
+
+        Metrics.SINGLETON.remove( "test." );
+    }
+}
@@ -0,0 +1,110 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+
+package auditorium.test;
+
+import auditorium.HostPointer;
+import auditorium.PeerCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the PeerCache class.
+ */
+public class PeerCacheTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile( "peers", ".out" );
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void empty() {
+        assertEquals( 0, new PeerCache( file ).get().length );
+        assertEquals( 0, new PeerCache( null ).get().length );
+    }
+
+    @Test
+    public void reload() {
+        PeerCache cache = new PeerCache( file );
+        cache.remember( new HostPointer( "1", "10.0.0.1", 9700 ) );
+        cache.remember( new HostPointer( "2", "10.0.0.2", 9700 ) );
+        cache.remember( new HostPointer( "1", "10.0.0.1", 9700 ) );
+
+        /* Most recent first, without duplicates */
+        HostPointer[] expected = { new HostPointer( "1", "10.0.0.1", 9700 ), new HostPointer( "2", "10.0.0.2", 9700 ) };
+        assertArrayEquals( expected, cache.get() );
+
+        /* A new cache (after a reboot) sees the same hosts, in the order they were saved */
+        assertArrayEquals( expected, new PeerCache( file ).get() );
+    }
+
+    @Test
+    public void forget() {
+        PeerCache cache = new PeerCache( file );
+        cache.remember( new HostPointer( "1", "10.0.0.1", 9700 ) );
+        cache.remember( new HostPointer( "2", "10.0.0.2", 9700 ) );
+        cache.forget( new HostPointer( "1", "10.0.0.1", 9700 ) );
+
+        assertArrayEquals( new HostPointer[] { new HostPointer( "2", "10.0.0.2", 9700 ) }, new PeerCache( file ).get() );
+    }
+
+    @Test
+    public void bounded() {
+        PeerCache cache = new PeerCache( null );
+        for (int i = 0; i < PeerCache.MAX_PEERS + 10; i++)
+            cache.remember( new HostPointer( Integer.toString( i ), "10.0.0.1", 9700 + i ) );
+
+        HostPointer[] peers = cache.get();
+        assertEquals( PeerCache.MAX_PEERS, peers.length );
+        assertEquals( Integer.toString( PeerCache.MAX_PEERS + 9 ), peers[0].getNodeId() );
+    }
+
+    @Test
+    public void corrupt() throws Exception {
+        FileOutputStream out = new FileOutputStream( file );
+        out.write( "not an s-expression".getBytes() );
+        out.close();
+
+        PeerCache cache = new PeerCache( file );
+        assertEquals( 0, cache.get().length );
+
+        /* It recovers by writing a good cache over the bad one */
+        cache.remember( new HostPointer( "1", "10.0.0.1", 9700 ) );
+        assertEquals( 1, new PeerCache( file ).get().length );
+    }
+}
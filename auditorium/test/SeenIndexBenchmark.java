@@ -0,0 +1,96 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium.test;
+
+import auditorium.MessagePointer;
+import auditorium.SeenIndex;
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+
+import java.util.HashSet;
+
+/**
+ * Measures how much heap the log's duplicate index holds on to per million
+ * messages, compared with the HashSet of MessagePointers it replaced. Run it
+ * with a fixed heap, e.g. java -Xmx1g auditorium.test.SeenIndexBenchmark.
+ */
+public class SeenIndexBenchmark {
+
+    /**
+     * @param args ([messages] [nodes])
+     */
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt( args[0] ) : 1000000;
+        int nodes = args.length > 1 ? Integer.parseInt( args[1] ) : 20;
+
+        SeenIndex index = new SeenIndex();
+        for (int i = 0; i < messages; i++)
+            index.add( pointer( i, nodes ) );
+        long with = used();
+        long footprint = index.footprint();
+        index = null;
+        report( "SeenIndex", messages, with - used() );
+        System.err.println( "    (reported footprint " + (footprint / 1024) + " KB)" );
+
+        HashSet<MessagePointer> set = new HashSet<>();
+        for (int i = 0; i < messages; i++)
+            set.add( pointer( i, nodes ) );
+        with = used();
+        set = null;
+        report( "HashSet<MessagePointer>", messages, with - used() );
+    }
+
+    /**
+     * Make a pointer to the i-th message, sent round-robin by the given number of nodes.
+     */
+    private static MessagePointer pointer(int i, int nodes) {
+        String node = Integer.toString( i % nodes );
+        String sequence = Integer.toString( i / nodes );
+        byte[] hash = ASExpression.computeSHA1( (node + ":" + sequence).getBytes() );
+        return new MessagePointer( node, sequence, StringExpression.makeString( hash ) );
+    }
+
+    /**
+     * @return The heap in use after a few rounds of garbage collection. The
+     *         heap held by a structure is the difference between this before
+     *         and after it is dropped.
+     */
+    private static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep( 100 );
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String name, int messages, long bytes) {
+        System.err.println( name + ": " + (bytes / 1024) + " KB retained for " + messages
+                + " messages, " + (bytes * 1000000L / messages / 1024) + " KB per million" );
+    }
+}
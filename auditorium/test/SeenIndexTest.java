@@ -0,0 +1,181 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium.test;
+
+import auditorium.MessagePointer;
+import auditorium.SeenIndex;
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.StringExpression;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the SeenIndex class.
+ */
+public class SeenIndexTest {
+
+    private static MessagePointer pointer(String node, String sequence, String body) {
+        return new MessagePointer( node, sequence, StringExpression.makeString(
+                ASExpression.computeSHA1( (node + sequence + body).getBytes() ) ) );
+    }
+
+    // A message is new once, then a duplicate
+    @Test
+    public void addOnce() {
+        SeenIndex index = new SeenIndex( 8 );
+        MessagePointer p = pointer( "a", "0", "x" );
+
+        assertFalse( index.contains( p ) );
+        assertTrue( index.add( p ) );
+        assertTrue( index.contains( p ) );
+        assertFalse( index.add( pointer( "a", "0", "x" ) ) );
+        assertEquals( 1, index.size() );
+    }
+
+    // The same sequence from different nodes, or with different contents, are different messages
+    @Test
+    public void distinct() {
+        SeenIndex index = new SeenIndex( 8 );
+
+        assertTrue( index.add( pointer( "a", "0", "x" ) ) );
+        assertTrue( index.add( pointer( "b", "0", "x" ) ) );
+        assertTrue( index.add( pointer( "a", "0", "y" ) ) );
+        assertTrue( index.contains( pointer( "a", "0", "x" ) ) );
+        assertTrue( index.contains( pointer( "a", "0", "y" ) ) );
+        assertFalse( index.add( pointer( "a", "0", "x" ) ) );
+        assertFalse( index.add( pointer( "a", "0", "y" ) ) );
+        assertEquals( 3, index.size() );
+    }
+
+    // Duplicates arriving out of order, but inside the window, are caught
+    @Test
+    public void outOfOrder() {
+        SeenIndex index = new SeenIndex( 8 );
+
+        for (int i = 7; i >= 0; i--)
+            assertTrue( index.add( pointer( "a", Integer.toString( i ), "x" ) ) );
+
+        for (int i = 0; i < 8; i++)
+            assertFalse( index.add( pointer( "a", Integer.toString( i ), "x" ) ) );
+
+        assertEquals( 8, index.size() );
+    }
+
+    // The memory used by a node doesn't grow with the number of messages it sends
+    @Test
+    public void bounded() {
+        SeenIndex index = new SeenIndex( 16 );
+        index.add( pointer( "a", "0", "x" ) );
+        long footprint = index.footprint();
+
+        for (int i = 1; i < 1000; i++)
+            assertTrue( index.add( pointer( "a", Integer.toString( i ), "x" ) ) );
+
+        assertEquals( footprint, index.footprint() );
+        assertEquals( 1000, index.size() );
+        assertFalse( index.add( pointer( "a", "999", "x" ) ) );
+        assertTrue( index.contains( pointer( "a", "0", "x" ) ) );
+    }
+
+    // Replaying messages that have fallen out of the window doesn't log them again
+    @Test
+    public void replayBelowWindow() {
+        SeenIndex index = new SeenIndex( 8 );
+
+        for (int i = 1; i <= 20; i++)
+            assertTrue( index.add( pointer( "a", Integer.toString( i ), "x" ) ) );
+
+        for (int i = 1; i <= 20; i++) {
+            assertTrue( index.contains( pointer( "a", Integer.toString( i ), "x" ) ) );
+            assertFalse( index.add( pointer( "a", Integer.toString( i ), "x" ) ) );
+        }
+
+        assertEquals( 20, index.size() );
+    }
+
+    // Gaps are remembered exactly until they are filled, in any order
+    @Test
+    public void gaps() {
+        SeenIndex index = new SeenIndex( 8 );
+
+        for (int i = 0; i < 100; i += 2)
+            assertTrue( index.add( pointer( "a", Integer.toString( i ), "x" ) ) );
+
+        for (int i = 1; i < 100; i += 2)
+            assertFalse( index.contains( pointer( "a", Integer.toString( i ), "x" ) ) );
+
+        for (int i = 99; i > 0; i -= 2)
+            assertTrue( index.add( pointer( "a", Integer.toString( i ), "x" ) ) );
+
+        for (int i = 0; i < 100; i++)
+            assertFalse( index.add( pointer( "a", Integer.toString( i ), "x" ) ) );
+
+        assertEquals( 100, index.size() );
+    }
+
+    // A restarted node counts from a new starting point, which is tracked as its own run
+    @Test
+    public void restart() {
+        SeenIndex index = new SeenIndex( 16 );
+
+        for (int i = 0; i < 100; i++)
+            index.add( pointer( "a", Integer.toString( i ), "x" ) );
+        long footprint = index.footprint();
+
+        for (int i = 0; i < 100; i++)
+            assertTrue( index.add( pointer( "a", Integer.toString( 1000000 + i ), "rebooted" ) ) );
+
+        assertEquals( footprint, index.footprint() );
+        assertFalse( index.add( pointer( "a", "5", "x" ) ) );
+        assertFalse( index.add( pointer( "a", "1000005", "rebooted" ) ) );
+        assertEquals( 200, index.size() );
+    }
+
+    // Sequences that aren't numbers are still remembered exactly
+    @Test
+    public void nonNumeric() {
+        SeenIndex index = new SeenIndex( 4 );
+
+        for (int i = 0; i < 100; i++)
+            assertTrue( index.add( pointer( "a", "seq" + i, "x" ) ) );
+
+        for (int i = 0; i < 100; i++)
+            assertFalse( index.add( pointer( "a", "seq" + i, "x" ) ) );
+
+        assertEquals( 100, index.size() );
+        assertFalse( index.contains( pointer( "a", "seq100", "x" ) ) );
+    }
+
+    // Hashes that aren't SHA-1 digests can still be indexed
+    @Test
+    public void oddHash() {
+        SeenIndex index = new SeenIndex( 4 );
+        MessagePointer p = new MessagePointer( "a", "0", StringExpression.makeString( "short" ) );
+
+        assertTrue( index.add( p ) );
+        assertFalse( index.add( p ) );
+        assertTrue( index.add( MessagePointer.NULL ) );
+        assertFalse( index.add( MessagePointer.NULL ) );
+    }
+}
@@ -0,0 +1,184 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package auditorium.test;
+
+import auditorium.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.StringExpression;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the SelectorTransport, by running a link over it to a plain
+ * blocking socket.
+ */
+public class SelectorTransportTest {
+
+    private SynchronizedQueue<Message> received;
+    private SynchronizedQueue<Link> links;
+
+    private SelectorTransport transport;
+    private IMessageServer server;
+    // The other end of the link
+    private volatile IMessageSocket peer;
+    private Link link;
+
+    private IAuditoriumHost host = new IAuditoriumHost() {
+
+        public ASExpression getAddresses() {
+            throw new RuntimeException( "unused" );
+        }
+
+        public Log getLog() {
+            throw new RuntimeException( "unused" );
+        }
+
+        public HostPointer getMe() {
+            throw new RuntimeException( "unused" );
+        }
+
+        public String getNodeId() {
+            throw new RuntimeException( "unused" );
+        }
+
+        public void receiveAnnouncement(Message message) {
+            received.push( message );
+        }
+
+        public void removeLink(Link link) {
+            links.push( link );
+        }
+
+        public String nextSequence() {
+            throw new RuntimeException( "unused" );
+        }
+    };
+
+    @Before
+    public void setup() throws Exception {
+        received = new SynchronizedQueue<>();
+        links = new SynchronizedQueue<>();
+        transport = new SelectorTransport( 1 );
+        server = transport.listen( 9100 );
+
+        Thread accept = new Thread( new Runnable() {
+
+            public void run() {
+                try {
+                    peer = server.accept();
+                }
+                catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        } );
+        accept.start();
+
+        HostPointer hp = new HostPointer( "", "127.0.0.1", 9100 );
+        link = new Link( host, transport.connect( hp, 2000 ), hp, 16, Link.OverflowPolicy.BLOCK, 2000, transport );
+        link.start();
+        accept.join();
+        assertNotNull( peer );
+    }
+
+    @After
+    public void tear() throws Exception {
+        link.stop();
+        peer.close();
+        server.close();
+        transport.shutdown();
+    }
+
+    private static Message message(int i) {
+        return new Message( "announce", new HostPointer( "peer", "127.0.0.1", 9100 ), Integer.toString( i ),
+                new ListExpression( StringExpression.makeString( "data" ), StringExpression.makeString( new byte[i * 100] ) ) );
+    }
+
+    // Messages written by the peer come out of the link, in order
+    @Test
+    public void receive() throws Exception {
+        for (int i = 0; i < 50; i++)
+            peer.send( message( i ) );
+
+        for (int i = 0; i < 50; i++)
+            assertEquals( message( i ).toASE(), received.pop().toASE() );
+    }
+
+    // Messages sent on the link reach the peer, in order, even when they don't fit in one buffer
+    @Test
+    public void send() throws Exception {
+        for (int i = 0; i < 1000; i += 20)
+            assertTrue( link.send( message( i ) ) );
+
+        for (int i = 0; i < 1000; i += 20)
+            assertEquals( message( i ).toASE(), peer.receive().toASE() );
+    }
+
+    // Messages the socket read ahead of the last one it received, whole or in part, reach the link once it is started
+    @Test(timeout = 10000)
+    public void readAhead() throws Exception {
+        final IMessageSocket[] accepted = new IMessageSocket[1];
+        Thread accept = new Thread( new Runnable() {
+
+            public void run() {
+                try {
+                    accepted[0] = server.accept();
+                }
+                catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        } );
+        accept.start();
+
+        HostPointer hp = new HostPointer( "", "127.0.0.1", 9100 );
+        IMessageSocket socket = transport.connect( hp, 2000 );
+        accept.join();
+
+        /* The first message stands in for a join-reply; the last is longer than one read */
+        accepted[0].send( message( 0 ) );
+        accepted[0].send( message( 1 ) );
+        accepted[0].send( message( 100 ) );
+        Thread.sleep( 100 );
+        assertEquals( message( 0 ).toASE(), socket.receive().toASE() );
+
+        Link second = new Link( host, socket, hp, 16, Link.OverflowPolicy.BLOCK, 2000, transport );
+        second.start();
+        assertEquals( message( 1 ).toASE(), received.pop().toASE() );
+        assertEquals( message( 100 ).toASE(), received.pop().toASE() );
+
+        second.stop();
+        accepted[0].close();
+    }
+
+    // When the peer goes away, the link is removed from the host
+    @Test
+    public void closed() throws Exception {
+        peer.close();
+        assertSame( link, links.pop() );
+    }
+}
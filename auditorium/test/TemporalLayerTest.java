@@ -142,13 +142,12 @@ public class TemporalLayerTest {
     @Test
     public void testMakeAnnouncement8() throws Exception {
 
-        MessagePointer mp1 = new MessagePointer(m1);
         MessagePointer mp2 = new MessagePointer(m2);
         log.logAnnouncement( m1 );
         log.logAnnouncement( m2 );
 
-        assertEquals( new ListExpression( mp1.toASE(),
-                mp2.toASE() ),
+        /* Only the node's head is referenced; it succeeds m1 already */
+        assertEquals( new ListExpression( mp2.toASE() ),
             testMakeAnnouncement( ListExpression.EMPTY ) );
     }
 
@@ -176,14 +175,12 @@ public class TemporalLayerTest {
 
     @Test
     public void testMakeJoin14() throws Exception {
-        MessagePointer mp1 = new MessagePointer(m1);
         MessagePointer mp2 = new MessagePointer(m2);
 
         log.logAnnouncement( m1 );
         log.logAnnouncement( m2 );
 
-        assertEquals( new ListExpression( mp1.toASE(),
-                mp2.toASE() ), layer.makeJoinReply(StringExpression.EMPTY) );
+        assertEquals( new ListExpression( mp2.toASE() ), layer.makeJoinReply(StringExpression.EMPTY) );
     }
 
     // ** receiveAnnouncement(ASExpression) tests **
@@ -294,12 +291,13 @@ public class TemporalLayerTest {
         MessagePointer mp1 = new MessagePointer(m1);
         MessagePointer mp2 = new MessagePointer(m2);
 
+        /* m2 is a later message from the same node, so it replaces m1 as the head */
         log.logAnnouncement( m1 );
         log.logAnnouncement( m2 );
-        assertEquals( 2, log.getLastTest().size() );
-        assertEquals( mp1, log.getLastTest().get( 0 ) );
-        assertEquals( mp2, log.getLastTest().get( 1 ) );
+        assertEquals( 1, log.getLastTest().size() );
+        assertEquals( mp2, log.getLastTest().get( 0 ) );
 
+        /* Referencing the older message doesn't cover the head */
         layer.receiveAnnouncement( new ListExpression( StringExpression.makeString(
                 "succeeds" ), new ListExpression(mp1.toASE() ), StringExpression.makeString( "TEST DATUM" ) ) );
 
@@ -307,6 +305,29 @@ public class TemporalLayerTest {
         assertEquals(mp2, log.getLastTest().get( 0 ) );
     }
 
+    @Test
+    public void testReceiveAnnouncement14() throws Exception {
+        Message other = new Message( "announcement", new HostPointer( "other-node", "192.168.1.101", 9000 ), "1",
+                StringExpression.makeString( "msg" ) );
+        MessagePointer mp1 = new MessagePointer(m1);
+        MessagePointer mp2 = new MessagePointer(m2);
+        MessagePointer mpOther = new MessagePointer(other);
+
+        /* One head per node */
+        log.logAnnouncement( m1 );
+        log.logAnnouncement( other );
+        assertEquals( 2, log.getLastTest().size() );
+        assertEquals( mp1, log.getLastTest().get( 0 ) );
+        assertEquals( mpOther, log.getLastTest().get( 1 ) );
+
+        /* A reference to a later message from a node covers that node's head */
+        layer.receiveAnnouncement( new ListExpression( StringExpression.makeString(
+                "succeeds" ), new ListExpression(mp2.toASE() ), StringExpression.makeString( "TEST DATUM" ) ) );
+
+        assertEquals( 1, log.getLastTest().size() );
+        assertEquals( mpOther, log.getLastTest().get( 0 ) );
+    }
+
     // ** receiveJoinReply(ASExpression) tests **
     // Junk
     @Test(expected = IncorrectFormatException.class)
@@ -378,8 +399,7 @@ public class TemporalLayerTest {
         layer.receiveJoinReply( new ListExpression( new MessagePointer( m2 )
                 .toASE() ) );
 
-        assertEquals( 2, log.getLastTest().size() );
-        assertEquals( new MessagePointer( m1 ), log.getLastTest().get( 0 ) );
-        assertEquals( new MessagePointer( m2 ), log.getLastTest().get( 1 ) );
+        assertEquals( 1, log.getLastTest().size() );
+        assertEquals( new MessagePointer( m2 ), log.getLastTest().get( 0 ) );
     }
 }
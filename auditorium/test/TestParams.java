@@ -22,7 +22,12 @@
 
 package auditorium.test;
 
+import auditorium.AuditoriumHost;
+import auditorium.ChainHasher;
 import auditorium.IAuditoriumParams;
+import auditorium.Link;
+import auditorium.LogWriter;
+import verifier.BackgroundVerifier;
 
 /**
  * Implementation of IAuditoriumParams for use in test cases. The log is
@@ -188,4 +193,84 @@ public class TestParams implements IAuditoriumParams {
     public String getIncrementalRuleFile() {
         return INCREMENTAL_RULE_FILE;
     }
+
+    public int getLinkQueueCapacity() {
+        return Link.DEFAULT_QUEUE_CAPACITY;
+    }
+
+    public Link.OverflowPolicy getLinkOverflowPolicy() {
+        return Link.DEFAULT_OVERFLOW_POLICY;
+    }
+
+    public int getLinkSendTimeout() {
+        return Link.DEFAULT_SEND_TIMEOUT;
+    }
+
+    public int getLogSyncEvery() {
+        return LogWriter.DEFAULT_SYNC_EVERY;
+    }
+
+    public int getLogSyncInterval() {
+        return LogWriter.DEFAULT_SYNC_INTERVAL;
+    }
+
+    public long getLogPreallocation() {
+        return 0;
+    }
+
+    public long getLogSegmentSize() {
+        return 0;
+    }
+
+    public int getLogSegmentInterval() {
+        return 0;
+    }
+
+    public int getAnnounceBatchWindow() {
+        return 0;
+    }
+
+    public int getVerifyThreads() {
+        return 2;
+    }
+
+    public String getTransport() {
+        return "threads";
+    }
+
+    public String getThreadMode() {
+        return "platform";
+    }
+
+    public int getDiscoverPeers() {
+        return 0;
+    }
+
+    public String getPeerCache() {
+        return "";
+    }
+
+    public int getCatchUpBatch() {
+        return AuditoriumHost.DEFAULT_CATCH_UP_BATCH;
+    }
+
+    public int getCompressionThreshold() {
+        return 0;
+    }
+
+    public int getMetricsInterval() {
+        return 0;
+    }
+
+    public int getIncrementalVerifyEvery() {
+        return BackgroundVerifier.DEFAULT_EVERY;
+    }
+
+    public int getIncrementalVerifyInterval() {
+        return 0;
+    }
+
+    public String getHashChainMode() {
+        return ChainHasher.COMPAT;
+    }
 }
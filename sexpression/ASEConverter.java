@@ -205,7 +205,7 @@ public class ASEConverter {
         expList.add(StringExpression.make(fieldName));
 
         if (obj == null) {
-            expList.add(StringExpression.make("NULL"));
+            expList.add(StringExpression.symbol("NULL"));
             return new ListExpression(expList);
         }
 
@@ -24,13 +24,15 @@ package sexpression;
 
 import sexpression.lexer.Lexer;
 import sexpression.parser.Parser;
-import sexpression.stream.ASEInputStreamReader;
+import sexpression.stream.ASEBufferReader;
 import sexpression.stream.InvalidVerbatimStreamException;
 
-import java.io.ByteArrayInputStream;
 import java.io.CharArrayReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
@@ -60,10 +62,10 @@ public abstract class ASExpression implements Serializable {
      * Parse a String into an expression. This method utilizes the s-expression
      * parser.<br>
      * <br>
-     * NB: For now, this method constructs an array which represents the string,
-     * a reader for this array, a lexer for this reader, and a parser for this
-     * lexer. Because all this allocation is unwise, this might be optimized
-     * later.
+     * NB: Parsing constructs an array which represents the string, a reader
+     * for this array, a lexer for this reader, and a parser for this lexer.
+     * Most strings given to this are a single word, though, which the lexer
+     * would turn into a single string expression, so those skip all that.
      * 
      * @param expression
      *            Parse this string into an s-expression. This can be any string
@@ -72,10 +74,41 @@ public abstract class ASExpression implements Serializable {
      * @see sexpression.parser.Parser
      */
     public static ASExpression make(String expression) {
+        if (isAtom( expression ))
+            return StringExpression.makeString( expression );
+
         return new Parser( new Lexer( new CharArrayReader( expression
                 .toCharArray() ) ) ).read();
     }
 
+    /**
+     * @return This method returns true if the lexer would read the whole of
+     *         the given string as one word: it isn't empty, and has no
+     *         whitespace, comments, or characters the lexer treats as tokens.
+     */
+    private static boolean isAtom(String expression) {
+        if (expression.isEmpty())
+            return false;
+
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt( i );
+            switch (c) {
+            case '(':
+            case ')':
+            case ':':
+            case '#':
+            case '%':
+            case ';':
+                return false;
+            }
+
+            if (Character.isWhitespace( c ))
+                return false;
+        }
+
+        return true;
+    }
+
     /**
      * Parse a verbatim string into an expression. This method utilizes the
      * verbatim stream parser.
@@ -85,19 +118,36 @@ public abstract class ASExpression implements Serializable {
      * @return This method returns the s-expression which represents the given
      *         stream of bytes.
      * @throws InvalidVerbatimStreamException
-     * @see sexpression.stream.ASEInputStreamReader
+     * @see sexpression.stream.ASEBufferReader
      */
     public static ASExpression makeVerbatim(byte[] bytes)
             throws InvalidVerbatimStreamException {
-        try {
-            return new ASEInputStreamReader( new ByteArrayInputStream( bytes ) )
-                    .read();
-        }
-        catch (IOException e) {
-            // Should never get here, can't have an IO Exception on a memory
-            // stream.
-            throw new RuntimeException();
-        }
+        return new ASEBufferReader( ByteBuffer.wrap( bytes ) ).read();
+    }
+
+    /**
+     * Parse a verbatim string that is already in canonical form (every string
+     * length written without leading zeros, and no base64), and keep the
+     * given bytes as the expression's verbatim form. Writing or hashing the
+     * expression then uses the bytes as they are, rather than serializing the
+     * expression all over again. The caller must not change the array
+     * afterwards.
+     * 
+     * @param bytes
+     *            Parse this stream of bytes into an expression.
+     * @return This method returns the s-expression which represents the given
+     *         stream of bytes.
+     * @throws InvalidVerbatimStreamException
+     */
+    public static ASExpression makeCanonical(byte[] bytes)
+            throws InvalidVerbatimStreamException {
+        ASExpression expression = makeVerbatim( bytes );
+
+        /* Strings are interned, and so already share their verbatim form */
+        if (expression instanceof ListExpression)
+            expression._verbatim = bytes;
+
+        return expression;
     }
 
     /**
@@ -108,10 +158,25 @@ public abstract class ASExpression implements Serializable {
      * @return This method returns the SHA-1 hash of the given byte array.
      */
     public static byte[] computeSHA1(byte[] expression) {
+        return computeSHA1( expression, 0, expression.length );
+    }
+
+    /**
+     * Compute the sha-1 hash of part of a byte array.
+     *
+     * @param expression
+     *            Compute the hash of bytes in this array.
+     * @param offset
+     *            The first byte to hash.
+     * @param length
+     *            The number of bytes to hash.
+     * @return This method returns the SHA-1 hash of the given bytes.
+     */
+    public static byte[] computeSHA1(byte[] expression, int offset, int length) {
         MessageDigest md;
         try {
             md = MessageDigest.getInstance( "SHA" );
-            md.update( expression );
+            md.update( expression, offset, length );
         }
         catch (NoSuchAlgorithmException e) {
             throw new RuntimeException( "SHA-1 not supported on this platform" );
@@ -138,9 +203,16 @@ public abstract class ASExpression implements Serializable {
         return md.digest();
     }
 
+    /**
+     * Expressions longer than this many bytes are written to streams a piece
+     * at a time by writeVerbatim(OutputStream).
+     */
+    public static final int STREAM_THRESHOLD = 64 * 1024;
+
     // lazy eval save
     private byte[] _hash = null;
     private byte[] _verbatim = null;
+    private int _verbatimLength = -1;
     private String _string = null;
 
     /**
@@ -163,14 +235,48 @@ public abstract class ASExpression implements Serializable {
 
     /**
      * In order to make the process of creating a verbatim string more
-     * efficient, each type must define a representative ordered set of byte
-     * arrays. Copying this into all into a single byte array will open happen
-     * once per call to toVerbatim().
+     * efficient, each type must be able to say exactly how long its verbatim
+     * form is, so that toVerbatim() can allocate the result once and write
+     * the whole expression into it in a single pass. Use getVerbatimLength(),
+     * which caches this.
+     * 
+     * @return This method returns the number of bytes in the verbatim
+     *         representation of this ASExpression.
+     */
+    public abstract int verbatimLengthHelp();
+
+    /**
+     * Write the verbatim representation of this expression into an array.
+     * Subexpressions should be written with writeVerbatim(byte[], int), so
+     * that any verbatim form they already have is copied rather than
+     * rebuilt.
+     * 
+     * @param array
+     *            Write into this array, which has room for
+     *            getVerbatimLength() bytes at offset.
+     * @param offset
+     *            Write the first byte here.
+     * @return This method returns the offset just past the last byte
+     *         written.
+     */
+    public abstract int toVerbatimHelp(byte[] array, int offset);
+
+    /**
+     * Write the verbatim representation of this expression to a stream
+     * without first putting all of it in one array. By default it does
+     * exactly that; lists and strings override this so that large
+     * expressions are written piece by piece.
      * 
-     * @return This method returns the verbatim byte-string representation of
-     *         this ASExpression.
+     * @param out
+     *            Write to this stream.
+     * @throws IOException
+     *             This method throws if the stream does.
      */
-    public abstract ByteArrayBuffer toVerbatimHelp();
+    protected void streamVerbatimHelp(OutputStream out) throws IOException {
+        byte[] verbatim = new byte[getVerbatimLength()];
+        toVerbatimHelp( verbatim, 0 );
+        out.write( verbatim );
+    }
 
     /**
      * In order to make toString more efficient, each class of ASExpression must
@@ -220,11 +326,129 @@ public abstract class ASExpression implements Serializable {
      */
     public byte[] toVerbatim() {
         if (_verbatim == null) {
-            _verbatim = toVerbatimHelp().getBytes();
+            byte[] verbatim = new byte[getVerbatimLength()];
+            toVerbatimHelp( verbatim, 0 );
+            _verbatim = verbatim;
         }
         return _verbatim;
     }
 
+    /**
+     * @return This method returns the number of bytes in the verbatim form of
+     *         this expression, without building it.
+     */
+    public int getVerbatimLength() {
+        if (_verbatim != null)
+            return _verbatim.length;
+
+        if (_verbatimLength < 0)
+            _verbatimLength = verbatimLengthHelp();
+
+        return _verbatimLength;
+    }
+
+    /**
+     * Write the verbatim form of this expression into an array.
+     * 
+     * @param array
+     *            Write into this array, which must have room for
+     *            getVerbatimLength() bytes at offset.
+     * @param offset
+     *            Write the first byte here.
+     * @return This method returns the offset just past the last byte
+     *         written.
+     */
+    public int writeVerbatim(byte[] array, int offset) {
+        if (_verbatim == null)
+            return toVerbatimHelp( array, offset );
+
+        System.arraycopy( _verbatim, 0, array, offset, _verbatim.length );
+        return offset + _verbatim.length;
+    }
+
+    /**
+     * Write the verbatim form of this expression into a buffer, at its
+     * position, and advance the position past it.
+     * 
+     * @param buffer
+     *            Write into this buffer.
+     * @throws BufferOverflowException
+     *             This method throws if the buffer doesn't have room for the
+     *             whole expression (in which case nothing is written).
+     */
+    public void writeVerbatim(final ByteBuffer buffer) {
+        int length = getVerbatimLength();
+        if (buffer.remaining() < length)
+            throw new BufferOverflowException();
+
+        if (buffer.hasArray()) {
+            writeVerbatim( buffer.array(), buffer.arrayOffset() + buffer.position() );
+            buffer.position( buffer.position() + length );
+            return;
+        }
+
+        try {
+            writeVerbatim( new OutputStream() {
+                public void write(int b) {
+                    buffer.put( (byte) b );
+                }
+
+                public void write(byte[] b, int off, int len) {
+                    buffer.put( b, off, len );
+                }
+            } );
+        }
+        catch (IOException e) {
+            // Should never get here, a buffer doesn't throw.
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * Write the verbatim form of this expression to a stream. Expressions
+     * longer than STREAM_THRESHOLD bytes (whose verbatim form hasn't already
+     * been built) are written a piece at a time rather than being copied into
+     * one array first, so the stream should be buffered.
+     * 
+     * @param out
+     *            Write to this stream.
+     * @throws IOException
+     *             This method throws if the stream does.
+     */
+    public void writeVerbatim(OutputStream out) throws IOException {
+        if (_verbatim != null || getVerbatimLength() <= STREAM_THRESHOLD)
+            out.write( toVerbatim() );
+        else
+            streamVerbatimHelp( out );
+    }
+
+    /**
+     * Write the decimal digits of a length into an array.
+     * 
+     * @return This method returns the offset just past the last digit.
+     */
+    static int writeDigits(byte[] array, int offset, int n) {
+        int end = offset + digits( n );
+        for (int i = end - 1; i >= offset; i--) {
+            array[i] = (byte) ('0' + n % 10);
+            n /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * @return This method returns the number of decimal digits in a
+     *         (non-negative) length.
+     */
+    static int digits(int n) {
+        int digits = 1;
+        while (n >= 10) {
+            n /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
     /**
      * This method computes the SHA1 hash of the verbatim representation of this
      * S-Expression.
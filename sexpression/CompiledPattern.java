@@ -0,0 +1,400 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package sexpression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A CompiledPattern is a pattern expression turned into a small program,
+ * which matches targets without building any expressions along the way.
+ * ASExpression.match() allocates a list at every level of a pattern, even to
+ * find that the first element doesn't match; a compiled pattern only reads the
+ * target, and writes what the wildcards matched into an array of slots that
+ * the caller provides.<br>
+ * <br>
+ * The captures are numbered in the same order as the elements of the list
+ * that match() returns, so slot i holds what match() would have put at index
+ * i. Named patterns that namedMatch() would report get slots of their own
+ * after the captures (see slotOf()). match(ASExpression) and
+ * namedMatch(ASExpression) return exactly what the pattern's own methods do,
+ * for callers that want the old results.<br>
+ * <br>
+ * A compiled pattern is immutable, so one can be shared between threads, as
+ * long as each match gets its own slots.
+ */
+public class CompiledPattern {
+
+    /* Instructions, each followed by two operands */
+    private static final int LITERAL = 0; // literal index, unused
+    private static final int ANY = 1; // slot, unused
+    private static final int STRING = 2; // slot, unused
+    private static final int WILDCARD = 3; // slot, unused
+    private static final int NOTHING = 4; // slot, unused
+    private static final int NOMATCH = 5; // slot, unused
+    private static final int LIST = 6; // length, unused; followed by each element's instructions
+    private static final int LIST_WILDCARD = 7; // slot, end; followed by the element pattern's instructions
+    private static final int NAMED = 8; // slot, unused; followed by the named pattern's instructions
+
+    private static final int WIDTH = 3;
+
+    /** What run() returns when the target doesn't match */
+    private static final int FAIL = -1;
+
+    /** Where captures that nothing will look at (such as inside a list wildcard) go */
+    private static final int DISCARD = -1;
+
+    /**
+     * Compile a pattern.
+     * 
+     * @param pattern
+     *            The pattern, which may contain wildcards, list wildcards and
+     *            named patterns.
+     * @return This method returns the compiled pattern.
+     * @throws IllegalArgumentException
+     *             This method throws if the pattern contains a kind of
+     *             expression it doesn't know how to compile.
+     */
+    public static CompiledPattern compile(ASExpression pattern) {
+        return new CompiledPattern( pattern );
+    }
+
+    private final ASExpression _pattern;
+    private final int[] _program;
+    private final StringExpression[] _literals;
+    private final int _captures;
+    private final String[] _names;
+
+    private CompiledPattern(ASExpression pattern) {
+        Compiler compiler = new Compiler();
+        compiler.compile( pattern, true, true );
+
+        _pattern = pattern;
+        _program = compiler.program();
+        _literals = compiler.literals.toArray( new StringExpression[compiler.literals.size()] );
+        _captures = compiler.captures;
+        _names = compiler.names.toArray( new String[compiler.names.size()] );
+    }
+
+    /**
+     * @return This method returns the pattern this was compiled from.
+     */
+    public ASExpression getPattern() {
+        return _pattern;
+    }
+
+    /**
+     * @return This method returns the number of expressions the wildcards in
+     *         this pattern capture (the size of the list match() returns).
+     */
+    public int getCaptureCount() {
+        return _captures;
+    }
+
+    /**
+     * @return This method returns the number of slots a match needs: the
+     *         captures, followed by the named patterns.
+     */
+    public int getSlotCount() {
+        return _captures + _names.length;
+    }
+
+    /**
+     * Find the slot that holds what a named pattern matched. If the name is
+     * used more than once, this is the last use, just as in the map
+     * namedMatch() returns.
+     * 
+     * @param name
+     *            The name of the pattern.
+     * @return This method returns the slot, or -1 if namedMatch() wouldn't
+     *         report the name.
+     */
+    public int slotOf(String name) {
+        for (int i = _names.length - 1; i >= 0; i--)
+            if (_names[i].equals( name ))
+                return _captures + i;
+
+        return -1;
+    }
+
+    /**
+     * Check whether a target matches, without capturing anything. This never
+     * allocates.
+     * 
+     * @param target
+     *            Match this against the pattern.
+     * @return This method returns true if the target matches.
+     */
+    public boolean matches(ASExpression target) {
+        return run( 0, target, null ) != FAIL;
+    }
+
+    /**
+     * Match a target, writing what the wildcards and named patterns matched
+     * into the given slots. This never allocates.
+     * 
+     * @param target
+     *            Match this against the pattern.
+     * @param slots
+     *            Write the captures into this array, which must have at least
+     *            getSlotCount() elements. If the target doesn't match, some of
+     *            them may have been written anyway.
+     * @return This method returns true if the target matches.
+     */
+    public boolean match(ASExpression target, ASExpression[] slots) {
+        return run( 0, target, slots ) != FAIL;
+    }
+
+    /**
+     * Match a target, as ASExpression.match() does. A target that doesn't
+     * match is turned away without allocating anything (one that does is
+     * matched twice, once to check and once to capture).
+     * 
+     * @param target
+     *            Match this against the pattern.
+     * @return This method returns NoMatch.SINGLETON if the target doesn't
+     *         match, otherwise a list of what the wildcards matched.
+     * @see sexpression.ASExpression#match(ASExpression)
+     */
+    public ASExpression match(ASExpression target) {
+        if (!matches( target ))
+            return NoMatch.SINGLETON;
+
+        if (_captures == 0)
+            return ListExpression.EMPTY;
+
+        ASExpression[] slots = new ASExpression[getSlotCount()];
+        run( 0, target, slots );
+
+        ASExpression[] captures = new ASExpression[_captures];
+        System.arraycopy( slots, 0, captures, 0, _captures );
+        return new ListExpression( captures );
+    }
+
+    /**
+     * Match a target, as ASExpression.namedMatch() does. As with match(), a
+     * target that doesn't match is turned away without allocating anything.
+     * 
+     * @param target
+     *            Match this against the pattern.
+     * @return This method returns NamedNoMatch.SINGLETON if the target
+     *         doesn't match, otherwise a map from the names of named patterns
+     *         to what they matched.
+     * @see sexpression.ASExpression#namedMatch(ASExpression)
+     */
+    public HashMap<String, ASExpression> namedMatch(ASExpression target) {
+        if (!matches( target ))
+            return NamedNoMatch.SINGLETON;
+
+        ASExpression[] slots = new ASExpression[getSlotCount()];
+        run( 0, target, slots );
+
+        HashMap<String, ASExpression> map = new HashMap<>();
+        for (int i = 0; i < _names.length; i++)
+            map.put( _names[i], slots[_captures + i] );
+
+        return map;
+    }
+
+    /**
+     * Run the instruction at pc (and those it owns) against a target.
+     * 
+     * @return This method returns the address of the next instruction, or
+     *         FAIL if the target doesn't match.
+     */
+    private int run(int pc, ASExpression target, ASExpression[] slots) {
+        int operand = _program[pc + 1];
+        int end = _program[pc + 2];
+
+        switch (_program[pc]) {
+        case LITERAL:
+            StringExpression literal = _literals[operand];
+            if (literal != target && (literal.size() <= StringExpression.MAX_INTERNED
+                    || literal.match( target ) == NoMatch.SINGLETON))
+                return FAIL;
+            return pc + WIDTH;
+
+        case ANY:
+            capture( slots, operand, target );
+            return pc + WIDTH;
+
+        case STRING:
+            if (!(target instanceof StringExpression))
+                return FAIL;
+            capture( slots, operand, target );
+            return pc + WIDTH;
+
+        case WILDCARD:
+            if (!(target instanceof AWildcard))
+                return FAIL;
+            capture( slots, operand, target );
+            return pc + WIDTH;
+
+        case NOTHING:
+            if (target != Nothing.SINGLETON)
+                return FAIL;
+            capture( slots, operand, target );
+            return pc + WIDTH;
+
+        case NOMATCH:
+            if (target != NoMatch.SINGLETON)
+                return FAIL;
+            capture( slots, operand, target );
+            return pc + WIDTH;
+
+        case LIST:
+            if (!(target instanceof ListExpression) || target.size() != operand)
+                return FAIL;
+
+            ListExpression list = (ListExpression) target;
+            pc += WIDTH;
+            for (int i = 0; i < operand && pc != FAIL; i++)
+                pc = run( pc, list.get( i ), slots );
+            return pc;
+
+        case LIST_WILDCARD:
+            if (!(target instanceof ListExpression))
+                return FAIL;
+
+            ListExpression elements = (ListExpression) target;
+            for (int i = 0; i < elements.size(); i++)
+                if (run( pc + WIDTH, elements.get( i ), slots ) == FAIL)
+                    return FAIL;
+            capture( slots, operand, target );
+            return end;
+
+        case NAMED:
+            pc = run( pc + WIDTH, target, slots );
+            if (pc != FAIL)
+                capture( slots, operand, target );
+            return pc;
+        }
+
+        throw new IllegalStateException( "Bad instruction " + _program[pc] + " at " + pc );
+    }
+
+    /**
+     * Record a capture, unless it's being discarded or there are no slots.
+     */
+    private static void capture(ASExpression[] slots, int slot, ASExpression target) {
+        if (slots != null && slot != DISCARD)
+            slots[slot] = target;
+    }
+
+    /**
+     * Turns a pattern into instructions.
+     */
+    private static class Compiler {
+        private int[] program = new int[WIDTH * 16];
+        private int length = 0;
+
+        private final ArrayList<StringExpression> literals = new ArrayList<>();
+        private final ArrayList<String> names = new ArrayList<>();
+        private int captures = 0;
+
+        /* Named slots are numbered after the captures, which aren't all counted yet */
+        private final ArrayList<Integer> namedAt = new ArrayList<>();
+
+        /**
+         * @param pattern
+         *            Compile this pattern.
+         * @param capture
+         *            False if what the pattern's wildcards match is thrown
+         *            away (as it is inside a list wildcard).
+         * @param named
+         *            False if namedMatch() doesn't report named patterns here
+         *            (as it doesn't inside another named pattern or a list
+         *            wildcard).
+         */
+        void compile(ASExpression pattern, boolean capture, boolean named) {
+            if (pattern instanceof StringExpression) {
+                emit( LITERAL, literals.size(), 0 );
+                literals.add( (StringExpression) pattern );
+            }
+            else if (pattern instanceof ListExpression) {
+                ListExpression list = (ListExpression) pattern;
+                emit( LIST, list.size(), 0 );
+                for (int i = 0; i < list.size(); i++)
+                    compile( list.get( i ), capture, named );
+            }
+            else if (pattern instanceof Wildcard)
+                emit( ANY, slot( capture ), 0 );
+            else if (pattern instanceof StringWildcard)
+                emit( STRING, slot( capture ), 0 );
+            else if (pattern instanceof WildcardWildcard)
+                emit( WILDCARD, slot( capture ), 0 );
+            else if (pattern instanceof Nothing)
+                emit( NOTHING, slot( capture ), 0 );
+            else if (pattern instanceof NoMatch)
+                emit( NOMATCH, slot( capture ), 0 );
+            else if (pattern instanceof ListWildcard) {
+                int at = emit( LIST_WILDCARD, 0, 0 );
+                compile( ((ListWildcard) pattern).getPattern(), false, false );
+                program[at + 1] = slot( capture );
+                program[at + 2] = length;
+            }
+            else if (pattern instanceof NamedPattern) {
+                NamedPattern namedPattern = (NamedPattern) pattern;
+                int at = emit( NAMED, DISCARD, 0 );
+                if (named) {
+                    namedAt.add( at );
+                    names.add( namedPattern.getName() );
+                }
+                compile( namedPattern.getPattern(), capture, false );
+            }
+            else
+                throw new IllegalArgumentException( "Can't compile " + pattern.getClass().getName() + " in a pattern" );
+        }
+
+        /**
+         * @return The finished program, with the named patterns' slots
+         *         filled in.
+         */
+        int[] program() {
+            for (int i = 0; i < namedAt.size(); i++)
+                program[namedAt.get( i ) + 1] = captures + i;
+
+            int[] finished = new int[length];
+            System.arraycopy( program, 0, finished, 0, length );
+            return finished;
+        }
+
+        private int slot(boolean capture) {
+            return capture ? captures++ : DISCARD;
+        }
+
+        private int emit(int instruction, int operand, int end) {
+            if (length + WIDTH > program.length) {
+                int[] bigger = new int[program.length * 2];
+                System.arraycopy( program, 0, bigger, 0, length );
+                program = bigger;
+            }
+
+            int at = length;
+            program[length++] = instruction;
+            program[length++] = operand;
+            program[length++] = end;
+            return at;
+        }
+    }
+}
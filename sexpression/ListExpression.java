@@ -22,6 +22,8 @@
 
 package sexpression;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -110,17 +112,40 @@ public class ListExpression extends ASExpression implements
     }
 
     /**
-     * @see sexpression.ASExpression#toVerbatim()
+     * @see sexpression.ASExpression#verbatimLengthHelp()
      */
     @Override
-    public ByteArrayBuffer toVerbatimHelp() {
-        ByteArrayBuffer buf = new ByteArrayBuffer();
-        buf.append( (byte) '(' );
-        for (ASExpression ase : _list) {
-            buf.append( ase.toVerbatimHelp() );
-        }
-        buf.append( (byte) ')' );
-        return buf;
+    public int verbatimLengthHelp() {
+        int length = 2;
+        for (ASExpression ase : _list)
+            length += ase.getVerbatimLength();
+        return length;
+    }
+
+    /**
+     * @see sexpression.ASExpression#toVerbatimHelp(byte[], int)
+     */
+    @Override
+    public int toVerbatimHelp(byte[] array, int offset) {
+        array[offset++] = (byte) '(';
+        for (ASExpression ase : _list)
+            offset = ase.writeVerbatim( array, offset );
+        array[offset++] = (byte) ')';
+        return offset;
+    }
+
+    /**
+     * Write the elements one at a time, so that a large list is never copied
+     * into one array.
+     * 
+     * @see sexpression.ASExpression#streamVerbatimHelp(java.io.OutputStream)
+     */
+    @Override
+    protected void streamVerbatimHelp(OutputStream out) throws IOException {
+        out.write( '(' );
+        for (ASExpression ase : _list)
+            ase.writeVerbatim( out );
+        out.write( ')' );
     }
 
     /**
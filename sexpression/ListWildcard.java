@@ -38,6 +38,14 @@ public class ListWildcard extends AWildcard {
         _pattern = pattern;
     }
 
+    /**
+     * @return This method returns the pattern every element of a matching
+     *         list must match.
+     */
+    public ASExpression getPattern() {
+        return _pattern;
+    }
+
     /**
      * @see sexpression.ASExpression#match(sexpression.ASExpression)
      */
@@ -75,15 +83,21 @@ public class ListWildcard extends AWildcard {
     }
 
     /**
-     * @see sexpression.ASExpression#toVerbatimHelp()
+     * @see sexpression.ASExpression#verbatimLengthHelp()
+     */
+    @Override
+    public int verbatimLengthHelp() {
+        return 2 + _pattern.getVerbatimLength();
+    }
+
+    /**
+     * @see sexpression.ASExpression#toVerbatimHelp(byte[], int)
      */
     @Override
-    public ByteArrayBuffer toVerbatimHelp() {
-        ByteArrayBuffer ba = new ByteArrayBuffer();
-        ba.append( (byte) '#' );
-        ba.append( (byte) 'l' );
-        ba.append( _pattern.toVerbatimHelp() );
-        return ba;
+    public int toVerbatimHelp(byte[] array, int offset) {
+        array[offset] = (byte) '#';
+        array[offset + 1] = (byte) 'l';
+        return _pattern.writeVerbatim( array, offset + 2 );
     }
 
     /**
@@ -51,6 +51,20 @@ public class NamedPattern extends ASExpression {
         _pattern = pattern;
     }
 
+    /**
+     * @return This method returns the name of the pattern.
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return This method returns the pattern being named.
+     */
+    public ASExpression getPattern() {
+        return _pattern;
+    }
+
     /**
      * @see sexpression.ASExpression#match(sexpression.ASExpression)
      */
@@ -94,15 +108,21 @@ public class NamedPattern extends ASExpression {
     }
 
     /**
-     * @see sexpression.ASExpression#toVerbatimHelp()
+     * @see sexpression.ASExpression#verbatimLengthHelp()
+     */
+    @Override
+    public int verbatimLengthHelp() {
+        return 1 + StringExpression.make( _name ).getVerbatimLength() + _pattern.getVerbatimLength();
+    }
+
+    /**
+     * @see sexpression.ASExpression#toVerbatimHelp(byte[], int)
      */
     @Override
-    public ByteArrayBuffer toVerbatimHelp() {
-        ByteArrayBuffer ba = new ByteArrayBuffer();
-        ba.append( (byte) '%' );
-        ba.append( StringExpression.make( _name ).toVerbatimHelp() );
-        ba.append( _pattern.toVerbatimHelp() );
-        return ba;
+    public int toVerbatimHelp(byte[] array, int offset) {
+        array[offset] = (byte) '%';
+        offset = StringExpression.make( _name ).writeVerbatim( array, offset + 1 );
+        return _pattern.writeVerbatim( array, offset );
     }
 
     /**
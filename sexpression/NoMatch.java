@@ -59,13 +59,20 @@ public class NoMatch extends ASExpression {
     }
 
     /**
-     * @see sexpression.ASExpression#toVerbatimHelp()
+     * @see sexpression.ASExpression#verbatimLengthHelp()
      */
     @Override
-    public ByteArrayBuffer toVerbatimHelp() {
-        ByteArrayBuffer ba = new ByteArrayBuffer();
-        ba.append( (byte) '#' );
-        ba.append( (byte) 'f' );
-        return ba;
+    public int verbatimLengthHelp() {
+        return 2;
+    }
+
+    /**
+     * @see sexpression.ASExpression#toVerbatimHelp(byte[], int)
+     */
+    @Override
+    public int toVerbatimHelp(byte[] array, int offset) {
+        array[offset] = (byte) '#';
+        array[offset + 1] = (byte) 'f';
+        return offset + 2;
     }
 }
@@ -50,11 +50,19 @@ public class Nothing extends ASExpression {
     }
 
     /**
-     * @see sexpression.ASExpression#toVerbatimHelp()
+     * @see sexpression.ASExpression#verbatimLengthHelp()
      */
     @Override
-    public ByteArrayBuffer toVerbatimHelp() {
-        return new ByteArrayBuffer();
+    public int verbatimLengthHelp() {
+        return 0;
+    }
+
+    /**
+     * @see sexpression.ASExpression#toVerbatimHelp(byte[], int)
+     */
+    @Override
+    public int toVerbatimHelp(byte[] array, int offset) {
+        return offset;
     }
 
     /**
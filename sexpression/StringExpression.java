@@ -22,12 +22,16 @@
 
 package sexpression;
 
-import sexpression.ByteArrayBuffer.ByteArray;
 import sexpression.stream.Base64;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A ByteStringExpression is an SExpression. In particular, a
@@ -37,30 +41,60 @@ import java.util.HashMap;
  */
 public class StringExpression extends ASExpression {
 
-    public static class BytesBox {
-        private final byte[] _bytes;
+    public static final StringExpression EMPTY = new StringExpression();
 
-        private BytesBox(byte[] bytes) {
-            _bytes = bytes;
-        }
+    /**
+     * Strings longer than this many bytes (signatures, ciphertexts, ballots
+     * and the like) are not interned. Nothing matches against them by
+     * identity, and hashing them into the table only to throw the entry away
+     * later costs more than it saves. match() compares their bytes instead.
+     */
+    public static final int MAX_INTERNED = 64;
 
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof BytesBox))
-                return false;
+    /**
+     * The interned strings, keyed by their bytes. Entries are weak, and are
+     * removed once their string has been collected.
+     */
+    private static final ConcurrentHashMap<Key, Entry> _interned = new ConcurrentHashMap<>();
 
-            return Arrays.equals(_bytes, ((BytesBox) o)._bytes);
-        }
+    /** Where the entries of collected strings turn up */
+    private static final ReferenceQueue<StringExpression> _collected = new ReferenceQueue<>();
 
-        @Override
-        public int hashCode() {
-            return (((int) _bytes[0]) << 24) | (((int) _bytes[1]) << 16)
-                    | (((int) _bytes[2]) << 8) | (int) _bytes[3];
-        }
-    }
+    /**
+     * Mixed into the hash of every key, so that a peer can't pick strings
+     * that are known ahead of time to land in the same bin.
+     */
+    private static final int SEED = new SecureRandom().nextInt();
 
-    public static final StringExpression EMPTY = new StringExpression();
-    public static final HashMap<BytesBox, WeakReference<StringExpression>> _interned = new HashMap<BytesBox, WeakReference<StringExpression>>();
+    /**
+     * Strings that are used over and over as names (message types, event
+     * names, field and class names), by their Java string. Unlike the intern
+     * table, these are held on to for good.
+     */
+    private static final ConcurrentHashMap<String, StringExpression> _symbols = new ConcurrentHashMap<>();
+
+    /**
+     * Ask for the expression for a name that is used over and over, such as
+     * the type of an event. This returns the same expression as
+     * makeString(name), but looks it up by the Java string (whose hash is
+     * cached) rather than by its bytes, and keeps it from ever being collected
+     * and interned all over again. Don't use this for data (nonces, ballots,
+     * serial numbers), which would never be let go.
+     * 
+     * @param name
+     *            Make an expression that represents this name.
+     * @return This method returns the interned expression that represents the
+     *         given name.
+     */
+    public static StringExpression symbol(String name) {
+        StringExpression symbol = _symbols.get(name);
+        if (symbol != null)
+            return symbol;
+
+        symbol = makeString(name);
+        StringExpression existing = _symbols.putIfAbsent(name, symbol);
+        return existing == null ? symbol : existing;
+    }
 
     /**
      * Ask for an expression that represents the given string. This method
@@ -81,7 +115,9 @@ public class StringExpression extends ASExpression {
     /**
      * Ask for an expression that represents the given byte array. This method
      * checks if one has already been interned, and if it has, returns it,
-     * otherwise constructs a new one and adds it to the intern map.
+     * otherwise constructs a new one and adds it to the intern map. Strings
+     * longer than MAX_INTERNED bytes are never interned; each call makes a new
+     * expression backed by the given array.
      * 
      * @param bytes
      *            Make an expression that represents this set of bytes as a string.
@@ -89,18 +125,151 @@ public class StringExpression extends ASExpression {
      *         given byte string.
      */
     public static StringExpression makeString(byte[] bytes) {
-        BytesBox hash = new BytesBox(ASExpression.computeSHA1(bytes));
-        synchronized (_interned) {
-            if (_interned.containsKey(hash)
-                    && _interned.get(hash).get() != null)
-                return _interned.get(hash).get();
-
-            StringExpression retval = new StringExpression(bytes);
-            _interned.put(new BytesBox(ASExpression.computeSHA1(bytes)),
-                    new WeakReference<>(retval));
-            return retval;
+        return intern(bytes, 0, bytes.length, false);
+    }
+
+    /**
+     * Ask for an expression that represents part of the given byte array, as
+     * makeString(byte[]) does. The bytes are only copied if no expression has
+     * been interned for them yet, so strings can be made straight out of a
+     * buffer being parsed, and the buffer can be reused afterwards.
+     *
+     * @param array
+     *            The bytes of the string are in this array.
+     * @param offset
+     *            The index of the first byte of the string.
+     * @param length
+     *            The number of bytes in the string.
+     * @return This method returns the interned expression that represents the
+     *         given byte string.
+     */
+    public static StringExpression makeString(byte[] array, int offset, int length) {
+        return intern(array, offset, length, true);
+    }
+
+    /**
+     * Look up the interned expression for part of an array, making one if
+     * there isn't one yet.
+     *
+     * @param copy
+     *            If false, a new expression is backed by the array itself
+     *            (which must then be the whole string).
+     */
+    private static StringExpression intern(byte[] array, int offset, int length, boolean copy) {
+        if (length == 0)
+            return EMPTY;
+
+        if (length > MAX_INTERNED)
+            return new StringExpression(copy ? Arrays.copyOfRange(array, offset, offset + length) : array);
+
+        expunge();
+
+        Key key = new Key(array, offset, length);
+        StringExpression retval = null;
+        while (true) {
+            Entry entry = _interned.get(key);
+            if (entry != null) {
+                StringExpression interned = entry.get();
+                if (interned != null)
+                    return interned;
+
+                _interned.remove(entry.key, entry);
+                continue;
+            }
+
+            if (retval == null)
+                retval = new StringExpression(copy ? Arrays.copyOfRange(array, offset, offset + length) : array);
+
+            entry = new Entry(retval, new Key(retval._bytes, 0, length));
+            if (_interned.putIfAbsent(entry.key, entry) == null)
+                return retval;
+        }
+    }
+
+    /**
+     * Drop the entries of strings that have been collected.
+     */
+    private static void expunge() {
+        Entry entry;
+        while ((entry = (Entry) _collected.poll()) != null)
+            _interned.remove(entry.key, entry);
+    }
+
+    /**
+     * @return The number of strings in the intern table (including any that
+     *         have been collected but not yet expunged).
+     */
+    public static int internedCount() {
+        expunge();
+        return _interned.size();
+    }
+
+    /**
+     * A run of bytes in an array, as a key of the intern table. Lookups use
+     * the array being parsed; the stored keys use the string's own bytes. Keys
+     * are comparable so that a bin which does fill up is kept as a tree.
+     */
+    private static final class Key implements Comparable<Key> {
+        private final byte[] _array;
+        private final int _offset;
+        private final int _length;
+        private final int _hash;
+
+        private Key(byte[] array, int offset, int length) {
+            _array = array;
+            _offset = offset;
+            _length = length;
+
+            /* FNV-1a, from a seeded basis */
+            int hash = 0x811c9dc5 ^ SEED;
+            for (int i = offset; i < offset + length; i++)
+                hash = (hash ^ (array[i] & 0xff)) * 0x01000193;
+            _hash = hash;
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+
+            Key k = (Key) o;
+            if (_hash != k._hash || _length != k._length)
+                return false;
+
+            for (int i = 0; i < _length; i++)
+                if (_array[_offset + i] != k._array[k._offset + i])
+                    return false;
+            return true;
+        }
+
+        public int compareTo(Key k) {
+            int min = Math.min(_length, k._length);
+            for (int i = 0; i < min; i++) {
+                int a = _array[_offset + i] & 0xff;
+                int b = k._array[k._offset + i] & 0xff;
+                if (a != b)
+                    return a - b;
+            }
+            return _length - k._length;
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+    }
+
+    /**
+     * A weak reference to an interned string, which remembers its key so it
+     * can be removed from the table once the string is gone.
+     */
+    private static final class Entry extends WeakReference<StringExpression> {
+        private final Key key;
+
+        private Entry(StringExpression string, Key key) {
+            super(string, _collected);
+            this.key = key;
+        }
     }
 
     private byte[] _bytes;
@@ -153,20 +322,40 @@ public class StringExpression extends ASExpression {
         return buffer;
     }
 
+    /**
+     * @see sexpression.ASExpression#verbatimLengthHelp()
+     */
+    @Override
+    public int verbatimLengthHelp() {
+        return digits(_bytes.length) + 1 + _bytes.length;
+    }
+
     /**
      * A string, x, is represented in verbatim by the string "len(x):x"
      * 
      * 
-     * @see sexpression.ASExpression#toVerbatim()
+     * @see sexpression.ASExpression#toVerbatimHelp(byte[], int)
+     */
+    @Override
+    public int toVerbatimHelp(byte[] array, int offset) {
+        offset = writeDigits(array, offset, _bytes.length);
+        array[offset++] = (byte) ':';
+        System.arraycopy(_bytes, 0, array, offset, _bytes.length);
+        return offset + _bytes.length;
+    }
+
+    /**
+     * Write the length, then the bytes themselves, without copying them.
+     * 
+     * @see sexpression.ASExpression#streamVerbatimHelp(java.io.OutputStream)
      */
-    public ByteArrayBuffer toVerbatimHelp() {
-        ByteArrayBuffer buf = new ByteArrayBuffer();
-        ByteArray length = new ByteArray(Integer.toString(_bytes.length)
-                .getBytes());
-        buf.append(length);
-        buf.append((byte) ':');
-        buf.append(new ByteArray(_bytes));
-        return buf;
+    @Override
+    protected void streamVerbatimHelp(OutputStream out) throws IOException {
+        byte[] length = new byte[digits(_bytes.length) + 1];
+        writeDigits(length, 0, _bytes.length);
+        length[length.length - 1] = (byte) ':';
+        out.write(length);
+        out.write(_bytes);
     }
 
     /**
@@ -174,7 +363,7 @@ public class StringExpression extends ASExpression {
      */
     @Override
     public synchronized ASExpression match(ASExpression target) {
-        if (this == target)
+        if (this == target || sameUninterned(target))
             return ListExpression.EMPTY;
         return NoMatch.SINGLETON;
     }
@@ -185,11 +374,22 @@ public class StringExpression extends ASExpression {
     @Override
     public synchronized HashMap<String, ASExpression> namedMatch(
             ASExpression target) {
-        if (this == target)
+        if (this == target || sameUninterned(target))
             return new HashMap<>();
         return NamedNoMatch.SINGLETON;
     }
 
+    /**
+     * Strings too long to be interned can't be matched by identity.
+     *
+     * @return True if this string and the target are the same string, and
+     *         too long to have been interned.
+     */
+    private boolean sameUninterned(ASExpression target) {
+        return _bytes.length > MAX_INTERNED && target instanceof StringExpression
+                && Arrays.equals(_bytes, ((StringExpression) target)._bytes);
+    }
+
     /**
      * This method returns a copy of the bytes. Because s-expressions are
      * immutable, we do not wish to return the actual data.
@@ -232,15 +432,6 @@ public class StringExpression extends ASExpression {
         return _bytes.length;
     }
 
-    /**
-     * @see java.lang.Object#finalize()
-     */
-
-    @Override
-    public void finalize() {
-        _interned.remove(new BytesBox(_bytes));
-    }
-    
     /**
      * 
      */
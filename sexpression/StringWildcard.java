@@ -61,13 +61,20 @@ public class StringWildcard extends AWildcard {
     }
 
     /**
-     * @see sexpression.ASExpression#toVerbatimHelp()
+     * @see sexpression.ASExpression#verbatimLengthHelp()
      */
     @Override
-    public ByteArrayBuffer toVerbatimHelp() {
-        ByteArrayBuffer ba = new ByteArrayBuffer();
-        ba.append( (byte) '#' );
-        ba.append( (byte) 's' );
-        return ba;
+    public int verbatimLengthHelp() {
+        return 2;
+    }
+
+    /**
+     * @see sexpression.ASExpression#toVerbatimHelp(byte[], int)
+     */
+    @Override
+    public int toVerbatimHelp(byte[] array, int offset) {
+        array[offset] = (byte) '#';
+        array[offset + 1] = (byte) 's';
+        return offset + 2;
     }
 }
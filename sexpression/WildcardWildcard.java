@@ -55,13 +55,20 @@ public class WildcardWildcard extends AWildcard {
     }
 
     /**
-     * @see sexpression.ASExpression#toVerbatimHelp()
+     * @see sexpression.ASExpression#verbatimLengthHelp()
      */
     @Override
-    public ByteArrayBuffer toVerbatimHelp() {
-        ByteArrayBuffer ba = new ByteArrayBuffer();
-        ba.append( (byte) '#' );
-        ba.append( (byte) 'w' );
-        return ba;
+    public int verbatimLengthHelp() {
+        return 2;
+    }
+
+    /**
+     * @see sexpression.ASExpression#toVerbatimHelp(byte[], int)
+     */
+    @Override
+    public int toVerbatimHelp(byte[] array, int offset) {
+        array[offset] = (byte) '#';
+        array[offset + 1] = (byte) 'w';
+        return offset + 2;
     }
 }
@@ -0,0 +1,276 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package sexpression.stream;
+
+import sexpression.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The ASEBufferReader parses ASExpressions that have been serialized in
+ * verbatim form out of a ByteBuffer, such as a slice of a memory-mapped log.
+ * It understands everything the ASEInputStreamReader does, but works on the
+ * buffer directly rather than a byte at a time through a stream: string
+ * lengths are parsed without building a string, and string bytes are interned
+ * straight out of a heap buffer's array, so that a string which has been seen
+ * before isn't copied at all. (Direct and mapped buffers are copied into a
+ * scratch array first, one string at a time.)<br>
+ * <br>
+ * Expressions are read from the buffer's position up to its limit, and the
+ * position is left just after the last expression read.
+ */
+public class ASEBufferReader {
+
+    /** The bytes being parsed */
+    private final ByteBuffer buffer;
+
+    /** Elements of the lists currently being parsed, innermost last */
+    private ASExpression[] stack = new ASExpression[64];
+
+    /** The number of elements in stack */
+    private int depth = 0;
+
+    /** Where strings are copied to when the buffer has no accessible array */
+    private byte[] scratch;
+
+    /**
+     * @param buffer
+     *            This is the buffer out of which ASExpressions are parsed.
+     */
+    public ASEBufferReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Parse one ASExpression out of the buffer, in either verbatim or
+     * base64/canonical form, as ASEInputStreamReader.read() does.
+     * 
+     * @return This method returns the parsed ASExpression, or null if there
+     *         are no bytes left in the buffer.
+     * @throws InvalidVerbatimStreamException
+     *             This method throws if there is invalid data in the buffer,
+     *             or if the buffer ends part way through an expression.
+     */
+    public ASExpression read() throws InvalidVerbatimStreamException {
+        if (!buffer.hasRemaining())
+            return null;
+
+        if (buffer.get(buffer.position()) == '{') {
+            buffer.get();
+            return readBase64();
+        }
+
+        return readASE(next());
+    }
+
+    /**
+     * Parse the next element of whatever is being read.
+     * 
+     * @param openchar
+     *            The first byte of the element, which has already been taken
+     *            out of the buffer.
+     * @return The parsed element.
+     */
+    private ASExpression readASE(byte openchar) throws InvalidVerbatimStreamException {
+        switch (openchar) {
+        case '(':
+            return readList();
+        case '#':
+            return readWildcard();
+        case '%':
+            return readNamedPattern();
+        }
+
+        if (openchar >= '0' && openchar <= '9')
+            return readString(openchar);
+
+        throw new InvalidVerbatimStreamException("read: '" + (char) openchar
+                + "' as " + openchar + ": expected to be a number, '(', '#', or '%'.");
+    }
+
+    /**
+     * Parse the remainder of a list, assuming its '(' has already been taken
+     * out of the buffer. The elements are collected on the shared stack, so
+     * that only the finished list's own array is allocated.
+     * 
+     * @return The parsed list.
+     */
+    private ListExpression readList() throws InvalidVerbatimStreamException {
+        int start = depth;
+        byte b;
+
+        while ((b = next()) != ')') {
+            ASExpression element = readASE(b);
+
+            if (depth == stack.length)
+                stack = Arrays.copyOf(stack, depth * 2);
+            stack[depth++] = element;
+        }
+
+        ASExpression[] elements = Arrays.copyOfRange(stack, start, depth);
+        Arrays.fill(stack, start, depth, null);
+        depth = start;
+
+        return new ListExpression(elements);
+    }
+
+    /**
+     * Parse the remainder of a string, assuming the first digit of its length
+     * has already been taken out of the buffer.
+     * 
+     * @param openchar
+     *            The first digit of the string's length.
+     * @return The (interned) string.
+     */
+    private StringExpression readString(byte openchar) throws InvalidVerbatimStreamException {
+        long length = openchar - '0';
+        byte b;
+
+        while ((b = next()) != ':') {
+            if (b < '0' || b > '9')
+                throw new InvalidVerbatimStreamException("read: '" + (char) b
+                        + "' in a string length: expected to be a number or ':'.");
+
+            length = length * 10 + (b - '0');
+            if (length > Integer.MAX_VALUE)
+                throw new InvalidVerbatimStreamException("read: string length is too large");
+        }
+
+        if (length > buffer.remaining())
+            throw new InvalidVerbatimStreamException("read: string of " + length
+                    + " bytes, but only " + buffer.remaining() + " remain");
+
+        int len = (int) length;
+        int position = buffer.position();
+        buffer.position(position + len);
+
+        if (buffer.hasArray())
+            return StringExpression.makeString(buffer.array(), buffer.arrayOffset() + position, len);
+
+        if (scratch == null || scratch.length < len)
+            scratch = new byte[Math.max(len, 256)];
+
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(scratch, 0, len);
+        return StringExpression.makeString(scratch, 0, len);
+    }
+
+    /**
+     * Parse the remainder of a wildcard, assuming its '#' has already been
+     * taken out of the buffer.
+     * 
+     * @return The wildcard.
+     */
+    private ASExpression readWildcard() throws InvalidVerbatimStreamException {
+        switch (next()) {
+        case ASEInputStreamReader.ANY:
+            return Wildcard.SINGLETON;
+        case ASEInputStreamReader.STRING:
+            return StringWildcard.SINGLETON;
+        case ASEInputStreamReader.WILDCARD:
+            return WildcardWildcard.SINGLETON;
+        case ASEInputStreamReader.NOTHING:
+            return Nothing.SINGLETON;
+        case ASEInputStreamReader.NOMATCH:
+            return NoMatch.SINGLETON;
+        case ASEInputStreamReader.LIST:
+            return new ListWildcard(readNested());
+        }
+
+        throw new InvalidVerbatimStreamException("# wasn't followed by an acceptable byte");
+    }
+
+    /**
+     * Parse the remainder of a named pattern, assuming its '%' has already
+     * been taken out of the buffer.
+     * 
+     * @return The named pattern.
+     */
+    private ASExpression readNamedPattern() throws InvalidVerbatimStreamException {
+        StringExpression name = readString(next());
+        return new NamedPattern(name.toString(), readNested());
+    }
+
+    /**
+     * Parse an expression in base64 form, assuming its '{' has already been
+     * taken out of the buffer.
+     * 
+     * @return The decoded expression.
+     */
+    private ASExpression readBase64() throws InvalidVerbatimStreamException {
+        int start = buffer.position();
+        int end = start;
+
+        while (end < buffer.limit() && buffer.get(end) != '}')
+            end++;
+
+        if (end == buffer.limit())
+            throw new InvalidVerbatimStreamException("read: base64 expression has no closing '}'");
+
+        byte[] encoded = new byte[end - start];
+        buffer.get(encoded);
+        buffer.get();
+
+        ASExpression expression = new ASEBufferReader(ByteBuffer.wrap(Base64.decode(encoded, 0, encoded.length))).read();
+        if (expression == null)
+            throw new InvalidVerbatimStreamException("read: empty base64 expression");
+
+        return expression;
+    }
+
+    /**
+     * Parse an expression that is part of another one, such as the pattern of
+     * a named pattern.
+     * 
+     * @return The parsed expression.
+     */
+    private ASExpression readNested() throws InvalidVerbatimStreamException {
+        ASExpression expression = read();
+        if (expression == null)
+            throw truncated();
+
+        return expression;
+    }
+
+    /**
+     * @return The next byte in the buffer.
+     * @throws InvalidVerbatimStreamException
+     *             Thrown if the buffer has run out.
+     */
+    private byte next() throws InvalidVerbatimStreamException {
+        if (!buffer.hasRemaining())
+            throw truncated();
+
+        return buffer.get();
+    }
+
+    /**
+     * @return The exception for an expression that runs off the end of the
+     *         buffer.
+     */
+    private InvalidVerbatimStreamException truncated() {
+        return new InvalidVerbatimStreamException("read: end of buffer in the middle of an expression");
+    }
+}
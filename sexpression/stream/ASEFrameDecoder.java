@@ -0,0 +1,197 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package sexpression.stream;
+
+import sexpression.ASExpression;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The ASEFrameDecoder finds ASExpressions in verbatim form in a stream that
+ * arrives in arbitrary pieces, such as the reads off a non-blocking socket.
+ * Bytes are fed in as they arrive, and each expression is parsed as soon as
+ * its last byte shows up. Unlike the ASEInputStreamReader, this never blocks
+ * waiting for the rest of an expression.<br>
+ * <br>
+ * Only the verbatim form is understood (which is what ASEWriter.writeASE
+ * produces). Base64 expressions, list wildcards and named patterns are
+ * rejected. A frame in canonical form (which is everything ASEWriter
+ * writes) keeps the bytes it arrived as for its verbatim form, so that it can
+ * be hashed and passed on without being serialized again.
+ */
+public class ASEFrameDecoder {
+
+    /** The largest expression this will accept, in bytes */
+    public static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    /* Parser states */
+    private static final int ELEMENT = 0;
+    private static final int LENGTH = 1;
+    private static final int STRING = 2;
+    private static final int WILDCARD = 3;
+
+    /** The bytes of the expression currently being received */
+    private byte[] frame = new byte[1024];
+
+    /** The number of bytes in frame */
+    private int length = 0;
+
+    /** The number of lists that have been opened and not yet closed */
+    private int depth = 0;
+
+    /** What the next byte is expected to be */
+    private int state = ELEMENT;
+
+    /** The string length being read, in the LENGTH state */
+    private long stringLength;
+
+    /** The number of string bytes still to come, in the STRING state */
+    private int remaining;
+
+    /** False if the current frame has a string length with a leading zero */
+    private boolean canonical = true;
+
+    /**
+     * Feed bytes to the decoder. Every expression completed by these bytes is
+     * added to out. Bytes belonging to an expression that isn't finished yet
+     * are kept until the rest arrives.
+     *
+     * @param in        Take every remaining byte in this buffer.
+     * @param out       Add completed expressions to this list, in order.
+     *
+     * @throws InvalidVerbatimStreamException Thrown if the bytes aren't valid verbatim expressions. After this, the
+     *                                        decoder shouldn't be used again.
+     */
+    public void feed(ByteBuffer in, Collection<ASExpression> out) throws InvalidVerbatimStreamException {
+        while (in.hasRemaining()) {
+            /* String bodies are copied in bulk */
+            if (state == STRING) {
+                int n = Math.min(remaining, in.remaining());
+                ensure(n);
+                in.get(frame, length, n);
+                length += n;
+                remaining -= n;
+                if (remaining == 0)
+                    elementDone(out);
+                continue;
+            }
+
+            byte b = in.get();
+            switch (state) {
+                case ELEMENT:
+                    if (b == '(') {
+                        depth++;
+                        append(b);
+                    }
+                    else if (b == ')' && depth > 0) {
+                        depth--;
+                        append(b);
+                        elementDone(out);
+                    }
+                    else if (b >= '0' && b <= '9') {
+                        stringLength = b - '0';
+                        state = LENGTH;
+                        append(b);
+                    }
+                    else if (b == '#') {
+                        state = WILDCARD;
+                        append(b);
+                    }
+                    else
+                        throw new InvalidVerbatimStreamException("frame: unexpected '" + (char) b + "'");
+                    break;
+
+                case LENGTH:
+                    append(b);
+                    if (b == ':') {
+                        remaining = (int) stringLength;
+                        state = STRING;
+                        if (remaining == 0)
+                            elementDone(out);
+                    }
+                    else if (b >= '0' && b <= '9') {
+                        if (stringLength == 0)
+                            canonical = false;
+                        stringLength = stringLength * 10 + (b - '0');
+                        if (stringLength > MAX_FRAME)
+                            throw new InvalidVerbatimStreamException("frame: string of " + stringLength + " bytes is too long");
+                    }
+                    else
+                        throw new InvalidVerbatimStreamException("frame: unexpected '" + (char) b + "' in a string length");
+                    break;
+
+                case WILDCARD:
+                    append(b);
+                    if (b == ASEInputStreamReader.ANY || b == ASEInputStreamReader.STRING
+                            || b == ASEInputStreamReader.WILDCARD || b == ASEInputStreamReader.NOTHING
+                            || b == ASEInputStreamReader.NOMATCH)
+                        elementDone(out);
+                    else
+                        throw new InvalidVerbatimStreamException("frame: unsupported wildcard '" + (char) b + "'");
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return True if part of an expression has been fed in, but not the whole thing.
+     */
+    public boolean partial() {
+        return length > 0;
+    }
+
+    /**
+     * A string, wildcard or list has just ended. If it was at the top level,
+     * the frame is complete.
+     */
+    private void elementDone(Collection<ASExpression> out) throws InvalidVerbatimStreamException {
+        state = ELEMENT;
+        if (depth > 0)
+            return;
+
+        byte[] bytes = Arrays.copyOf(frame, length);
+        out.add(canonical ? ASExpression.makeCanonical(bytes) : ASExpression.makeVerbatim(bytes));
+        length = 0;
+        canonical = true;
+    }
+
+    private void append(byte b) throws InvalidVerbatimStreamException {
+        ensure(1);
+        frame[length++] = b;
+    }
+
+    /**
+     * Make room in the frame for n more bytes.
+     */
+    private void ensure(int n) throws InvalidVerbatimStreamException {
+        if (length + n <= frame.length)
+            return;
+
+        if ((long) length + n > MAX_FRAME)
+            throw new InvalidVerbatimStreamException("frame: expression is larger than " + MAX_FRAME + " bytes");
+
+        frame = Arrays.copyOf(frame, (int) Math.min(MAX_FRAME, Math.max((long) length + n, frame.length * 2L)));
+    }
+}
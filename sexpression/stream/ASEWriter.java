@@ -24,6 +24,7 @@ package sexpression.stream;
 
 import sexpression.ASExpression;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
@@ -67,8 +68,14 @@ public class ASEWriter {
      *             throws.
      */
     public void writeASE(ASExpression expression) throws IOException {
-        _stream.write( expression.toVerbatim() );
-        _stream.flush();
+        // Large expressions are streamed out a piece at a time, rather than
+        // being built up in one array first.
+        OutputStream out = _stream;
+        if (expression.getVerbatimLength() > ASExpression.STREAM_THRESHOLD)
+            out = new BufferedOutputStream( _stream );
+
+        expression.writeVerbatim( out );
+        out.flush();
     }
 
     /**
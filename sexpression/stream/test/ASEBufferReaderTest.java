@@ -0,0 +1,151 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package sexpression.stream.test;
+
+import junit.framework.TestCase;
+import sexpression.*;
+import sexpression.stream.ASEBufferReader;
+import sexpression.stream.Base64;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class tests ASEBufferReader on verbatim expressions, over both
+ * heap and direct buffers.
+ */
+public class ASEBufferReaderTest extends TestCase {
+
+    private final ASExpression big = new ListExpression( StringExpression.makeString( "announce" ),
+            new ListExpression( "a", "bc", "" ), StringExpression.makeString( new byte[5000] ),
+            new ListExpression( new ListExpression( ListExpression.EMPTY ) ) );
+
+    /**
+     * Expressions back to back, read until the buffer runs out.
+     */
+    public void test_back_to_back() throws Exception {
+        ASEBufferReader reader = new ASEBufferReader( ByteBuffer.wrap( "3:abc(1:a())0:".getBytes( "us-ascii" ) ) );
+
+        assertEquals( "abc", reader.read().toString() );
+        assertEquals( "(a ())", reader.read().toString() );
+        assertEquals( StringExpression.EMPTY, reader.read() );
+        assertNull( reader.read() );
+    }
+
+    /**
+     * A big expression comes out the same from heap and direct buffers, and
+     * its short strings are the interned ones.
+     */
+    public void test_round_trip() throws Exception {
+        byte[] bytes = big.toVerbatim();
+        ByteBuffer direct = ByteBuffer.allocateDirect( bytes.length );
+        direct.put( bytes ).flip();
+
+        for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.wrap( bytes ), direct }) {
+            ASExpression read = new ASEBufferReader( buffer ).read();
+
+            assertTrue( Arrays.equals( bytes, read.toVerbatim() ) );
+            assertSame( ((ListExpression) big).get( 0 ), ((ListExpression) read).get( 0 ) );
+            assertEquals( ListExpression.EMPTY, ((ListExpression) big).get( 2 ).match( ((ListExpression) read).get( 2 ) ) );
+            assertFalse( buffer.hasRemaining() );
+        }
+    }
+
+    /**
+     * A string from the middle of a larger array doesn't keep the array.
+     */
+    public void test_slice() throws Exception {
+        byte[] bytes = "xx(19:buffer-reader-slice)xx".getBytes( "us-ascii" );
+        ByteBuffer buffer = ByteBuffer.wrap( bytes, 2, bytes.length - 4 ).slice();
+
+        ListExpression read = (ListExpression) new ASEBufferReader( buffer ).read();
+        assertEquals( "buffer-reader-slice".length(), ((StringExpression) read.get( 0 )).getBytes().length );
+        assertEquals( "buffer-reader-slice", read.get( 0 ).toString() );
+        assertNull( new ASEBufferReader( buffer ).read() );
+    }
+
+    /**
+     * Strings copied out of a direct buffer don't share the reader's scratch
+     * array, so they survive the next string being read.
+     */
+    public void test_scratch() throws Exception {
+        byte[] first = new byte[300];
+        byte[] second = new byte[300];
+        Arrays.fill( first, (byte) 'x' );
+        Arrays.fill( second, (byte) 'y' );
+        ByteBuffer direct = ByteBuffer.allocateDirect( 2000 );
+        direct.put( ("300:" + new String( first, "us-ascii" ) + "300:" + new String( second, "us-ascii" ) ).getBytes( "us-ascii" ) ).flip();
+
+        ASEBufferReader reader = new ASEBufferReader( direct );
+        StringExpression x = (StringExpression) reader.read();
+        StringExpression y = (StringExpression) reader.read();
+
+        assertTrue( Arrays.equals( first, x.getBytes() ) );
+        assertTrue( Arrays.equals( second, y.getBytes() ) );
+    }
+
+    /**
+     * Wildcards, named patterns and base64 expressions.
+     */
+    public void test_patterns() throws Exception {
+        ASEBufferReader reader = new ASEBufferReader( ByteBuffer.wrap( "(#a#s#w#n#f#l#s%4:name#a)".getBytes( "us-ascii" ) ) );
+        ListExpression read = (ListExpression) reader.read();
+
+        assertSame( Wildcard.SINGLETON, read.get( 0 ) );
+        assertSame( StringWildcard.SINGLETON, read.get( 1 ) );
+        assertSame( WildcardWildcard.SINGLETON, read.get( 2 ) );
+        assertSame( Nothing.SINGLETON, read.get( 3 ) );
+        assertSame( NoMatch.SINGLETON, read.get( 4 ) );
+        assertTrue( read.get( 5 ) instanceof ListWildcard );
+        assertTrue( read.get( 6 ) instanceof NamedPattern );
+
+        String base64 = "{" + Base64.encodeBytes( "(3:abc1:d)".getBytes( "us-ascii" ) ) + "}3:end";
+        reader = new ASEBufferReader( ByteBuffer.wrap( base64.getBytes( "us-ascii" ) ) );
+        assertEquals( "(abc d)", reader.read().toString() );
+        assertEquals( "end", reader.read().toString() );
+    }
+
+    /**
+     * Truncated and malformed input is rejected rather than read past.
+     */
+    public void test_invalid() throws Exception {
+        String[] invalid = { "(3:abc", "5:abc", "3x:abc", "99999999999:a", "#q", "#l", ")", "{abc" };
+
+        for (String s : invalid) {
+            try {
+                new ASEBufferReader( ByteBuffer.wrap( s.getBytes( "us-ascii" ) ) ).read();
+                fail( "Expected " + s + " to be rejected" );
+            }
+            catch (InvalidVerbatimStreamException e) {}
+        }
+    }
+
+    /**
+     * makeVerbatim goes through the buffer reader.
+     */
+    public void test_make_verbatim() throws Exception {
+        ASExpression read = ASExpression.makeVerbatim( big.toVerbatim() );
+        assertTrue( Arrays.equals( big.toVerbatim(), read.toVerbatim() ) );
+    }
+}
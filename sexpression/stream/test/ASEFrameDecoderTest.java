@@ -0,0 +1,128 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package sexpression.stream.test;
+
+import junit.framework.TestCase;
+import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.StringExpression;
+import sexpression.Wildcard;
+import sexpression.stream.ASEFrameDecoder;
+import sexpression.stream.InvalidVerbatimStreamException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * This class tests ASEFrameDecoder, mostly by feeding it expressions in
+ * awkward pieces.
+ */
+public class ASEFrameDecoderTest extends TestCase {
+
+    private final ASExpression big = new ListExpression( StringExpression.makeString( "announce" ),
+            new ListExpression( "a", "bc", "" ), StringExpression.makeString( new byte[5000] ), Wildcard.SINGLETON );
+
+    /**
+     * Whole expressions, back to back, in one buffer.
+     */
+    public void test_whole() throws Exception {
+        ArrayList<ASExpression> out = new ArrayList<>();
+        new ASEFrameDecoder().feed( ByteBuffer.wrap( "3:abc(1:a())0:".getBytes( "us-ascii" ) ), out );
+
+        assertEquals( 3, out.size() );
+        assertEquals( "abc", out.get( 0 ).toString() );
+        assertEquals( "(a ())", out.get( 1 ).toString() );
+        assertEquals( StringExpression.EMPTY, out.get( 2 ) );
+    }
+
+    /**
+     * A canonical frame keeps the bytes it arrived as; one with a padded
+     * string length is serialized afresh.
+     */
+    public void test_canonical() throws Exception {
+        ArrayList<ASExpression> out = new ArrayList<>();
+        new ASEFrameDecoder().feed( ByteBuffer.wrap( "(1:a3:abc)(1:a03:abc)".getBytes( "us-ascii" ) ), out );
+
+        assertEquals( 2, out.size() );
+        assertEquals( "(1:a3:abc)", new String( out.get( 0 ).toVerbatim(), "us-ascii" ) );
+        assertEquals( "(1:a3:abc)", new String( out.get( 1 ).toVerbatim(), "us-ascii" ) );
+        assertEquals( out.get( 0 ), out.get( 1 ) );
+    }
+
+    /**
+     * The same expressions arrive one byte at a time, and come out the same.
+     */
+    public void test_bytes() throws Exception {
+        byte[] bytes = concat( big.toVerbatim(), big.toVerbatim() );
+        ASEFrameDecoder decoder = new ASEFrameDecoder();
+        ArrayList<ASExpression> out = new ArrayList<>();
+
+        for (int i = 0; i < bytes.length; i++) {
+            decoder.feed( ByteBuffer.wrap( bytes, i, 1 ), out );
+            assertEquals( i >= bytes.length / 2 - 1 ? (i == bytes.length - 1 ? 2 : 1) : 0, out.size() );
+        }
+
+        assertEquals( big, out.get( 0 ) );
+        assertEquals( big, out.get( 1 ) );
+        assertFalse( decoder.partial() );
+    }
+
+    /**
+     * Pieces that split string lengths and bodies at odd places.
+     */
+    public void test_pieces() throws Exception {
+        byte[] bytes = concat( big.toVerbatim(), big.toVerbatim() );
+        ASEFrameDecoder decoder = new ASEFrameDecoder();
+        ArrayList<ASExpression> out = new ArrayList<>();
+
+        for (int off = 0; off < bytes.length; off += 777)
+            decoder.feed( ByteBuffer.wrap( bytes, off, Math.min( 777, bytes.length - off ) ), out );
+
+        assertEquals( 2, out.size() );
+        assertEquals( big, out.get( 1 ) );
+    }
+
+    /**
+     * Something that isn't a verbatim expression.
+     */
+    public void test_invalid() throws Exception {
+        try {
+            new ASEFrameDecoder().feed( ByteBuffer.wrap( "(3:abc)x".getBytes( "us-ascii" ) ), new ArrayList<ASExpression>() );
+            fail();
+        }
+        catch (InvalidVerbatimStreamException expected) {}
+
+        try {
+            new ASEFrameDecoder().feed( ByteBuffer.wrap( ")".getBytes( "us-ascii" ) ), new ArrayList<ASExpression>() );
+            fail();
+        }
+        catch (InvalidVerbatimStreamException expected) {}
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] ret = new byte[a.length + b.length];
+        System.arraycopy( a, 0, ret, 0, a.length );
+        System.arraycopy( b, 0, ret, a.length, b.length );
+        return ret;
+    }
+}
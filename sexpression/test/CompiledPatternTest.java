@@ -0,0 +1,125 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package sexpression.test;
+
+import org.junit.Test;
+import sexpression.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that compiled patterns agree with ASExpression.match() and
+ * namedMatch() on every pairing of a set of patterns and targets.
+ */
+public class CompiledPatternTest {
+
+    private static final String[] PATTERNS = {
+            "foo", "()", "#any", "#string", "#wildcard", "#nothing", "#nomatch",
+            "(foo #any)", "(foo #string #any)", "(#list:#string)", "(foo #list:(#string #any))",
+            "(#any (#string (#any)) #list:#any)", "(%a:#string %b:(%c:#any #any))",
+            "%top:(%x:#string #list:%y:#any)", "(%a:#any %a:#string)", "(#list:#list:#string bar)",
+            "(announce #any (#string #string) #any)" };
+
+    private static final String[] TARGETS = {
+            "foo", "bar", "()", "(foo)", "(foo bar)", "(foo (bar))", "(foo bar baz)", "(foo ())",
+            "((a b) (c d))", "(foo ((a 1) (b 2)))", "(foo ((a 1) b))", "(x (y (z)) (1 2 3))",
+            "(x (y (z)) ())", "(x (y z) ())", "(s (t u))", "(s (t (u)))", "(v (w x y))",
+            "(p q)", "((a b) bar)", "((a (b)) bar)", "(announce (host 1) (a b) (c))", "#any", "#string" };
+
+    @Test
+    public void agrees() throws Exception {
+        for (String p : PATTERNS) {
+            ASExpression pattern = ASExpression.make( p );
+            CompiledPattern compiled = CompiledPattern.compile( pattern );
+
+            for (String t : TARGETS) {
+                ASExpression target = ASExpression.make( t );
+                String what = p + " against " + t;
+
+                ASExpression expected = pattern.match( target );
+                ASExpression actual = compiled.match( target );
+                assertEquals( what, expected == NoMatch.SINGLETON, actual == NoMatch.SINGLETON );
+                assertEquals( what, expected == NoMatch.SINGLETON, !compiled.matches( target ) );
+
+                if (expected != NoMatch.SINGLETON) {
+                    assertEquals( what, expected.size(), actual.size() );
+                    for (int i = 0; i < expected.size(); i++)
+                        assertSame( what, ((ListExpression) expected).get( i ), ((ListExpression) actual).get( i ) );
+                }
+
+                HashMap<String, ASExpression> expectedNames = pattern.namedMatch( target );
+                HashMap<String, ASExpression> actualNames = compiled.namedMatch( target );
+                assertEquals( what, expectedNames == NamedNoMatch.SINGLETON, actualNames == NamedNoMatch.SINGLETON );
+                assertEquals( what, expectedNames.keySet(), actualNames.keySet() );
+                for (String name : expectedNames.keySet()) {
+                    assertSame( what, expectedNames.get( name ), actualNames.get( name ) );
+                    assertSame( what, expectedNames.get( name ), matchSlots( compiled, target )[compiled.slotOf( name )] );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void slots() throws Exception {
+        CompiledPattern compiled = CompiledPattern.compile( ASExpression.make( "(%a:#string (#any %b:bar))" ) );
+        assertEquals( 2, compiled.getCaptureCount() );
+        assertEquals( 4, compiled.getSlotCount() );
+        assertEquals( 2, compiled.slotOf( "a" ) );
+        assertEquals( 3, compiled.slotOf( "b" ) );
+        assertEquals( -1, compiled.slotOf( "c" ) );
+
+        ASExpression[] slots = new ASExpression[compiled.getSlotCount()];
+        assertTrue( compiled.match( ASExpression.make( "(foo ((1 2) bar))" ), slots ) );
+        assertSame( StringExpression.makeString( "foo" ), slots[0] );
+        assertEquals( "(1 2)", slots[1].toString() );
+        assertSame( slots[0], slots[2] );
+        assertSame( StringExpression.makeString( "bar" ), slots[3] );
+
+        assertFalse( compiled.match( ASExpression.make( "(foo ((1 2) baz))" ), slots ) );
+        assertFalse( compiled.matches( ASExpression.make( "((foo) ((1 2) bar))" ) ) );
+    }
+
+    @Test
+    public void longLiterals() throws Exception {
+        byte[] bytes = new byte[StringExpression.MAX_INTERNED * 2];
+        Arrays.fill( bytes, (byte) 'z' );
+        CompiledPattern compiled = CompiledPattern.compile( new ListExpression( StringExpression.makeString( bytes ),
+                Wildcard.SINGLETON ) );
+
+        assertTrue( compiled.matches( new ListExpression( StringExpression.makeString( bytes.clone() ),
+                ListExpression.EMPTY ) ) );
+        byte[] other = bytes.clone();
+        other[0] = 'y';
+        assertFalse( compiled.matches( new ListExpression( StringExpression.makeString( other ),
+                ListExpression.EMPTY ) ) );
+    }
+
+    private static ASExpression[] matchSlots(CompiledPattern compiled, ASExpression target) {
+        ASExpression[] slots = new ASExpression[compiled.getSlotCount()];
+        assertTrue( compiled.match( target, slots ) );
+        return slots;
+    }
+}
@@ -28,7 +28,9 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
   ByteArrayBufferTest.class,
+  CompiledPatternTest.class,
   PatternTest.class,
+  StringExpressionTest.class,
   SerializationTest.class
 })
 public class SExpressionTestSuite {
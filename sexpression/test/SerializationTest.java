@@ -26,11 +26,16 @@ import org.junit.Test;
 import sexpression.ASExpression;
 import sexpression.ListExpression;
 import sexpression.StringExpression;
+import sexpression.stream.ASEWriter;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class SerializationTest {
 
@@ -104,4 +109,59 @@ public class SerializationTest {
         eq2( "%huge:(#list:#list:#string #list:#list:#string)",
             "%4:huge(#l#l#s#l#l#s)" );
     }
+
+    @Test
+    public void lengths() throws Exception {
+        ASExpression e = ASExpression.make( "(foo () (%blah:#list:#any bar) #string)" );
+        assertEquals( ASExpression.make( "(foo () (%blah:#list:#any bar) #string)" ).toVerbatim().length,
+            e.getVerbatimLength() );
+        assertEquals( 11, StringExpression.makeString( "123456789" ).getVerbatimLength() );
+        assertEquals( 13, StringExpression.makeString( "0123456789" ).getVerbatimLength() );
+        assertEquals( 104, StringExpression.makeString( new byte[100] ).getVerbatimLength() );
+        assertEquals( 0, ASExpression.make( "#nothing" ).getVerbatimLength() );
+    }
+
+    @Test
+    public void buffers() throws Exception {
+        ASExpression e = ASExpression.make( "(foo () (bar baz) #string)" );
+        byte[] verbatim = ASExpression.make( "(foo () (bar baz) #string)" ).toVerbatim();
+
+        ByteBuffer heap = ByteBuffer.allocate( verbatim.length + 2 );
+        heap.put( (byte) 'x' );
+        e.writeVerbatim( heap );
+        assertEquals( verbatim.length + 1, heap.position() );
+
+        ByteBuffer direct = ByteBuffer.allocateDirect( verbatim.length );
+        e.writeVerbatim( direct );
+        assertEquals( 0, direct.remaining() );
+
+        byte[] bytes = new byte[verbatim.length];
+        heap.flip().position( 1 );
+        heap.get( bytes );
+        assertTrue( Arrays.equals( verbatim, bytes ) );
+        direct.flip();
+        direct.get( bytes );
+        assertTrue( Arrays.equals( verbatim, bytes ) );
+
+        try {
+            e.writeVerbatim( ByteBuffer.allocate( verbatim.length - 1 ) );
+            fail( "Expected the buffer to overflow" );
+        }
+        catch (BufferOverflowException ex) {}
+    }
+
+    @Test
+    public void streamed() throws Exception {
+        byte[] big = new byte[ASExpression.STREAM_THRESHOLD];
+        Arrays.fill( big, (byte) 'q' );
+        ASExpression e = new ListExpression( StringExpression.makeString( "big" ), StringExpression.makeString( big ),
+                new ListExpression( StringExpression.makeString( big ) ) );
+        ASExpression copy = new ListExpression( StringExpression.makeString( "big" ), StringExpression.makeString( big ),
+                new ListExpression( StringExpression.makeString( big ) ) );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ASEWriter( out ).writeASE( e );
+        assertTrue( Arrays.equals( copy.toVerbatim(), out.toByteArray() ) );
+        assertEquals( copy, ASExpression.makeVerbatim( out.toByteArray() ) );
+    }
 }
@@ -0,0 +1,138 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package sexpression.test;
+
+import org.junit.Test;
+import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.NamedPattern;
+import sexpression.NamedNoMatch;
+import sexpression.NoMatch;
+import sexpression.StringExpression;
+import sexpression.Wildcard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the string intern table: identity for short strings, byte matching
+ * for long ones, cleanup of collected strings, interning from several
+ * threads at once, and the symbol table.
+ */
+public class StringExpressionTest {
+
+    @Test
+    public void interned() throws Exception {
+        byte[] bytes = "xxinterned-stringxx".getBytes( "us-ascii" );
+        StringExpression s = StringExpression.makeString( "interned-string" );
+
+        assertSame( s, StringExpression.makeString( "interned-string".getBytes( "us-ascii" ) ) );
+        assertSame( s, StringExpression.makeString( bytes, 2, bytes.length - 4 ) );
+        assertSame( StringExpression.EMPTY, StringExpression.makeString( new byte[0] ) );
+        assertSame( StringExpression.EMPTY, StringExpression.makeString( bytes, 3, 0 ) );
+        assertSame( NoMatch.SINGLETON, s.match( StringExpression.makeString( "interned-strinG" ) ) );
+    }
+
+    @Test
+    public void uninterned() throws Exception {
+        byte[] bytes = new byte[StringExpression.MAX_INTERNED + 1];
+        Arrays.fill( bytes, (byte) 7 );
+        StringExpression a = StringExpression.makeString( bytes );
+        StringExpression b = StringExpression.makeString( bytes.clone() );
+
+        assertNotSame( a, b );
+        assertSame( ListExpression.EMPTY, a.match( b ) );
+        assertTrue( b.namedMatch( a ).isEmpty() );
+
+        bytes = bytes.clone();
+        bytes[0] = 8;
+        StringExpression c = StringExpression.makeString( bytes );
+        assertSame( NoMatch.SINGLETON, a.match( c ) );
+        assertSame( NamedNoMatch.SINGLETON, a.namedMatch( c ) );
+        assertSame( NoMatch.SINGLETON, a.match( new ListExpression( a ) ) );
+    }
+
+    @Test
+    public void collected() throws Exception {
+        int before = StringExpression.internedCount();
+        for (int i = 0; i < 10000; i++)
+            StringExpression.makeString( "collected-" + i );
+
+        assertTrue( StringExpression.internedCount() >= before + 10000 );
+
+        for (int i = 0; i < 50 && StringExpression.internedCount() >= before + 10000; i++) {
+            System.gc();
+            Thread.sleep( 20 );
+        }
+        assertTrue( StringExpression.internedCount() < before + 10000 );
+    }
+
+    @Test
+    public void symbols() throws Exception {
+        StringExpression s = StringExpression.symbol( "symbol-test" );
+
+        assertSame( s, StringExpression.symbol( "symbol-test" ) );
+        assertSame( s, StringExpression.makeString( "symbol-test" ) );
+        assertSame( s, ASExpression.make( "symbol-test" ) );
+    }
+
+    @Test
+    public void atoms() throws Exception {
+        assertSame( StringExpression.makeString( "a-b.c$d{e}" ), ASExpression.make( "a-b.c$d{e}" ) );
+        assertSame( StringExpression.makeString( "abc" ), ASExpression.make( "abc;comment" ) );
+        assertSame( StringExpression.makeString( "abc" ), ASExpression.make( " abc " ) );
+        assertSame( Wildcard.SINGLETON, ASExpression.make( "#any" ) );
+        assertTrue( ASExpression.make( "%a:#any" ) instanceof NamedPattern );
+        assertEquals( 2, ASExpression.make( "(a b)" ).size() );
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        final int threads = 8;
+        final List<StringExpression[]> results = new ArrayList<>();
+        List<Thread> running = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            final StringExpression[] made = new StringExpression[2000];
+            results.add( made );
+            Thread thread = new Thread( new Runnable() {
+                public void run() {
+                    for (int i = 0; i < made.length; i++)
+                        made[i] = StringExpression.makeString( "concurrent-" + i );
+                }
+            } );
+            running.add( thread );
+            thread.start();
+        }
+
+        for (Thread thread : running)
+            thread.join();
+
+        for (StringExpression[] made : results)
+            for (int i = 0; i < made.length; i++)
+                assertSame( results.get( 0 )[i], made[i] );
+    }
+}
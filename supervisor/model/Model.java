@@ -387,8 +387,8 @@ public class Model {
         boolean canClose = !isActiveVotingSession();
 
         if(canClose)
-            /* Announce that the polls are closing */
-            auditorium.announce(new PollsClosedEvent(mySerial, new Date().getTime()));
+            /* Announce that the polls are closing, and make sure the log is on disk once it's recorded */
+            auditorium.announce(new PollsClosedEvent(mySerial, new Date().getTime()), true);
 
         return canClose;
     }
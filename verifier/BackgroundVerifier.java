@@ -0,0 +1,229 @@
+/**
+  * This file is part of VoteBox.
+  * 
+  * VoteBox is free software: you can redistribute it and/or modify
+  * it under the terms of the GNU General Public License version 3 as published by
+  * the Free Software Foundation.
+  * 
+  * You should have received a copy of the GNU General Public License
+  * along with VoteBox, found in the root of any distribution or
+  * repository containing all or part of VoteBox.
+  * 
+  * THIS SOFTWARE IS PROVIDED BY WILLIAM MARSH RICE UNIVERSITY, HOUSTON,
+  * TX AND IS PROVIDED 'AS IS' AND WITHOUT ANY EXPRESS, IMPLIED OR
+  * STATUTORY WARRANTIES, INCLUDING, BUT NOT LIMITED TO, WARRANTIES OF
+  * ACCURACY, COMPLETENESS, AND NONINFRINGEMENT.  THE SOFTWARE USER SHALL
+  * INDEMNIFY, DEFEND AND HOLD HARMLESS RICE UNIVERSITY AND ITS FACULTY,
+  * STAFF AND STUDENTS FROM ANY AND ALL CLAIMS, ACTIONS, DAMAGES, LOSSES,
+  * LIABILITIES, COSTS AND EXPENSES, INCLUDING ATTORNEYS' FEES AND COURT
+  * COSTS, DIRECTLY OR INDIRECTLY ARISING OUR OF OR IN CONNECTION WITH
+  * ACCESS OR USE OF THE SOFTWARE.
+ */
+
+package verifier;
+
+import auditorium.Bugout;
+import auditorium.Event;
+import auditorium.Message;
+import sexpression.ASExpression;
+import verifier.ast.AST;
+import verifier.ast.ASTParser;
+import verifier.ast.Constant;
+import verifier.auditoriumverifierplugins.IncrementalAuditoriumLog;
+import verifier.value.False;
+import verifier.value.Value;
+
+import java.util.ArrayList;
+import java.util.Observer;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an incremental rule against a log as it grows, on a thread of its own,
+ * so that no matter how long the rule takes to evaluate, the host logging
+ * the messages never waits on it.<br>
+ * <br>
+ * The host hands each message over with add(), which only queues it. The
+ * verifier thread appends queued messages to its plugin (checking the hash
+ * chain as it goes), and evaluates the rule against a fresh snapshot of
+ * all-set and all-dag once enough messages have been appended, or once
+ * enough time has passed since the last evaluation. Evaluations are spaced
+ * out to at least {@link #BACKOFF} times as long as the last one took, so a
+ * rule that gets slower as the log grows is run less often rather than
+ * falling ever further behind. Everything the plugin and verifier hold is
+ * touched only by the verifier thread.<br>
+ * <br>
+ * Problems are reported to observers: the argument is either the InvalidLogEntryException a
+ * message was rejected with, or the False value the rule evaluated to.
+ */
+public class BackgroundVerifier implements Runnable {
+
+    /** The default number of messages between evaluations */
+    public static final int DEFAULT_EVERY = 10;
+
+    /** Wait at least this many times as long as the last evaluation took before the next */
+    public static final int BACKOFF = 4;
+
+    /** The verifier the rule is evaluated with */
+    private final Verifier verifier;
+
+    /** The plugin that holds all-set and all-dag */
+    private final IncrementalAuditoriumLog plugin;
+
+    /** The rule, or null to only check the hash chain */
+    private final ASExpression rule;
+
+    /** Evaluate once this many messages have been appended (0 for no limit) */
+    private final int every;
+
+    /** Evaluate once this many milliseconds have passed, if anything has been appended (0 for no limit) */
+    private final long interval;
+
+    /** Messages waiting to be appended */
+    private final LinkedBlockingQueue<Message> queue = new LinkedBlockingQueue<>();
+
+    /** Fired for every problem found */
+    private final Event<Object> violations = new Event<>();
+
+    /** The verifier thread, once it has started */
+    private volatile Thread thread;
+
+    /** Cleared by stop() */
+    private volatile boolean running = true;
+
+    /**
+     * Constructor. If neither a message count nor an interval is given, the
+     * rule is evaluated after every {@link #DEFAULT_EVERY} messages.
+     *
+     * @param verifier      The verifier to evaluate the rule with. Its plugins have already been initialized.
+     * @param plugin        The incremental plugin registered with the verifier.
+     * @param rule          The incremental rule, or null to only check the hash chain.
+     * @param every         Evaluate the rule once this many messages have been appended (0 for no limit).
+     * @param interval      Evaluate the rule once this many milliseconds have passed since the last evaluation (0
+     *                      for no limit).
+     */
+    public BackgroundVerifier(Verifier verifier, IncrementalAuditoriumLog plugin, ASExpression rule, int every,
+                              long interval) {
+        this.verifier = verifier;
+        this.plugin = plugin;
+        this.rule = rule;
+        this.every = every <= 0 && interval <= 0 ? DEFAULT_EVERY : every;
+        this.interval = interval;
+    }
+
+    /**
+     * Queue a message that has just been logged. This never waits.
+     *
+     * @param message       The message, as logged (with its chained hash).
+     */
+    public void add(Message message) {
+        queue.offer(message);
+    }
+
+    /**
+     * Register an observer to be told of each problem found. Observers are
+     * called on the verifier thread.
+     *
+     * @param observer      The observer.
+     */
+    public void registerForViolations(Observer observer) {
+        violations.addObserver(observer);
+    }
+
+    /**
+     * @return The number of messages waiting to be appended.
+     */
+    public int backlog() {
+        return queue.size();
+    }
+
+    /**
+     * Stop the verifier thread. Messages still waiting are not checked.
+     */
+    public void stop() {
+        running = false;
+
+        Thread t = thread;
+        if (t != null)
+            t.interrupt();
+    }
+
+    /**
+     * The verifier thread.
+     */
+    public void run() {
+        thread = Thread.currentThread();
+        Bugout.msg("Verifier: THREAD START");
+
+        AST parsed = rule == null ? null : new ASTParser(verifier.getPrimitiveFactories(), Constant.FACTORY).parse(rule);
+        ArrayList<Message> batch = new ArrayList<>();
+        long last = System.currentTimeMillis(), cost = 0;
+        int unchecked = 0;
+
+        while (running) {
+            try {
+                /* Wait for messages, or until an evaluation is due */
+                long wait = unchecked == 0 ? Long.MAX_VALUE : dueIn(last, cost, unchecked);
+                Message first = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+
+            for (Message m : batch) {
+                try {
+                    plugin.append(m);
+
+                    /* With no rule there is never an evaluation due, so the thread just waits on the queue */
+                    if (parsed != null)
+                        unchecked++;
+                }
+                catch (InvalidLogEntryException e) {
+                    Bugout.err("Verifier: " + e.getMessage());
+                    violations.notify(e);
+                }
+            }
+            batch.clear();
+
+            if (unchecked == 0 || dueIn(last, cost, unchecked) > 0)
+                continue;
+
+            /* Evaluate against everything appended so far */
+            long start = System.currentTimeMillis();
+            plugin.snapshot();
+            Value result = verifier.eval(parsed);
+            last = System.currentTimeMillis();
+            cost = last - start;
+            unchecked = 0;
+
+            if (result == False.SINGLETON) {
+                Bugout.err("Verifier: the incremental rule failed");
+                violations.notify(result);
+            }
+        }
+
+        Bugout.msg("Verifier: THREAD END");
+    }
+
+    /**
+     * @return How many milliseconds until the next evaluation is due (0 or
+     *         less if it is due now), or Long.MAX_VALUE if it waits on more
+     *         messages.
+     */
+    private long dueIn(long last, long cost, int unchecked) {
+        long now = System.currentTimeMillis();
+        long earliest = last + cost * BACKOFF;
+
+        if (every > 0 && unchecked >= every)
+            return earliest - now;
+
+        if (interval > 0)
+            return Math.max(earliest, last + interval) - now;
+
+        return Long.MAX_VALUE;
+    }
+}
@@ -129,16 +129,16 @@ public class TestDataGen {
 		Signature sig;
 		if (_recent != null) {
 			sig = RSACrypto.SINGLETON.sign(new ListExpression(StringExpression
-					.make("succeeds"), new ListExpression(new MessagePointer(
+					.symbol("succeeds"), new ListExpression(new MessagePointer(
 					_recent).toASE()), message), key);
 		} else {
 			sig = RSACrypto.SINGLETON.sign(new ListExpression(StringExpression
-					.make("succeeds"), ListExpression.EMPTY, message), key);
+					.symbol("succeeds"), ListExpression.EMPTY, message), key);
 		}
 
 		Message msg = new Message("announce", _hp[from], Integer
 				.toString(_sequence[from]), new ListExpression(StringExpression
-				.make("signed-message"), cert.toASE(), sig.toASE()));
+				.symbol("signed-message"), cert.toASE(), sig.toASE()));
 		if (track)
 			_recent = msg;
 		return msg;
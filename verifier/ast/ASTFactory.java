@@ -23,6 +23,7 @@
 package verifier.ast;
 
 import sexpression.ASExpression;
+import sexpression.CompiledPattern;
 import sexpression.ListExpression;
 
 /**
@@ -76,4 +77,18 @@ public abstract class ASTFactory {
 			_pattern = ASExpression.make(getPattern());
 		return _pattern;
 	}
+
+	private CompiledPattern _compiled;
+
+	/**
+	 * Get the pattern (the result of this.getPatternASE()) compiled, for
+	 * matching expressions against. This value is lazily computed and cached.
+	 * 
+	 * @return This method returns the compiled pattern.
+	 */
+	public CompiledPattern getCompiledPattern() {
+		if (_compiled == null)
+			_compiled = CompiledPattern.compile(getPatternASE());
+		return _compiled;
+	}
 }
@@ -84,7 +84,7 @@ public class ASTParser {
 	public AST parse(ASExpression expression) {
 		try {
 			// constant/identifier case
-			ASExpression matchresult = _constfactory.getPatternASE().match(
+			ASExpression matchresult = _constfactory.getCompiledPattern().match(
 					expression);
 			if (matchresult != NoMatch.SINGLETON)
 				return _constfactory.make(expression,
@@ -96,7 +96,7 @@ public class ASTParser {
 				if (zeroelt instanceof StringExpression
 						&& _primfactories.containsKey(zeroelt.toString())) {
 					ASTFactory factory = _primfactories.get(zeroelt.toString());
-					matchresult = factory.getPatternASE().match(expression);
+					matchresult = factory.getCompiledPattern().match(expression);
 					if (matchresult != NoMatch.SINGLETON)
 						return factory.make(expression,
 								(ListExpression) matchresult, this);
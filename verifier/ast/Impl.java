@@ -113,14 +113,14 @@ public class Impl extends AST {
 	public ASExpression toASE() {
 		if (_ase == null) {
 			if (_antecedentValue != null)
-				_ase = new ListExpression(StringExpression.make("aimpl"),
+				_ase = new ListExpression(StringExpression.symbol("aimpl"),
 						_antecedentValue.toASE(), _consequent.toASE());
 
 			if (_consequentValue != null)
-				_ase = new ListExpression(StringExpression.make("cimpl"),
+				_ase = new ListExpression(StringExpression.symbol("cimpl"),
 						_antecedent.toASE(), _consequentValue.toASE());
 
-			_ase = new ListExpression(StringExpression.make("impl"),
+			_ase = new ListExpression(StringExpression.symbol("impl"),
 					_antecedent.toASE(), _consequent.toASE());
 		}
 		return _ase;
@@ -114,7 +114,7 @@ public class Let extends AST {
 		if (_record == null)
 			return super.toASE();
 		if (_ase == null)
-			_ase = new ListExpression(StringExpression.make("plet"), _record
+			_ase = new ListExpression(StringExpression.symbol("plet"), _record
 					.toASE(), _body.toASE());
 		return _ase;
 	}
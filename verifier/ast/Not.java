@@ -53,7 +53,7 @@ public class Not extends AST {
 
 	@Override
 	public ASExpression toASE() {
-		return new ListExpression(StringExpression.make("not"), _arg.toASE());
+		return new ListExpression(StringExpression.symbol("not"), _arg.toASE());
 	}
 
 	/**
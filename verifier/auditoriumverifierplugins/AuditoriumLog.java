@@ -23,9 +23,10 @@
 package verifier.auditoriumverifierplugins;
 
 import auditorium.IncorrectFormatException;
+import auditorium.LogReader;
+import auditorium.LogSegmenter;
 import auditorium.Message;
 import sexpression.ASExpression;
-import sexpression.stream.ASEInputStreamReader;
 import sexpression.stream.InvalidVerbatimStreamException;
 import verifier.ActivationRecord;
 import verifier.IVerifierPlugin;
@@ -36,16 +37,15 @@ import verifier.value.Expression;
 import verifier.value.SetValue;
 import verifier.value.Value;
 
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
  * Read log data in from the argument "log" and construct all-set and all-dag
- * based on this.
+ * based on this. If the argument "segmented" is true, the log was written in
+ * segments (see LogSegmenter), which are read in order.
  * 
  * @author kyle
  * 
@@ -81,16 +81,19 @@ public class AuditoriumLog implements IVerifierPlugin {
 		ArrayList<Expression> set = new ArrayList<>();
 
 		try {
-			ASEInputStreamReader in = new ASEInputStreamReader( new FileInputStream(new File(verifier.getArgs().get("log"))));
+			for (File file : files(verifier)) {
+				LogReader in = new LogReader(file);
 
-            ASExpression exp;
-            /* Loop until end of file and load into dag to build set */
-			while ((exp = in.read()) != null) {
-				Message msg = new Message(exp);
-                dag.add(msg);
-				set.add(new Expression(msg.toASE()));
+                /* Parse the entries in parallel, then load them into the dag in log order to build the set */
+				for (ASExpression exp : in.readAll(Runtime.getRuntime().availableProcessors())) {
+					Message msg = new Message(exp).expanded();
+                    dag.add(msg);
+
+                    /* Rules match one announcement to a message, so a batch goes in as each of its announcements */
+					for (Message announcement : msg.unbatched())
+						set.add(new Expression(announcement.toASE()));
+				}
 			}
-		} catch (EOFException ignored) {
 		} catch (IOException | IncorrectFormatException | InvalidVerbatimStreamException e) {
 			throw new PluginException("auditorium", e);
 		}
@@ -105,4 +108,17 @@ public class AuditoriumLog implements IVerifierPlugin {
 		bindings.put("all-dag", dv);
 		ActivationRecord.END.setBindings(bindings);
 	}
+
+	/**
+	 * @param verifier Find the log given to this verifier.
+	 * @return The files that hold the log, in order: its segments if the
+	 *         "segmented" argument is true, or else just the log.
+	 */
+	static File[] files(Verifier verifier) {
+		File log = new File(verifier.getArgs().get("log"));
+		if (Boolean.parseBoolean(verifier.getArgs().get("segmented")))
+			return LogSegmenter.segments(log);
+
+		return new File[] { log };
+	}
 }
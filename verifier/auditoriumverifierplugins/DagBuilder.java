@@ -70,7 +70,9 @@ public class DagBuilder {
     }
 
     /**
-     * Add a message to the list of messages that this builder is holding
+     * Add a message to the list of messages that this builder is holding. If
+     * it is a batch, each of its announcements (see Message.unbatched()) is
+     * mapped to the batch's place in the dag.
      * 
      * @param message Add this message to the list
      *
@@ -82,11 +84,13 @@ public class DagBuilder {
         try {
 
         	Expression ptr  = new Expression( new MessagePointer( message ).toASE());
+            message = message.expanded();
         	Expression expr = new Expression( message.toASE() );
             
         	/* Store ptr-->message mapping in DAG */
         	_ptrToMsg.put( ptr, expr );
-            _msgToPtr.put( expr, ptr );
+            for (Message announcement : message.unbatched())
+                _msgToPtr.put( new Expression( announcement.toASE() ), ptr );
 
             ASExpression matchresult = PATTERN.match(message.getDatum());
 
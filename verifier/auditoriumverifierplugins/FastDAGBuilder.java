@@ -25,6 +25,7 @@ package verifier.auditoriumverifierplugins;
 import auditorium.IncorrectFormatException;
 import auditorium.Message;
 import auditorium.MessagePointer;
+import auditorium.SeenIndex;
 import sexpression.*;
 import verifier.FormatException;
 import verifier.value.DAGValue;
@@ -49,13 +50,16 @@ public class FastDAGBuilder extends DagBuilder {
                                                 new ListExpression(StringExpression.makeString( "succeeds" ),
                                                 new ListWildcard(MessagePointer.PATTERN), Wildcard.SINGLETON ) ) );
 
+    /* PATTERN, compiled, since every message in the log is matched against it */
+    private static final CompiledPattern MATCH = CompiledPattern.compile(PATTERN);
+
     /* Mapping of ptr-->(listof predecessor ptrs) */
     private HashMap<Expression, List<Expression>> _predecessors;
 
     /* Mapping of message-->its own ptr */
     private HashMap<Expression, Expression> _msgToPtr;
     
-    private Map<String, Map<Integer, Expression>> _timelines;
+    private Map<String, Map<Long, Expression>> _timelines;
     
     public FastDAGBuilder() {
         _predecessors = new HashMap<>();
@@ -64,7 +68,9 @@ public class FastDAGBuilder extends DagBuilder {
     }
 
     /**
-     * Add a message to the list of messages that this builder is holding
+     * Add a message to the list of messages that this builder is holding. If
+     * it is a batch, each of its announcements (see Message.unbatched()) is
+     * mapped to the batch's place in the dag.
      *
      * @param message Add this message to the list
      * @throws FormatException This method throws if the given message's datum is not
@@ -76,22 +82,27 @@ public class FastDAGBuilder extends DagBuilder {
 
         	MessagePointer msgPtr   = new MessagePointer(message);
         	Expression ptr          = new Expression(msgPtr.toASE());
-        	Expression expr         = new Expression(message.toASE());
             String msgPtrID         = msgPtr.getNodeId();
+            message                 = message.expanded();
 
             
         	/* Store ptr-->message mapping in DAG */
-            _msgToPtr.put( expr, ptr );
+            for (Message announcement : message.unbatched())
+                _msgToPtr.put( new Expression(announcement.toASE()), ptr );
             
             /* Store timeline index if the timeline doesn't have it */
             if (! _timelines.containsKey(msgPtrID))
-            	_timelines.put(msgPtrID, new HashMap<Integer, Expression>());
+            	_timelines.put(msgPtrID, new HashMap<Long, Expression>());
 
             /* Finish the putting process */
-            _timelines.get(msgPtrID).put(new Integer(msgPtr.getNumber()), ptr);
+            /* Sequence numbers start from the launch time, so they don't fit in an int */
+            long number = SeenIndex.parseSequence(msgPtr.getNumber());
+            if (number < 0)
+                throw new FormatException( message.getDatum(), new Exception( "bad sequence number " + msgPtr.getNumber() ) );
+            _timelines.get(msgPtrID).put(number, ptr);
 
             /* Check if the pattern matches */
-            ASExpression matchresult = PATTERN.match(message.getDatum());
+            ASExpression matchresult = MATCH.match(message.getDatum());
 
             /* Throw an exception if the formatting doesn't match */
             if (matchresult == NoMatch.SINGLETON)
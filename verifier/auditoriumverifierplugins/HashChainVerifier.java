@@ -1,24 +1,32 @@
 package verifier.auditoriumverifierplugins;
 
+import auditorium.ChainHasher;
 import auditorium.IncorrectFormatException;
+import auditorium.LogReader;
+import auditorium.LogSegmenter;
 import auditorium.Message;
+import auditorium.SegmentFooter;
 import sexpression.ASExpression;
 import sexpression.StringExpression;
-import sexpression.stream.ASEInputStreamReader;
 import sexpression.stream.InvalidVerbatimStreamException;
 import verifier.HashChainCompromisedException;
 import verifier.IVerifierPlugin;
 import verifier.PluginException;
 import verifier.Verifier;
 
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This is a plugin for verifier that will look at the hashes contained in each logged message and recompute the hash chain
- * to ensure that nothing has gone awry.
+ * to ensure that nothing has gone awry. The chain is recomputed in ChainHasher's compat mode unless the verifier's
+ * "hashchain" argument is "fast".
  *
  * @author Matt Bernhard
  */
@@ -28,6 +36,9 @@ public class HashChainVerifier implements IVerifierPlugin {
 
     private ASExpression incrementalHash;
 
+    /** True if the log was chained in ChainHasher's fast mode */
+    private boolean fast;
+
     /**
      * Initialize the plugin.
      *
@@ -38,43 +49,199 @@ public class HashChainVerifier implements IVerifierPlugin {
     public void init(Verifier verifier)  {
         incrementalHash = StringExpression.makeString(StringExpression.makeString("0000000000").getSHA1());
         this.verifier = verifier;
+        fast = ChainHasher.FAST.equals(verifier.getArgs().get("hashchain"));
     }
 
 
     /**
      * This will look through each message in the log and ensure that its hash chain hasn't been compromised.
+     * If the verifier's "segmented" argument is true, the log's segments are checked as in verifySegments.
      *
      * TODO We should probably retool the way verifier handles plugins since they seem to be somewhat backwards
      *
      */
     public void verify() throws HashChainCompromisedException {
         /* Initialize that hash chain with string 0000000000, the known starting value for our hash */
-        ASExpression hash = StringExpression.makeString(StringExpression.makeString("0000000000").getSHA1());
+        if (Boolean.parseBoolean(verifier.getArgs().get("segmented"))) {
+            verifySegments(Runtime.getRuntime().availableProcessors());
+            return;
+        }
+
+        try {
+            chain(new LogReader(new File(verifier.getArgs().get("log"))), new ChainHasher(fast, "0000000000"));
+        } catch (IOException | IncorrectFormatException | InvalidVerbatimStreamException e) {
+            throw new PluginException("auditorium", e);
+        }
+    }
+
+    /**
+     * Verify a segmented log (see LogSegmenter) from the start. Every finished
+     * segment is checked against its own footer, with the segments split
+     * between several threads, and then the footers are checked to link up
+     * into one chain from the starting value.
+     *
+     * @param threads   Check this many segments at once.
+     * @return          The number of segments verified.
+     */
+    public int verifySegments(int threads) throws HashChainCompromisedException {
+        return verifySegments(0, threads);
+    }
+
+    /**
+     * Verify a segmented log, resuming from a checkpoint: the segments before
+     * the given one are taken to have been verified already, and the chain
+     * carries on from the footer of the one just before it.
+     *
+     * @param from      Start with this segment.
+     * @param threads   Check this many segments at once.
+     * @return          The number of segments verified.
+     */
+    public int verifySegments(int from, int threads) throws HashChainCompromisedException {
+        File base = new File(verifier.getArgs().get("log"));
+        final File[] segments = LogSegmenter.segments(base);
 
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
         try {
-            ASEInputStreamReader in = new ASEInputStreamReader( new FileInputStream(new File(verifier.getArgs().get("log"))));
+            /* The starting value, from the launch code or from the checkpoint */
+            ASExpression hash = new ChainHasher(fast, "0000000000").getLast();
+            if (from > 0) {
+                SegmentFooter checkpoint = readFooter(segments, from - 1);
+                if (checkpoint == null)
+                    throw new HashChainCompromisedException("Segment " + (from - 1) + " has no footer to resume from");
+                hash = checkpoint.getLast();
+            }
+
+            /* Check each segment on its own, all at once */
+            ArrayList<Future<SegmentFooter>> checks = new ArrayList<>();
+            for (int i = from; i < segments.length; i++) {
+                final File segment = segments[i];
+                checks.add(pool.submit(new Callable<SegmentFooter>() {
+                    public SegmentFooter call() throws Exception {
+                        return verifySegment(segment, fast);
+                    }
+                }));
+            }
 
-            ASExpression exp;
+            /* Then make sure they link up, in order */
+            for (int i = from; i < segments.length; i++) {
+                SegmentFooter footer = get(checks.get(i - from));
 
-            /* Loop until end of file and load into dag to build set */
-            while ((exp = in.read()) != null) {
-                Message msg = new Message(exp);
+                /* Only the last segment can be unfinished (it was being written when the log stopped) */
+                if (footer == null) {
+                    if (i != segments.length - 1)
+                        throw new HashChainCompromisedException("Segment " + i + " has no footer");
 
-                /* Build a new message based on the one found in the log */
-                Message compare = new Message(msg.getType(), msg.getFrom(), msg.getSequence(), msg.getDatum());
+                    verifyChain(segments[i], new ChainHasher(fast, hash));
+                    break;
+                }
 
-                /* Recompute its hash, including the value we expect it to have for its hash */
-                compare.chain(hash);
-                hash = compare.getChainedHash();
+                if (footer.getIndex() != i)
+                    throw new HashChainCompromisedException("Segment " + i + " claims to be segment " + footer.getIndex());
+                if (!footer.getPrevious().equals(hash))
+                    throw new HashChainCompromisedException("Segment " + i + " doesn't follow on from segment " + (i - 1));
 
-                /* Compare the newly built hash with the hash we read in */
-                if(!hash.equals(msg.getChainedHash()))
-                    throw new HashChainCompromisedException("The hash chain failed to verify!");
+                hash = footer.getLast();
             }
-        } catch (EOFException ignored) {
-        } catch (IOException | IncorrectFormatException | InvalidVerbatimStreamException e) {
+
+            return segments.length - from;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Check one finished segment against its footer: the entry count, the
+     * digest of its bytes, and the chain from the footer's previous hash to
+     * its last hash.
+     *
+     * @param segment   The segment file.
+     * @param fast      True if the log was chained in fast mode.
+     * @return          The segment's footer, or null if it hasn't got one.
+     */
+    private static SegmentFooter verifySegment(File segment, boolean fast) throws Exception {
+        LogReader in = new LogReader(segment);
+        SegmentFooter footer = in.getFooter();
+        if (footer == null)
+            return null;
+
+        if (footer.getCount() != in.size())
+            throw new HashChainCompromisedException(segment + " has " + in.size() + " entries, but its footer says "
+                    + footer.getCount());
+        if (!StringExpression.makeString(in.digest()).equals(footer.getDigest()))
+            throw new HashChainCompromisedException(segment + " doesn't match the digest in its footer");
+        if (!chain(in, new ChainHasher(fast, footer.getPrevious())).equals(footer.getLast()))
+            throw new HashChainCompromisedException("The hash chain in " + segment + " failed to verify!");
+
+        return footer;
+    }
+
+    /**
+     * Check the chain through a segment that has no footer.
+     *
+     * @param segment   The segment file.
+     * @param chain     The chain, carried on from the chained hash before its first entry.
+     */
+    private static void verifyChain(File segment, ChainHasher chain) throws HashChainCompromisedException {
+        try {
+            chain(new LogReader(segment), chain);
+        }
+        catch (IOException | IncorrectFormatException | InvalidVerbatimStreamException e) {
+            throw new PluginException("auditorium", e);
+        }
+    }
+
+    /**
+     * Walk the chain through every entry of a log, checking each entry's hash.
+     *
+     * @param in        The log.
+     * @param chain     The chain, carried on from the chained hash before the first entry.
+     * @return          The chained hash of the last entry.
+     */
+    private static ASExpression chain(LogReader in, ChainHasher chain)
+            throws HashChainCompromisedException, IncorrectFormatException, InvalidVerbatimStreamException {
+        for (int i = 0; i < in.size(); i++) {
+            Message msg = in.readMessage(i);
+
+            /* The message's own hash leaves out the chained hash it was logged with, so it is what was chained */
+            if (!chain.check(msg.getDigest(), msg.getChainedHash()))
+                throw new HashChainCompromisedException("The hash chain failed to verify!");
+        }
+
+        return chain.getLast();
+    }
+
+    /**
+     * Read the footer of a segment that isn't being verified now.
+     */
+    private static SegmentFooter readFooter(File[] segments, int i) {
+        if (i >= segments.length)
+            return null;
+
+        try {
+            return new LogReader(segments[i]).getFooter();
+        }
+        catch (IOException | IncorrectFormatException | InvalidVerbatimStreamException e) {
+            throw new PluginException("auditorium", e);
+        }
+    }
+
+    /**
+     * Wait for a segment check, and pass on what it found.
+     */
+    private static SegmentFooter get(Future<SegmentFooter> check) throws HashChainCompromisedException {
+        try {
+            return check.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new PluginException("auditorium", e);
         }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof HashChainCompromisedException)
+                throw (HashChainCompromisedException) e.getCause();
+            throw new PluginException("auditorium", e.getCause());
+        }
     }
 
     /**
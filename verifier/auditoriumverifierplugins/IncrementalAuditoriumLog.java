@@ -77,15 +77,35 @@ public class IncrementalAuditoriumLog implements IIncrementalPlugin {
 	 * @param entry Message to append to the log.
 	 */
 	public void addLogData(Message entry) throws InvalidLogEntryException{
+		append(entry);
+		registerGlobals();
+	}
 
+	/**
+	 * Add incremental log data without rebuilding all-set and all-dag, which
+	 * costs time in proportion to the whole log. Call snapshot() before the
+	 * next evaluation.
+	 *
+	 * @param entry Message to append to the log.
+	 */
+	public void append(Message entry) throws InvalidLogEntryException {
         try {
             hashChainVerifier.verifyIncremental(entry);
         } catch (HashChainCompromisedException e) {
             /* TODO We should probably not throw a runtime exception, but some how note the hash chain was compromised. */
             throw new InvalidLogEntryException(e);
         }
-        allset.add(new Expression(entry.toASE()));
-		alldag.add(entry);
+
+        try {
+            add(entry);
+        } catch (IncorrectFormatException e) { throw new InvalidLogEntryException(e); }
+	}
+
+	/**
+	 * Bind all-set and all-dag to everything appended so far, for the next
+	 * evaluation.
+	 */
+	public void snapshot() {
 		registerGlobals();
 	}
 
@@ -96,9 +116,9 @@ public class IncrementalAuditoriumLog implements IIncrementalPlugin {
 	 */
 	public void addLogData(ASExpression entry) throws InvalidLogEntryException {
 		try {
-            hashChainVerifier.verifyIncremental(new Message(entry));
-			allset.add(new Expression(entry));
-			alldag.add(new Message(entry));
+            Message message = new Message(entry);
+            hashChainVerifier.verifyIncremental(message);
+			add(message);
 			registerGlobals();
 		} catch (IncorrectFormatException | HashChainCompromisedException e) { throw new InvalidLogEntryException(e); }
     }
@@ -110,12 +130,24 @@ public class IncrementalAuditoriumLog implements IIncrementalPlugin {
 	 */
 	public void addLogData(Expression entry) throws InvalidLogEntryException {
 		try {
-			allset.add(entry);
-			alldag.add(new Message(entry.getASE()));
+			add(new Message(entry.getASE()));
 			registerGlobals();
 		} catch (IncorrectFormatException e) { throw new InvalidLogEntryException(e); }
 	}
 
+	/**
+	 * Add a log entry to all-set and all-dag. Rules are written against the
+	 * canonical form, one announcement to a message, so anything compressed is
+	 * expanded and a batch goes in as each of its announcements.
+	 *
+	 * @param entry The log entry.
+	 */
+	private void add(Message entry) throws IncorrectFormatException {
+		for (Message announcement : entry.unbatched())
+			allset.add(new Expression(announcement.toASE()));
+		alldag.add(entry);
+	}
+
 	/**
 	 * Seal the logs -- the verifier will no longer return a reduction now. If
 	 * something isn't in the log the verifier will expect that it never will
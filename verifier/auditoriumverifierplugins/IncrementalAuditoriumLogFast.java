@@ -84,8 +84,10 @@ public class IncrementalAuditoriumLogFast implements IIncrementalPlugin {
             /* TODO We should probably not throw a runtime exception, but some how note the hash chain was compromised. */
             throw new InvalidLogEntryException(e);
         }
-		allset.add(new Expression(entry.toASE()));
-		alldag.add(entry);
+
+        try {
+            add(entry);
+        } catch (IncorrectFormatException e) { throw new InvalidLogEntryException(e); }
 		registerGlobals();
 	}
 
@@ -96,8 +98,7 @@ public class IncrementalAuditoriumLogFast implements IIncrementalPlugin {
 	 */
 	public void addLogData(ASExpression entry) throws InvalidLogEntryException {
 		try {
-			allset.add(new Expression(entry));
-			alldag.add(new Message(entry));
+			add(new Message(entry));
 			registerGlobals();
 		} catch (IncorrectFormatException e) { throw new InvalidLogEntryException(e); }
 	}
@@ -109,12 +110,24 @@ public class IncrementalAuditoriumLogFast implements IIncrementalPlugin {
 	 */
 	public void addLogData(Expression entry) throws InvalidLogEntryException {
 		try {
-			allset.add(entry);
-			alldag.add(new Message(entry.getASE()));
+			add(new Message(entry.getASE()));
 			registerGlobals();
 		} catch (IncorrectFormatException e) { throw new InvalidLogEntryException(e); }
 	}
 
+	/**
+	 * Add a log entry to all-set and all-dag. Rules are written against the
+	 * canonical form, one announcement to a message, so anything compressed is
+	 * expanded and a batch goes in as each of its announcements.
+	 *
+	 * @param entry The log entry.
+	 */
+	private void add(Message entry) throws IncorrectFormatException {
+		for (Message announcement : entry.unbatched())
+			allset.add(new Expression(announcement.toASE()));
+		alldag.add(entry);
+	}
+
 	/**
 	 * Seal the logs -- the verifier will no longer return a reduction now. If
 	 * something isn't in the log the verifier will expect that it never will
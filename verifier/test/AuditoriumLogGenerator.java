@@ -85,6 +85,9 @@ public class AuditoriumLogGenerator {
         Message msg = new Message("announce", hp, "0", topLayer.makeAnnouncement(newDatum));
 
         log.logAnnouncement(msg);
+
+        /* The tests read the log file back right away, so it has to be on disk */
+        log.sync();
     }
 
     /**
@@ -92,6 +95,7 @@ public class AuditoriumLogGenerator {
      */
     private static void compromiseHashChain(ASExpression datum) throws IncorrectFormatException, IOException {
         log.logAnnouncementNoChain(new Message("announce", hp, "0", topLayer.makeAnnouncement(datum)));
+        log.sync();
 
     }
 
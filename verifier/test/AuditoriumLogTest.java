@@ -1,14 +1,29 @@
 package verifier.test;
 
+import auditorium.HostPointer;
 import auditorium.IncorrectFormatException;
+import auditorium.Log;
+import auditorium.LogSegmenter;
+import auditorium.LogWriter;
+import auditorium.Message;
+import auditorium.MessagePointer;
 import junit.framework.TestCase;
 import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.StringExpression;
+import verifier.ActivationRecord;
 import verifier.Verifier;
 import verifier.auditoriumverifierplugins.AuditoriumLog;
+import verifier.auditoriumverifierplugins.FastDAGBuilder;
+import verifier.value.DAGValue;
+import verifier.value.Expression;
+import verifier.value.SetValue;
 import verifier.value.True;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * A test used to check the AuditoriumLog plugin to the Verifier
@@ -94,6 +109,71 @@ public class AuditoriumLogTest extends TestCase {
 
     }
 
+    /**
+     * Wrap a payload the way the integrity and temporal layers do (the signature isn't checked here)
+     */
+    private static ASExpression signed(ASExpression preds, ASExpression payload) {
+        return new ListExpression(StringExpression.makeString("signed-message"), StringExpression.makeString("cert"),
+                new ListExpression(StringExpression.makeString("signature"), StringExpression.makeString("sig"),
+                        StringExpression.makeString("0"),
+                        new ListExpression(StringExpression.makeString("succeeds"), preds, payload)));
+    }
 
+    /**
+     * A batch of announcements is seen by the rules as each of its announcements, in the batch's place in all-dag
+     */
+    public void testBatch() throws Exception {
+        File file = File.createTempFile("batch", ".out");
+        try {
+            HostPointer hp = new HostPointer("0", "127.0.0.1", 9000);
+            Message batch = new Message("announce", hp, "1", signed(ListExpression.EMPTY,
+                    new ListExpression(StringExpression.makeString("announcement-batch"), new ListExpression(
+                            new ListExpression("polls-open", "0", "key"), new ListExpression("supervisor", "0", "active")))));
+            Message closed = new Message("announce", hp, "2", signed(new ListExpression(new MessagePointer(batch).toASE()),
+                    new ListExpression("polls-closed", "1")));
+
+            Log log = new Log(new LogSegmenter(new LogWriter(file)), "0000000000");
+            log.logAnnouncement(batch);
+            log.logAnnouncement(closed);
+            log.close();
+
+            args.put("log", file.getPath());
+            auditoriumLog.init(v);
+
+            SetValue set = (SetValue) ActivationRecord.END.lookup("all-set");
+            DAGValue dag = (DAGValue) ActivationRecord.END.lookup("all-dag");
+            assertEquals(3, set.size());
+
+            List<Message> announcements = batch.unbatched();
+            assertEquals(2, announcements.size());
+            for (Message announcement : announcements) {
+                Expression expression = new Expression(announcement.toASE());
+                assertTrue(set.isMember(expression));
+                assertTrue(dag.precedes(expression, new Expression(closed.toASE())));
+                assertFalse(dag.precedes(new Expression(closed.toASE()), expression));
+            }
+        } finally {
+            new File(file.getPath() + ".idx").delete();
+            file.delete();
+        }
+    }
 
+    /**
+     * The fast dag orders messages by their sequence numbers, which start from the launch time and so don't fit in an int
+     */
+    public void testFastDagLaunchSequence() throws Exception {
+        HostPointer hp = new HostPointer("0", "127.0.0.1", 9000);
+        long launch = System.currentTimeMillis() * 1000;
+        Message first = new Message("announce", hp, Long.toString(launch + 1), signed(ListExpression.EMPTY,
+                new ListExpression("polls-open", "0", "key")));
+        Message second = new Message("announce", hp, Long.toString(launch + 2), signed(
+                new ListExpression(new MessagePointer(first).toASE()), new ListExpression("polls-closed", "1")));
+
+        FastDAGBuilder builder = new FastDAGBuilder();
+        builder.add(first);
+        builder.add(second);
+
+        DAGValue dag = builder.toDAG();
+        assertTrue(dag.precedes(new Expression(first.toASE()), new Expression(second.toASE())));
+    }
 }
@@ -0,0 +1,128 @@
+package verifier.test;
+
+import junit.framework.TestCase;
+import sexpression.ASExpression;
+import verifier.BackgroundVerifier;
+import verifier.Verifier;
+import verifier.auditoriumverifierplugins.HashChainVerifier;
+import verifier.auditoriumverifierplugins.IncrementalAuditoriumLog;
+import verifier.value.False;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+/**
+ * Tests that a BackgroundVerifier checks messages on its own thread and
+ * reports what it finds to its observers.
+ */
+public class BackgroundVerifierTest extends TestCase {
+
+    /** The verifier the rules are evaluated with */
+    Verifier v;
+
+    /** The plugin the background verifier appends to */
+    IncrementalAuditoriumLog incAuditoriumLog;
+
+    /** Everything the background verifier has reported */
+    final List<Object> violations = new ArrayList<>();
+
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        incAuditoriumLog = new IncrementalAuditoriumLog(new HashChainVerifier());
+
+        HashMap<String, String> args = new HashMap<>();
+        args.put("log", "test.out");
+
+        v = new Verifier(args);
+        incAuditoriumLog.init(v);
+    }
+
+    /**
+     * Start a background verifier, log a few messages through the generator,
+     * and stop it once it has caught up.
+     */
+    private void run(String rule, int every, long interval) throws Exception {
+        BackgroundVerifier background = new BackgroundVerifier(v, incAuditoriumLog, ASExpression.make(rule), every,
+                interval);
+        background.registerForViolations(new Observer() {
+
+            public void update(Observable o, Object arg) {
+                synchronized (violations) {
+                    violations.add(arg);
+                }
+            }
+
+        });
+
+        IncrementalAuditoriumLogGenerator.setUp(incAuditoriumLog, background);
+
+        Thread thread = new Thread(background, "verifier");
+        thread.start();
+
+        IncrementalAuditoriumLogGenerator.start3Machines();
+        IncrementalAuditoriumLogGenerator.vote();
+
+        /* Give the verifier time to append everything and evaluate at least once */
+        long deadline = System.currentTimeMillis() + 5000;
+        while (background.backlog() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        Thread.sleep(500);
+
+        background.stop();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+    }
+
+    public void testClean() throws Exception {
+        run("true", 2, 0);
+
+        assertTrue(violations.isEmpty());
+    }
+
+    public void testCountTrigger() throws Exception {
+        run("false", 2, 0);
+
+        assertFalse(violations.isEmpty());
+        assertSame(False.SINGLETON, violations.get(0));
+    }
+
+    public void testIntervalTrigger() throws Exception {
+        run("false", 0, 50);
+
+        assertFalse(violations.isEmpty());
+        assertSame(False.SINGLETON, violations.get(0));
+    }
+
+    public void testHashChainOnly() throws Exception {
+        BackgroundVerifier background = new BackgroundVerifier(v, incAuditoriumLog, null, 0, 0);
+        IncrementalAuditoriumLogGenerator.setUp(incAuditoriumLog, background);
+        IncrementalAuditoriumLogGenerator.start3Machines();
+        IncrementalAuditoriumLogGenerator.vote();
+        IncrementalAuditoriumLogGenerator.vote();
+
+        assertTrue(background.backlog() > BackgroundVerifier.DEFAULT_EVERY);
+
+        /* Without a rule, running the verifier only empties the queue */
+        Thread thread = new Thread(background, "verifier");
+        thread.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (background.backlog() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+
+        /* With nothing left to append, the thread waits on the queue rather than spinning */
+        Thread.sleep(100);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(thread.getState() == Thread.State.WAITING || thread.getState() == Thread.State.TIMED_WAITING);
+            Thread.sleep(10);
+        }
+
+        background.stop();
+        thread.join(5000);
+
+        assertEquals(0, background.backlog());
+    }
+}
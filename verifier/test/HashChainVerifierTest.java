@@ -1,8 +1,16 @@
 package verifier.test;
 
+import auditorium.ChainHasher;
+import auditorium.HostPointer;
 import auditorium.IncorrectFormatException;
+import auditorium.Log;
+import auditorium.LogSegmenter;
+import auditorium.Message;
 import junit.framework.TestCase;
 import sexpression.ASExpression;
+import sexpression.ListExpression;
+import sexpression.StringExpression;
+import verifier.ActivationRecord;
 import verifier.HashChainCompromisedException;
 import verifier.InvalidLogEntryException;
 import verifier.Verifier;
@@ -10,10 +18,13 @@ import verifier.auditoriumverifierplugins.AuditoriumLog;
 import verifier.auditoriumverifierplugins.HashChainVerifier;
 import verifier.auditoriumverifierplugins.IncrementalAuditoriumLog;
 import verifier.value.False;
+import verifier.value.SetValue;
 import verifier.value.Value;
 import votebox.events.SupervisorEvent;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashMap;
 
 /**
@@ -176,4 +187,128 @@ public class HashChainVerifierTest extends TestCase {
             fail(e.getMessage());
         }
     }
+
+    /**
+     * Write a segmented log of simple messages, and point a hash chain verifier at it
+     */
+    private File segmentedLog(long segmentSize) throws IOException {
+        return segmentedLog(segmentSize, ChainHasher.COMPAT);
+    }
+
+    /**
+     * Write a segmented log of simple messages chained in the given mode, and point a hash chain verifier at it
+     */
+    private File segmentedLog(long segmentSize, String mode) throws IOException {
+        File base = File.createTempFile("segmented", ".out");
+        base.delete();
+
+        Log log = new Log(new LogSegmenter(base, segmentSize, 0, 0, 0, 0), "0000000000", ChainHasher.FAST.equals(mode));
+        for (int i = 0; i < 30; i++)
+            log.logAnnouncement(new Message("announcement", new HostPointer("0", "ip", 9700), Integer.toString(i),
+                    signed(StringExpression.makeString("datum " + i))));
+        log.close();
+
+        HashMap<String, String> segmentArgs = new HashMap<>();
+        segmentArgs.put("log", base.getPath());
+        segmentArgs.put("hashchain", mode);
+        segmentArgs.put("segmented", "true");
+        hashChainVerifier.init(new Verifier(segmentArgs));
+        return base;
+    }
+
+    /**
+     * Wrap a datum the way the integrity and temporal layers do (the signature isn't checked here)
+     */
+    private static ASExpression signed(ASExpression datum) {
+        return new ListExpression(StringExpression.makeString("signed-message"), StringExpression.makeString("cert"),
+                new ListExpression(StringExpression.makeString("signature"), StringExpression.makeString("sig"),
+                        StringExpression.makeString("0"), new ListExpression(StringExpression.makeString("succeeds"),
+                                ListExpression.EMPTY, datum)));
+    }
+
+    private void deleteSegments(File base) {
+        for (File f : LogSegmenter.segments(base)) {
+            new File(f.getPath() + ".idx").delete();
+            f.delete();
+        }
+    }
+
+    /**
+     * Every segment of a segmented log checks out, in parallel, and resuming from a checkpoint skips the earlier ones
+     */
+    public void testSegments() throws Exception {
+        File base = segmentedLog(400);
+        try {
+            int segments = LogSegmenter.segments(base).length;
+            assertTrue(segments > 2);
+
+            assertEquals(segments, hashChainVerifier.verifySegments(4));
+            assertEquals(segments - 2, hashChainVerifier.verifySegments(2, 4));
+        } finally {
+            deleteSegments(base);
+        }
+    }
+
+    /**
+     * The plugins read a segmented log across all its segments when the verifier is told it is segmented
+     */
+    public void testSegmentedPlugins() throws Exception {
+        File base = segmentedLog(400);
+        try {
+            assertTrue(LogSegmenter.segments(base).length > 2);
+            assertFalse(base.exists());
+
+            hashChainVerifier.verify();
+
+            HashMap<String, String> segmentArgs = new HashMap<>();
+            segmentArgs.put("log", base.getPath());
+            segmentArgs.put("segmented", "true");
+            new AuditoriumLog().init(new Verifier(segmentArgs));
+            assertEquals(30, ((SetValue) ActivationRecord.END.lookup("all-set")).size());
+        } finally {
+            deleteSegments(base);
+        }
+    }
+
+    /**
+     * A log chained in fast mode checks out in fast mode, and not as an older log would
+     */
+    public void testFastSegments() throws Exception {
+        File base = segmentedLog(400, ChainHasher.FAST);
+        try {
+            int segments = LogSegmenter.segments(base).length;
+            assertEquals(segments, hashChainVerifier.verifySegments(4));
+
+            HashMap<String, String> compatArgs = new HashMap<>();
+            compatArgs.put("log", base.getPath());
+            hashChainVerifier.init(new Verifier(compatArgs));
+            hashChainVerifier.verifySegments(4);
+            fail("A fast chain shouldn't verify in compat mode");
+        } catch (HashChainCompromisedException e) {
+            /* expected */
+        } finally {
+            deleteSegments(base);
+        }
+    }
+
+    /**
+     * Changing a byte of an entry in a closed segment is caught by its footer
+     */
+    public void testTamperedSegment() throws Exception {
+        File base = segmentedLog(400);
+        try {
+            File segment = LogSegmenter.segments(base)[1];
+            byte[] bytes = Files.readAllBytes(segment.toPath());
+            int datum = new String(bytes, "ISO-8859-1").indexOf("datum");
+            bytes[datum] = 'D';
+            Files.write(segment.toPath(), bytes);
+
+            hashChainVerifier.verifySegments(4);
+            fail("expected exception!");
+        } catch (HashChainCompromisedException e) {
+            //Expected
+        } finally {
+            deleteSegments(base);
+        }
+    }
 }
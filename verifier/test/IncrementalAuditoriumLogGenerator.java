@@ -5,6 +5,7 @@ import crypto.adder.AdderPublicKey;
 import sexpression.ASExpression;
 import sexpression.ListExpression;
 import sexpression.StringExpression;
+import verifier.BackgroundVerifier;
 import verifier.InvalidLogEntryException;
 import verifier.auditoriumverifierplugins.IncrementalAuditoriumLog;
 import votebox.AuditoriumParams;
@@ -32,6 +33,9 @@ public class IncrementalAuditoriumLogGenerator {
     /** This is the log that will incrementally add data */
     private static IncrementalAuditoriumLog incLog;
 
+    /** If set, messages are handed to this instead of being added to incLog directly */
+    private static BackgroundVerifier background;
+
     /**
      * The top layer of our hosts, will be a temporal layer. We need a reference so we can directly build messages without
      * actually sending them over the network.
@@ -67,11 +71,23 @@ public class IncrementalAuditoriumLogGenerator {
         topLayer = new AuditoriumIntegrityLayer(AAuditoriumLayer.BOTTOM, host, ks);
 
         IncrementalAuditoriumLogGenerator.incLog = incLog;
+        IncrementalAuditoriumLogGenerator.background = null;
 
 
         hp = new HostPointer("0", "127.0.0.1", 9000);
     }
 
+    /**
+     * Set up the generator so that messages are checked by a background verifier, as a host would have them checked
+     *
+     * @param incLog an incremental log, assumed to have already been initialized
+     * @param background the background verifier for incLog, which messages are handed to as they are logged
+     */
+    public static void setUp(IncrementalAuditoriumLog incLog, BackgroundVerifier background) {
+        setUp(incLog);
+        IncrementalAuditoriumLogGenerator.background = background;
+    }
+
     /**
      * A utility method for logging event messages so that they are signed and given a temporal assignment
      *
@@ -93,7 +109,13 @@ public class IncrementalAuditoriumLogGenerator {
 
         Message msg = new Message("announce", hp, "0", topLayer.makeAnnouncement(newDatum));
         log.logAnnouncement(msg);
-        incLog.addLogData(msg);
+
+        /* The tests read the log file back right away, so it has to be on disk */
+        log.sync();
+        if (background != null)
+            background.add(msg);
+        else
+            incLog.addLogData(msg);
     }
 
     /**
@@ -101,6 +123,7 @@ public class IncrementalAuditoriumLogGenerator {
      */
     private static void compromiseHashChain(ASExpression datum) throws IncorrectFormatException, IOException {
         log.logAnnouncementNoChain(new Message("announce", hp, "0", topLayer.makeAnnouncement(datum)));
+        log.sync();
 
     }
 
@@ -95,6 +95,6 @@ public class Expression extends Value implements Comparable {
 
 	@Override
 	public ASExpression toASE() {
-		return new ListExpression(StringExpression.make("quote"), _ase);
+		return new ListExpression(StringExpression.symbol("quote"), _ase);
 	}
 }
@@ -39,14 +39,14 @@ public class FastDAG extends DAGValue {
     private final HashMap<Expression, HashSet<Expression>> _cache;
 
 	public class MessageProjection {
-		public Integer INFINITY = Integer.MAX_VALUE;
+		public Long INFINITY = Long.MAX_VALUE;
 
 		public MessageProjection(Expression ptr) {
 			_m = ptr;
 			_p = new HashMap<>();
 		}
 
-		protected final Map<String, Integer> _p;
+		protected final Map<String, Long> _p;
 		protected final Expression _m;
 		
 		public String toString() {
@@ -57,18 +57,18 @@ public class FastDAG extends DAGValue {
 			return s + ">";
 		}
 
-		public int get(String host) {
+		public long get(String host) {
 			if (!_p.containsKey(host))
 				return INFINITY;
 			return _p.get(host);
 		}
 
-		public void relax(String host, Integer newIndex) {
+		public void relax(String host, Long newIndex) {
 			if (!_p.containsKey(host) || (newIndex < _p.get(host)))
 				_p.put(host, newIndex);
 		}
 
-		public void set(String host, Integer index) {
+		public void set(String host, Long index) {
 			_p.put(host, index);
 		}
 	}
@@ -94,11 +94,11 @@ public class FastDAG extends DAGValue {
 	// / P(msg, host)
 	private final Map<Expression, MessageProjection> _projections;
 
-	// / host --> (int -> ptr)
-	private final Map<String, Map<Integer, Expression>> _timelines;
+	// / host --> (sequence number -> ptr)
+	private final Map<String, Map<Long, Expression>> _timelines;
 	
-	// / inversion of the above: ptr --> (host, int)
-	private final Map<Expression, Pair<String, Integer>> _ptrToHost;
+	// / inversion of the above: ptr --> (host, sequence number)
+	private final Map<Expression, Pair<String, Long>> _ptrToHost;
 
 	// / msg --> (ptr ...)
 	private final Map<Expression, Expression> _messageToPtr;
@@ -112,7 +112,7 @@ public class FastDAG extends DAGValue {
 
 	public FastDAG(Map<Expression, Expression> messageToPtrMap,
 			Map<Expression, List<Expression>> predecessors,
-			Map<String, Map<Integer, Expression>> hostTimelines)
+			Map<String, Map<Long, Expression>> hostTimelines)
 	{
 		_messageToPtr = messageToPtrMap;
 		_predecessors = predecessors;
@@ -130,8 +130,8 @@ public class FastDAG extends DAGValue {
 		_ptrToHost = new HashMap<>();
 
 		for (String host : _timelines.keySet()) {
-			Map<Integer, Expression> timeline = _timelines.get(host);
-			for (Integer i : timeline.keySet()) {
+			Map<Long, Expression> timeline = _timelines.get(host);
+			for (Long i : timeline.keySet()) {
 				_ptrToHost.put(timeline.get(i), 
 							   new Pair<>(host, i));
 			}
@@ -174,7 +174,7 @@ public class FastDAG extends DAGValue {
 		if (! _projections.containsKey(start))
 			_projections.put(start, new MessageProjection(start));
 
-		Pair<String, Integer> finishHostIndex = _ptrToHost.get(finish);
+		Pair<String, Long> finishHostIndex = _ptrToHost.get(finish);
 
 		// Algorithm: revised Crosby with lazy precomputation
 		// Start at finish at message m1 on host h1; perform a BFS for the next
@@ -188,7 +188,7 @@ public class FastDAG extends DAGValue {
 		while (work.peek() != null) {
 			Expression e = work.poll();
 
-			Pair<String, Integer> messagePosition = _ptrToHost.get(e);
+			Pair<String, Long> messagePosition = _ptrToHost.get(e);
 
 			// first, let's cache the projection from the start onto whatever
 			// host we happen to have found
@@ -67,7 +67,7 @@ public class Reduction extends Value {
 
 	@Override
 	public ASExpression toASE() {
-		return new ListExpression(StringExpression.make("red"), _ast.toASE());
+		return new ListExpression(StringExpression.symbol("red"), _ast.toASE());
 	}
 
 	@Override
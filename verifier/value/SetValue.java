@@ -128,8 +128,8 @@ public class SetValue extends Value {
 		ASExpression[] lst = new ASExpression[_list.length];
 		for (int lcv = 0; lcv < lst.length; lcv++)
 			lst[lcv] = _list[lcv].toASE();
-		return new ListExpression(StringExpression.make("list->set"),
-				new ListExpression(StringExpression.make("quote"),
+		return new ListExpression(StringExpression.symbol("list->set"),
+				new ListExpression(StringExpression.symbol("quote"),
 						new ListExpression(lst)));
 	}
 
@@ -22,7 +22,12 @@
 
 package votebox;
 
+import auditorium.AuditoriumHost;
+import auditorium.ChainHasher;
 import auditorium.IAuditoriumParams;
+import auditorium.Link;
+import auditorium.LogWriter;
+import verifier.BackgroundVerifier;
 import votebox.middle.IVoteboxConstants;
 
 import java.io.*;
@@ -60,6 +65,52 @@ public class AuditoriumParams implements IAuditoriumParams,
     public static final String VIEW_IMPLEMENTATION = "AWT"; //Changed from SDL
     public static final String RULE_FILE = "rules/STARVoting.rules";
     public static final String INCREMENTAL_RULE_FILE = "rules/STARVotingIncremental.rules";
+
+    /* Outbound queueing for each auditorium link */
+    public static final int LINK_QUEUE_CAPACITY = Link.DEFAULT_QUEUE_CAPACITY;
+    public static final Link.OverflowPolicy LINK_OVERFLOW_POLICY = Link.DEFAULT_OVERFLOW_POLICY;
+    public static final int LINK_SEND_TIMEOUT = Link.DEFAULT_SEND_TIMEOUT;
+
+    /* Durability policy for the auditorium log */
+    public static final int LOG_SYNC_EVERY = LogWriter.DEFAULT_SYNC_EVERY;
+    public static final int LOG_SYNC_INTERVAL = LogWriter.DEFAULT_SYNC_INTERVAL;
+    public static final long LOG_PREALLOCATION = 0;
+
+    /* The log is a single file unless a segment size or interval is configured */
+    public static final long LOG_SEGMENT_SIZE = 0;
+    public static final int LOG_SEGMENT_INTERVAL = 0;
+
+    /* Announcement batching is off unless configured */
+    public static final int ANNOUNCE_BATCH_WINDOW = 0;
+
+    /* Check signatures on incoming messages with one thread per core */
+    public static final int VERIFY_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /* Give each link its own threads unless told to use a selector */
+    public static final String TRANSPORT = "threads";
+
+    /* Run the host on platform threads unless told to use virtual ones */
+    public static final String THREAD_MODE = "platform";
+
+    /* Wait out the discover timeout unless told how many hosts are enough, and keep the hosts next to the log */
+    public static final int DISCOVER_PEERS = 0;
+    public static final String PEER_CACHE = "log/peers.out";
+
+    /* Catch up hosts that join with what they missed */
+    public static final int CATCH_UP_BATCH = AuditoriumHost.DEFAULT_CATCH_UP_BATCH;
+
+    /* Announcements are sent uncompressed unless a threshold is configured */
+    public static final int COMPRESSION_THRESHOLD = 0;
+
+    /* Metrics are only published over JMX unless a dump interval is configured */
+    public static final int METRICS_INTERVAL = 0;
+
+    /* The incremental rule is evaluated every few messages, however long ago the last evaluation was */
+    public static final int INCREMENTAL_VERIFY_EVERY = BackgroundVerifier.DEFAULT_EVERY;
+    public static final int INCREMENTAL_VERIFY_INTERVAL = 0;
+
+    /* Logs are chained the way older logs were unless fast chaining is configured */
+    public static final String HASH_CHAIN_MODE = ChainHasher.COMPAT;
     
     /* Default for cast_ballot_encryption_enabled. */
     public static final boolean CAST_BALLOT_ENCRYPTION_ENABLED = true;
@@ -673,6 +724,287 @@ public class AuditoriumParams implements IAuditoriumParams,
         return INCREMENTAL_RULE_FILE;
     }
 
+    /**
+     * Checks the HashMap to see if it contains an entry for the capacity of
+     * each link's outbound queue and, if so, returns it.
+     *
+     * @return      the number of messages that can wait in a link's outbound queue
+     */
+    public int getLinkQueueCapacity() {
+
+        if (_config.containsKey("LINK_QUEUE_CAPACITY"))
+            return Integer.parseInt(_config.get("LINK_QUEUE_CAPACITY"));
+
+        return LINK_QUEUE_CAPACITY;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the overflow policy
+     * of each link's outbound queue and, if so, returns it.
+     *
+     * @return      what a link does when its outbound queue is full
+     */
+    public Link.OverflowPolicy getLinkOverflowPolicy() {
+
+        if (_config.containsKey("LINK_OVERFLOW_POLICY"))
+            return Link.OverflowPolicy.valueOf(_config.get("LINK_OVERFLOW_POLICY"));
+
+        return LINK_OVERFLOW_POLICY;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the time a link
+     * waits for room in its outbound queue and, if so, returns it.
+     *
+     * @return      the time to wait for room in a link's outbound queue
+     */
+    public int getLinkSendTimeout() {
+
+        if (_config.containsKey("LINK_SEND_TIMEOUT"))
+            return Integer.parseInt(_config.get("LINK_SEND_TIMEOUT"));
+
+        return LINK_SEND_TIMEOUT;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the number of log
+     * entries between syncs and, if so, returns it.
+     *
+     * @return      the number of log entries written between syncs
+     */
+    public int getLogSyncEvery() {
+
+        if (_config.containsKey("LOG_SYNC_EVERY"))
+            return Integer.parseInt(_config.get("LOG_SYNC_EVERY"));
+
+        return LOG_SYNC_EVERY;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the time between
+     * log syncs and, if so, returns it.
+     *
+     * @return      the time between log syncs
+     */
+    public int getLogSyncInterval() {
+
+        if (_config.containsKey("LOG_SYNC_INTERVAL"))
+            return Integer.parseInt(_config.get("LOG_SYNC_INTERVAL"));
+
+        return LOG_SYNC_INTERVAL;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the size the log
+     * file is grown by and, if so, returns it.
+     *
+     * @return      the number of bytes the log file is grown by at a time
+     */
+    public long getLogPreallocation() {
+
+        if (_config.containsKey("LOG_PREALLOCATION"))
+            return Long.parseLong(_config.get("LOG_PREALLOCATION"));
+
+        return LOG_PREALLOCATION;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the size at which
+     * a new log segment is started and, if so, returns it.
+     *
+     * @return      the segment size in bytes, or 0 for no size limit
+     */
+    public long getLogSegmentSize() {
+
+        if (_config.containsKey("LOG_SEGMENT_SIZE"))
+            return Long.parseLong(_config.get("LOG_SEGMENT_SIZE"));
+
+        return LOG_SEGMENT_SIZE;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for how long a log
+     * segment is written before a new one is started and, if so, returns it.
+     *
+     * @return      the segment interval in milliseconds, or 0 for no time limit
+     */
+    public int getLogSegmentInterval() {
+
+        if (_config.containsKey("LOG_SEGMENT_INTERVAL"))
+            return Integer.parseInt(_config.get("LOG_SEGMENT_INTERVAL"));
+
+        return LOG_SEGMENT_INTERVAL;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for how long outgoing
+     * announcements are gathered into one envelope and, if so, returns it.
+     *
+     * @return      the announcement batching window in milliseconds, 0 if batching is off
+     */
+    public int getAnnounceBatchWindow() {
+
+        if (_config.containsKey("ANNOUNCE_BATCH_WINDOW"))
+            return Integer.parseInt(_config.get("ANNOUNCE_BATCH_WINDOW"));
+
+        return ANNOUNCE_BATCH_WINDOW;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the number of
+     * threads that check signatures on incoming messages and, if so, returns it.
+     *
+     * @return      the number of signature checking threads, 0 to check them as they are logged
+     */
+    public int getVerifyThreads() {
+
+        if (_config.containsKey("VERIFY_THREADS"))
+            return Integer.parseInt(_config.get("VERIFY_THREADS"));
+
+        return VERIFY_THREADS;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the transport that
+     * links use to read and write their sockets and, if so, returns it.
+     *
+     * @return      the transport, "threads" or "nio"
+     */
+    public String getTransport() {
+
+        if (_config.containsKey("TRANSPORT"))
+            return _config.get("TRANSPORT");
+
+        return TRANSPORT;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the kind of thread
+     * the host runs on and, if so, returns it.
+     *
+     * @return      the thread mode, "platform" or "virtual"
+     */
+    public String getThreadMode() {
+
+        if (_config.containsKey("THREAD_MODE"))
+            return _config.get("THREAD_MODE");
+
+        return THREAD_MODE;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the number of hosts
+     * after which a discovery stops waiting and, if so, returns it.
+     *
+     * @return      the number of hosts, or 0 to wait out the discover timeout
+     */
+    public int getDiscoverPeers() {
+
+        if (_config.containsKey("DISCOVER_PEERS"))
+            return Integer.parseInt(_config.get("DISCOVER_PEERS"));
+
+        return DISCOVER_PEERS;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the file that the
+     * last-known hosts are kept in and, if so, returns it.
+     *
+     * @return      the peer cache file, or "" to not keep one
+     */
+    public String getPeerCache() {
+
+        if (_config.containsKey("PEER_CACHE"))
+            return _config.get("PEER_CACHE");
+
+        return PEER_CACHE;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the number of
+     * messages sent in one batch when catching up a host and, if so, returns it.
+     *
+     * @return      the batch size, or 0 to not catch hosts up
+     */
+    public int getCatchUpBatch() {
+
+        if (_config.containsKey("CATCH_UP_BATCH"))
+            return Integer.parseInt(_config.get("CATCH_UP_BATCH"));
+
+        return CATCH_UP_BATCH;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for the size at which
+     * announcements are compressed and, if so, returns it.
+     *
+     * @return      the threshold in bytes, or 0 to never compress
+     */
+    public int getCompressionThreshold() {
+
+        if (_config.containsKey("COMPRESSION_THRESHOLD"))
+            return Integer.parseInt(_config.get("COMPRESSION_THRESHOLD"));
+
+        return COMPRESSION_THRESHOLD;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for how often a
+     * snapshot of the auditorium metrics is printed and, if so, returns it.
+     *
+     * @return      the interval in milliseconds, or 0 to not print them
+     */
+    public int getMetricsInterval() {
+
+        if (_config.containsKey("METRICS_INTERVAL"))
+            return Integer.parseInt(_config.get("METRICS_INTERVAL"));
+
+        return METRICS_INTERVAL;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for how many logged
+     * messages the incremental rule is evaluated after and, if so, returns it.
+     *
+     * @return      the number of messages, or 0 for no limit
+     */
+    public int getIncrementalVerifyEvery() {
+
+        if (_config.containsKey("INCREMENTAL_VERIFY_EVERY"))
+            return Integer.parseInt(_config.get("INCREMENTAL_VERIFY_EVERY"));
+
+        return INCREMENTAL_VERIFY_EVERY;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for how long after
+     * its last evaluation the incremental rule is evaluated again and, if so,
+     * returns it.
+     *
+     * @return      the interval in milliseconds, or 0 for no limit
+     */
+    public int getIncrementalVerifyInterval() {
+
+        if (_config.containsKey("INCREMENTAL_VERIFY_INTERVAL"))
+            return Integer.parseInt(_config.get("INCREMENTAL_VERIFY_INTERVAL"));
+
+        return INCREMENTAL_VERIFY_INTERVAL;
+    }
+
+    /**
+     * Checks the HashMap to see if it contains an entry for how the log is
+     * hash chained and, if so, returns it.
+     *
+     * @return      "compat" or "fast"
+     */
+    public String getHashChainMode() {
+
+        if (_config.containsKey("HASH_CHAIN_MODE"))
+            return _config.get("HASH_CHAIN_MODE");
+
+        return HASH_CHAIN_MODE;
+    }
+
     /**
      * Checks the HashMap to see if it contains an entry for whether the order in
      * which the candidates are shown is to be shuffled and, if so, returns it.
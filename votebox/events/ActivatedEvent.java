@@ -51,9 +51,9 @@ public class ActivatedEvent extends AAnnounceEvent {
      */
     private static MatcherRule MATCHER = new MatcherRule() {
         /* The pattern for this message is the string "activating" followed by optional StatusEvent messages */
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "activated" ), new ListWildcard( new ListWildcard(
-                Wildcard.SINGLETON ) ) );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "activated" ), new ListWildcard( new ListWildcard(
+                Wildcard.SINGLETON ) ) ) );
 
         private VoteBoxEventMatcher statusMatcher = new VoteBoxEventMatcher(
                 StatusEvent.getMatcher() );
@@ -136,7 +136,7 @@ public class ActivatedEvent extends AAnnounceEvent {
             statusList.add( s.toSExp() );
 
         /* Convert everything to S-Expressions and then return it */
-        return new ListExpression( StringExpression.makeString( "activated" ),
+        return new ListExpression( StringExpression.symbol( "activated" ),
                 new ListExpression( statusList ) );
     }
 
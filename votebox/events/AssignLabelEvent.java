@@ -54,9 +54,9 @@ public class AssignLabelEvent extends AAnnounceEvent {
          * the serial for the machine to be labelled and the new label
          * i.e. (assignlabel otherSerial newLabel)
          */
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "assign-label" ), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "assign-label" ), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON ) );
 
         /** @see votebox.events.MatcherRule#match(int, sexpression.ASExpression) */
         public IAnnounceEvent match(int serial, ASExpression sexp) {
@@ -127,7 +127,7 @@ public class AssignLabelEvent extends AAnnounceEvent {
      */
     public ASExpression toSExp(){
         return new ListExpression(
-                StringExpression.makeString( "assign-label" ), StringExpression
+                StringExpression.symbol( "assign-label" ), StringExpression
                         .makeString( Integer.toString(targetSerial) ),
                 StringExpression.makeString( Integer.toString( label ) ) );
     }
@@ -48,9 +48,9 @@ public class AuthorizedToCastEvent extends ABallotEvent {
      */
     private static MatcherRule MATCHER = new MatcherRule() {
         /* This message will be of the form (authorized-to-cast targetSerial nonce precinct ballot)*/
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "authorized-to-cast" ), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON, StringWildcard.SINGLETON, StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "authorized-to-cast" ), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON, StringWildcard.SINGLETON, StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
 
@@ -122,7 +122,7 @@ public class AuthorizedToCastEvent extends ABallotEvent {
      */
     public ASExpression toSExp() {
     	return new ListExpression( StringExpression
-                .makeString( "authorized-to-cast" ), StringExpression
+                .symbol( "authorized-to-cast" ), StringExpression
                 .makeString( Integer.toString(targetSerial) ), getNonce(), StringExpression
                 .makeString( getPrecinct() ), StringExpression.makeString( getBallot() ));
     }
@@ -14,8 +14,8 @@ public class BallotPrintFailEvent extends ABallotEvent {
      * Matcher for the pinEntered message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString("ballot-print-fail"), StringWildcard.SINGLETON, StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol("ballot-print-fail"), StringWildcard.SINGLETON, StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -53,7 +53,7 @@ public class BallotPrintFailEvent extends ABallotEvent {
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression( StringExpression.makeString("ballot-print-fail"),
+        return new ListExpression( StringExpression.symbol("ballot-print-fail"),
                 StringExpression.makeString( getBID() ),
                 getNonce());
     }
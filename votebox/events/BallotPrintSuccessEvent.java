@@ -11,8 +11,8 @@ public class BallotPrintSuccessEvent extends ABallotEvent{
          * Matcher for the pinEntered message
          */
         private static MatcherRule MATCHER = new MatcherRule() {
-            private ASExpression pattern = new ListExpression( StringExpression
-                    .makeString("ballot-print-success"), StringWildcard.SINGLETON, StringWildcard.SINGLETON );
+            private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                    .symbol("ballot-print-success"), StringWildcard.SINGLETON, StringWildcard.SINGLETON ) );
 
             public IAnnounceEvent match(int serial, ASExpression sexp) {
                 ASExpression res = pattern.match( sexp );
@@ -50,7 +50,7 @@ public class BallotPrintSuccessEvent extends ABallotEvent{
 
         /** @see votebox.events.IAnnounceEvent#toSExp() */
         public ASExpression toSExp() {
-            return new ListExpression( StringExpression.makeString("ballot-print-success"),
+            return new ListExpression( StringExpression.symbol("ballot-print-success"),
                     StringExpression.makeString( getBID() ),
                     getNonce());
         }
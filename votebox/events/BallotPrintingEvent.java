@@ -12,8 +12,8 @@ public class BallotPrintingEvent extends ABallotEvent {
      * Matcher for the pinEntered message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString("ballot-printing"), StringWildcard.SINGLETON, StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol("ballot-printing"), StringWildcard.SINGLETON, StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -46,7 +46,7 @@ public class BallotPrintingEvent extends ABallotEvent {
     }
 
     public ASExpression toSExp() {
-        return new ListExpression( StringExpression.makeString("ballot-printing"),
+        return new ListExpression( StringExpression.symbol("ballot-printing"),
                 StringExpression.makeString( getBID() ),
                 getNonce());
     }
@@ -45,9 +45,9 @@ public class BallotReceivedEvent extends ABallotEvent {
      * The matcher for the BallotReceivedEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "ballot-received" ), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON, StringWildcard.SINGLETON, StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "ballot-received" ), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON, StringWildcard.SINGLETON, StringWildcard.SINGLETON) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
 
@@ -103,7 +103,7 @@ public class BallotReceivedEvent extends ABallotEvent {
     /** @see IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
 
-    	return new ListExpression( StringExpression.makeString("ballot-received"),
+    	return new ListExpression( StringExpression.symbol("ballot-received"),
                 StringExpression.makeString(Integer.toString(targetSerial)),
                 getNonce(),
                 StringExpression.makeString(getBID()),
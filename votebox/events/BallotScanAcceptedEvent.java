@@ -15,8 +15,8 @@ public class BallotScanAcceptedEvent extends AAnnounceEvent{
      * The matcher for the BallotReceivedEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString("ballot-accepted"), StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol("ballot-accepted"), StringWildcard.SINGLETON) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match(sexp);
@@ -64,7 +64,7 @@ public class BallotScanAcceptedEvent extends AAnnounceEvent{
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression( StringExpression
-                .makeString( "ballot-accepted" ),
+                .symbol( "ballot-accepted" ),
                 StringExpression.makeString(bid) );
     }
 }
@@ -15,8 +15,8 @@ public class BallotScanRejectedEvent extends AAnnounceEvent {
      * The matcher for the BallotReceivedEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString("ballot-rejected"), StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol("ballot-rejected"), StringWildcard.SINGLETON) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match(sexp);
@@ -66,7 +66,7 @@ public class BallotScanRejectedEvent extends AAnnounceEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression( StringExpression
-                .makeString( "ballot-rejected" ),
+                .symbol( "ballot-rejected" ),
                 StringExpression.makeString(bid) );
     }
 }
@@ -11,8 +11,8 @@ public class BallotScannedEvent extends ABallotEvent {
      * Matcher for the ballotscanned message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression
-                .makeString("ballot-scanned"), StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression
+                .symbol("ballot-scanned"), StringWildcard.SINGLETON));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match(sexp);
@@ -48,7 +48,7 @@ public class BallotScannedEvent extends ABallotEvent {
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.makeString("ballot-scanned"),
+        return new ListExpression(StringExpression.symbol("ballot-scanned"),
                 StringExpression.makeString(getBID()));
     }
 
@@ -13,10 +13,10 @@ public class BallotScannerEvent extends AAnnounceEvent {
      * Matcher for the ballotScanner message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression
-                .makeString("ballotscanner"), StringWildcard.SINGLETON,
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression
+                .symbol("ballotscanner"), StringWildcard.SINGLETON,
                 StringWildcard.SINGLETON, StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON, StringWildcard.SINGLETON );
+                StringWildcard.SINGLETON, StringWildcard.SINGLETON ));
 
         public IAnnounceEvent match(int serial, ASExpression sexp){
             ASExpression res = pattern.match(sexp);
@@ -120,7 +120,7 @@ public class BallotScannerEvent extends AAnnounceEvent {
     public ASExpression toSExp() {
         return new ListExpression(
 
-                StringExpression.makeString("ballotscanner"),
+                StringExpression.symbol("ballotscanner"),
                 StringExpression.makeString( Integer.toString( label ) ),
                 StringExpression.makeString(status),
                 StringExpression.makeString( Integer.toString( battery ) ),
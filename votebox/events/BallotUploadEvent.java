@@ -3,6 +3,7 @@ package votebox.events;
 
 import org.apache.commons.codec.binary.Base64;
 import sexpression.ASExpression;
+import sexpression.CompiledPattern;
 import sexpression.ListExpression;
 import sexpression.NamedNoMatch;
 import sexpression.StringExpression;
@@ -16,8 +17,8 @@ import java.util.HashMap;
 public class BallotUploadEvent extends AAnnounceEvent {
 
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = ASExpression
-                .make("(ballot-upload %map:#any)");
+        private CompiledPattern pattern = CompiledPattern.compile(ASExpression
+                .make("(ballot-upload %map:#any)"));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             HashMap<String, ASExpression> result = pattern.namedMatch(sexp);
@@ -80,7 +81,7 @@ public class BallotUploadEvent extends AAnnounceEvent {
 
         String encoded = Base64.encodeBase64String(byteArrayOutputStream.toByteArray());
 
-        return new ListExpression(StringExpression.makeString("ballot-upload"), StringExpression.make(encoded));
+        return new ListExpression(StringExpression.symbol("ballot-upload"), StringExpression.make(encoded));
     }
 
     @Override
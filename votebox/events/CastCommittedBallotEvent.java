@@ -43,8 +43,8 @@ public class CastCommittedBallotEvent extends ABallotEvent {
      * Matcher for the CastCommittedBallotEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression
-                .makeString("cast-ballot"), StringWildcard.SINGLETON, StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression
+                .symbol("cast-ballot"), StringWildcard.SINGLETON, StringWildcard.SINGLETON));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match(sexp);
@@ -108,7 +108,7 @@ public class CastCommittedBallotEvent extends ABallotEvent {
      * @see votebox.events.IAnnounceEvent#toSExp()
      */
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.makeString("cast-ballot"),
+        return new ListExpression(StringExpression.symbol("cast-ballot"),
                 getNonce(),
                 StringExpression.makeString(getBID()),
                 StringExpression.makeString(getSource() + ""));
@@ -36,14 +36,13 @@ import sexpression.*;
 public class CommitBallotEvent extends ABallotEvent {
 
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression.makeString("commit-ballot"),
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression.symbol("commit-ballot"),
                 StringWildcard.SINGLETON, Wildcard.SINGLETON, StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON);
+                StringWildcard.SINGLETON));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
 
-            ASExpression res = pattern.match( sexp );
-            if (res != NoMatch.SINGLETON) {
+            if (pattern.matches( sexp )) {
 
 
                 ListExpression lsexp = (ListExpression) sexp;
@@ -95,7 +94,7 @@ public class CommitBallotEvent extends ABallotEvent {
      * @see votebox.events.IAnnounceEvent#toSExp()
      */
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.make("commit-ballot"),
+        return new ListExpression(StringExpression.symbol("commit-ballot"),
                 getNonce(),
                 StringExpression.makeString(getBallot()),
                 StringExpression.make(getBID()),
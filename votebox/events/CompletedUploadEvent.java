@@ -1,8 +1,8 @@
 package votebox.events;
 
 import sexpression.ASExpression;
+import sexpression.CompiledPattern;
 import sexpression.ListExpression;
-import sexpression.NoMatch;
 import sexpression.StringExpression;
 
 /**
@@ -17,13 +17,11 @@ public class CompletedUploadEvent extends AAnnounceEvent {
      */
     private static MatcherRule MATCHER = new MatcherRule() {
 
-        private ASExpression pattern = new ListExpression(StringExpression.makeString("completed-upload"));
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression.symbol("completed-upload")));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
 
-            ASExpression res = pattern.match(sexp);
-
-            if (res != NoMatch.SINGLETON)
+            if (pattern.matches(sexp))
                 return new CompletedUploadEvent(serial);
 
             return null;
@@ -57,7 +55,7 @@ public class CompletedUploadEvent extends AAnnounceEvent {
      */
     @Override
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.make("completed-upload"));
+        return new ListExpression(StringExpression.symbol("completed-upload"));
     }
 
 
@@ -38,13 +38,12 @@ public class EncryptedCastBallotEvent extends CastCommittedBallotEvent{
      * Matcher for the EncryptedCastBallotEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression.makeString("encrypted-cast-ballot"),
-                StringWildcard.SINGLETON, Wildcard.SINGLETON, StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression.symbol("encrypted-cast-ballot"),
+                StringWildcard.SINGLETON, Wildcard.SINGLETON, StringWildcard.SINGLETON));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
 
-            ASExpression res = pattern.match(sexp);
-            if (res != NoMatch.SINGLETON) {
+            if (pattern.matches(sexp)) {
 
                 ListExpression lsexp = (ListExpression) sexp;
 
@@ -85,7 +84,7 @@ public class EncryptedCastBallotEvent extends CastCommittedBallotEvent{
      * @see votebox.events.IAnnounceEvent#toSExp()
      */
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.makeString("encrypted-cast-ballot"),
+        return new ListExpression(StringExpression.symbol("encrypted-cast-ballot"),
                 getNonce(),
                 StringExpression.makeString(getBallot()),
                 StringExpression.makeString(getBID()),
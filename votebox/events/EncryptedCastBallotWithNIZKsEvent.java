@@ -11,13 +11,12 @@ public class EncryptedCastBallotWithNIZKsEvent extends EncryptedCastBallotEvent
      * Matcher for the EncryptedCastBallotEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression.makeString("encrypted-cast-ballot-with-nizks"),
-                StringWildcard.SINGLETON, Wildcard.SINGLETON, StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression.symbol("encrypted-cast-ballot-with-nizks"),
+                StringWildcard.SINGLETON, Wildcard.SINGLETON, StringWildcard.SINGLETON));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
 
-            ASExpression res = pattern.match(sexp);
-            if (res != NoMatch.SINGLETON) {
+            if (pattern.matches(sexp)) {
 
                 ListExpression lsexp = (ListExpression) sexp;
 
@@ -49,7 +48,7 @@ public class EncryptedCastBallotWithNIZKsEvent extends EncryptedCastBallotEvent
     }
 
     public ASExpression toSExp(){
-        return new ListExpression(StringExpression.makeString("encrypted-cast-ballot-with-nizks"),
+        return new ListExpression(StringExpression.symbol("encrypted-cast-ballot-with-nizks"),
                 getNonce(),
                 StringExpression.makeString(getBallot()),
                 StringExpression.makeString(getBID()),
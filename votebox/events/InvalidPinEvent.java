@@ -14,8 +14,8 @@ public class InvalidPinEvent extends AAnnounceEvent{
      * Matcher for the pinEntered message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString("invalid-pin"), StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol("invalid-pin"), StringWildcard.SINGLETON) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -56,7 +56,7 @@ public class InvalidPinEvent extends AAnnounceEvent{
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression( StringExpression.makeString("invalid-pin"),
+        return new ListExpression( StringExpression.symbol("invalid-pin"),
                 StringExpression.make("" + targetSerial));
     }
 
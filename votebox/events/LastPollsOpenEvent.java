@@ -46,9 +46,9 @@ public class LastPollsOpenEvent extends AAnnounceEvent {
      * Matcher for the LastPollsOpenEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "last-polls-open" ), new ListWildcard(
-                Wildcard.SINGLETON ) );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "last-polls-open" ), new ListWildcard(
+                Wildcard.SINGLETON ) ) );
 
         private VoteBoxEventMatcher pollsOpenMatcher = new VoteBoxEventMatcher(
                 PollsOpenEvent.getMatcher() );
@@ -103,7 +103,7 @@ public class LastPollsOpenEvent extends AAnnounceEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression( StringExpression
-                .makeString( "last-polls-open" ), pollsOpenMsg.toSExp() );
+                .symbol( "last-polls-open" ), pollsOpenMsg.toSExp() );
     }
 
 }
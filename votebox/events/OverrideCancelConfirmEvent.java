@@ -44,9 +44,9 @@ public class OverrideCancelConfirmEvent extends ABallotEvent {
      * Matcher for the OverrideCancelConfirmEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "override-cancel-confirm" ),
-                StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "override-cancel-confirm" ),
+                StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -85,7 +85,7 @@ public class OverrideCancelConfirmEvent extends ABallotEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
     	return new ListExpression( StringExpression
-                .makeString( "override-cancel-confirm" ), getNonce());
+                .symbol( "override-cancel-confirm" ), getNonce());
     }
 
 }
@@ -43,8 +43,8 @@ public class OverrideCancelDenyEvent extends ABallotEvent {
      * Matcher for the OverrideCancelDenyEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "override-cancel-deny" ), StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "override-cancel-deny" ), StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -85,7 +85,7 @@ public class OverrideCancelDenyEvent extends ABallotEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
     	return new ListExpression( StringExpression
-                .makeString( "override-cancel-deny" ), getNonce());
+                .symbol( "override-cancel-deny" ), getNonce());
     }
 
 }
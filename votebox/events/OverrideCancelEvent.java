@@ -46,9 +46,9 @@ public class OverrideCancelEvent extends ABallotEvent {
      * Matcher for the OverrideCancelEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "override-cancel" ), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "override-cancel" ), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -100,7 +100,7 @@ public class OverrideCancelEvent extends ABallotEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
     	return new ListExpression( StringExpression
-                .makeString( "override-cancel" ), StringExpression
+                .symbol( "override-cancel" ), StringExpression
                 .makeString( Integer.toString(targetSerial) ), getNonce());
     }
 
@@ -44,9 +44,9 @@ public class OverrideCommitConfirmEvent extends ABallotEvent {
      * Matcher for the OverrideCommitConfirmEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "override-commit-confirm" ),
-                StringWildcard.SINGLETON, StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "override-commit-confirm" ),
+                StringWildcard.SINGLETON, StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -88,7 +88,7 @@ public class OverrideCommitConfirmEvent extends ABallotEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
     	return new ListExpression( StringExpression
-                .makeString( "override-commit-confirm" ),
+                .symbol( "override-commit-confirm" ),
                 getNonce(),
                 StringExpression.makeString(getBallot()));
     }
@@ -44,8 +44,8 @@ public class OverrideCommitDenyEvent extends ABallotEvent {
      * Matcher for the OverrideCommitDenyEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "override-commit-deny" ), StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "override-commit-deny" ), StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -86,7 +86,7 @@ public class OverrideCommitDenyEvent extends ABallotEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
     	return new ListExpression( StringExpression
-                .makeString( "override-commit-deny" ), getNonce());
+                .symbol( "override-commit-deny" ), getNonce());
     }
 
 }
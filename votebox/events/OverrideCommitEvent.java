@@ -46,9 +46,9 @@ public class OverrideCommitEvent extends ABallotEvent {
      * Matcher for the OverrideCommitEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "override-cast" ), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "override-cast" ), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -97,7 +97,7 @@ public class OverrideCommitEvent extends ABallotEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
     	return new ListExpression( StringExpression
-                .makeString( "override-cast" ), StringExpression
+                .symbol( "override-cast" ), StringExpression
                 .makeString( Integer.toString(targetSerial) ), getNonce());
     }
 
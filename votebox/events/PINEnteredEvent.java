@@ -14,8 +14,8 @@ public class PINEnteredEvent extends AAnnounceEvent {
      * Matcher for the pinEntered message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "pin-entered" ), StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "pin-entered" ), StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -61,7 +61,7 @@ public class PINEnteredEvent extends AAnnounceEvent {
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression( StringExpression.makeString("pin-entered"),
+        return new ListExpression( StringExpression.symbol("pin-entered"),
                 StringExpression.makeString(pin));
     }
 
@@ -49,9 +49,9 @@ public class PollMachinesEvent extends AAnnounceEvent {
      * Matcher for the PollsOpenEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "poll-machines" ), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "poll-machines" ), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -104,7 +104,7 @@ public class PollMachinesEvent extends AAnnounceEvent {
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression( StringExpression.makeString( "poll-machines" ),
+        return new ListExpression( StringExpression.symbol( "poll-machines" ),
                 StringExpression.makeString( Long.toString( timestamp ) ),
                 StringExpression.makeString( keyword ) );
     }
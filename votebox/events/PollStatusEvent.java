@@ -20,9 +20,9 @@ public class PollStatusEvent extends AAnnounceEvent{
      * Matcher for the AssignLabelEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString("poll-status"), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol("poll-status"), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match(sexp);
@@ -78,7 +78,7 @@ public class PollStatusEvent extends AAnnounceEvent{
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression(
-                StringExpression.makeString( "poll-status" ), StringExpression
+                StringExpression.symbol( "poll-status" ), StringExpression
                 .makeString( Integer.toString(targetSerial) ),
                 StringExpression.makeString( Integer.toString( pollsOpen ) ) );
     }
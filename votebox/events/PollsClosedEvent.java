@@ -46,8 +46,8 @@ public class PollsClosedEvent extends AAnnounceEvent {
      * Matcher for the PollsClosedEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "polls-closed" ), StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "polls-closed" ), StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -97,7 +97,7 @@ public class PollsClosedEvent extends AAnnounceEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression(
-                StringExpression.makeString( "polls-closed" ), StringExpression
+                StringExpression.symbol( "polls-closed" ), StringExpression
                         .makeString( Long.toString( timestamp ) ) );
     }
     
@@ -48,9 +48,9 @@ public class PollsOpenEvent extends AAnnounceEvent {
      * Matcher for the PollsOpenEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "polls-open" ), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "polls-open" ), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -107,7 +107,7 @@ public class PollsOpenEvent extends AAnnounceEvent {
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression( StringExpression.makeString( "polls-open" ),
+        return new ListExpression( StringExpression.symbol( "polls-open" ),
                 StringExpression.makeString( Long.toString( timestamp ) ),
                 StringExpression.makeString( keyword ) );
     }
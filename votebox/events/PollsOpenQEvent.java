@@ -46,8 +46,8 @@ public class PollsOpenQEvent extends AAnnounceEvent {
      * Matcher for the PollsOpenEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "polls-open?" ), StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "polls-open?" ), StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -94,7 +94,7 @@ public class PollsOpenQEvent extends AAnnounceEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression(
-                StringExpression.makeString( "polls-open?" ), StringExpression
+                StringExpression.symbol( "polls-open?" ), StringExpression
                         .makeString( keyword ) );
     }
 
@@ -17,9 +17,9 @@ public class ProvisionalAuthorizeEvent extends ABallotEvent {
      * The matcher for the ProvisionalAuthorizeEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString("provisional-authorized-to-cast"), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON, StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol("provisional-authorized-to-cast"), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON, StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -76,7 +76,7 @@ public class ProvisionalAuthorizeEvent extends ABallotEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression( StringExpression
-                .makeString( "provisional-authorized-to-cast" ), StringExpression
+                .symbol( "provisional-authorized-to-cast" ), StringExpression
                 .makeString( Integer.toString(targetSerial) ), getNonce(), StringExpression.makeString( getBallot() ) );
     }
 
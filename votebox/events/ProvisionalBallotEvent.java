@@ -14,8 +14,8 @@ public class ProvisionalBallotEvent extends ABallotEvent{
      * Matcher for the ProvisionalBallotEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression.makeString("provisional-ballot"),
-                StringWildcard.SINGLETON, Wildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression.symbol("provisional-ballot"),
+                StringWildcard.SINGLETON, Wildcard.SINGLETON));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match(sexp);
@@ -57,7 +57,7 @@ public class ProvisionalBallotEvent extends ABallotEvent{
      * @see votebox.events.IAnnounceEvent#toSExp()
      */
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.makeString("provisional-ballot"),
+        return new ListExpression(StringExpression.symbol("provisional-ballot"),
                 getNonce(), StringExpression.make(getBID()));
     }
 }
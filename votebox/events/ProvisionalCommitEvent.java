@@ -10,14 +10,12 @@ import sexpression.*;
 public class ProvisionalCommitEvent extends ABallotEvent {
 
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression.makeString("commit-provisional-ballot"),
-                StringWildcard.SINGLETON, Wildcard.SINGLETON, StringWildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression.symbol("commit-provisional-ballot"),
+                StringWildcard.SINGLETON, Wildcard.SINGLETON, StringWildcard.SINGLETON));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
 
-            ASExpression res = pattern.match(sexp);
-
-            if (res != NoMatch.SINGLETON) {
+            if (pattern.matches(sexp)) {
                 ListExpression result = (ListExpression) sexp;
 
                 ASExpression nonce = result.get(1);
@@ -63,7 +61,7 @@ public class ProvisionalCommitEvent extends ABallotEvent {
      * @see votebox.events.IAnnounceEvent#toSExp()
      */
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.makeString("commit-provisional-ballot"),
+        return new ListExpression(StringExpression.symbol("commit-provisional-ballot"),
                 getNonce(),
                 StringExpression.makeString(getBallot()),
                 StringExpression.make(getBID()));
@@ -15,8 +15,8 @@ public class SpoilBallotEvent extends ABallotEvent {
      * Matcher for the SpoilBallotEvent
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression.makeString("spoil-ballot"),
-                StringWildcard.SINGLETON, StringWildcard.SINGLETON, Wildcard.SINGLETON);
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression.symbol("spoil-ballot"),
+                StringWildcard.SINGLETON, StringWildcard.SINGLETON, Wildcard.SINGLETON));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match(sexp);
@@ -67,7 +67,7 @@ public class SpoilBallotEvent extends ABallotEvent {
      */
     public ASExpression toSExp() {
         try {
-            return new ListExpression(StringExpression.makeString("spoil-ballot"), getNonce(), StringExpression.make(getBID()), ASExpression.makeVerbatim(getBallot()));
+            return new ListExpression(StringExpression.symbol("spoil-ballot"), getNonce(), StringExpression.make(getBID()), ASExpression.makeVerbatim(getBallot()));
         } catch (InvalidVerbatimStreamException e) {
             throw new RuntimeException(e);
         }
@@ -1,8 +1,8 @@
 package votebox.events;
 
 import sexpression.ASExpression;
+import sexpression.CompiledPattern;
 import sexpression.ListExpression;
-import sexpression.NoMatch;
 import sexpression.StringExpression;
 
 /**
@@ -15,12 +15,11 @@ public class StartScannerEvent extends AAnnounceEvent{
      * Matcher for the ballotScanner message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression
-                .makeString("start-scanner"));
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression
+                .symbol("start-scanner")));
 
         public IAnnounceEvent match(int serial, ASExpression sexp){
-            ASExpression res = pattern.match(sexp);
-            if (res != NoMatch.SINGLETON) {
+            if (pattern.matches(sexp)) {
                 return new StartScannerEvent(serial);
             }
             return null;
@@ -47,6 +46,6 @@ public class StartScannerEvent extends AAnnounceEvent{
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.makeString("start-scanner"));
+        return new ListExpression(StringExpression.symbol("start-scanner"));
     }
 }
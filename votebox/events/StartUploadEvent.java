@@ -1,8 +1,8 @@
 package votebox.events;
 
 import sexpression.ASExpression;
+import sexpression.CompiledPattern;
 import sexpression.ListExpression;
-import sexpression.NoMatch;
 import sexpression.StringExpression;
 
 /**
@@ -17,12 +17,11 @@ public class StartUploadEvent extends AAnnounceEvent {
      * Matcher for the StartUploadEvent message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression
-                .makeString("start-upload"));
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression
+                .symbol("start-upload")));
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
-            ASExpression res = pattern.match( sexp );
-            if (res != NoMatch.SINGLETON) {
+            if (pattern.matches( sexp )) {
 
                 return new StartUploadEvent(serial);
             }
@@ -58,7 +57,7 @@ public class StartUploadEvent extends AAnnounceEvent {
      */
     @Override
     public ASExpression toSExp() {
-        return new ListExpression(StringExpression.make("start-upload"));
+        return new ListExpression(StringExpression.symbol("start-upload"));
     }
 
 
@@ -49,9 +49,9 @@ public class StatusEvent extends AAnnounceEvent {
      * Matcher for the StatusEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "status" ), StringWildcard.SINGLETON,
-                new ListWildcard( Wildcard.SINGLETON ) );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "status" ), StringWildcard.SINGLETON,
+                new ListWildcard( Wildcard.SINGLETON ) ) );
 
         private VoteBoxEventMatcher statusMatcher = new VoteBoxEventMatcher(
                 SupervisorEvent.getMatcher(), VoteBoxEvent.getMatcher() );
@@ -113,7 +113,7 @@ public class StatusEvent extends AAnnounceEvent {
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression( StringExpression.makeString( "status" ),
+        return new ListExpression( StringExpression.symbol( "status" ),
                 StringExpression.makeString( Integer.toString(targetSerial) ), status
                         .toSExp() );
     }
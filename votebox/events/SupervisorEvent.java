@@ -49,9 +49,9 @@ public class SupervisorEvent extends AAnnounceEvent {
      * Matcher for the supervisor message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "supervisor" ), StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON );
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "supervisor" ), StringWildcard.SINGLETON,
+                StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -109,7 +109,7 @@ public class SupervisorEvent extends AAnnounceEvent {
 
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
-        return new ListExpression( StringExpression.makeString( "supervisor" ),
+        return new ListExpression( StringExpression.symbol( "supervisor" ),
                 StringExpression.makeString( Long.toString( timestamp ) ),
                 StringExpression.makeString( status ) );
     }
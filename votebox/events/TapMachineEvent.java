@@ -1,8 +1,8 @@
 package votebox.events;
 
 import sexpression.ASExpression;
+import sexpression.CompiledPattern;
 import sexpression.ListExpression;
-import sexpression.NoMatch;
 import sexpression.StringExpression;
 
 /**
@@ -15,12 +15,11 @@ public class TapMachineEvent extends AAnnounceEvent {
      * Matcher for the ballotScanner message
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression(StringExpression
-                .makeString("tap-machine"));
+        private CompiledPattern pattern = CompiledPattern.compile(new ListExpression(StringExpression
+                .symbol("tap-machine")));
 
         public IAnnounceEvent match(int serial, ASExpression sexp){
-            ASExpression res = pattern.match(sexp);
-            if (res != NoMatch.SINGLETON) {
+            if (pattern.matches(sexp)) {
                 return new TapMachineEvent(serial);
             }
 
@@ -49,7 +48,7 @@ public class TapMachineEvent extends AAnnounceEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression(
-                StringExpression.makeString("tap-machine")
+                StringExpression.symbol("tap-machine")
         );
     }
 }
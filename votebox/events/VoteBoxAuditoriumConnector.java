@@ -132,26 +132,18 @@ public class VoteBoxAuditoriumConnector {
     @SuppressWarnings("EmptyCatchBlock")
     public void connect(final int delay, final int repeats) throws NetworkException {
 
+        /*
+         * Rejoin the hosts we were connected to before (say, before a reboot). If any of them are still
+         * there, we're back on the network without waiting out a discovery, and anyone new will find us.
+         */
+        if (join( auditorium.getCachedPeers() ) > 0)
+            return;
+
         /* Obtain the list of host pointers */
         HostPointer[] hosts = auditorium.discover();
 
         /* Iterate through each host pointer and attempt to join the network via that host */
-        for (HostPointer host : hosts) {
-
-            /* Only join hosts that aren't ourselves */
-            if (!host.getNodeId().equals( auditorium.getNodeId() )) {
-                try {
-                    /* try to join. This will throw an error if it fails */
-                    auditorium.join(host);
-
-                    /* Now we've successfully joined, notify the observers */
-                    notifier.joined(new JoinEvent(Integer.parseInt(host.getNodeId())));
-                }
-
-                /* If we catch an error, don't do anything, just go on to the next host */
-                catch (NetworkException e) {}
-            }
-        }
+        join( hosts );
 
         /* Repeat if necessary */
         if (hosts.length == 0 && repeats > 0 && delay > 0) {
@@ -173,6 +165,36 @@ public class VoteBoxAuditoriumConnector {
         }
     }
 
+    /**
+     * Attempts to join each of the given hosts, other than ourselves.
+     *
+     * @param hosts         the hosts to join
+     * @return              the number of hosts joined
+     */
+    @SuppressWarnings("EmptyCatchBlock")
+    private int join(HostPointer[] hosts) {
+        int joined = 0;
+        for (HostPointer host : hosts) {
+
+            /* Only join hosts that aren't ourselves */
+            if (!host.getNodeId().equals( auditorium.getNodeId() )) {
+                try {
+                    /* try to join. This will throw an error if it fails */
+                    auditorium.join(host);
+
+                    /* Now we've successfully joined, notify the observers */
+                    notifier.joined(new JoinEvent(Integer.parseInt(host.getNodeId())));
+                    joined++;
+                }
+
+                /* If we catch an error, don't do anything, just go on to the next host */
+                catch (NetworkException e) {}
+            }
+        }
+
+        return joined;
+    }
+
     /**
      * Broadcasts an announcement on the auditorium network. The event is then
      * fired, as if this node had heard the announcement from someone else. All
@@ -184,7 +206,19 @@ public class VoteBoxAuditoriumConnector {
      * @param e the event to announce
      */
     public void announce(IAnnounceEvent e) {
-        auditorium.announce( e.toSExp() );
+        announce(e, false);
+    }
+
+    /**
+     * Broadcasts an announcement on the auditorium network, as in
+     * announce(IAnnounceEvent), optionally forcing the auditorium log to disk
+     * once the announcement has been logged.
+     *
+     * @param e     the event to announce
+     * @param sync  whether the log must be durable once this event is logged
+     */
+    public void announce(IAnnounceEvent e, boolean sync) {
+        auditorium.announce( e.toSExp(), sync );
         System.out.println("Auditorium announced: " + e.getClass().getSimpleName());
         e.fire(notifier);
     }
@@ -194,9 +228,8 @@ public class VoteBoxAuditoriumConnector {
      * hear (to hear a specific event, the events Matcher Rule must be sent in as part of the constructor's arguments)
      */
     private void initEventThread() {
-        new Thread() {
+        auditorium.getThreads().start( "votebox-events", new Runnable() {
 
-            @Override
             public void run() {
                 while (true) {
                     try {
@@ -213,6 +246,6 @@ public class VoteBoxAuditoriumConnector {
                     }
                 }
             }
-        }.start();
+        } );
     }
 }
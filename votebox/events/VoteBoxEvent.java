@@ -56,10 +56,10 @@ public class VoteBoxEvent extends AAnnounceEvent {
      * Matcher for the VoteBoxEvent.
      */
     private static MatcherRule MATCHER = new MatcherRule() {
-        private ASExpression pattern = new ListExpression( StringExpression
-                .makeString( "votebox" ), StringWildcard.SINGLETON,
+        private CompiledPattern pattern = CompiledPattern.compile( new ListExpression( StringExpression
+                .symbol( "votebox" ), StringWildcard.SINGLETON,
                 StringWildcard.SINGLETON, StringWildcard.SINGLETON,
-                StringWildcard.SINGLETON, StringWildcard.SINGLETON );
+                StringWildcard.SINGLETON, StringWildcard.SINGLETON ) );
 
         public IAnnounceEvent match(int serial, ASExpression sexp) {
             ASExpression res = pattern.match( sexp );
@@ -153,7 +153,7 @@ public class VoteBoxEvent extends AAnnounceEvent {
     /** @see votebox.events.IAnnounceEvent#toSExp() */
     public ASExpression toSExp() {
         return new ListExpression(
-                StringExpression.makeString( "votebox" ),
+                StringExpression.symbol( "votebox" ),
                 StringExpression.makeString( Integer.toString( label ) ),
                 StringExpression.makeString( status ), StringExpression
                         .makeString( Integer.toString( battery ) ),
@@ -24,6 +24,7 @@ package votebox.middle.datacollection;
 
 import auditorium.IAuditoriumParams;
 import auditorium.IKeyStore;
+import auditorium.Link;
 import crypto.PlaintextRaceSelection;
 import supervisor.model.Ballot;
 import printer.Printer;
@@ -197,6 +198,26 @@ public class Launcher {
 
                     public int          getListenPort()                  { return 0; }
                     public int          getJoinTimeout()                 { return 0; }
+                    public int          getLinkQueueCapacity()           { return Link.DEFAULT_QUEUE_CAPACITY; }
+                    public int          getLinkSendTimeout()             { return Link.DEFAULT_SEND_TIMEOUT;   }
+                    public Link.OverflowPolicy getLinkOverflowPolicy()   { return Link.DEFAULT_OVERFLOW_POLICY; }
+                    public int          getLogSyncEvery()                { return 0; }
+                    public int          getLogSyncInterval()             { return 0; }
+                    public long         getLogPreallocation()            { return 0; }
+                    public long         getLogSegmentSize()              { return 0; }
+                    public int          getLogSegmentInterval()          { return 0; }
+                    public int          getAnnounceBatchWindow()         { return 0; }
+                    public int          getVerifyThreads()               { return 0; }
+                    public String       getTransport()                   { return "threads"; }
+                    public String       getThreadMode()                  { return "platform"; }
+                    public int          getDiscoverPeers()               { return 0; }
+                    public String       getPeerCache()                   { return ""; }
+                    public int          getCatchUpBatch()                { return 0; }
+                    public int          getCompressionThreshold()        { return 0; }
+                    public int          getMetricsInterval()             { return 0; }
+                    public int          getIncrementalVerifyEvery()      { return 0; }
+                    public int          getIncrementalVerifyInterval()   { return 0; }
+                    public String       getHashChainMode()               { return "compat"; }
                     public int          getViewRestartTimeout()          { return 1; }
                     public int          getPaperHeightForVVPAT()         { return vvpatHeight;     }
                     public int          getPaperWidthForVVPAT()          { return vvpatWidth;      }